@@ -0,0 +1,118 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.nextcloud.client.database
+
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
+import org.junit.After
+import org.junit.Assert.assertFalse
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Makes sure that the hot lookups done by [com.nextcloud.client.database.dao.FileDao] and
+ * [com.owncloud.android.providers.FileContentProvider] are served by an index instead of a full table scan.
+ */
+@RunWith(AndroidJUnit4::class)
+class QueryPlanTest {
+
+    private lateinit var database: NextcloudDatabase
+
+    @Before
+    fun setUp() {
+        database = Room
+            .inMemoryDatabaseBuilder(
+                InstrumentationRegistry.getInstrumentation().targetContext,
+                NextcloudDatabase::class.java
+            )
+            .allowMainThreadQueries()
+            .build()
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun fileDaoQueriesUseIndices() {
+        assertNoTableScan(
+            ProviderTableMeta.FILE_TABLE_NAME,
+            "SELECT * FROM filelist WHERE path = ? AND file_owner = ? LIMIT 1",
+            "SELECT * FROM filelist WHERE path_decrypted = ? AND file_owner = ? LIMIT 1",
+            "SELECT * FROM filelist WHERE media_path = ? AND file_owner = ? LIMIT 1",
+            "SELECT * FROM filelist WHERE remote_id = ? AND file_owner = ? LIMIT 1",
+            "SELECT * FROM filelist WHERE parent = ? ORDER BY ${ProviderTableMeta.FILE_DEFAULT_SORT_ORDER}",
+            "SELECT * FROM filelist WHERE modified >= ? AND modified < ?" +
+                " AND (content_type LIKE 'image/%' OR content_type LIKE 'video/%')" +
+                " AND file_owner = ? ORDER BY ${ProviderTableMeta.FILE_DEFAULT_SORT_ORDER}"
+        )
+    }
+
+    @Test
+    fun contentProviderQueriesUseIndices() {
+        assertNoTableScan(
+            ProviderTableMeta.OCSHARES_TABLE_NAME,
+            "SELECT * FROM ocshares WHERE path = ? AND owner_share = ?",
+            "SELECT * FROM ocshares WHERE path = ? AND share_type = ? AND owner_share = ?",
+            "SELECT * FROM ocshares WHERE id_remote_shared = ?"
+        )
+        assertNoTableScan(
+            ProviderTableMeta.UPLOADS_TABLE_NAME,
+            "SELECT * FROM list_of_uploads WHERE account_name = ? AND remote_path = ?",
+            "SELECT * FROM list_of_uploads WHERE status = ? AND account_name = ?",
+            "SELECT * FROM list_of_uploads WHERE status = ?"
+        )
+        assertNoTableScan(
+            ProviderTableMeta.FILESYSTEM_TABLE_NAME,
+            "SELECT * FROM filesystem WHERE syncedfolder_id = ?",
+            "SELECT * FROM filesystem WHERE local_path = ? AND syncedfolder_id = ?",
+            "SELECT * FROM filesystem WHERE local_path LIKE ? AND syncedfolder_id = ? AND " +
+                "upload_triggered = ? AND is_folder = ?"
+        )
+    }
+
+    private fun assertNoTableScan(table: String, vararg queries: String) {
+        val scan = Regex("^SCAN (TABLE )?$table\\b")
+        queries.forEach { query ->
+            val plan = explain(query)
+            assertFalse(
+                "Full table scan of $table for \"$query\": $plan",
+                plan.any { scan.containsMatchIn(it) }
+            )
+        }
+    }
+
+    private fun explain(query: String): List<String> {
+        val args = arrayOfNulls<Any>(query.count { it == '?' })
+        val details = mutableListOf<String>()
+        database.openHelper.readableDatabase.query("EXPLAIN QUERY PLAN $query", args).use { cursor ->
+            val detailColumn = cursor.getColumnIndexOrThrow("detail")
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detailColumn))
+            }
+        }
+        return details
+    }
+}
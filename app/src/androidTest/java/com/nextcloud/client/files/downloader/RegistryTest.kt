@@ -46,7 +46,9 @@ import java.util.UUID
     RegistryTest.Progress::class,
     RegistryTest.Complete::class,
     RegistryTest.GetTransfers::class,
-    RegistryTest.IsRunning::class
+    RegistryTest.IsRunning::class,
+    RegistryTest.CoalescedProgress::class,
+    RegistryTest.History::class
 )
 class RegistryTest {
 
@@ -519,4 +521,167 @@ class RegistryTest {
             assertFalse(registry.isRunning)
         }
     }
+
+    class CoalescedProgress : Base() {
+
+        companion object {
+            const val INTERVAL_MS = 100L
+        }
+
+        var now = 0L
+        lateinit var uuid: UUID
+
+        @Before
+        fun setUp() {
+            registry = Registry(
+                onTransferStart,
+                onTransferChanged,
+                MAX_TRANSFER_THREADS,
+                progressInterval = INTERVAL_MS
+            ) { now }
+            uuid = registry.add(DownloadRequest(user, file))
+            registry.startNext()
+            resetMocks()
+        }
+
+        @Test
+        fun progress_updates_are_coalesced() {
+            // WHEN
+            //      progress is updated several times within the interval
+            registry.progress(uuid, 10)
+            registry.progress(uuid, 20)
+            now += INTERVAL_MS / 2
+            registry.progress(uuid, 30)
+
+            // THEN
+            //      only the first update is notified
+            val transfers = mutableListOf<Transfer>()
+            verify { onTransferChanged(capture(transfers)) }
+            assertEquals(listOf(10), transfers.map { it.progress })
+
+            // WHEN
+            //      interval passed
+            now += INTERVAL_MS
+            registry.progress(uuid, 40)
+
+            // THEN
+            //      update is notified
+            assertEquals(40, registry.running.first().progress)
+        }
+
+        @Test
+        fun coalesced_progress_is_stored() {
+            // WHEN
+            //      progress is updated several times within the interval
+            registry.progress(uuid, 10)
+            registry.progress(uuid, 20)
+
+            // THEN
+            //      latest progress is stored without notification
+            verify(exactly = 1) { onTransferChanged(any()) }
+            assertEquals(20, registry.running.first().progress)
+            assertEquals(20, registry.getTransfer(uuid)?.progress)
+
+            // WHEN
+            //      transfer completes
+            registry.complete(uuid, true)
+
+            // THEN
+            //      completion carries the latest progress
+            val transfers = mutableListOf<Transfer>()
+            verify { onTransferChanged(capture(transfers)) }
+            assertEquals(listOf(10, 20), transfers.map { it.progress })
+        }
+
+        @Test
+        fun full_progress_is_always_notified() {
+            // WHEN
+            //      transfer reaches 100% right after another update
+            registry.progress(uuid, PROGRESS_HALF)
+            registry.progress(uuid, PROGRESS_FULL)
+
+            // THEN
+            //      both updates are notified
+            val transfers = mutableListOf<Transfer>()
+            verify { onTransferChanged(capture(transfers)) }
+            assertEquals(listOf(PROGRESS_HALF, PROGRESS_FULL), transfers.map { it.progress })
+        }
+
+        @Test
+        fun unchanged_progress_is_ignored() {
+            // WHEN
+            //      progress is updated with the same value
+            registry.progress(uuid, PROGRESS_HALF)
+            now += INTERVAL_MS
+            registry.progress(uuid, PROGRESS_HALF)
+
+            // THEN
+            //      only the first update is notified
+            verify(exactly = 1) { onTransferChanged(any()) }
+        }
+    }
+
+    class History : Base() {
+
+        companion object {
+            const val MAX_COMPLETED = 3
+        }
+
+        @Before
+        fun setUp() {
+            registry = Registry(onTransferStart, onTransferChanged, MAX_TRANSFER_THREADS, maxCompleted = MAX_COMPLETED)
+        }
+
+        private fun transfer(path: String): UUID {
+            val uuid = registry.add(DownloadRequest(user, OCFile(path)))
+            registry.startNext()
+            registry.complete(uuid, true)
+            return uuid
+        }
+
+        @Test
+        fun oldest_completed_transfers_are_evicted() {
+            // WHEN
+            //      more transfers are completed than the history keeps
+            val ids = (0..MAX_COMPLETED).map { transfer("/file/$it") }
+
+            // THEN
+            //      oldest transfer is removed by id and by path
+            assertEquals(ids.drop(1), registry.completed.map { it.uuid })
+            assertNull(registry.getTransfer(ids.first()))
+            assertNull(registry.getTransfer(OCFile("/file/0")))
+            assertEquals(ids.last(), registry.getTransfer(OCFile("/file/$MAX_COMPLETED"))?.uuid)
+        }
+
+        @Test
+        fun get_by_path_prefers_pending_transfer() {
+            // GIVEN
+            //      a completed and a pending transfer of the same file
+            transfer("/file")
+            val pendingId = registry.add(DownloadRequest(user, OCFile("/file")))
+
+            // THEN
+            //      pending transfer is found
+            assertEquals(pendingId, registry.getTransfer(OCFile("/file"))?.uuid)
+        }
+
+        @Test
+        fun status_snapshots_follow_changes() {
+            // GIVEN
+            //      more transfers than can run
+            val ids = (0 until MAX_TRANSFER_THREADS * 2).map {
+                registry.add(DownloadRequest(user, OCFile("/file/$it")))
+            }
+            assertEquals(ids, registry.pending.map { it.uuid })
+
+            // WHEN
+            //      transfers are started
+            registry.startNext()
+
+            // THEN
+            //      snapshots reflect the new state
+            assertEquals(ids.drop(MAX_TRANSFER_THREADS), registry.pending.map { it.uuid })
+            assertEquals(ids.take(MAX_TRANSFER_THREADS), registry.running.map { it.uuid })
+        }
+    }
 }
@@ -217,18 +217,17 @@ class TransferManagerTest {
             runner.runOne()
 
             // THEN
-            //      listener receives 6 status updates
+            //      listener receives 4 status updates
             //          transition to running
-            //          4 progress updates
+            //          first progress update
+            //          final progress update, intermediate updates are coalesced
             //          completion
-            assertEquals(6, downloadUpdates.size)
-            if (downloadUpdates.size >= 6) {
+            assertEquals(4, downloadUpdates.size)
+            if (downloadUpdates.size >= 4) {
                 assertEquals(TransferState.RUNNING, downloadUpdates[0].state)
                 assertEquals(25, downloadUpdates[1].progress)
-                assertEquals(50, downloadUpdates[2].progress)
-                assertEquals(75, downloadUpdates[3].progress)
-                assertEquals(100, downloadUpdates[4].progress)
-                assertEquals(TransferState.COMPLETED, downloadUpdates[5].state)
+                assertEquals(100, downloadUpdates[2].progress)
+                assertEquals(TransferState.COMPLETED, downloadUpdates[3].state)
             }
         }
 
@@ -48,7 +48,11 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.NonNull;
@@ -123,6 +127,37 @@ public class UploadIT extends AbstractOnServerIT {
         uploadOCUpload(ocUpload);
     }
 
+    /**
+     * Uploads run concurrently, both uploads find the folder missing and must not fail creating it.
+     */
+    @Test
+    public void testConcurrentUploadsIntoSameMissingFolder() throws Exception {
+        String folder = FOLDER + "concurrent/";
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> uploads = new ArrayList<>();
+            for (String name : new String[]{"empty.txt", "nonEmpty.txt"}) {
+                OCUpload ocUpload = new OCUpload(FileStorageUtils.getTemporalPath(account.name) + "/" + name,
+                                                 folder + name,
+                                                 account.name);
+                uploads.add(executor.submit(() -> uploadOCUpload(ocUpload)));
+            }
+            for (Future<?> upload : uploads) {
+                upload.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int folderRows = 0;
+        for (OCFile file : getStorageManager().getFolderContent(getStorageManager().getFileByPath(FOLDER), false)) {
+            if (folder.equals(file.getRemotePath())) {
+                folderRows++;
+            }
+        }
+        assertEquals(1, folderRows);
+    }
+
     @Test
     public void testUploadWithCopy() {
         OCUpload ocUpload = new OCUpload(FileStorageUtils.getTemporalPath(account.name) + "/nonEmpty.txt",
@@ -21,12 +21,20 @@
  */
 package com.owncloud.android.datamodel
 
+import com.nextcloud.client.database.NextcloudDatabase
+import com.nextcloud.client.database.dao.FileDao
 import org.junit.Assert
 import org.junit.Test
+import java.lang.reflect.Proxy
+import java.util.concurrent.atomic.AtomicInteger
 
 class FileDataStorageManagerContentResolverIT : FileDataStorageManagerIT() {
     companion object {
         private const val MANY_FILES_AMOUNT = 5000
+        private const val NEW_FILES_AMOUNT = 10000
+
+        // saveFolder looks up at most 500 children per query
+        private const val BULK_QUERIES = NEW_FILES_AMOUNT / 500
     }
 
     override fun before() {
@@ -67,4 +75,51 @@ class FileDataStorageManagerContentResolverIT : FileDataStorageManagerIT() {
         // check file count is correct
         Assert.assertEquals(MANY_FILES_AMOUNT, sut.getFolderContent(folderA, false).size)
     }
+
+    /**
+     * only on FileDataStorageManager
+     */
+    @Test
+    fun testSaveFolderWithManyNewFiles() {
+        val folderA = OCFile("/folderA/")
+        folderA.setFolder().parentId = sut.getFileByDecryptedRemotePath("/")!!.fileId
+        sut.saveFile(folderA)
+
+        val fileDao = NextcloudDatabase.getInstance(targetContext).fileDao()
+        val queries = AtomicInteger()
+        val countingFileDao = Proxy.newProxyInstance(
+            FileDao::class.java.classLoader,
+            arrayOf(FileDao::class.java)
+        ) { _, method, args ->
+            queries.incrementAndGet()
+            method.invoke(fileDao, *(args ?: emptyArray()))
+        } as FileDao
+        val countingSut = FileDataStorageManager(user, targetContext.contentResolver, countingFileDao)
+
+        val newFiles = (1..NEW_FILES_AMOUNT).map { OCFile("/folderA/file$it") }
+
+        // insert, existing children are resolved with one query per chunk of paths
+        countingSut.saveFolder(folderA, newFiles, ArrayList())
+
+        Assert.assertEquals(BULK_QUERIES, queries.get())
+        Assert.assertEquals(NEW_FILES_AMOUNT, sut.getFolderContent(folderA, false).size)
+        Assert.assertEquals(NEW_FILES_AMOUNT, newFiles.map { it.fileId }.filter { it > 0 }.toSet().size)
+
+        // update, files are only known by their path
+        val updatedFiles = (1..NEW_FILES_AMOUNT).map { OCFile("/folderA/file$it").apply { etag = "etag$it" } }
+        queries.set(0)
+        countingSut.saveFolder(folderA, updatedFiles, ArrayList())
+
+        Assert.assertEquals(BULK_QUERIES, queries.get())
+        Assert.assertEquals(NEW_FILES_AMOUNT, sut.getFolderContent(folderA, false).size)
+        Assert.assertEquals(newFiles.map { it.fileId }, updatedFiles.map { it.fileId })
+        Assert.assertEquals("etag1", sut.getFileByDecryptedRemotePath("/folderA/file1")!!.etag)
+
+        // update again, files now carry their id, which adds one query per chunk of ids
+        queries.set(0)
+        countingSut.saveFolder(folderA, updatedFiles, ArrayList())
+
+        Assert.assertEquals(2 * BULK_QUERIES, queries.get())
+        Assert.assertEquals(NEW_FILES_AMOUNT, sut.getFolderContent(folderA, false).size)
+    }
 }
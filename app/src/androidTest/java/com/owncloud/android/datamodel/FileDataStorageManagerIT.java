@@ -36,6 +36,7 @@ import com.owncloud.android.lib.resources.status.GetCapabilitiesRemoteOperation;
 import com.owncloud.android.lib.resources.status.OCCapability;
 import com.owncloud.android.operations.RefreshFolderOperation;
 import com.owncloud.android.utils.FileStorageUtils;
+import com.owncloud.android.utils.MimeType;
 
 import junit.framework.TestCase;
 
@@ -358,6 +359,61 @@ abstract public class FileDataStorageManagerIT extends AbstractOnServerIT {
         sut.saveNewFile(newFile);
     }
 
+    @Test
+    public void testEncryptedAncestorAfterMoves() {
+        OCFile root = sut.getFileByDecryptedRemotePath("/");
+        OCFile encrypted = saveFolder("/encrypted/", root, true);
+        OCFile plain = saveFolder("/plain/", root, false);
+        OCFile moved = saveFolder("/plain/moved/", plain, false);
+        OCFile child = saveFolder("/plain/moved/child/", moved, false);
+
+        assertEncryptedAncestor(false, child);
+
+        // into an encrypted folder
+        sut.moveLocalFile(moved, "/encrypted/moved/", "/encrypted/");
+        assertEncryptedAncestor(true, sut.getFileByPath("/encrypted/moved/"));
+        assertEncryptedAncestor(true, sut.getFileByPath("/encrypted/moved/child/"));
+
+        // out of an encrypted folder
+        sut.moveLocalFile(sut.getFileByPath("/encrypted/moved/"), "/plain/moved/", "/plain/");
+        assertEncryptedAncestor(false, sut.getFileByPath("/plain/moved/child/"));
+
+        // encryption of an ancestor
+        plain.setEncrypted(true);
+        sut.saveFile(plain);
+        assertEncryptedAncestor(true, sut.getFileByPath("/plain/moved/child/"));
+
+        // removal of an encrypted folder
+        sut.removeFolder(encrypted, true, false);
+        OCFile recreated = saveFolder("/encrypted/", root, false);
+        assertEncryptedAncestor(false, saveFolder("/encrypted/new/", recreated, false));
+    }
+
+    private OCFile saveFolder(String remotePath, OCFile parent, boolean encrypted) {
+        OCFile folder = new OCFile(remotePath);
+        folder.setDecryptedRemotePath(remotePath);
+        folder.setMimeType(MimeType.DIRECTORY);
+        folder.setParentId(parent.getFileId());
+        folder.setEncrypted(encrypted);
+        sut.saveFile(folder);
+        return folder;
+    }
+
+    /**
+     * Compares with the encryption of the parent folders read one by one from the database.
+     */
+    private void assertEncryptedAncestor(boolean expected, OCFile file) {
+        boolean encryptedParent = false;
+        OCFile parent = sut.getFileById(file.getParentId());
+        while (parent != null && !OCFile.ROOT_PATH.equals(parent.getDecryptedRemotePath())) {
+            encryptedParent |= parent.isEncrypted();
+            parent = sut.getFileById(parent.getParentId());
+        }
+
+        assertEquals(expected, encryptedParent);
+        assertEquals(expected, sut.hasEncryptedAncestor(file));
+    }
+
     @Test
     public void testOCCapability() {
         OCCapability capability = new OCCapability();
@@ -0,0 +1,128 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel
+
+import com.nextcloud.client.preferences.SubFolderRule
+import com.owncloud.android.AbstractIT
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
+import com.owncloud.android.lib.common.utils.Log_OC
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+
+class FilesystemDataProviderIT : AbstractIT() {
+
+    companion object {
+        private const val SYNCED_FOLDER_ID = 4711L
+        private const val FILE_COUNT = 1200
+    }
+
+    private lateinit var folder: File
+    private lateinit var syncedFolder: SyncedFolder
+    private val sut = FilesystemDataProvider(targetContext.contentResolver)
+
+    @Before
+    fun setUp() {
+        folder = File(targetContext.cacheDir, "filesystemDataProviderIT")
+        folder.deleteRecursively()
+        folder.mkdirs()
+
+        syncedFolder = SyncedFolder(
+            folder.absolutePath,
+            "",
+            true,
+            false,
+            true,
+            true,
+            user.accountName,
+            1,
+            1,
+            true,
+            0L,
+            MediaFolderType.CUSTOM,
+            false,
+            SubFolderRule.YEAR_MONTH
+        )
+        syncedFolder.id = SYNCED_FOLDER_ID
+        sut.deleteAllEntriesForSyncedFolder(SYNCED_FOLDER_ID.toString())
+    }
+
+    @After
+    fun tearDown() {
+        sut.deleteAllEntriesForSyncedFolder(SYNCED_FOLDER_ID.toString())
+        folder.deleteRecursively()
+    }
+
+    private fun index(files: List<File>) {
+        sut.startBatchIndexing(syncedFolder).use { indexer ->
+            files.forEach { indexer.storeOrUpdateFileValue(it.absolutePath, it.lastModified(), false) }
+        }
+    }
+
+    @Test
+    fun batchIndexing() {
+        val files = (0 until FILE_COUNT).map { i -> File(folder, "file$i.txt").apply { writeText("content $i") } }
+
+        val start = System.currentTimeMillis()
+        index(files)
+        Log_OC.d(this, "Indexing $FILE_COUNT new files took ${System.currentTimeMillis() - start} ms")
+
+        assertEquals(FILE_COUNT, sut.getFilesForUpload(folder.absolutePath, SYNCED_FOLDER_ID.toString()).size)
+
+        sut.updateFilesystemFilesAsSentForUpload(
+            files.map { it.absolutePath },
+            SYNCED_FOLDER_ID.toString()
+        )
+        assertEquals(0, sut.getFilesForUpload(folder.absolutePath, SYNCED_FOLDER_ID.toString()).size)
+
+        // re-indexing unchanged files must neither duplicate rows nor trigger another upload
+        index(files)
+        assertEquals(0, sut.getFilesForUpload(folder.absolutePath, SYNCED_FOLDER_ID.toString()).size)
+
+        // changed content triggers upload again
+        files[0].writeText("changed")
+        files[0].setLastModified(files[0].lastModified() + 1000)
+        index(files)
+        assertEquals(
+            setOf(files[0].absolutePath),
+            sut.getFilesForUpload(folder.absolutePath, SYNCED_FOLDER_ID.toString())
+        )
+    }
+
+    @Test
+    fun samePathReportedTwice_isStoredOnce() {
+        val file = File(folder, "duplicate.txt").apply { writeText("content") }
+
+        sut.startBatchIndexing(syncedFolder).use { indexer ->
+            indexer.storeOrUpdateFileValue(file.absolutePath, file.lastModified(), false)
+            indexer.storeOrUpdateFileValue(file.absolutePath, file.lastModified(), false)
+        }
+
+        val rows = targetContext.contentResolver.query(
+            ProviderTableMeta.CONTENT_URI_FILESYSTEM,
+            null,
+            "${ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID} = ?",
+            arrayOf(SYNCED_FOLDER_ID.toString()),
+            null
+        )?.use { it.count }
+        assertEquals(1, rows)
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.ui.adapter
+
+import android.graphics.Bitmap
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class DiskLruImageCacheIT {
+
+    companion object {
+        private const val CACHE_SIZE = 1024 * 1024 * 20
+        private const val QUALITY = 70
+        private const val THREADS = 8
+        private const val KEYS_PER_THREAD = 50
+        private const val TIMEOUT_SECONDS = 60L
+    }
+
+    private lateinit var cacheDir: File
+    private lateinit var sut: DiskLruImageCache
+
+    @Before
+    fun setUp() {
+        cacheDir = File(InstrumentationRegistry.getInstrumentation().targetContext.cacheDir, "diskLruImageCacheIT")
+        cacheDir.deleteRecursively()
+        sut = DiskLruImageCache(cacheDir, CACHE_SIZE, Bitmap.CompressFormat.JPEG, QUALITY)
+    }
+
+    @After
+    fun tearDown() {
+        sut.clearCache()
+        cacheDir.deleteRecursively()
+    }
+
+    private fun bitmap(width: Int, height: Int = width) = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888)
+
+    @Test
+    fun keysWithSameHashCode_doNotCollide() {
+        // "Aa" and "BB" share the same String.hashCode()
+        assertEquals("Aa".hashCode(), "BB".hashCode())
+        assertNotEquals(DiskLruImageCache.convertToValidKey("Aa"), DiskLruImageCache.convertToValidKey("BB"))
+
+        sut.put("Aa", bitmap(10))
+        sut.put("BB", bitmap(20))
+
+        assertEquals(10, sut.getBitmap("Aa").width)
+        assertEquals(20, sut.getBitmap("BB").width)
+    }
+
+    @Test
+    fun scaledBitmap_usesStoredDimensions() {
+        sut.put("key", bitmap(400))
+
+        // sample factor 2 keeps the bitmap larger than the requested 100 x 100
+        assertEquals(200, sut.getScaledBitmap("key", 100, 100).width)
+        assertEquals(400, sut.getScaledBitmap("key", 400, 400).width)
+    }
+
+    @Test
+    fun concurrentPutAndGet() {
+        val executor = Executors.newFixedThreadPool(THREADS)
+
+        val tasks = (0 until THREADS).map { thread ->
+            Callable {
+                repeat(KEYS_PER_THREAD) { i ->
+                    val key = "t${thread}_$i"
+                    val size = 1 + thread * KEYS_PER_THREAD + i
+                    sut.put(key, bitmap(size, 1))
+
+                    val read = sut.getBitmap(key)
+                    assertNotNull("Missing $key", read)
+                    assertEquals("Wrong bitmap for $key", size, read.width)
+                }
+            }
+        }
+        executor.invokeAll(tasks).forEach { it.get(TIMEOUT_SECONDS, TimeUnit.SECONDS) }
+        executor.shutdown()
+
+        sut.flush()
+
+        // re-open cache, journal must contain all entries
+        sut = DiskLruImageCache(cacheDir, CACHE_SIZE, Bitmap.CompressFormat.JPEG, QUALITY)
+        for (thread in 0 until THREADS) {
+            for (i in 0 until KEYS_PER_THREAD) {
+                assertEquals(1 + thread * KEYS_PER_THREAD + i, sut.getBitmap("t${thread}_$i").width)
+            }
+        }
+    }
+}
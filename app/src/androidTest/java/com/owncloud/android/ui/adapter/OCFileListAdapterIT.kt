@@ -22,9 +22,13 @@
 package com.owncloud.android.ui.adapter
 
 import com.owncloud.android.AbstractIT
+import com.owncloud.android.datamodel.FileSummary
+import com.owncloud.android.datamodel.GalleryMonth
 import com.owncloud.android.datamodel.OCFile
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
 import org.junit.Test
+import java.util.Calendar
 
 @Suppress("MagicNumber")
 class OCFileListAdapterIT : AbstractIT() {
@@ -77,4 +81,99 @@ class OCFileListAdapterIT : AbstractIT() {
         assertEquals(3, storageManager.getGalleryItems(startDate, endDate).size)
         assertEquals(4, storageManager.allGalleryItems.size)
     }
+
+    @Test
+    fun testGalleryMonthsAndPages() {
+        storageManager.deleteAllFiles()
+
+        fun date(month: Int, day: Int): Long = Calendar.getInstance().run {
+            clear()
+            set(2023, month, day)
+            timeInMillis
+        }
+
+        fun save(path: String, mimeType: String, modified: Long) {
+            OCFile(path).apply {
+                this.mimeType = mimeType
+                modificationTimestamp = modified
+            }.let {
+                storageManager.saveFile(it)
+            }
+        }
+
+        save("/Photos/march1.jpg", "image/jpeg", date(Calendar.MARCH, 1))
+        save("/Photos/march2.jpg", "image/jpeg", date(Calendar.MARCH, 31) + 1000)
+        save("/Photos/march3.mp4", "video/mp4", date(Calendar.MARCH, 15))
+        save("/Photos/april.png", "image/png", date(Calendar.APRIL, 1))
+        save("/Photos/book.djvu", "image/vnd.djvu", date(Calendar.APRIL, 2))
+        save("/Photos/notes.txt", "text/plain", date(Calendar.APRIL, 3))
+        save("/Other/march.jpg", "image/jpeg", date(Calendar.MARCH, 2))
+
+        val march = date(Calendar.MARCH, 1)
+        val april = date(Calendar.APRIL, 1)
+        assertEquals(
+            listOf(GalleryMonth(april, 1), GalleryMonth(march, 3)),
+            storageManager.getGalleryMonths("/Photos/", true, true)
+        )
+        assertEquals(listOf(GalleryMonth(march, 1)), storageManager.getGalleryMonths("/Photos/", false, true))
+        assertEquals(
+            listOf(GalleryMonth(april, 1), GalleryMonth(march, 3)),
+            storageManager.getGalleryMonths("/", true, false)
+        )
+
+        val firstPage = storageManager.getGalleryItems("/Photos/", true, true, march, april, 0, 2)
+        assertEquals(listOf("/Photos/march2.jpg", "/Photos/march3.mp4"), firstPage.map { it.remotePath })
+
+        val secondPage = storageManager.getGalleryItems("/Photos/", true, true, march, april, 2, 2)
+        assertEquals(listOf("/Photos/march1.jpg"), secondPage.map { it.remotePath })
+    }
+
+    @Test
+    fun testSaveFilesInBatch() {
+        storageManager.deleteAllFiles()
+
+        val unchanged = OCFile("/unchanged.jpg").apply {
+            mimeType = "image/jpeg"
+            etag = "1"
+            modificationTimestamp = 1000
+        }
+        val changed = OCFile("/changed.jpg").apply {
+            mimeType = "image/jpeg"
+            etag = "1"
+            modificationTimestamp = 2000
+        }
+        val deleted = OCFile("/deleted.mp4").apply {
+            mimeType = "video/mp4"
+            etag = "1"
+            modificationTimestamp = 3000
+        }
+        listOf(unchanged, changed, deleted).forEach { storageManager.saveFile(it) }
+
+        val summaries = storageManager.getGallerySummaries(0, 10000).associateBy { it.path }
+        assertEquals(
+            FileSummary(deleted.fileId, "/deleted.mp4", "1", null),
+            summaries["/deleted.mp4"]
+        )
+
+        val update = OCFile("/changed.jpg").apply {
+            mimeType = "image/jpeg"
+            etag = "2"
+            modificationTimestamp = 2000
+        }
+        val added = OCFile("/new.png").apply {
+            mimeType = "image/png"
+            etag = "1"
+            modificationTimestamp = 4000
+        }
+        storageManager.saveFiles(listOf(update, added), listOf(summaries.getValue("/deleted.mp4")))
+
+        assertEquals(changed.fileId, update.fileId)
+        assertEquals("2", storageManager.getFileById(changed.fileId)?.etag)
+        assertEquals(added.fileId, storageManager.getFileByPath("/new.png")?.fileId)
+        assertNull(storageManager.getFileByPath("/deleted.mp4"))
+        assertEquals(
+            setOf("/unchanged.jpg", "/changed.jpg", "/new.png"),
+            storageManager.getGallerySummaries(0, 10000).map { it.path }.toSet()
+        )
+    }
 }
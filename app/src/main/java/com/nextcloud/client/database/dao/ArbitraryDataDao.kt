@@ -39,4 +39,10 @@ interface ArbitraryDataDao {
 
     @Query("DELETE FROM arbitrary_data WHERE cloud_id = :accountName AND `key` = :key")
     fun deleteValue(accountName: String, key: String)
+
+    @Query(
+        "DELETE FROM arbitrary_data WHERE cloud_id = :accountName " +
+            "AND substr(`key`, 1, length(:keyPrefix)) = :keyPrefix"
+    )
+    fun deleteValuesWithKeyPrefix(accountName: String, keyPrefix: String)
 }
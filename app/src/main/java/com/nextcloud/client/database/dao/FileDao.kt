@@ -23,9 +23,27 @@
 package com.nextcloud.client.database.dao
 
 import androidx.room.Dao
+import androidx.room.MapInfo
 import androidx.room.Query
 import com.nextcloud.client.database.entity.FileEntity
+import com.owncloud.android.datamodel.FileSummary
+import com.owncloud.android.datamodel.GalleryMonth
 import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
+import com.owncloud.android.utils.MimeType
+
+/**
+ * Images and videos of an account below a path, as shown in the gallery
+ */
+private const val GALLERY_FILTER = "file_owner = :fileOwner" +
+    " AND substr(path, 1, length(:pathPrefix)) = :pathPrefix" +
+    " AND ((:images AND content_type LIKE 'image/%' AND content_type NOT LIKE '%djvu%')" +
+    " OR (:videos AND content_type LIKE 'video/%'))"
+
+/**
+ * First millisecond of the month of the modification date, in the time zone of the device
+ */
+private const val GALLERY_MONTH =
+    "CAST(strftime('%s', modified / 1000, 'unixepoch', 'localtime', 'start of month', 'utc') AS INTEGER) * 1000"
 
 @Dao
 interface FileDao {
@@ -44,6 +62,16 @@ interface FileDao {
     @Query("SELECT * FROM filelist WHERE remote_id = :remoteId AND file_owner = :fileOwner LIMIT 1")
     fun getFileByRemoteId(remoteId: String, fileOwner: String): FileEntity?
 
+    @Query("SELECT _id FROM filelist WHERE _id IN (:ids)")
+    fun getExistingFileIds(ids: List<Long>): List<Long>
+
+    @Query("SELECT * FROM filelist WHERE path IN (:paths) AND file_owner = :fileOwner")
+    fun getFilesByEncryptedRemotePaths(paths: List<String>, fileOwner: String): List<FileEntity>
+
+    @MapInfo(keyColumn = ProviderTableMeta.FILE_PATH, valueColumn = ProviderTableMeta._ID)
+    @Query("SELECT path, _id FROM filelist WHERE path IN (:paths) AND file_owner = :fileOwner")
+    fun getFileIdsByEncryptedRemotePaths(paths: List<String>, fileOwner: String): Map<String, Long>
+
     @Query("SELECT * FROM filelist WHERE parent = :parentId ORDER BY ${ProviderTableMeta.FILE_DEFAULT_SORT_ORDER}")
     fun getFolderContent(parentId: Long): List<FileEntity>
 
@@ -56,9 +84,49 @@ interface FileDao {
     )
     fun getGalleryItems(startDate: Long, endDate: Long, fileOwner: String): List<FileEntity>
 
+    @Query(
+        "SELECT _id AS id, path, etag, media_path AS storagePath FROM filelist WHERE modified >= :startDate" +
+            " AND modified < :endDate" +
+            " AND (content_type LIKE 'image/%' OR content_type LIKE 'video/%')" +
+            " AND file_owner = :fileOwner"
+    )
+    fun getGallerySummaries(startDate: Long, endDate: Long, fileOwner: String): List<FileSummary>
+
+    @Query(
+        "SELECT $GALLERY_MONTH AS date, COUNT(*) AS count FROM filelist" +
+            " WHERE $GALLERY_FILTER" +
+            " GROUP BY date ORDER BY date DESC"
+    )
+    fun getGalleryMonths(pathPrefix: String, images: Boolean, videos: Boolean, fileOwner: String): List<GalleryMonth>
+
+    @Suppress("LongParameterList")
+    @Query(
+        "SELECT * FROM filelist WHERE $GALLERY_FILTER" +
+            " AND modified >= :startDate" +
+            " AND modified < :endDate" +
+            " ORDER BY modified DESC, _id DESC" +
+            " LIMIT :limit OFFSET :offset"
+    )
+    fun getGalleryItems(
+        pathPrefix: String,
+        images: Boolean,
+        videos: Boolean,
+        startDate: Long,
+        endDate: Long,
+        offset: Int,
+        limit: Int,
+        fileOwner: String
+    ): List<FileEntity>
+
     @Query("SELECT * FROM filelist WHERE file_owner = :fileOwner ORDER BY ${ProviderTableMeta.FILE_DEFAULT_SORT_ORDER}")
     fun getAllFiles(fileOwner: String): List<FileEntity>
 
     @Query("SELECT * FROM filelist WHERE path LIKE :pathPattern AND file_owner = :fileOwner ORDER BY path ASC")
     fun getFolderWithDescendants(pathPattern: String, fileOwner: String): List<FileEntity>
+
+    @Query(
+        "SELECT path FROM filelist WHERE file_owner = :fileOwner AND is_encrypted = 1" +
+            " AND content_type IN ('${MimeType.DIRECTORY}', '${MimeType.WEBDAV_FOLDER}')"
+    )
+    fun getEncryptedFolderPaths(fileOwner: String): List<String>
 }
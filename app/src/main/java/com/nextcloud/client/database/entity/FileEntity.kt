@@ -24,10 +24,27 @@ package com.nextcloud.client.database.entity
 
 import androidx.room.ColumnInfo
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
 
-@Entity(tableName = ProviderTableMeta.FILE_TABLE_NAME)
+@Entity(
+    tableName = ProviderTableMeta.FILE_TABLE_NAME,
+    indices = [
+        Index(value = [ProviderTableMeta.FILE_PARENT]),
+        Index(value = [ProviderTableMeta.FILE_PATH, ProviderTableMeta.FILE_ACCOUNT_OWNER]),
+        Index(value = [ProviderTableMeta.FILE_PATH_DECRYPTED, ProviderTableMeta.FILE_ACCOUNT_OWNER]),
+        Index(value = [ProviderTableMeta.FILE_STORAGE_PATH, ProviderTableMeta.FILE_ACCOUNT_OWNER]),
+        Index(value = [ProviderTableMeta.FILE_REMOTE_ID, ProviderTableMeta.FILE_ACCOUNT_OWNER]),
+        Index(
+            value = [
+                ProviderTableMeta.FILE_ACCOUNT_OWNER,
+                ProviderTableMeta.FILE_MODIFIED,
+                ProviderTableMeta.FILE_CONTENT_TYPE
+            ]
+        )
+    ]
+)
 data class FileEntity(
     @PrimaryKey(autoGenerate = true)
     @ColumnInfo(name = ProviderTableMeta._ID)
@@ -24,10 +24,16 @@ package com.nextcloud.client.database.entity
 
 import androidx.room.ColumnInfo
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
 
-@Entity(tableName = ProviderTableMeta.FILESYSTEM_TABLE_NAME)
+@Entity(
+    tableName = ProviderTableMeta.FILESYSTEM_TABLE_NAME,
+    indices = [
+        Index(value = [ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID, ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH])
+    ]
+)
 data class FilesystemEntity(
     @PrimaryKey(autoGenerate = true)
     @ColumnInfo(name = ProviderTableMeta._ID)
@@ -45,5 +51,11 @@ data class FilesystemEntity(
     @ColumnInfo(name = ProviderTableMeta.FILESYSTEM_CRC32)
     val crc32: String?,
     @ColumnInfo(name = ProviderTableMeta.FILESYSTEM_FILE_MODIFIED)
-    val fileModified: Long?
+    val fileModified: Long?,
+    @ColumnInfo(name = ProviderTableMeta.FILESYSTEM_FILE_SIZE)
+    val fileSize: Long?,
+    @ColumnInfo(name = ProviderTableMeta.FILESYSTEM_FILE_INODE)
+    val inode: Long?,
+    @ColumnInfo(name = ProviderTableMeta.FILESYSTEM_FINGERPRINT)
+    val fingerprint: String?
 )
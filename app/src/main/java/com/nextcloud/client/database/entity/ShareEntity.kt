@@ -24,10 +24,17 @@ package com.nextcloud.client.database.entity
 
 import androidx.room.ColumnInfo
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
 
-@Entity(tableName = ProviderTableMeta.OCSHARES_TABLE_NAME)
+@Entity(
+    tableName = ProviderTableMeta.OCSHARES_TABLE_NAME,
+    indices = [
+        Index(value = [ProviderTableMeta.OCSHARES_PATH, ProviderTableMeta.OCSHARES_ACCOUNT_OWNER]),
+        Index(value = [ProviderTableMeta.OCSHARES_ID_REMOTE_SHARED])
+    ]
+)
 data class ShareEntity(
     @PrimaryKey(autoGenerate = true)
     @ColumnInfo(name = ProviderTableMeta._ID)
@@ -24,10 +24,17 @@ package com.nextcloud.client.database.entity
 
 import androidx.room.ColumnInfo
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
 
-@Entity(tableName = ProviderTableMeta.UPLOADS_TABLE_NAME)
+@Entity(
+    tableName = ProviderTableMeta.UPLOADS_TABLE_NAME,
+    indices = [
+        Index(value = [ProviderTableMeta.UPLOADS_STATUS, ProviderTableMeta.UPLOADS_ACCOUNT_NAME]),
+        Index(value = [ProviderTableMeta.UPLOADS_ACCOUNT_NAME, ProviderTableMeta.UPLOADS_REMOTE_PATH])
+    ]
+)
 data class UploadEntity(
     @PrimaryKey(autoGenerate = true)
     @ColumnInfo(name = ProviderTableMeta._ID)
@@ -61,5 +68,7 @@ data class UploadEntity(
     @ColumnInfo(name = ProviderTableMeta.UPLOADS_CREATED_BY)
     val createdBy: Int?,
     @ColumnInfo(name = ProviderTableMeta.UPLOADS_FOLDER_UNLOCK_TOKEN)
-    val folderUnlockToken: String?
+    val folderUnlockToken: String?,
+    @ColumnInfo(name = ProviderTableMeta.UPLOADS_CHUNK_MANIFEST)
+    val chunkManifest: String?
 )
@@ -19,6 +19,7 @@
  */
 package com.nextcloud.client.files.downloader
 
+import android.os.SystemClock
 import com.owncloud.android.datamodel.OCFile
 import java.util.LinkedHashMap
 import java.util.UUID
@@ -33,27 +34,64 @@ import kotlin.math.min
  *
  * No listener registration mechanism is provided at this level.
  *
+ * Only the last [maxCompleted] finished transfers are kept. Progress
+ * notifications of a transfer are coalesced: within [progressInterval] after
+ * a progress notification, further progress is stored without notifying,
+ * except for 100%.
+ *
+ * Transfers are indexed by remote path and queue snapshots are cached
+ * until the queue changes, so lookups and status snapshots stay cheap
+ * with many queued transfers.
+ *
  * This class is not thread-safe. All access from multiple threads shall
  * be lock protected.
  *
  * @property onStartTransfer callback triggered when transfer is switched into running state
- * @property onTransferChanged callback triggered whenever transfer status update
+ * @property onTransferChanged callback triggered whenever transfer status update, rate limited for progress
  * @property maxRunning maximum number of allowed simultaneous transfers
+ * @property maxCompleted maximum number of finished transfers kept in history
+ * @property progressInterval minimum time between progress notifications of a transfer, in milliseconds
+ * @property clock monotonic time source in milliseconds
  */
+@Suppress("LongParameterList")
 internal class Registry(
     private val onStartTransfer: (UUID, Request) -> Unit,
     private val onTransferChanged: (Transfer) -> Unit,
-    private val maxRunning: Int = 2
+    private val maxRunning: Int = 2,
+    private val maxCompleted: Int = MAX_COMPLETED,
+    private val progressInterval: Long = PROGRESS_INTERVAL_MS,
+    private val clock: () -> Long = SystemClock::elapsedRealtime
 ) {
+    companion object {
+        const val MAX_COMPLETED = 1000
+        const val PROGRESS_INTERVAL_MS = 250L
+        private const val PROGRESS_MAX = 100
+    }
+
     private val pendingQueue = LinkedHashMap<UUID, Transfer>()
     private val runningQueue = LinkedHashMap<UUID, Transfer>()
     private val completedQueue = LinkedHashMap<UUID, Transfer>()
 
+    /**
+     * Ids of transfers by remote path, in order of addition
+     */
+    private val pathIndex = HashMap<String, LinkedHashSet<UUID>>()
+
+    /**
+     * Time of the last progress notification of running transfers
+     */
+    private val progressTimes = HashMap<UUID, Long>()
+
+    private var pendingSnapshot: List<Transfer>? = null
+    private var runningSnapshot: List<Transfer>? = null
+    private var completedSnapshot: List<Transfer>? = null
+
     val isRunning: Boolean get() = pendingQueue.size > 0 || runningQueue.size > 0
 
-    val pending: List<Transfer> get() = pendingQueue.map { it.value }
-    val running: List<Transfer> get() = runningQueue.map { it.value }
-    val completed: List<Transfer> get() = completedQueue.map { it.value }
+    val pending: List<Transfer> get() = pendingSnapshot ?: pendingQueue.values.toList().also { pendingSnapshot = it }
+    val running: List<Transfer> get() = runningSnapshot ?: runningQueue.values.toList().also { runningSnapshot = it }
+    val completed: List<Transfer>
+        get() = completedSnapshot ?: completedQueue.values.toList().also { completedSnapshot = it }
 
     /**
      * Insert new transfer into a pending queue.
@@ -69,6 +107,8 @@ internal class Registry(
             request = request
         )
         pendingQueue[transfer.uuid] = transfer
+        pendingSnapshot = null
+        pathIndex.getOrPut(request.file.remotePath) { LinkedHashSet() }.add(transfer.uuid)
         return transfer.uuid
     }
 
@@ -83,6 +123,9 @@ internal class Registry(
             val pendingTransfer = pendingQueue.remove(key) ?: throw IllegalStateException("Transfer $key not found")
             val runningTransfer = pendingTransfer.copy(state = TransferState.RUNNING)
             runningQueue[key] = runningTransfer
+            // snapshots are never modified, so the snapshot without its first element stays valid
+            pendingSnapshot = pendingSnapshot?.let { it.subList(1, it.size) }
+            runningSnapshot = null
             onStartTransfer.invoke(key, runningTransfer.request)
             onTransferChanged(runningTransfer)
         }
@@ -90,23 +133,36 @@ internal class Registry(
 
     /**
      * Update progress for a given transfer. If no transfer of a given id is currently running,
-     * update is ignored.
+     * update is ignored. Updates which do not change progress are ignored as well. Updates
+     * following a previous notification within [progressInterval] are stored, so queue
+     * snapshots and later notifications carry the latest progress, but do not notify,
+     * unless the transfer reached 100%.
      *
      * @param uuid ID of the transfer to update
      * @param progress progress 0-100%
      */
     fun progress(uuid: UUID, progress: Int) {
         val transfer = runningQueue[uuid]
-        if (transfer != null) {
-            val runningTransfer = transfer.copy(progress = progress)
-            runningQueue[uuid] = runningTransfer
-            onTransferChanged(runningTransfer)
+        if (transfer == null || transfer.progress == progress) {
+            return
         }
+
+        val runningTransfer = transfer.copy(progress = progress)
+        runningQueue[uuid] = runningTransfer
+        runningSnapshot = null
+
+        val now = clock()
+        val lastUpdate = progressTimes[uuid]
+        if (lastUpdate != null && now - lastUpdate < progressInterval && progress < PROGRESS_MAX) {
+            return
+        }
+        progressTimes[uuid] = now
+        onTransferChanged(runningTransfer)
     }
 
     /**
      * Complete currently running transfer. If no transfer of a given id is currently running,
-     * update is ignored.
+     * update is ignored. If the history exceeds [maxCompleted] transfers, the oldest one is removed.
      *
      * @param uuid of the transfer to complete
      * @param success if true, transfer will be marked as completed; if false - as failed
@@ -122,28 +178,40 @@ internal class Registry(
             }
             val completedTransfer = transfer.copy(state = status, file = file ?: transfer.file)
             completedQueue[uuid] = completedTransfer
+            progressTimes.remove(uuid)
+            runningSnapshot = null
+            completedSnapshot = null
+            while (completedQueue.size > maxCompleted) {
+                val oldest = completedQueue.keys.first()
+                completedQueue.remove(oldest)?.let { removeFromIndex(it) }
+            }
             onTransferChanged(completedTransfer)
         }
     }
 
+    private fun removeFromIndex(transfer: Transfer) {
+        val path = transfer.request.file.remotePath
+        val ids = pathIndex[path] ?: return
+        ids.remove(transfer.uuid)
+        if (ids.isEmpty()) {
+            pathIndex.remove(path)
+        }
+    }
+
     /**
-     * Search for a transfer by file path. It traverses
-     * through all queues in order of pending, running and completed
-     * transfers and returns first transfer status matching
-     * file path.
+     * Search for a transfer by file path. It looks up the transfers of
+     * the path in order of pending, running and completed transfers
+     * and returns the first transfer status found. Within a queue,
+     * the transfer added first is returned.
      *
      * @param file Search for a file transfer
      * @return transfer status if found, null otherwise
      */
     fun getTransfer(file: OCFile): Transfer? {
-        arrayOf(pendingQueue, runningQueue, completedQueue).forEach { queue ->
-            queue.forEach { entry ->
-                if (entry.value.request.file.remotePath == file.remotePath) {
-                    return entry.value
-                }
-            }
-        }
-        return null
+        val ids = pathIndex[file.remotePath] ?: return null
+        return ids.firstNotNullOfOrNull { pendingQueue[it] }
+            ?: ids.firstNotNullOfOrNull { runningQueue[it] }
+            ?: ids.firstNotNullOfOrNull { completedQueue[it] }
     }
 
     /**
@@ -127,7 +127,11 @@ interface BackgroundJobManager {
     fun startImmediateFilesExportJob(files: Collection<OCFile>): LiveData<JobInfo?>
 
     fun schedulePeriodicFilesSyncJob()
-    fun startImmediateFilesSyncJob(skipCustomFolders: Boolean = false, overridePowerSaving: Boolean = false)
+    fun startImmediateFilesSyncJob(
+        skipCustomFolders: Boolean = false,
+        overridePowerSaving: Boolean = false,
+        fullScan: Boolean = false
+    )
     fun scheduleOfflineSync()
 
     fun scheduleMediaFoldersDetectionJob()
@@ -370,10 +370,15 @@ internal class BackgroundJobManagerImpl(
         workManager.enqueueUniquePeriodicWork(JOB_PERIODIC_FILES_SYNC, ExistingPeriodicWorkPolicy.REPLACE, request)
     }
 
-    override fun startImmediateFilesSyncJob(skipCustomFolders: Boolean, overridePowerSaving: Boolean) {
+    override fun startImmediateFilesSyncJob(
+        skipCustomFolders: Boolean,
+        overridePowerSaving: Boolean,
+        fullScan: Boolean
+    ) {
         val arguments = Data.Builder()
             .putBoolean(FilesSyncWork.SKIP_CUSTOM, skipCustomFolders)
             .putBoolean(FilesSyncWork.OVERRIDE_POWER_SAVING, overridePowerSaving)
+            .putBoolean(FilesSyncWork.FULL_SCAN, fullScan)
             .build()
 
         val request = oneTimeRequestBuilder(
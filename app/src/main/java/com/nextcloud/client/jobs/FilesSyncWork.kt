@@ -71,6 +71,7 @@ class FilesSyncWork(
         const val TAG = "FilesSyncJob"
         const val SKIP_CUSTOM = "skipCustom"
         const val OVERRIDE_POWER_SAVING = "overridePowerSaving"
+        const val FULL_SCAN = "fullScan"
     }
 
     override fun doWork(): Result {
@@ -82,13 +83,14 @@ class FilesSyncWork(
         val resources = context.resources
         val lightVersion = resources.getBoolean(R.bool.syncedFolder_light)
         val skipCustom = inputData.getBoolean(SKIP_CUSTOM, false)
+        val fullScan = inputData.getBoolean(FULL_SCAN, false)
         FilesSyncHelper.restartJobsIfNeeded(
             uploadsStorageManager,
             userAccountManager,
             connectivityService,
             powerManagementService
         )
-        FilesSyncHelper.insertAllDBEntries(skipCustom, syncedFolderProvider)
+        FilesSyncHelper.insertAllDBEntries(skipCustom, fullScan, syncedFolderProvider)
         // Create all the providers we'll need
         val filesystemDataProvider = FilesystemDataProvider(contentResolver)
         val currentLocale = resources.configuration.locale
@@ -184,13 +186,10 @@ class FilesSyncWork(
             syncedFolder.nameCollisionPolicy
         )
 
-        for (path in paths) {
-            // TODO batch update
-            filesystemDataProvider.updateFilesystemFileAsSentForUpload(
-                path,
-                syncedFolder.id.toString()
-            )
-        }
+        filesystemDataProvider.updateFilesystemFilesAsSentForUpload(
+            paths,
+            syncedFolder.id.toString()
+        )
     }
 
     private fun getRemotePath(
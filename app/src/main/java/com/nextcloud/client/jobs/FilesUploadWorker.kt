@@ -58,6 +58,7 @@ import com.owncloud.android.utils.ErrorMessageAdapter
 import com.owncloud.android.utils.theme.ViewThemeUtils
 import java.io.File
 import java.security.SecureRandom
+import java.util.concurrent.atomic.AtomicInteger
 
 @Suppress("LongParameterList")
 class FilesUploadWorker(
@@ -69,13 +70,14 @@ class FilesUploadWorker(
     val localBroadcastManager: LocalBroadcastManager,
     val context: Context,
     params: WorkerParameters
-) : Worker(context, params), OnDatatransferProgressListener {
-    private var lastPercent = 0
+) : Worker(context, params) {
     private val notificationBuilder: NotificationCompat.Builder =
         NotificationUtils.newNotificationBuilder(context, viewThemeUtils)
     private val notificationManager: NotificationManager =
         context.getSystemService(Context.NOTIFICATION_SERVICE) as NotificationManager
     private val fileUploaderDelegate = FileUploaderDelegate()
+    private val uploadScheduler = UploadScheduler()
+    private val runningUploads = AtomicInteger()
 
     override fun doWork(): Result {
         val accountName = inputData.getString(ACCOUNT)
@@ -104,7 +106,8 @@ class FilesUploadWorker(
     private fun handlePendingUploads(uploads: List<OCUpload>, accountName: String) {
         val user = userAccountManager.getUser(accountName)
 
-        for (upload in uploads) {
+        // the progress notification is shared by all uploads, hence the methods updating it are synchronized
+        uploadScheduler.run(uploads) { upload ->
             // create upload file operation
             if (user.isPresent) {
                 val uploadFileOperation = createUploadFileOperation(upload, user.get())
@@ -144,7 +147,7 @@ class FilesUploadWorker(
             true,
             FileDataStorageManager(user, context.contentResolver)
         ).apply {
-            addDataTransferProgressListener(this@FilesUploadWorker)
+            addDataTransferProgressListener(UploadProgressListener())
         }
     }
 
@@ -153,6 +156,7 @@ class FilesUploadWorker(
         lateinit var uploadResult: RemoteOperationResult<Any?>
 
         // start notification
+        runningUploads.incrementAndGet()
         createNotification(uploadFileOperation)
 
         try {
@@ -167,7 +171,7 @@ class FilesUploadWorker(
             val task = ThumbnailsCacheManager.ThumbnailGenerationTask(storageManager, user)
             val file = File(uploadFileOperation.originalStoragePath)
             val remoteId: String? = uploadFileOperation.file.remoteId
-            task.execute(ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, remoteId))
+            task.executeOnThumbnailExecutor(ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, remoteId))
         } catch (e: Exception) {
             Log_OC.e(TAG, "Error uploading", e)
             uploadResult = RemoteOperationResult<Any?>(e)
@@ -177,8 +181,10 @@ class FilesUploadWorker(
             // / notify result
             notifyUploadResult(uploadFileOperation, uploadResult)
 
-            // cancel notification
-            notificationManager.cancel(FOREGROUND_SERVICE_ID)
+            // cancel notification, unless other uploads are still running
+            if (runningUploads.decrementAndGet() == 0) {
+                notificationManager.cancel(FOREGROUND_SERVICE_ID)
+            }
         }
 
         return uploadResult
@@ -187,6 +193,7 @@ class FilesUploadWorker(
     /**
      * adapted from [com.owncloud.android.files.services.FileUploader.notifyUploadStart]
      */
+    @Synchronized
     private fun createNotification(uploadFileOperation: UploadFileOperation) {
         notificationBuilder
             .setOngoing(true)
@@ -260,17 +267,23 @@ class FilesUploadWorker(
                 // check file conflict
                 tickerId = R.string.uploader_upload_failed_sync_conflict_error
             }
-            notificationBuilder
+
+            // own builder, the one of the progress notification is still used by other running uploads
+            val notificationBuilder = NotificationUtils.newNotificationBuilder(context, viewThemeUtils)
+                .setSmallIcon(R.drawable.notification_icon)
                 .setTicker(context.getString(tickerId))
                 .setContentTitle(context.getString(tickerId))
                 .setAutoCancel(true)
                 .setOngoing(false)
                 .setProgress(0, 0, false)
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                notificationBuilder.setChannelId(NotificationUtils.NOTIFICATION_CHANNEL_UPLOAD)
+            }
 
             val content = ErrorMessageAdapter.getErrorCauseMessage(uploadResult, uploadFileOperation, context.resources)
 
             if (needsToUpdateCredentials) {
-                createUpdateCredentialsNotification(uploadFileOperation.user.toPlatformAccount())
+                createUpdateCredentialsNotification(uploadFileOperation.user.toPlatformAccount(), notificationBuilder)
             } else {
                 val intent = if (uploadResult.code == ResultCode.SYNC_CONFLICT) {
                     createResolveConflictIntent(uploadFileOperation)
@@ -312,7 +325,10 @@ class FilesUploadWorker(
         )
     }
 
-    private fun createUpdateCredentialsNotification(account: Account) {
+    private fun createUpdateCredentialsNotification(
+        account: Account,
+        notificationBuilder: NotificationCompat.Builder
+    ) {
         // let the user update credentials with one click
         val updateAccountCredentials = Intent(context, AuthenticatorActivity::class.java)
         updateAccountCredentials.putExtra(
@@ -336,25 +352,36 @@ class FilesUploadWorker(
         )
     }
 
+    @Synchronized
+    private fun notifyProgress(percent: Int, fileAbsoluteName: String) {
+        notificationBuilder.setProgress(MAX_PROGRESS, percent, false)
+        val fileName: String =
+            fileAbsoluteName.substring(fileAbsoluteName.lastIndexOf(FileUtils.PATH_SEPARATOR) + 1)
+        val text = String.format(context.getString(R.string.uploader_upload_in_progress_content), percent, fileName)
+        notificationBuilder.setContentText(text)
+        notificationManager.notify(FOREGROUND_SERVICE_ID, notificationBuilder.build())
+    }
+
     /**
+     * Progress of a single upload, uploads run concurrently and each one needs to remember its own last percentage.
+     *
      * see [com.owncloud.android.files.services.FileUploader.onTransferProgress]
      */
-    override fun onTransferProgress(
-        progressRate: Long,
-        totalTransferredSoFar: Long,
-        totalToTransfer: Long,
-        fileAbsoluteName: String
-    ) {
-        val percent = (MAX_PROGRESS * totalTransferredSoFar.toDouble() / totalToTransfer.toDouble()).toInt()
-        if (percent != lastPercent) {
-            notificationBuilder.setProgress(MAX_PROGRESS, percent, false)
-            val fileName: String =
-                fileAbsoluteName.substring(fileAbsoluteName.lastIndexOf(FileUtils.PATH_SEPARATOR) + 1)
-            val text = String.format(context.getString(R.string.uploader_upload_in_progress_content), percent, fileName)
-            notificationBuilder.setContentText(text)
-            notificationManager.notify(FOREGROUND_SERVICE_ID, notificationBuilder.build())
+    private inner class UploadProgressListener : OnDatatransferProgressListener {
+        private var lastPercent = 0
+
+        override fun onTransferProgress(
+            progressRate: Long,
+            totalTransferredSoFar: Long,
+            totalToTransfer: Long,
+            fileAbsoluteName: String
+        ) {
+            val percent = (MAX_PROGRESS * totalTransferredSoFar.toDouble() / totalToTransfer.toDouble()).toInt()
+            if (percent != lastPercent) {
+                notifyProgress(percent, fileAbsoluteName)
+            }
+            lastPercent = percent
         }
-        lastPercent = percent
     }
 
     companion object {
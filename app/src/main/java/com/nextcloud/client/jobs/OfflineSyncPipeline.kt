@@ -0,0 +1,205 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.client.jobs
+
+import com.owncloud.android.lib.common.utils.Log_OC
+import java.io.File
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Walks the local copy of an account's offline folders with a bounded number of concurrent requests.
+ *
+ * Folders are checked for etag changes on up to [probeThreads] threads, while the files of changed folders are
+ * synchronized on up to [syncThreads] other threads, so that slow file synchronizations do not hold back finding
+ * further changed folders. Unchanged folders are skipped together with their content.
+ *
+ * The new etag of a folder is only stored once its files and all of its subfolders are done. A stopped pass leaves
+ * the etags of unfinished folders untouched, so the next pass resumes with them and skips the finished ones.
+ */
+class OfflineSyncPipeline @JvmOverloads constructor(
+    private val probeThreads: Int = DEFAULT_PROBE_THREADS,
+    private val syncThreads: Int = DEFAULT_SYNC_THREADS
+) {
+
+    companion object {
+        private val TAG = OfflineSyncPipeline::class.java.simpleName
+
+        const val DEFAULT_PROBE_THREADS = 4
+        const val DEFAULT_SYNC_THREADS = 3
+    }
+
+    /**
+     * Result of checking a folder for an etag change.
+     */
+    sealed class EtagCheck {
+        /** the content of the folder is synchronized and [etag] stored afterwards */
+        class Changed(val etag: String) : EtagCheck()
+
+        /** the folder is skipped together with its content */
+        object Unchanged : EtagCheck()
+
+        /** the folder could not be checked and is skipped, its parents keep their old etags */
+        object NotChecked : EtagCheck()
+    }
+
+    interface Callbacks {
+        fun checkEtag(folder: File): EtagCheck
+
+        fun syncFile(file: File)
+
+        /**
+         * Called once the files and subfolders of a changed folder are synchronized.
+         */
+        fun onFolderSynced(folder: File, etag: String)
+    }
+
+    private class Folder(val folder: File, val parent: Folder?) {
+        var etag: String? = null
+
+        /** files and subfolders not done yet, plus one while the folder itself is listed */
+        val pending = AtomicInteger(1)
+
+        /** set if some content was not synchronized, which keeps the old etag */
+        val incomplete = AtomicBoolean(false)
+    }
+
+    private class Pass(
+        val callbacks: Callbacks,
+        val isStopped: () -> Boolean,
+        val probes: ExecutorService,
+        val syncs: ExecutorService
+    ) {
+        val done = CountDownLatch(1)
+    }
+
+    /**
+     * Synchronizes [root] and returns when it is done or, after [isStopped] returned true, when running work is done.
+     */
+    fun run(root: File, callbacks: Callbacks, isStopped: () -> Boolean = { false }) {
+        val probes = Executors.newFixedThreadPool(probeThreads, threadFactory("Probe"))
+        val syncs = Executors.newFixedThreadPool(syncThreads, threadFactory("Sync"))
+        try {
+            val pass = Pass(callbacks, isStopped, probes, syncs)
+            probes.execute { probe(pass, Folder(root, null)) }
+            pass.done.await()
+        } finally {
+            probes.shutdownNow()
+            syncs.shutdownNow()
+        }
+    }
+
+    private fun probe(pass: Pass, folder: Folder) {
+        val check = checkEtag(pass, folder)
+        if (check !is EtagCheck.Changed) {
+            finish(pass, folder, check == EtagCheck.Unchanged)
+            return
+        }
+        folder.etag = check.etag
+
+        val files = folder.folder.listFiles { file: File -> file.isFile } ?: emptyArray()
+        val subfolders = folder.folder.listFiles { file: File -> file.isDirectory } ?: emptyArray()
+        folder.pending.addAndGet(files.size + subfolders.size)
+
+        for (file in files) {
+            pass.syncs.execute { sync(pass, folder, file) }
+        }
+        for (subfolder in subfolders) {
+            pass.probes.execute { probe(pass, Folder(subfolder, folder)) }
+        }
+        complete(pass, folder)
+    }
+
+    @Suppress("TooGenericExceptionCaught") // an unchecked folder keeps the old etags of its parents
+    private fun checkEtag(pass: Pass, folder: Folder): EtagCheck = when {
+        pass.isStopped() -> EtagCheck.NotChecked
+        folder.folder.listFiles() == null -> EtagCheck.Unchanged
+        else -> try {
+            pass.callbacks.checkEtag(folder.folder)
+        } catch (e: RuntimeException) {
+            Log_OC.e(TAG, "Failed to check etag of " + folder.folder.absolutePath, e)
+            EtagCheck.NotChecked
+        }
+    }
+
+    private fun sync(pass: Pass, folder: Folder, file: File) {
+        if (pass.isStopped()) {
+            folder.incomplete.set(true)
+        } else {
+            @Suppress("TooGenericExceptionCaught") // a failed file is synchronized again with the next change
+            try {
+                pass.callbacks.syncFile(file)
+            } catch (e: RuntimeException) {
+                Log_OC.e(TAG, "Failed to synchronize " + file.absolutePath, e)
+            }
+        }
+        complete(pass, folder)
+    }
+
+    /**
+     * Counts one file or subfolder of [folder] as done.
+     */
+    private fun complete(pass: Pass, folder: Folder) {
+        if (folder.pending.decrementAndGet() > 0) {
+            return
+        }
+
+        var synced = !folder.incomplete.get() && !pass.isStopped()
+        if (synced) {
+            @Suppress("TooGenericExceptionCaught") // legacy code
+            try {
+                pass.callbacks.onFolderSynced(folder.folder, folder.etag!!)
+            } catch (e: Exception) {
+                Log_OC.e(TAG, "Failed to update etag on " + folder.folder.absolutePath, e)
+                synced = false
+            }
+        }
+        finish(pass, folder, synced)
+    }
+
+    /**
+     * Counts [folder] with all of its content as done.
+     *
+     * @param synced false if the folder is to be synchronized again with the next pass
+     */
+    private fun finish(pass: Pass, folder: Folder, synced: Boolean) {
+        val parent = folder.parent
+        if (parent == null) {
+            pass.done.countDown()
+        } else {
+            if (!synced) {
+                parent.incomplete.set(true)
+            }
+            complete(pass, parent)
+        }
+    }
+
+    private fun threadFactory(lane: String): ThreadFactory {
+        val count = AtomicInteger()
+        return ThreadFactory { runnable ->
+            Thread(runnable, "OfflineSync$lane-${count.incrementAndGet()}").apply {
+                priority = Thread.MIN_PRIORITY
+            }
+        }
+    }
+}
@@ -28,6 +28,7 @@ import androidx.work.WorkerParameters
 import com.nextcloud.client.account.User
 import com.nextcloud.client.account.UserAccountManager
 import com.nextcloud.client.device.PowerManagementService
+import com.nextcloud.client.jobs.OfflineSyncPipeline.EtagCheck
 import com.nextcloud.client.network.ConnectivityService
 import com.owncloud.android.datamodel.FileDataStorageManager
 import com.owncloud.android.datamodel.OCFile
@@ -52,6 +53,8 @@ class OfflineSyncWork constructor(
         const val TAG = "OfflineSyncJob"
     }
 
+    private val pipeline = OfflineSyncPipeline()
+
     override fun doWork(): Result {
         if (!powerManagementService.isPowerSavingEnabled) {
             val users = userAccountManager.allUsers
@@ -61,61 +64,55 @@ class OfflineSyncWork constructor(
                 if (ocRoot.storagePath == null) {
                     break
                 }
-                recursive(File(ocRoot.storagePath), storageManager, user)
+                pipeline.run(File(ocRoot.storagePath), AccountSync(storageManager, user)) { isStopped }
             }
         }
         return Result.success()
     }
 
-    private fun recursive(folder: File, storageManager: FileDataStorageManager, user: User) {
-        val downloadFolder = FileStorageUtils.getSavePath(user.accountName)
-        val folderName = folder.absolutePath.replaceFirst(downloadFolder.toRegex(), "") + OCFile.PATH_SEPARATOR
-        Log_OC.d(TAG, "$folderName: enter")
-        // exit
-        if (folder.listFiles() == null) {
-            return
-        }
+    private inner class AccountSync(
+        private val storageManager: FileDataStorageManager,
+        private val user: User
+    ) : OfflineSyncPipeline.Callbacks {
 
-        val updatedEtag = checkEtagChanged(folderName, storageManager, user) ?: return
+        private val downloadFolder = FileStorageUtils.getSavePath(user.accountName)
 
-        // iterate over downloaded files
-        val files = folder.listFiles { obj: File -> obj.isFile }
-        if (files != null) {
-            for (file in files) {
-                val ocFile = storageManager.getFileByLocalPath(file.path)
-                val synchronizeFileOperation = SynchronizeFileOperation(
-                    ocFile?.remotePath,
-                    user,
-                    true,
-                    context,
-                    storageManager
-                )
-                synchronizeFileOperation.execute(context)
-            }
+        private fun getFolderName(folder: File): String =
+            folder.absolutePath.replaceFirst(downloadFolder.toRegex(), "") + OCFile.PATH_SEPARATOR
+
+        override fun checkEtag(folder: File): EtagCheck {
+            val folderName = getFolderName(folder)
+            Log_OC.d(TAG, "$folderName: enter")
+            return checkEtagChanged(folderName, storageManager, user)
         }
-        // recursive into folder
-        val subfolders = folder.listFiles { obj: File -> obj.isDirectory }
-        if (subfolders != null) {
-            for (subfolder in subfolders) {
-                recursive(subfolder, storageManager, user)
-            }
+
+        override fun syncFile(file: File) {
+            val ocFile = storageManager.getFileByLocalPath(file.path)
+            val synchronizeFileOperation = SynchronizeFileOperation(
+                ocFile?.remotePath,
+                user,
+                true,
+                context,
+                storageManager
+            )
+            synchronizeFileOperation.setBackgroundDownload(true)
+            synchronizeFileOperation.execute(context)
         }
-        // update eTag
-        @Suppress("TooGenericExceptionCaught") // legacy code
-        try {
-            val ocFolder = storageManager.getFileByPath(folderName)
-            ocFolder.etagOnServer = updatedEtag
+
+        override fun onFolderSynced(folder: File, etag: String) {
+            val ocFolder = storageManager.getFileByPath(getFolderName(folder))
+            ocFolder.etagOnServer = etag
             storageManager.saveFile(ocFolder)
-        } catch (e: Exception) {
-            Log_OC.e(TAG, "Failed to update etag on " + folder.absolutePath, e)
         }
     }
 
     /**
-     * @return new etag if changed, `null` otherwise
+     * @return new etag if changed, [EtagCheck.NotChecked] if the folder was removed on the server or the server
+     * could not be reached
      */
-    private fun checkEtagChanged(folderName: String, storageManager: FileDataStorageManager, user: User): String? {
-        val ocFolder = storageManager.getFileByPath(folderName)
+    private fun checkEtagChanged(folderName: String, storageManager: FileDataStorageManager, user: User): EtagCheck {
+        // local folders unknown to the database have nothing to synchronize
+        val ocFolder = storageManager.getFileByPath(folderName) ?: return EtagCheck.Unchanged
         Log_OC.d(TAG, folderName + ": currentEtag: " + ocFolder.etag)
         // check for etag change, if false, skip
         val checkEtagOperation = CheckEtagRemoteOperation(
@@ -126,25 +123,25 @@ class OfflineSyncWork constructor(
         return when (result.code) {
             ResultCode.ETAG_UNCHANGED -> {
                 Log_OC.d(TAG, "$folderName: eTag unchanged")
-                null
+                EtagCheck.Unchanged
             }
             ResultCode.FILE_NOT_FOUND -> {
                 val removalResult = storageManager.removeFolder(ocFolder, true, true)
                 if (!removalResult) {
                     Log_OC.e(TAG, "removal of " + ocFolder.storagePath + " failed: file not found")
                 }
-                null
+                EtagCheck.NotChecked
             }
             ResultCode.ETAG_CHANGED -> {
                 Log_OC.d(TAG, "$folderName: eTag changed")
-                result.data[0] as String
+                EtagCheck.Changed(result.data[0] as String)
             }
             else -> if (connectivityService.isInternetWalled) {
                 Log_OC.d(TAG, "No connectivity, skipping sync")
-                null
+                EtagCheck.NotChecked
             } else {
                 Log_OC.d(TAG, "$folderName: eTag changed")
-                result.data[0] as String
+                EtagCheck.Changed(result.data[0] as String)
             }
         }
     }
@@ -0,0 +1,143 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.client.jobs
+
+import com.owncloud.android.db.OCUpload
+import com.owncloud.android.lib.common.utils.Log_OC
+import com.owncloud.android.operations.UploadFileOperation
+import java.util.ArrayDeque
+import java.util.concurrent.Executors
+import java.util.concurrent.Semaphore
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Runs the uploads of one account concurrently.
+ *
+ * At most [maxPerAccount] uploads of an account run at the same time. All accounts share the [globalLimit], so
+ * that several upload workers running at once do not open an unbounded number of connections.
+ *
+ * Uploads triggered by the user are started before automatic ones. Large files are interleaved with small ones and
+ * never occupy all slots of an account, so a backlog of small photos is not stuck behind a few long videos.
+ */
+class UploadScheduler @JvmOverloads constructor(
+    private val maxPerAccount: Int = DEFAULT_MAX_PER_ACCOUNT,
+    private val globalLimit: Semaphore = GLOBAL_LIMIT,
+    private val largeFileThreshold: Long = LARGE_FILE_THRESHOLD
+) {
+
+    companion object {
+        private val TAG = UploadScheduler::class.java.simpleName
+
+        const val DEFAULT_MAX_PER_ACCOUNT = 3
+        const val DEFAULT_MAX_GLOBAL = 4
+        const val LARGE_FILE_THRESHOLD = 10L * 1024 * 1024
+
+        private val GLOBAL_LIMIT = Semaphore(DEFAULT_MAX_GLOBAL, true)
+    }
+
+    private val lock = Any()
+    private val small = ArrayDeque<OCUpload>()
+    private val large = ArrayDeque<OCUpload>()
+    private var runningLarge = 0
+    private var lastWasLarge = true
+
+    /**
+     * Runs [upload] for all given uploads and returns when all of them are finished.
+     */
+    fun run(uploads: List<OCUpload>, upload: (OCUpload) -> Unit) {
+        if (uploads.isEmpty()) {
+            return
+        }
+
+        synchronized(lock) {
+            uploads
+                .sortedWith(compareBy({ priority(it) }, { it.uploadId }))
+                .forEach { if (isLarge(it)) large.add(it) else small.add(it) }
+        }
+
+        val threads = minOf(maxPerAccount, uploads.size)
+        val executor = Executors.newFixedThreadPool(threads, threadFactory())
+        try {
+            val futures = (0 until threads).map { executor.submit { runQueued(upload) } }
+            futures.forEach { it.get() }
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    private fun runQueued(upload: (OCUpload) -> Unit) {
+        while (true) {
+            val next = synchronized(lock) { takeNext() } ?: return
+            val isLarge = isLarge(next)
+
+            globalLimit.acquireUninterruptibly()
+            @Suppress("TooGenericExceptionCaught") // upload failures are stored by the upload itself
+            try {
+                upload(next)
+            } catch (e: RuntimeException) {
+                Log_OC.e(TAG, "Upload ${next.uploadId} failed", e)
+            } finally {
+                globalLimit.release()
+                if (isLarge) {
+                    synchronized(lock) { runningLarge-- }
+                }
+            }
+        }
+    }
+
+    /**
+     * Must be called holding [lock].
+     */
+    private fun takeNext(): OCUpload? {
+        val nextSmall = small.peekFirst()
+        val nextLarge = large.peekFirst()
+
+        val takeLarge = when {
+            nextLarge == null -> false
+            nextSmall == null -> true
+            // keep one slot for small files
+            runningLarge >= maxPerAccount - 1 -> false
+            priority(nextLarge) != priority(nextSmall) -> priority(nextLarge) < priority(nextSmall)
+            else -> !lastWasLarge
+        }
+
+        lastWasLarge = takeLarge
+        return if (takeLarge) {
+            runningLarge++
+            large.pollFirst()
+        } else {
+            small.pollFirst()
+        }
+    }
+
+    private fun priority(upload: OCUpload): Int =
+        if (upload.createdBy == UploadFileOperation.CREATED_BY_USER) 0 else 1
+
+    private fun isLarge(upload: OCUpload) = upload.fileSize >= largeFileThreshold
+
+    private fun threadFactory(): ThreadFactory {
+        val count = AtomicInteger()
+        return ThreadFactory { runnable ->
+            Thread(runnable, "UploadScheduler-${count.incrementAndGet()}").apply {
+                priority = Thread.MIN_PRIORITY
+            }
+        }
+    }
+}
@@ -108,6 +108,8 @@ public final class AppPreferencesImpl implements AppPreferences {
     private static final String PREF__STORAGE_PERMISSION_REQUESTED = "storage_permission_requested";
     private static final String PREF__IN_APP_REVIEW_DATA = "in_app_review_data";
 
+    private static final FolderPreferenceCache folderPreferences = new FolderPreferenceCache();
+
     private final Context context;
     private final SharedPreferences preferences;
     private final UserAccountManager userAccountManager;
@@ -636,15 +638,10 @@ public final class AppPreferencesImpl implements AppPreferences {
             return defaultValue;
         }
 
-        ArbitraryDataProvider dataProvider = new ArbitraryDataProviderImpl(context);
-        FileDataStorageManager storageManager = new FileDataStorageManager(user, context.getContentResolver());
-
-        String value = dataProvider.getValue(user.getAccountName(), getKeyFromFolder(preferenceName, folder));
-        OCFile prefFolder = folder;
-        while (prefFolder != null && value.isEmpty()) {
-            prefFolder = storageManager.getFileById(prefFolder.getParentId());
-            value = dataProvider.getValue(user.getAccountName(), getKeyFromFolder(preferenceName, prefFolder));
-        }
+        String value = folderPreferences.get(user.getAccountName(),
+                                             preferenceName,
+                                             folder,
+                                             new FolderPreferenceStorage(context, user));
         return value.isEmpty() ? defaultValue : value;
     }
 
@@ -662,14 +659,46 @@ public final class AppPreferencesImpl implements AppPreferences {
                                             @Nullable final OCFile folder,
                                             final String value) {
         ArbitraryDataProvider dataProvider = new ArbitraryDataProviderImpl(context);
-        dataProvider.storeOrUpdateKeyValue(user.getAccountName(), getKeyFromFolder(preferenceName, folder), value);
+        String key = getKeyFromFolder(preferenceName, folder);
+        dataProvider.storeOrUpdateKeyValue(user.getAccountName(), key, value);
+        folderPreferences.put(user.getAccountName(), key, value);
     }
 
     private static String getKeyFromFolder(String preferenceName, @Nullable OCFile folder) {
-        final String folderIdString = String.valueOf(folder != null ? folder.getFileId() :
-                                                         FileDataStorageManager.ROOT_PARENT_ID);
+        return FolderPreferenceCache.getKey(preferenceName, folder != null ? folder.getFileId() :
+            FileDataStorageManager.ROOT_PARENT_ID);
+    }
+
+    /**
+     * Reads folder preferences and folders from the database, creating the providers on first use only.
+     */
+    private static final class FolderPreferenceStorage implements FolderPreferenceCache.Storage {
+        private final Context context;
+        private final User user;
+        private ArbitraryDataProvider dataProvider;
+        private FileDataStorageManager storageManager;
+
+        private FolderPreferenceStorage(Context context, User user) {
+            this.context = context;
+            this.user = user;
+        }
+
+        @Override
+        public String getValue(String accountName, String key) {
+            if (dataProvider == null) {
+                dataProvider = new ArbitraryDataProviderImpl(context);
+            }
+            return dataProvider.getValue(accountName, key);
+        }
 
-        return preferenceName + "_" + folderIdString;
+        @Nullable
+        @Override
+        public OCFile getFileById(long id) {
+            if (storageManager == null) {
+                storageManager = new FileDataStorageManager(user, context.getContentResolver());
+            }
+            return storageManager.getFileById(id);
+        }
     }
 
     @Override
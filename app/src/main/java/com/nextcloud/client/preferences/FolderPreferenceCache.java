@@ -0,0 +1,152 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.client.preferences;
+
+import com.owncloud.android.datamodel.FileDataStorageManager;
+import com.owncloud.android.datamodel.OCFile;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Resolves folder preferences, which are inherited from the closest ancestor setting them, from memory.
+ *
+ * Per account it keeps the values stored for folders, including the absence of a value, and the parent of every
+ * folder it walked through. A cached parent is only used while its path is the parent path of the child, so that
+ * moved or renamed folders are read again. Stored values must be changed through {@link #put}.
+ *
+ * Thread safe.
+ */
+final class FolderPreferenceCache {
+
+    /**
+     * Database access, only used for values and folders not cached yet.
+     */
+    interface Storage {
+        /**
+         * @return stored value, empty if not set
+         */
+        String getValue(String accountName, String key);
+
+        @Nullable
+        OCFile getFileById(long id);
+    }
+
+    /** folder without parent, e.g. the parent of the root folder */
+    private static final Folder NONE = new Folder(FileDataStorageManager.ROOT_PARENT_ID, -1, null);
+
+    /** stored values by account and key, empty if not set */
+    private final Map<String, Map<String, String>> values = new HashMap<>();
+
+    /** folders by account and id */
+    private final Map<String, Map<Long, Folder>> folders = new HashMap<>();
+
+    static String getKey(String preferenceName, long folderId) {
+        return preferenceName + "_" + folderId;
+    }
+
+    /**
+     * @param folder folder, or null for the root
+     * @return value set for the folder or its closest ancestor, empty if none is set
+     */
+    synchronized String get(String accountName, String preferenceName, @Nullable OCFile folder, Storage storage) {
+        Folder current = folder == null ? NONE : new Folder(folder.getFileId(),
+                                                             folder.getParentId(),
+                                                             folder.getRemotePath());
+        String value = getValue(accountName, getKey(preferenceName, current.id), storage);
+
+        while (current != NONE && value.isEmpty()) {
+            current = getParent(accountName, current, storage);
+            value = getValue(accountName, getKey(preferenceName, current.id), storage);
+        }
+        return value;
+    }
+
+    /**
+     * Updates the cached value after it has been stored.
+     */
+    synchronized void put(String accountName, String key, String value) {
+        getValues(accountName).put(key, value == null ? "" : value);
+    }
+
+    private String getValue(String accountName, String key, Storage storage) {
+        Map<String, String> accountValues = getValues(accountName);
+        String value = accountValues.get(key);
+        if (value == null) {
+            value = storage.getValue(accountName, key);
+            accountValues.put(key, value);
+        }
+        return value;
+    }
+
+    private Map<String, String> getValues(String accountName) {
+        Map<String, String> accountValues = values.get(accountName);
+        if (accountValues == null) {
+            accountValues = new HashMap<>();
+            values.put(accountName, accountValues);
+        }
+        return accountValues;
+    }
+
+    private Folder getParent(String accountName, Folder child, Storage storage) {
+        Map<Long, Folder> accountFolders = folders.get(accountName);
+        if (accountFolders == null) {
+            accountFolders = new HashMap<>();
+            folders.put(accountName, accountFolders);
+        }
+
+        String parentPath = getParentPath(child.remotePath);
+        Folder parent = accountFolders.get(child.parentId);
+        boolean valid = parent != null && (parent == NONE ? parentPath == null : parent.remotePath.equals(parentPath));
+        if (!valid) {
+            OCFile file = storage.getFileById(child.parentId);
+            parent = file == null ? NONE : new Folder(file.getFileId(), file.getParentId(), file.getRemotePath());
+            accountFolders.put(child.parentId, parent);
+        }
+        return parent;
+    }
+
+    /**
+     * @return path of the parent folder ending with a separator, null for the root folder
+     */
+    @Nullable
+    private static String getParentPath(@Nullable String remotePath) {
+        if (remotePath == null) {
+            return null;
+        }
+        int end = remotePath.endsWith(OCFile.PATH_SEPARATOR) ? remotePath.length() - 1 : remotePath.length();
+        int separator = remotePath.lastIndexOf(OCFile.PATH_SEPARATOR, end - 1);
+        return separator < 0 ? null : remotePath.substring(0, separator + 1);
+    }
+
+    private static final class Folder {
+        private final long id;
+        private final long parentId;
+        @Nullable private final String remotePath;
+
+        private Folder(long id, long parentId, @Nullable String remotePath) {
+            this.id = id;
+            this.parentId = parentId;
+            this.remotePath = remotePath;
+        }
+    }
+}
@@ -32,6 +32,7 @@ import java.security.MessageDigest
 
 object HashUtil {
     private const val ALGORITHM_MD5 = "MD5"
+    private const val ALGORITHM_SHA_256 = "SHA-256"
 
     @JvmStatic
     fun md5Hash(input: String): String {
@@ -39,4 +40,11 @@ object HashUtil {
             .digest(input.toByteArray())
         return String(Hex.encodeHex(digest))
     }
+
+    @JvmStatic
+    fun sha256Hash(input: String): String {
+        val digest = MessageDigest.getInstance(ALGORITHM_SHA_256)
+            .digest(input.toByteArray())
+        return String(Hex.encodeHex(digest))
+    }
 }
@@ -26,6 +26,7 @@ import com.nextcloud.client.account.User
 @Suppress("Detekt.TooManyFunctions") // legacy interface, will get rid of `accountName` methods in the future
 interface ArbitraryDataProvider {
     fun deleteKeyForAccount(account: String, key: String)
+    fun deleteKeysWithPrefixForAccount(account: String, keyPrefix: String)
 
     fun storeOrUpdateKeyValue(accountName: String, key: String, newValue: Long)
     fun storeOrUpdateKeyValue(accountName: String, key: String, newValue: Boolean)
@@ -58,6 +58,11 @@ public class ArbitraryDataProviderImpl implements ArbitraryDataProvider {
         arbitraryDataDao.deleteValue(account, key);
     }
 
+    @Override
+    public void deleteKeysWithPrefixForAccount(@NonNull String account, @NonNull String keyPrefix) {
+        arbitraryDataDao.deleteValuesWithKeyPrefix(account, keyPrefix);
+    }
+
     @Override
     public void storeOrUpdateKeyValue(@NonNull String accountName, @NonNull String key, long newValue) {
         storeOrUpdateKeyValue(accountName, key, String.valueOf(newValue));
@@ -0,0 +1,105 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.datamodel;
+
+import com.owncloud.android.lib.resources.status.OCCapability;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import androidx.annotation.Nullable;
+
+/**
+ * In-memory capabilities per account, in front of the capabilities table.
+ *
+ * Cached capabilities are shared by all readers and must not be modified. A saved capability with the etag of the
+ * cached one describes the same server state and keeps the cached capability; any other save invalidates it.
+ *
+ * Thread safe.
+ */
+public final class CapabilityCache {
+
+    private final Map<String, OCCapability> capabilities = new HashMap<>();
+
+    /** incremented by every invalidation, so that reads started before it are not cached */
+    private long generation;
+
+    private long hitCount;
+    private long missCount;
+
+    @Nullable
+    public synchronized OCCapability get(String accountName) {
+        OCCapability capability = capabilities.get(accountName);
+        if (capability == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return capability;
+    }
+
+    /**
+     * @return generation to pass to {@link #put(String, OCCapability, long)} after reading the capability
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Caches a capability read from the database, unless the cache was invalidated since the read started.
+     */
+    public synchronized void put(String accountName, OCCapability capability, long generation) {
+        if (generation == this.generation) {
+            capabilities.put(accountName, capability);
+        }
+    }
+
+    /**
+     * Called after a capability has been saved.
+     */
+    public synchronized void onSaved(String accountName, OCCapability capability) {
+        OCCapability cached = capabilities.get(accountName);
+        String etag = capability.getEtag();
+        if (cached == null || etag == null || etag.isEmpty() || !etag.equals(cached.getEtag())) {
+            invalidate(accountName);
+        }
+    }
+
+    /**
+     * Caches a capability which is known to be current, replacing any cached one.
+     */
+    public synchronized void replace(String accountName, OCCapability capability) {
+        capabilities.put(accountName, capability);
+        generation++;
+    }
+
+    public synchronized void invalidate(String accountName) {
+        capabilities.remove(accountName);
+        generation++;
+    }
+
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    public synchronized long missCount() {
+        return missCount;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.datamodel;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import androidx.annotation.Nullable;
+
+/**
+ * In-memory remote paths of the encrypted folders of every account, so that finding an encrypted ancestor takes one
+ * lookup per path segment instead of one query per parent folder.
+ *
+ * The paths of an account are read with a single query on first use and updated whenever folders are saved or
+ * removed. Changes which affect whole subtrees, like moves, drop the paths of the account instead.
+ *
+ * Thread safe.
+ */
+public final class EncryptedFolderIndex {
+
+    /**
+     * Database access, only used for accounts not read yet.
+     */
+    interface Storage {
+        /**
+         * @return remote paths of all encrypted folders of the account
+         */
+        Collection<String> getEncryptedFolderPaths(String accountName);
+    }
+
+    private final Map<String, NavigableSet<String>> folders = new HashMap<>();
+
+    /** incremented by every change, so that reads started before it are not cached */
+    private long generation;
+
+    /**
+     * @param remotePath remote path of a file or folder
+     * @return true if any folder above the given path is encrypted
+     */
+    boolean hasEncryptedAncestor(String accountName, @Nullable String remotePath, Storage storage) {
+        if (remotePath == null) {
+            return false;
+        }
+
+        NavigableSet<String> paths;
+        long readGeneration;
+        synchronized (this) {
+            paths = folders.get(accountName);
+            readGeneration = generation;
+        }
+        if (paths == null) {
+            paths = new TreeSet<>(storage.getEncryptedFolderPaths(accountName));
+            synchronized (this) {
+                if (readGeneration == generation) {
+                    folders.put(accountName, paths);
+                }
+            }
+        }
+
+        synchronized (this) {
+            int end = remotePath.endsWith(OCFile.PATH_SEPARATOR) ? remotePath.length() - 1 : remotePath.length();
+            int separator = remotePath.lastIndexOf(OCFile.PATH_SEPARATOR, end - 1);
+            // the root folder is never encrypted
+            while (separator > 0) {
+                if (paths.contains(remotePath.substring(0, separator + 1))) {
+                    return true;
+                }
+                separator = remotePath.lastIndexOf(OCFile.PATH_SEPARATOR, separator - 1);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Called after a folder has been saved.
+     */
+    synchronized void onFolderSaved(String accountName, String remotePath, boolean encrypted) {
+        NavigableSet<String> paths = folders.get(accountName);
+        if (paths != null) {
+            if (encrypted) {
+                paths.add(remotePath);
+            } else {
+                paths.remove(remotePath);
+            }
+        }
+        generation++;
+    }
+
+    /**
+     * Called after a folder has been removed together with its content.
+     */
+    synchronized void onFolderRemoved(String accountName, String remotePath) {
+        NavigableSet<String> paths = folders.get(accountName);
+        if (paths != null) {
+            String prefix = remotePath.endsWith(OCFile.PATH_SEPARATOR) ? remotePath : remotePath + OCFile.PATH_SEPARATOR;
+            paths.subSet(prefix, true, prefix + Character.MAX_VALUE, false).clear();
+        }
+        generation++;
+    }
+
+    public synchronized void invalidate(String accountName) {
+        folders.remove(accountName);
+        generation++;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.datamodel;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.StructStat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Detects content changes of files indexed for auto upload, reading as little of each file as possible:
+ * <ol>
+ *     <li>size, modification time and inode are compared with the stored values</li>
+ *     <li>if those differ, a fingerprint of blocks at the head, middle and tail of the file is compared</li>
+ *     <li>rows stored before fingerprints existed only have a CRC32 of the whole file, which then is computed</li>
+ * </ol>
+ * Files up to three blocks are fingerprinted completely, so for those the fingerprint is exact.
+ *
+ * Not thread safe, since a single read buffer is reused for all files.
+ */
+public final class FileChangeDetector {
+
+    @VisibleForTesting
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final long UNKNOWN_INODE = -1;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    private long bytesRead;
+    private long bytesAvoided;
+
+    /**
+     * Outcome of {@link #detect(String, long, FileSystemDataSet)}. Values which were not computed are null.
+     */
+    public static final class Result {
+        public final boolean changed;
+        public final long size;
+        public final long inode;
+        @Nullable public final String fingerprint;
+        @Nullable public final String crc32;
+
+        private Result(boolean changed, long size, long inode, @Nullable String fingerprint, @Nullable String crc32) {
+            this.changed = changed;
+            this.size = size;
+            this.inode = inode;
+            this.fingerprint = fingerprint;
+            this.crc32 = crc32;
+        }
+    }
+
+    /**
+     * @param stored row of the file in the filesystem table, null for files seen the first time
+     */
+    public Result detect(String path, long modifiedAt, @Nullable FileSystemDataSet stored) {
+        File file = new File(path);
+        long size = file.length();
+        long inode = getInode(path);
+
+        if (stored == null) {
+            return new Result(true, size, inode, sample(file, size), null);
+        }
+
+        boolean sameSize = stored.getFileSize() == null || stored.getFileSize() == size;
+        boolean sameInode = stored.getInode() == null || inode == UNKNOWN_INODE || stored.getInode() == inode;
+        if (stored.getModifiedAt() == modifiedAt && sameSize && sameInode) {
+            return new Result(false, size, inode, stored.getFingerprint(), stored.getCrc32());
+        }
+
+        if (stored.getFingerprint() != null) {
+            String fingerprint = sample(file, size);
+            boolean changed = !sameSize || fingerprint == null || !fingerprint.equals(stored.getFingerprint());
+            // the stored checksum only describes the content as long as it did not change
+            return new Result(changed, size, inode, fingerprint, changed ? null : stored.getCrc32());
+        }
+
+        // stored before fingerprints were introduced
+        if (stored.getCrc32() == null || !sameSize) {
+            return new Result(true, size, inode, sample(file, size), null);
+        }
+
+        // fingerprint as well, so that the next change is detected without reading the whole file again
+        long checksum = checksum(file);
+        boolean changed = checksum != -1 && !stored.getCrc32().equals(Long.toString(checksum));
+        String crc32 = checksum != -1 ? Long.toString(checksum) : stored.getCrc32();
+        return new Result(changed, size, inode, fingerprint(file, size), crc32);
+    }
+
+    /**
+     * @return number of bytes read
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return number of bytes which would have been read to checksum whole files
+     */
+    public long getBytesAvoided() {
+        return bytesAvoided;
+    }
+
+    private long getInode(String path) {
+        try {
+            StructStat stat = Os.stat(path);
+            return stat != null ? stat.st_ino : UNKNOWN_INODE;
+        } catch (ErrnoException e) {
+            return UNKNOWN_INODE;
+        }
+    }
+
+    /**
+     * Fingerprints the file instead of checksumming all of it, see {@link #getBytesAvoided()}.
+     */
+    @Nullable
+    private String sample(File file, long size) {
+        long readBefore = bytesRead;
+        String fingerprint = fingerprint(file, size);
+        bytesAvoided += Math.max(0, size - (bytesRead - readBefore));
+        return fingerprint;
+    }
+
+    /**
+     * @return CRC32 of the head, middle and tail block of the file as hex string, or null if it cannot be read
+     */
+    @VisibleForTesting
+    @Nullable
+    String fingerprint(File file, long size) {
+        crc.reset();
+
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            FileChannel channel = inputStream.getChannel();
+            if (size <= 3L * BLOCK_SIZE) {
+                update(channel, 0, size);
+            } else {
+                update(channel, 0, BLOCK_SIZE);
+                update(channel, (size - BLOCK_SIZE) / 2, BLOCK_SIZE);
+                update(channel, size - BLOCK_SIZE, BLOCK_SIZE);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * @return CRC32 of the whole file, or -1 if it cannot be read
+     */
+    @VisibleForTesting
+    long checksum(File file) {
+        crc.reset();
+
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            FileChannel channel = inputStream.getChannel();
+            update(channel, 0, Long.MAX_VALUE);
+            return crc.getValue();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Updates the checksum with up to length bytes starting at the given position.
+     *
+     * @return number of bytes read
+     */
+    private long update(FileChannel channel, long position, long length) throws IOException {
+        long read = 0;
+        channel.position(position);
+
+        while (read < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - read));
+            int count = channel.read(buffer);
+            if (count == -1) {
+                break;
+            }
+            crc.update(buffer.array(), 0, count);
+            read += count;
+        }
+
+        bytesRead += read;
+        return read;
+    }
+
+    @Override
+    public String toString() {
+        return "FileChangeDetector[read=" + bytesRead + ", avoided=" + bytesAvoided + "]";
+    }
+}
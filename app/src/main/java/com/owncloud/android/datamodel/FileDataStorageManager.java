@@ -61,6 +61,7 @@ import com.owncloud.android.lib.resources.status.CapabilityBooleanType;
 import com.owncloud.android.lib.resources.status.OCCapability;
 import com.owncloud.android.operations.RemoteOperationFailedException;
 import com.owncloud.android.utils.FileStorageUtils;
+import com.owncloud.android.utils.FolderSizeIndex;
 import com.owncloud.android.utils.MimeType;
 import com.owncloud.android.utils.MimeTypeUtil;
 
@@ -69,10 +70,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import androidx.annotation.NonNull;
@@ -92,24 +95,36 @@ public class FileDataStorageManager {
     public static final int ROOT_PARENT_ID = 0;
     private static final String JSON_NULL_STRING = "null";
     private static final String JSON_EMPTY_ARRAY = "[]";
+    // keep below SQLITE_MAX_VARIABLE_NUMBER (999 on older Android versions)
+    private static final int MAX_QUERY_ARGUMENTS = 500;
+
+    private static final CapabilityCache capabilityCache = new CapabilityCache();
+    private static final EncryptedFolderIndex encryptedFolderIndex = new EncryptedFolderIndex();
 
     private final ContentResolver contentResolver;
     private final ContentProviderClient contentProviderClient;
     private final User user;
 
-    private final FileDao fileDao = NextcloudDatabase.getInstance(MainApp.getAppContext()).fileDao();
+    private final FileDao fileDao;
     private final Gson gson = new Gson();
 
     public FileDataStorageManager(User user, ContentResolver contentResolver) {
+        this(user, contentResolver, NextcloudDatabase.getInstance(MainApp.getAppContext()).fileDao());
+    }
+
+    @VisibleForTesting
+    FileDataStorageManager(User user, ContentResolver contentResolver, FileDao fileDao) {
         this.contentProviderClient = null;
         this.contentResolver = contentResolver;
         this.user = user;
+        this.fileDao = fileDao;
     }
 
     public FileDataStorageManager(User user, ContentProviderClient contentProviderClient) {
         this.contentProviderClient = contentProviderClient;
         this.contentResolver = null;
         this.user = user;
+        this.fileDao = NextcloudDatabase.getInstance(MainApp.getAppContext()).fileDao();
     }
 
     /**
@@ -124,6 +139,25 @@ public class FileDataStorageManager {
         return getFileByPath(ProviderTableMeta.FILE_PATH, path);
     }
 
+    /**
+     * Reads the stored files with the given encrypted remote paths, using one query per {@link #MAX_QUERY_ARGUMENTS}
+     * paths.
+     *
+     * @return stored files by encrypted remote path, paths that are not stored are not contained
+     */
+    public Map<String, OCFile> getFilesByEncryptedRemotePaths(List<String> paths) {
+        Map<String, OCFile> files = new HashMap<>(paths.size());
+        for (int start = 0; start < paths.size(); start += MAX_QUERY_ARGUMENTS) {
+            int end = Math.min(start + MAX_QUERY_ARGUMENTS, paths.size());
+            for (FileEntity fileEntity : fileDao.getFilesByEncryptedRemotePaths(paths.subList(start, end),
+                                                                               user.getAccountName())) {
+                OCFile file = createFileInstance(fileEntity);
+                files.put(file.getRemotePath(), file);
+            }
+        }
+        return files;
+    }
+
     public @Nullable
     OCFile getFileByDecryptedRemotePath(String path) {
         return getFileByPath(ProviderTableMeta.FILE_PATH_DECRYPTED, path);
@@ -174,6 +208,15 @@ public class FileDataStorageManager {
         return null;
     }
 
+    /**
+     * @return true if any folder above the given file or folder is encrypted
+     */
+    public boolean hasEncryptedAncestor(OCFile file) {
+        return encryptedFolderIndex.hasEncryptedAncestor(user.getAccountName(),
+                                                         file.getRemotePath(),
+                                                         fileDao::getEncryptedFolderPaths);
+    }
+
     public boolean fileExists(long id) { return fileDao.getFileById(id) != null; }
 
     public boolean fileExists(String path) {
@@ -221,6 +264,9 @@ public class FileDataStorageManager {
             if (sameRemotePath) {
                 OCFile oldFile = getFileByPath(ocFile.getRemotePath());
                 ocFile.setFileId(oldFile.getFileId());
+            } else if (ocFile.isFolder()) {
+                // the paths of the content change with the folder's path
+                encryptedFolderIndex.invalidate(user.getAccountName());
             }
 
             overridden = true;
@@ -254,6 +300,13 @@ public class FileDataStorageManager {
             }
         }
 
+        if (ocFile.isFolder()) {
+            encryptedFolderIndex.onFolderSaved(user.getAccountName(), ocFile.getRemotePath(), ocFile.isEncrypted());
+        } else if (ocFile.getStoragePath() != null) {
+            // the local copy may have been written, e.g. by a download
+            FolderSizeIndex.getInstance().invalidate(ocFile.getStoragePath());
+        }
+
         return overridden;
     }
 
@@ -334,17 +387,23 @@ public class FileDataStorageManager {
 
         ArrayList<ContentProviderOperation> operations = new ArrayList<>(updatedFiles.size());
 
+        // resolve ids of already stored children in bulk instead of one lookup per child
+        Set<Long> existingIds = getExistingFileIds(updatedFiles);
+        Map<String, Long> existingPaths = getFileIdsByRemotePaths(updatedFiles);
+
         // prepare operations to insert or update files to save in the given folder
         for (OCFile ocFile : updatedFiles) {
             ContentValues contentValues = createContentValuesForFile(ocFile);
             contentValues.put(ProviderTableMeta.FILE_PARENT, folder.getFileId());
 
-            if (fileExists(ocFile.getFileId()) || fileExists(ocFile.getRemotePath())) {
+            Long existingId = existingPaths.get(ocFile.getRemotePath());
+            if (existingIds.contains(ocFile.getFileId()) || existingId != null) {
                 long fileId;
                 if (ocFile.getFileId() != -1) {
                     fileId = ocFile.getFileId();
                 } else {
-                    fileId = getFileByPath(ocFile.getRemotePath()).getFileId();
+                    fileId = existingId;
+                    ocFile.setFileId(fileId);
                 }
                 // updating an existing file
                 operations.add(ContentProviderOperation.newUpdate(ProviderTableMeta.CONTENT_URI)
@@ -374,6 +433,7 @@ public class FileDataStorageManager {
                     File localFolder = new File(FileStorageUtils.getDefaultSavePathFor(user.getAccountName(), ocFile));
                     if (localFolder.exists()) {
                         removeLocalFolder(localFolder);
+                        FolderSizeIndex.getInstance().invalidate(localFolder.getAbsolutePath());
                     }
                 } else {
                     operations.add(ContentProviderOperation.newDelete(
@@ -385,6 +445,7 @@ public class FileDataStorageManager {
                         if (new File(path).delete() && MimeTypeUtil.isMedia(ocFile.getMimeType())) {
                             triggerMediaScan(path, ocFile); // notify MediaScanner about removed file
                         }
+                        FolderSizeIndex.getInstance().invalidate(path);
                     }
                 }
             }
@@ -414,25 +475,157 @@ public class FileDataStorageManager {
             Log_OC.e(TAG, EXCEPTION_MSG + e.getMessage(), e);
         }
 
-        // update new id in file objects for insertions
+        // update new id in file objects for insertions, updated files already carry their id
         if (results != null) {
-            long newId;
-            Iterator<OCFile> fileIterator = updatedFiles.iterator();
-            OCFile ocFile;
-            for (ContentProviderResult result : results) {
-                if (fileIterator.hasNext()) {
-                    ocFile = fileIterator.next();
-                } else {
-                    ocFile = null;
-                }
-                if (result.uri != null) {
-                    newId = Long.parseLong(result.uri.getPathSegments().get(1));
-                    if (ocFile != null) {
-                        ocFile.setFileId(newId);
-                    }
+            int count = Math.min(results.length, updatedFiles.size());
+            for (int i = 0; i < count; i++) {
+                if (results[i].uri != null) {
+                    updatedFiles.get(i).setFileId(ContentUris.parseId(results[i].uri));
                 }
             }
         }
+
+        String accountName = user.getAccountName();
+        encryptedFolderIndex.onFolderSaved(accountName, folder.getRemotePath(), folder.isEncrypted());
+        for (OCFile ocFile : updatedFiles) {
+            if (ocFile.isFolder()) {
+                encryptedFolderIndex.onFolderSaved(accountName, ocFile.getRemotePath(), ocFile.isEncrypted());
+            }
+        }
+        for (OCFile ocFile : filesToRemove) {
+            if (ocFile.isFolder() && ocFile.getParentId() == folder.getFileId()) {
+                encryptedFolderIndex.onFolderRemoved(accountName, ocFile.getRemotePath());
+            }
+        }
+    }
+
+    /**
+     * Inserts or updates the given files and removes the given stored files in one transaction.
+     *
+     * Files to save are matched with stored files by remote path or id, like {@link #saveFile(OCFile)} does. Removed
+     * files also lose their local copy, like with {@link #removeFile(OCFile, boolean, boolean)}.
+     */
+    public void saveFiles(List<OCFile> filesToSave, Collection<FileSummary> filesToRemove) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(filesToSave.size() + filesToRemove.size());
+
+        Set<Long> existingIds = getExistingFileIds(filesToSave);
+        Map<String, Long> existingPaths = getFileIdsByRemotePaths(filesToSave);
+
+        for (OCFile ocFile : filesToSave) {
+            ContentValues contentValues = createContentValuesForFile(ocFile);
+            if (ocFile.isFolder()) {
+                contentValues.remove(ProviderTableMeta.FILE_STORAGE_PATH);
+            }
+
+            Long existingId = existingPaths.get(ocFile.getRemotePath());
+            if (existingId != null) {
+                ocFile.setFileId(existingId);
+            }
+
+            if (existingId != null || existingIds.contains(ocFile.getFileId())) {
+                operations.add(ContentProviderOperation.newUpdate(ProviderTableMeta.CONTENT_URI)
+                                   .withValues(contentValues)
+                                   .withSelection(ProviderTableMeta._ID + " = ?",
+                                                  new String[]{String.valueOf(ocFile.getFileId())})
+                                   .build());
+            } else {
+                operations.add(ContentProviderOperation.newInsert(ProviderTableMeta.CONTENT_URI_FILE)
+                                   .withValues(contentValues)
+                                   .build());
+            }
+        }
+
+        String where = ProviderTableMeta.FILE_ACCOUNT_OWNER + AND + ProviderTableMeta.FILE_PATH + " = ?";
+        for (FileSummary file : filesToRemove) {
+            operations.add(ContentProviderOperation.newDelete(
+                ContentUris.withAppendedId(ProviderTableMeta.CONTENT_URI_FILE, file.getId()))
+                               .withSelection(where, new String[]{user.getAccountName(), file.getPath()})
+                               .build());
+        }
+
+        if (operations.isEmpty()) {
+            return;
+        }
+
+        ContentProviderResult[] results = null;
+        Log_OC.d(TAG, String.format(Locale.ENGLISH, SENDING_TO_FILECONTENTPROVIDER_MSG, operations.size()));
+
+        try {
+            if (getContentResolver() != null) {
+                results = getContentResolver().applyBatch(MainApp.getAuthority(), operations);
+            } else {
+                results = getContentProviderClient().applyBatch(operations);
+            }
+        } catch (OperationApplicationException | RemoteException e) {
+            Log_OC.e(TAG, EXCEPTION_MSG + e.getMessage(), e);
+        }
+
+        if (results == null) {
+            return;
+        }
+
+        // update new id in file objects for insertions, updated files already carry their id
+        for (int i = 0; i < filesToSave.size(); i++) {
+            OCFile ocFile = filesToSave.get(i);
+            if (results[i].uri != null) {
+                ocFile.setFileId(ContentUris.parseId(results[i].uri));
+            }
+            if (ocFile.isFolder()) {
+                encryptedFolderIndex.onFolderSaved(user.getAccountName(), ocFile.getRemotePath(), ocFile.isEncrypted());
+            }
+        }
+
+        int i = filesToSave.size();
+        for (FileSummary file : filesToRemove) {
+            if (file.getPath().endsWith(OCFile.PATH_SEPARATOR)) {
+                encryptedFolderIndex.onFolderRemoved(user.getAccountName(), file.getPath());
+            }
+
+            String localPath = file.getStoragePath();
+            Integer deleted = results[i++].count;
+            if (deleted != null && deleted > 0 && localPath != null && new File(localPath).delete()) {
+                deleteFileInMediaScan(localPath);
+                FolderSizeIndex.getInstance().invalidate(localPath);
+            }
+        }
+    }
+
+    /**
+     * Returns which of the ids of the given files are already stored, using one query per
+     * {@link #MAX_QUERY_ARGUMENTS} files.
+     */
+    private Set<Long> getExistingFileIds(List<OCFile> files) {
+        List<Long> ids = new ArrayList<>(files.size());
+        for (OCFile file : files) {
+            if (file.getFileId() != -1) {
+                ids.add(file.getFileId());
+            }
+        }
+
+        Set<Long> existingIds = new HashSet<>(ids.size());
+        for (int start = 0; start < ids.size(); start += MAX_QUERY_ARGUMENTS) {
+            int end = Math.min(start + MAX_QUERY_ARGUMENTS, ids.size());
+            existingIds.addAll(fileDao.getExistingFileIds(ids.subList(start, end)));
+        }
+        return existingIds;
+    }
+
+    /**
+     * Maps the remote paths of the given files to the ids of the stored files with the same path, using one query
+     * per {@link #MAX_QUERY_ARGUMENTS} files. Paths that are not stored yet are not contained in the result.
+     */
+    private Map<String, Long> getFileIdsByRemotePaths(List<OCFile> files) {
+        List<String> paths = new ArrayList<>(files.size());
+        for (OCFile file : files) {
+            paths.add(file.getRemotePath());
+        }
+
+        Map<String, Long> ids = new HashMap<>(paths.size());
+        for (int start = 0; start < paths.size(); start += MAX_QUERY_ARGUMENTS) {
+            int end = Math.min(start + MAX_QUERY_ARGUMENTS, paths.size());
+            ids.putAll(fileDao.getFileIdsByEncryptedRemotePaths(paths.subList(start, end), user.getAccountName()));
+        }
+        return ids;
     }
 
     /**
@@ -547,6 +740,7 @@ public class FileDataStorageManager {
                     success = new File(localPath).delete();
                     if (success) {
                         deleteFileInMediaScan(localPath);
+                        FolderSizeIndex.getInstance().invalidate(localPath);
                     }
 
                     if (success && !removeDBData) {
@@ -570,6 +764,7 @@ public class FileDataStorageManager {
         if (folder != null && folder.isFolder()) {
             if (removeDBData && folder.getFileId() != -1) {
                 success = removeFolderInDb(folder);
+                encryptedFolderIndex.onFolderRemoved(user.getAccountName(), folder.getRemotePath());
             }
             if (removeLocalContent && success) {
                 success = removeLocalFolder(folder);
@@ -626,6 +821,7 @@ public class FileDataStorageManager {
             // stage 2: remove the folder itself and any local file inside out of sync;
             //          for instance, after clearing the app cache or reinstalling
             success &= removeLocalFolder(localFolder);
+            FolderSizeIndex.getInstance().invalidate(localFolderPath);
         }
 
         return success;
@@ -729,6 +925,10 @@ public class FileDataStorageManager {
                 Log_OC.e(TAG, "Fail to update " + ocFile.getFileId() + " and descendants in database", e);
             }
 
+            if (ocFile.isFolder()) {
+                encryptedFolderIndex.invalidate(user.getAccountName());
+            }
+
             /// 4. move in local file system
             String originalLocalPath = FileStorageUtils.getDefaultSavePathFor(user.getAccountName(), ocFile);
             String targetLocalPath = defaultSavePath + targetPath;
@@ -745,6 +945,9 @@ public class FileDataStorageManager {
             }
 
             if (renamed) {
+                FolderSizeIndex.getInstance().invalidate(originalLocalPath);
+                FolderSizeIndex.getInstance().invalidate(targetLocalPath);
+
                 Iterator<String> pathIterator = originalPathsToTriggerMediaScan.iterator();
                 while (pathIterator.hasNext()) {
                     // Notify MediaScanner about removed file
@@ -773,6 +976,9 @@ public class FileDataStorageManager {
                     Log_OC.e(TAG, "Unable to create parent folder " + targetFolder.getAbsolutePath());
                 }
                 copied = FileStorageUtils.copyFile(localFile, targetFile);
+                if (copied) {
+                    FolderSizeIndex.getInstance().invalidate(targetFile.getAbsolutePath());
+                }
             }
             Log_OC.d(TAG, "Local file COPIED : " + copied);
         }
@@ -1847,6 +2053,8 @@ public class FileDataStorageManager {
                 capability.setAccountName(user.getAccountName());
             }
         }
+
+        capabilityCache.onSaved(user.getAccountName(), capability);
     }
 
     @NonNull
@@ -1991,9 +2199,17 @@ public class FileDataStorageManager {
         return getCapability(user.getAccountName());
     }
 
+    /**
+     * @return capability shared with other readers, which must not be modified
+     */
     @NonNull
     public OCCapability getCapability(String accountName) {
-        OCCapability capability;
+        OCCapability capability = capabilityCache.get(accountName);
+        if (capability != null) {
+            return capability;
+        }
+
+        long generation = capabilityCache.getGeneration();
         Cursor cursor = getCapabilityCursorForAccount(accountName);
 
         if (cursor.moveToFirst()) {
@@ -2003,9 +2219,17 @@ public class FileDataStorageManager {
         }
         cursor.close();
 
+        capabilityCache.put(accountName, capability, generation);
         return capability;
     }
 
+    /**
+     * @return in-memory capabilities of all accounts, e.g. to read hit and miss counters
+     */
+    public static CapabilityCache getCapabilityCache() {
+        return capabilityCache;
+    }
+
     public boolean capabilityExistsForAccount(String accountName) {
         Cursor cursor = getCapabilityCursorForAccount(accountName);
 
@@ -2156,6 +2380,48 @@ public class FileDataStorageManager {
         return files;
     }
 
+    /**
+     * Like {@link #getGalleryItems(long, long)}, but only reads what is needed to compare the files with the server.
+     */
+    public List<FileSummary> getGallerySummaries(long startDate, long endDate) {
+        return fileDao.getGallerySummaries(startDate, endDate, user.getAccountName());
+    }
+
+    /**
+     * @param pathPrefix only media below this path
+     * @return number of images and videos per month, newest month first
+     */
+    public List<GalleryMonth> getGalleryMonths(String pathPrefix, boolean images, boolean videos) {
+        return fileDao.getGalleryMonths(pathPrefix, images, videos, user.getAccountName());
+    }
+
+    /**
+     * @param pathPrefix only media below this path
+     * @return page of images and videos modified in the given range, newest first
+     */
+    public List<OCFile> getGalleryItems(String pathPrefix,
+                                        boolean images,
+                                        boolean videos,
+                                        long startDate,
+                                        long endDate,
+                                        int offset,
+                                        int limit) {
+        List<FileEntity> fileEntities = fileDao.getGalleryItems(pathPrefix,
+                                                                images,
+                                                                videos,
+                                                                startDate,
+                                                                endDate,
+                                                                offset,
+                                                                limit,
+                                                                user.getAccountName());
+
+        List<OCFile> files = new ArrayList<>(fileEntities.size());
+        for (FileEntity fileEntity : fileEntities) {
+            files.add(createFileInstance(fileEntity));
+        }
+        return files;
+    }
+
     public List<OCFile> getVirtualFolderContent(VirtualFolderType type, boolean onlyImages) {
         List<OCFile> ocFiles = new ArrayList<>();
         Uri req_uri = ProviderTableMeta.CONTENT_URI_VIRTUAL;
@@ -2230,6 +2496,7 @@ public class FileDataStorageManager {
                 Log_OC.e(TAG, "Exception in deleteAllFiles for account " + user.getAccountName() + ": " + e.getMessage(), e);
             }
         }
+        encryptedFolderIndex.invalidate(user.getAccountName());
     }
 
     public void removeLocalFiles(User user, FileDataStorageManager storageManager) {
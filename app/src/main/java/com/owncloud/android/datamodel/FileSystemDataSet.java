@@ -36,6 +36,9 @@ public class FileSystemDataSet {
     private long foundAt;
     private long syncedFolderId;
     @Nullable private String crc32;
+    @Nullable private Long fileSize;
+    @Nullable private Long inode;
+    @Nullable private String fingerprint;
 
     public FileSystemDataSet(int id, String localPath, long modifiedAt, boolean folder, boolean sentForUpload, long foundAt, long syncedFolderId, String crc32) {
         this.id = id;
@@ -116,4 +119,31 @@ public class FileSystemDataSet {
     public void setCrc32(@Nullable String crc32) {
         this.crc32 = crc32;
     }
+
+    @Nullable
+    public Long getFileSize() {
+        return this.fileSize;
+    }
+
+    public void setFileSize(@Nullable Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    @Nullable
+    public Long getInode() {
+        return this.inode;
+    }
+
+    public void setInode(@Nullable Long inode) {
+        this.inode = inode;
+    }
+
+    @Nullable
+    public String getFingerprint() {
+        return this.fingerprint;
+    }
+
+    public void setFingerprint(@Nullable String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
 }
@@ -19,23 +19,30 @@
  */
 package com.owncloud.android.datamodel;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
-import android.net.Uri;
+import android.os.RemoteException;
+import android.text.TextUtils;
 
+import com.owncloud.android.MainApp;
 import com.owncloud.android.db.ProviderMeta;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.utils.SyncedFolderUtils;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.zip.CRC32;
+
+import androidx.annotation.Nullable;
 
 /**
  * Provider for stored filesystem data.
@@ -44,6 +51,12 @@ public class FilesystemDataProvider {
 
     static private final String TAG = FilesystemDataProvider.class.getSimpleName();
 
+    /**
+     * Maximum number of operations written in one transaction, also used as the maximum number of paths bound in
+     * one statement (SQLite limits those to 999 on older devices).
+     */
+    private static final int BATCH_SIZE = 500;
+
     private ContentResolver contentResolver;
 
     public FilesystemDataProvider(ContentResolver contentResolver) {
@@ -61,17 +74,32 @@ public class FilesystemDataProvider {
         );
     }
 
-    public void updateFilesystemFileAsSentForUpload(String path, String syncedFolderId) {
+    /**
+     * Marks all given paths as sent for upload, using one update per {@link #BATCH_SIZE} paths.
+     */
+    public void updateFilesystemFilesAsSentForUpload(Collection<String> paths, String syncedFolderId) {
         ContentValues cv = new ContentValues();
         cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, 1);
 
-        contentResolver.update(
-                ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
-                cv,
-                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH + " = ? and " +
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + " = ?",
-                new String[]{path, syncedFolderId}
-        );
+        List<String> pathList = new ArrayList<>(paths);
+        for (int start = 0; start < pathList.size(); start += BATCH_SIZE) {
+            List<String> chunk = pathList.subList(start, Math.min(start + BATCH_SIZE, pathList.size()));
+
+            String[] selectionArgs = new String[chunk.size() + 1];
+            selectionArgs[0] = syncedFolderId;
+            for (int i = 0; i < chunk.size(); i++) {
+                selectionArgs[i + 1] = chunk.get(i);
+            }
+
+            contentResolver.update(
+                    ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
+                    cv,
+                    ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + " = ? and " +
+                            ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH + " IN (" +
+                            TextUtils.join(",", Collections.nCopies(chunk.size(), "?")) + ")",
+                    selectionArgs
+            );
+        }
     }
 
     public Set<String> getFilesForUpload(String localPath, String syncedFolderId) {
@@ -117,123 +145,210 @@ public class FilesystemDataProvider {
         return localPathsToUpload;
     }
 
-    public void storeOrUpdateFileValue(String localPath, long modifiedAt, boolean isFolder, SyncedFolder syncedFolder) {
-
-        FileSystemDataSet data = getFilesystemDataSet(localPath, syncedFolder);
-
-        int isFolderValue = 0;
-        if (isFolder) {
-            isFolderValue = 1;
-        }
+    /**
+     * Starts indexing the files of the given synced folder in batches. All rows already stored for the synced
+     * folder are loaded once, when the first file is passed, and inserts and updates are written in transactions of
+     * {@link #BATCH_SIZE} operations instead of two round-trips per file.
+     *
+     * The returned indexer has to be closed to write the last batch.
+     */
+    public BatchIndexer startBatchIndexing(SyncedFolder syncedFolder) {
+        return new BatchIndexer(syncedFolder);
+    }
 
+    private ContentValues getContentValues(String localPath,
+                                           long modifiedAt,
+                                           boolean isFolder,
+                                           SyncedFolder syncedFolder,
+                                           @Nullable FileSystemDataSet data,
+                                           FileChangeDetector changeDetector) {
         ContentValues cv = new ContentValues();
         cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY, System.currentTimeMillis());
         cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED, modifiedAt);
 
-        if (data == null) {
+        FileChangeDetector.Result result = changeDetector.detect(localPath, modifiedAt, data);
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SIZE, result.size);
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_INODE, result.inode);
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FINGERPRINT, result.fingerprint);
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32, result.crc32);
 
+        if (data == null) {
             cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH, localPath);
-            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER, isFolderValue);
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER, isFolder ? 1 : 0);
             cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, Boolean.FALSE);
             cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID, syncedFolder.getId());
-
-            long newCrc32 = getFileChecksum(localPath);
-            if (newCrc32 != -1) {
-                cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32, Long.toString(newCrc32));
-            }
-
-            Uri result = contentResolver.insert(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM, cv);
-
-            if (result == null) {
-                Log_OC.v(TAG, "Failed to insert filesystem data with local path: " + localPath);
-            }
-        } else {
-
-            if (data.getModifiedAt() != modifiedAt) {
-                long newCrc32 = getFileChecksum(localPath);
-                if (data.getCrc32() == null || (newCrc32 != -1 && !data.getCrc32().equals(Long.toString(newCrc32)))) {
-                    cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32, Long.toString(newCrc32));
-                    cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, 0);
-                }
-            }
-
-
-            int result = contentResolver.update(
-                    ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
-                    cv,
-                    ProviderMeta.ProviderTableMeta._ID + "=?",
-                    new String[]{String.valueOf(data.getId())}
-            );
-
-            if (result == 0) {
-                Log_OC.v(TAG, "Failed to update filesystem data with local path: " + localPath);
-            }
+        } else if (result.changed) {
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, 0);
         }
+
+        return cv;
     }
 
-    private FileSystemDataSet getFilesystemDataSet(String localPathParam, SyncedFolder syncedFolder) {
+    /**
+     * @return all stored rows of the given synced folder, by local path
+     */
+    private Map<String, FileSystemDataSet> getFilesystemDataSets(SyncedFolder syncedFolder) {
+        Map<String, FileSystemDataSet> dataSets = new HashMap<>();
 
         Cursor cursor = contentResolver.query(
                 ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
                 null,
-                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH + " = ? and " +
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + " = ?",
-                new String[]{localPathParam, Long.toString(syncedFolder.getId())},
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + " = ?",
+                new String[]{Long.toString(syncedFolder.getId())},
                 null
         );
 
-        FileSystemDataSet dataSet = null;
         if (cursor != null) {
-            if (cursor.moveToFirst()) {
-                int id = cursor.getInt(cursor.getColumnIndexOrThrow(ProviderMeta.ProviderTableMeta._ID));
-                String localPath = cursor.getString(cursor.getColumnIndexOrThrow(
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH));
-                long modifiedAt = cursor.getLong(cursor.getColumnIndexOrThrow(
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED));
-                boolean isFolder = false;
-                if (cursor.getInt(cursor.getColumnIndexOrThrow(
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER)) != 0) {
-                    isFolder = true;
-                }
-                long foundAt = cursor.getLong(cursor.getColumnIndexOrThrow(ProviderMeta.
-                        ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY));
-
-                boolean isSentForUpload = false;
-                if (cursor.getInt(cursor.getColumnIndexOrThrow(
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD)) != 0) {
-                    isSentForUpload = true;
-                }
-
-                String crc32 = cursor.getString(cursor.getColumnIndexOrThrow(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32));
-
-                if (id == -1) {
-                    Log_OC.e(TAG, "Arbitrary value could not be created from cursor");
-                } else {
-                    dataSet = new FileSystemDataSet(id, localPath, modifiedAt, isFolder, isSentForUpload, foundAt,
-                            syncedFolder.getId(), crc32);
+            while (cursor.moveToNext()) {
+                FileSystemDataSet dataSet = createDataSet(cursor, syncedFolder);
+                if (dataSet != null) {
+                    dataSets.put(dataSet.getLocalPath(), dataSet);
                 }
             }
             cursor.close();
         } else {
-            Log_OC.e(TAG, "DB error restoring arbitrary values.");
+            Log_OC.e(TAG, "DB error restoring filesystem data of synced folder " + syncedFolder.getId());
         }
 
+        return dataSets;
+    }
+
+    @Nullable
+    private FileSystemDataSet createDataSet(Cursor cursor, SyncedFolder syncedFolder) {
+        int id = cursor.getInt(cursor.getColumnIndexOrThrow(ProviderMeta.ProviderTableMeta._ID));
+        String localPath = cursor.getString(cursor.getColumnIndexOrThrow(
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH));
+        long modifiedAt = cursor.getLong(cursor.getColumnIndexOrThrow(
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED));
+        boolean isFolder = cursor.getInt(cursor.getColumnIndexOrThrow(
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER)) != 0;
+        long foundAt = cursor.getLong(cursor.getColumnIndexOrThrow(ProviderMeta.
+                ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY));
+        boolean isSentForUpload = cursor.getInt(cursor.getColumnIndexOrThrow(
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD)) != 0;
+        String crc32 = cursor.getString(cursor.getColumnIndexOrThrow(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32));
+
+        if (id == -1) {
+            Log_OC.e(TAG, "Arbitrary value could not be created from cursor");
+            return null;
+        }
+
+        FileSystemDataSet dataSet = new FileSystemDataSet(id, localPath, modifiedAt, isFolder, isSentForUpload,
+                                                          foundAt, syncedFolder.getId(), crc32);
+        dataSet.setFileSize(getLongOrNull(cursor, ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SIZE));
+        dataSet.setInode(getLongOrNull(cursor, ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_INODE));
+        dataSet.setFingerprint(cursor.getString(cursor.getColumnIndexOrThrow(
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FINGERPRINT)));
         return dataSet;
     }
 
-    private long getFileChecksum(String filepath) {
+    @Nullable
+    private static Long getLongOrNull(Cursor cursor, String column) {
+        int index = cursor.getColumnIndexOrThrow(column);
+        return cursor.isNull(index) ? null : cursor.getLong(index);
+    }
+
+    private boolean applyBatch(ArrayList<ContentProviderOperation> operations) {
+        if (operations.isEmpty()) {
+            return true;
+        }
+
+        boolean success = true;
+        try {
+            contentResolver.applyBatch(MainApp.getAuthority(), operations);
+        } catch (OperationApplicationException | RemoteException e) {
+            Log_OC.e(TAG, "Failed to apply " + operations.size() + " filesystem operations", e);
+            success = false;
+        }
+        operations.clear();
+        return success;
+    }
+
+    /**
+     * Indexes the files of one synced folder, see {@link #startBatchIndexing(SyncedFolder)}.
+     */
+    public final class BatchIndexer implements AutoCloseable {
+
+        private final SyncedFolder syncedFolder;
+        private Map<String, FileSystemDataSet> existing;
+        private final ArrayList<ContentProviderOperation> operations = new ArrayList<>(BATCH_SIZE);
+        private final FileChangeDetector changeDetector = new FileChangeDetector();
+        private boolean failed;
 
-        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(filepath))){
-            CRC32 crc = new CRC32();
-            int cnt;
-            while ((cnt = inputStream.read()) != -1) {
-                crc.update(cnt);
+        private BatchIndexer(SyncedFolder syncedFolder) {
+            this.syncedFolder = syncedFolder;
+        }
+
+        public void storeOrUpdateFileValue(String localPath, long modifiedAt, boolean isFolder) {
+            if (existing == null) {
+                existing = getFilesystemDataSets(syncedFolder);
             }
 
-            return crc.getValue();
+            FileSystemDataSet data = existing.get(localPath);
+            ContentValues cv = getContentValues(localPath, modifiedAt, isFolder, syncedFolder, data, changeDetector);
+
+            if (data == null) {
+                operations.add(ContentProviderOperation
+                                   .newInsert(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM)
+                                   .withValues(cv)
+                                   .build());
+
+                // the same path may be reported more than once, e.g. by internal and external media store
+                FileSystemDataSet inserted = new FileSystemDataSet();
+                inserted.setLocalPath(localPath);
+                inserted.setModifiedAt(modifiedAt);
+                inserted.setFolder(isFolder);
+                inserted.setSyncedFolderId(syncedFolder.getId());
+                inserted.setFileSize(cv.getAsLong(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SIZE));
+                inserted.setInode(cv.getAsLong(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_INODE));
+                inserted.setFingerprint(cv.getAsString(ProviderMeta.ProviderTableMeta.FILESYSTEM_FINGERPRINT));
+                inserted.setId(-1);
+                existing.put(localPath, inserted);
+            } else {
+                operations.add(ContentProviderOperation
+                                   .newUpdate(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM)
+                                   .withValues(cv)
+                                   .withSelection(getUpdateSelection(data),
+                                                  getUpdateSelectionArgs(data))
+                                   .build());
+            }
+
+            if (operations.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private String getUpdateSelection(FileSystemDataSet data) {
+            if (data.getId() == -1) {
+                return ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH + " = ? and " +
+                    ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + " = ?";
+            }
+            return ProviderMeta.ProviderTableMeta._ID + "=?";
+        }
+
+        private String[] getUpdateSelectionArgs(FileSystemDataSet data) {
+            if (data.getId() == -1) {
+                return new String[]{data.getLocalPath(), Long.toString(syncedFolder.getId())};
+            }
+            return new String[]{String.valueOf(data.getId())};
+        }
+
+        /**
+         * Writes all pending operations.
+         *
+         * @return false if any batch written by this indexer so far has failed
+         */
+        public boolean flush() {
+            if (!applyBatch(operations)) {
+                failed = true;
+            }
+            return !failed;
+        }
 
-        } catch (IOException e) {
-            return -1;
+        @Override
+        public void close() {
+            flush();
+            Log_OC.d(TAG, "Indexed synced folder " + syncedFolder.getLocalPath() + ": " + changeDetector);
         }
     }
 }
@@ -0,0 +1,130 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel
+
+import java.util.Calendar
+import kotlin.math.min
+
+/**
+ * Sections of the gallery, one per month, whose rows are read from the database a page at a time while they are
+ * shown.
+ *
+ * Every section gets its final number of rows up front from the month counts, so that scroll positions and fast
+ * scrolling do not depend on what is loaded. Rows not loaded yet are empty, unless the previous pages had the same
+ * number of items in that month: their rows are shown until the page is read again.
+ *
+ * Not thread safe.
+ */
+class GalleryPages(
+    val filter: Filter,
+    private val months: List<GalleryMonth>,
+    val columns: Int,
+    private val thumbnailSize: Int,
+    previous: GalleryPages?
+) {
+    companion object {
+        const val PAGE_ROWS = 20
+    }
+
+    /**
+     * @param remotePath only media below this path
+     */
+    data class Filter(val remotePath: String, val images: Boolean, val videos: Boolean)
+
+    /**
+     * Rows of one section to read.
+     */
+    data class Page(
+        val section: Int,
+        val firstRow: Int,
+        val rowCount: Int,
+        val startDate: Long,
+        val endDate: Long,
+        val offset: Int,
+        val limit: Int
+    )
+
+    val sections: MutableList<GalleryItems>
+
+    /** pages loaded or being loaded, by section */
+    private val requested = HashMap<Int, MutableSet<Int>>()
+
+    init {
+        val reusable = if (previous != null && previous.filter == filter && previous.columns == columns) {
+            previous.months.indices.associateBy { previous.months[it] }
+        } else {
+            emptyMap()
+        }
+
+        sections = months.mapTo(ArrayList(months.size)) { month ->
+            val previousSection = reusable[month]
+            if (previousSection != null) {
+                previous!!.sections[previousSection]
+            } else {
+                val emptyRow = GalleryRow(emptyList(), thumbnailSize, thumbnailSize)
+                GalleryItems(month.date, List(rowCount(month)) { emptyRow })
+            }
+        }
+    }
+
+    /**
+     * @return page with the given row, or null if it is loaded or being loaded already
+     */
+    fun request(section: Int, row: Int): Page? {
+        val month = months.getOrNull(section) ?: return null
+        val page = row / PAGE_ROWS
+        if (!requested.getOrPut(section) { HashSet() }.add(page)) {
+            return null
+        }
+
+        val firstRow = page * PAGE_ROWS
+        return Page(
+            section,
+            firstRow,
+            min(PAGE_ROWS, rowCount(month) - firstRow),
+            month.date,
+            nextMonth(month.date),
+            firstRow * columns,
+            PAGE_ROWS * columns
+        )
+    }
+
+    /**
+     * Puts the files read for a page in place of its rows.
+     */
+    fun onLoaded(page: Page, files: List<OCFile>) {
+        val section = sections[page.section]
+        val rows = section.rows.toMutableList()
+        val loadedRows = files.chunked(columns).map { GalleryRow(it, thumbnailSize, thumbnailSize) }
+
+        for (i in 0 until page.rowCount) {
+            rows[page.firstRow + i] = loadedRows.getOrElse(i) { GalleryRow(emptyList(), thumbnailSize, thumbnailSize) }
+        }
+        sections[page.section] = GalleryItems(section.date, rows)
+    }
+
+    private fun rowCount(month: GalleryMonth) = (month.count + columns - 1) / columns
+
+    private fun nextMonth(date: Long): Long {
+        val calendar = Calendar.getInstance()
+        calendar.timeInMillis = date
+        calendar.add(Calendar.MONTH, 1)
+        return calendar.timeInMillis
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.datamodel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds media folders from a single walk over media rows sorted from newest to oldest: every row is counted for its
+ * bucket, and the first rows of a bucket are checked as its previews.
+ *
+ * Not thread safe.
+ */
+final class MediaFolderAggregation {
+
+    /**
+     * Decides whether the file of a valid path can be shown as a preview.
+     */
+    interface PreviewFilter {
+        boolean accept(String filePath);
+    }
+
+    private final MediaFolderType type;
+    private final int itemLimit;
+    private final PreviewFilter previewFilter;
+
+    /** buckets in order of their newest media item */
+    private final Map<String, Bucket> buckets = new LinkedHashMap<>();
+
+    /**
+     * @param itemLimit number of newest media items per bucket checked as previews
+     */
+    MediaFolderAggregation(MediaFolderType type, int itemLimit, PreviewFilter previewFilter) {
+        this.type = type;
+        this.itemLimit = itemLimit;
+        this.previewFilter = previewFilter;
+    }
+
+    void add(String bucketId, String bucketName, String filePath) {
+        Bucket bucket = buckets.get(bucketId);
+        if (bucket == null) {
+            bucket = new Bucket(bucketName);
+            buckets.put(bucketId, bucket);
+        }
+
+        bucket.numberOfFiles++;
+
+        // invalid paths take their place as well, as the newest media items of the bucket are shown
+        if (bucket.checkedItems < itemLimit) {
+            bucket.checkedItems++;
+            if (filePath != null && filePath.lastIndexOf('/') > 0 && previewFilter.accept(filePath)) {
+                bucket.filePaths.add(filePath);
+                bucket.absolutePath = filePath.substring(0, filePath.lastIndexOf('/'));
+            }
+        }
+    }
+
+    /**
+     * @param dataPath path of the app's own data folder, whose media folders are left out
+     * @return media folders with at least one preview
+     */
+    List<MediaFolder> getMediaFolders(String dataPath) {
+        List<MediaFolder> mediaFolders = new ArrayList<>(buckets.size());
+        for (Bucket bucket : buckets.values()) {
+            if (bucket.absolutePath != null && !bucket.absolutePath.startsWith(dataPath)) {
+                MediaFolder mediaFolder = new MediaFolder();
+                mediaFolder.type = type;
+                mediaFolder.folderName = bucket.folderName;
+                mediaFolder.absolutePath = bucket.absolutePath;
+                mediaFolder.filePaths = bucket.filePaths;
+                mediaFolder.numberOfFiles = bucket.numberOfFiles;
+                mediaFolders.add(mediaFolder);
+            }
+        }
+        return mediaFolders;
+    }
+
+    private static final class Bucket {
+        private final String folderName;
+        private final List<String> filePaths = new ArrayList<>();
+        private String absolutePath;
+        private long numberOfFiles;
+        private int checkedItems;
+
+        private Bucket(String folderName) {
+            this.folderName = folderName;
+        }
+    }
+}
@@ -22,6 +22,7 @@
 package com.owncloud.android.datamodel;
 
 import android.content.ContentResolver;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.provider.MediaStore;
@@ -43,21 +44,35 @@ import androidx.appcompat.app.AppCompatActivity;
 
 /**
  * Media queries to gain access to media lists for the device.
+ *
+ * Media folders are read in a single query per media type and kept in memory until the media store reports a change.
  */
 public final class MediaProvider {
     private static final String TAG = MediaProvider.class.getSimpleName();
 
     // fixed query parameters
     private static final Uri IMAGES_MEDIA_URI = android.provider.MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
-    private static final String[] FILE_PROJECTION = new String[]{MediaStore.MediaColumns.DATA};
-    private static final String IMAGES_FILE_SELECTION = MediaStore.Images.Media.BUCKET_ID + "=";
-    private static final String[] IMAGES_FOLDER_PROJECTION = {MediaStore.Images.Media.BUCKET_ID,
-        MediaStore.Images.Media.BUCKET_DISPLAY_NAME};
-    private static final String IMAGES_FOLDER_SORT_COLUMN = MediaStore.Images.Media.BUCKET_DISPLAY_NAME;
-    private static final String IMAGES_SORT_DIRECTION = ContentResolverHelper.SORT_DIRECTION_ASCENDING;
+    private static final String[] IMAGES_PROJECTION = {MediaStore.Images.Media.BUCKET_ID,
+        MediaStore.Images.Media.BUCKET_DISPLAY_NAME, MediaStore.MediaColumns.DATA};
+
+    private static final Uri VIDEOS_MEDIA_URI = MediaStore.Video.Media.EXTERNAL_CONTENT_URI;
+    private static final String[] VIDEOS_PROJECTION = {MediaStore.Video.Media.BUCKET_ID,
+        MediaStore.Video.Media.BUCKET_DISPLAY_NAME, MediaStore.MediaColumns.DATA};
+
+    /** media folders by media type, item limit and data path */
+    private static final Map<String, List<MediaFolder>> cache = new HashMap<>();
 
-    private static final String[] VIDEOS_FOLDER_PROJECTION = {MediaStore.Video.Media.BUCKET_ID,
-        MediaStore.Video.Media.BUCKET_DISPLAY_NAME};
+    /** incremented by every change of the media store, so that queries started before it are not cached */
+    private static long generation;
+
+    private static boolean observing;
+
+    private static final ContentObserver mediaObserver = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            invalidate();
+        }
+    };
 
     private MediaProvider() {
         // utility class -> private constructor
@@ -78,99 +93,21 @@ public final class MediaProvider {
         // check permissions
         checkPermissions(activity, viewThemeUtils);
 
-        // query media/image folders
-        Cursor cursorFolders = null;
         if (activity != null && PermissionUtil.checkExternalStoragePermission(activity.getApplicationContext())
             || getWithoutActivity) {
-            cursorFolders = ContentResolverHelper.queryResolver(contentResolver, IMAGES_MEDIA_URI,
-                                                                IMAGES_FOLDER_PROJECTION, null, null,
-                                                                IMAGES_FOLDER_SORT_COLUMN, IMAGES_SORT_DIRECTION, null);
-        }
-
-        List<MediaFolder> mediaFolders = new ArrayList<>();
-        String dataPath = MainApp.getStoragePath() + File.separator + MainApp.getDataFolder();
-
-        if (cursorFolders != null) {
-            Cursor cursorImages;
-
-            Map<String, String> uniqueFolders = new HashMap<>();
-
-            // since sdk 29 we have to manually distinct on bucket id
-            while (cursorFolders.moveToNext()) {
-                uniqueFolders.put(cursorFolders.getString(
-                    cursorFolders.getColumnIndexOrThrow(MediaStore.Images.Media.BUCKET_ID)),
-                                  cursorFolders.getString(
-                                      cursorFolders.getColumnIndexOrThrow(MediaStore.Images.Media.BUCKET_DISPLAY_NAME))
-                );
-            }
-            cursorFolders.close();
-
-            for (Map.Entry<String, String> folder : uniqueFolders.entrySet()) {
-                MediaFolder mediaFolder = new MediaFolder();
-
-                mediaFolder.type = MediaFolderType.IMAGE;
-                mediaFolder.folderName = folder.getValue();
-                mediaFolder.filePaths = new ArrayList<>();
-
-                // query images
-                cursorImages = ContentResolverHelper.queryResolver(contentResolver,
-                                                                   IMAGES_MEDIA_URI,
-                                                                   FILE_PROJECTION,
-                                                                   IMAGES_FILE_SELECTION + folder.getKey(),
-                                                                   null,
-                                                                   MediaStore.Images.Media.DATE_TAKEN,
-                                                                   ContentResolverHelper.SORT_DIRECTION_DESCENDING,
-                                                                   itemLimit);
-                Log_OC.d(TAG, "Reading images for " + mediaFolder.folderName);
-
-                if (cursorImages != null) {
-                    String filePath;
-                    int imageCount = 0;
-                    while (cursorImages.moveToNext() && imageCount < itemLimit) {
-                        filePath = cursorImages.getString(cursorImages.getColumnIndexOrThrow(
-                            MediaStore.MediaColumns.DATA));
-
-                        // check if valid path and file exists
-                        if (isValidAndExistingFilePath(filePath)) {
-                            mediaFolder.filePaths.add(filePath);
-                            mediaFolder.absolutePath = filePath.substring(0, filePath.lastIndexOf('/'));
-                        }
-                        // ensure we don't go over the limit due to faulty android implementations
-                        imageCount++;
-                    }
-                    cursorImages.close();
-
-                    // only do further work if folder is not within the Nextcloud app itself
-                    if (isFolderOutsideOfAppPath(dataPath, mediaFolder)) {
-
-                        // count images
-                        Cursor count = contentResolver.query(
-                            IMAGES_MEDIA_URI,
-                            FILE_PROJECTION,
-                            IMAGES_FILE_SELECTION + folder.getKey(),
-                            null,
-                            null);
-
-                        if (count != null) {
-                            mediaFolder.numberOfFiles = count.getCount();
-                            count.close();
-                        }
-
-                        mediaFolders.add(mediaFolder);
-                    }
-                }
-            }
+            return getMediaFolders(contentResolver,
+                                   IMAGES_MEDIA_URI,
+                                   IMAGES_PROJECTION,
+                                   MediaStore.Images.Media.DATE_TAKEN,
+                                   MediaFolderType.IMAGE,
+                                   itemLimit,
+                                   MediaProvider::isExistingFilePath);
         }
-
-        return mediaFolders;
-    }
-
-    private static boolean isFolderOutsideOfAppPath(String dataPath, MediaFolder mediaFolder) {
-        return mediaFolder.absolutePath != null && !mediaFolder.absolutePath.startsWith(dataPath);
+        return new ArrayList<>();
     }
 
-    private static boolean isValidAndExistingFilePath(String filePath) {
-        return filePath != null && filePath.lastIndexOf('/') > 0 && new File(filePath).exists();
+    private static boolean isExistingFilePath(String filePath) {
+        return new File(filePath).exists();
     }
 
     private static void checkPermissions(@Nullable AppCompatActivity activity,
@@ -189,89 +126,102 @@ public final class MediaProvider {
         // check permissions
         checkPermissions(activity, viewThemeUtils);
 
-        // query media/image folders
-        Cursor cursorFolders = null;
         if ((activity != null && PermissionUtil.checkExternalStoragePermission(activity.getApplicationContext()))
             || getWithoutActivity) {
-            cursorFolders = contentResolver.query(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, VIDEOS_FOLDER_PROJECTION,
-                                                  null, null, null);
+            return getMediaFolders(contentResolver,
+                                   VIDEOS_MEDIA_URI,
+                                   VIDEOS_PROJECTION,
+                                   MediaStore.Video.Media.DATE_TAKEN,
+                                   MediaFolderType.VIDEO,
+                                   itemLimit,
+                                   filePath -> true);
         }
+        return new ArrayList<>();
+    }
 
-        List<MediaFolder> mediaFolders = new ArrayList<>();
+    /**
+     * @param projection bucket id, bucket name and file path columns
+     * @return new list of new media folders, which may be modified
+     */
+    private static List<MediaFolder> getMediaFolders(ContentResolver contentResolver,
+                                                     Uri uri,
+                                                     String[] projection,
+                                                     String sortColumn,
+                                                     MediaFolderType type,
+                                                     int itemLimit,
+                                                     MediaFolderAggregation.PreviewFilter previewFilter) {
         String dataPath = MainApp.getStoragePath() + File.separator + MainApp.getDataFolder();
+        String key = type + "_" + itemLimit + "_" + dataPath;
 
-        if (cursorFolders != null) {
-            Cursor cursorVideos;
-
-            Map<String, String> uniqueFolders = new HashMap<>();
-
-            // since sdk 29 we have to manually distinct on bucket id
-            while (cursorFolders.moveToNext()) {
-                uniqueFolders.put(cursorFolders.getString(
-                    cursorFolders.getColumnIndexOrThrow(MediaStore.Video.Media.BUCKET_ID)),
-                                  cursorFolders.getString(
-                                      cursorFolders.getColumnIndexOrThrow(MediaStore.Video.Media.BUCKET_DISPLAY_NAME))
-                );
+        long queryGeneration;
+        synchronized (MediaProvider.class) {
+            List<MediaFolder> cached = cache.get(key);
+            if (cached != null) {
+                return copy(cached);
             }
-            cursorFolders.close();
-
-            for (Map.Entry<String, String> folder : uniqueFolders.entrySet()) {
-                MediaFolder mediaFolder = new MediaFolder();
-                mediaFolder.type = MediaFolderType.VIDEO;
-                mediaFolder.folderName = folder.getValue();
-                mediaFolder.filePaths = new ArrayList<>();
-
-                // query videos
-                cursorVideos = ContentResolverHelper.queryResolver(contentResolver,
-                                                                   MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                                                                   FILE_PROJECTION,
-                                                                   MediaStore.Video.Media.BUCKET_ID + "=" + folder.getKey(),
-                                                                   null,
-                                                                   MediaStore.Video.Media.DATE_TAKEN,
-                                                                   ContentResolverHelper.SORT_DIRECTION_DESCENDING,
-                                                                   itemLimit);
-
-                Log_OC.d(TAG, "Reading videos for " + mediaFolder.folderName);
-
-                if (cursorVideos != null) {
-                    String filePath;
-                    int videoCount = 0;
-                    while (cursorVideos.moveToNext() && videoCount < itemLimit) {
-                        filePath = cursorVideos.getString(cursorVideos.getColumnIndexOrThrow(
-                            MediaStore.MediaColumns.DATA));
-
-                        if (filePath != null) {
-                            mediaFolder.filePaths.add(filePath);
-                            mediaFolder.absolutePath = filePath.substring(0, filePath.lastIndexOf('/'));
-                        }
-                        // ensure we don't go over the limit due to faulty android implementations
-                        videoCount++;
-                    }
-                    cursorVideos.close();
+            if (!observing) {
+                // registered before the first query, so that no change goes unnoticed
+                contentResolver.registerContentObserver(IMAGES_MEDIA_URI, true, mediaObserver);
+                contentResolver.registerContentObserver(VIDEOS_MEDIA_URI, true, mediaObserver);
+                observing = true;
+            }
+            queryGeneration = generation;
+        }
 
-                    // only do further work if folder is not within the Nextcloud app itself
-                    if (isFolderOutsideOfAppPath(dataPath, mediaFolder)) {
+        Cursor cursor = ContentResolverHelper.queryResolver(contentResolver,
+                                                            uri,
+                                                            projection,
+                                                            null,
+                                                            null,
+                                                            sortColumn,
+                                                            ContentResolverHelper.SORT_DIRECTION_DESCENDING,
+                                                            null);
+        if (cursor == null) {
+            return new ArrayList<>();
+        }
 
-                        // count images
-                        Cursor count = contentResolver.query(
-                            MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                            FILE_PROJECTION,
-                            MediaStore.Video.Media.BUCKET_ID + "=" + folder.getKey(),
-                            null,
-                            null);
+        Log_OC.d(TAG, "Reading " + type + " folders");
+        MediaFolderAggregation aggregation = new MediaFolderAggregation(type, itemLimit, previewFilter);
+        try {
+            int bucketIdColumn = cursor.getColumnIndexOrThrow(projection[0]);
+            int bucketNameColumn = cursor.getColumnIndexOrThrow(projection[1]);
+            int filePathColumn = cursor.getColumnIndexOrThrow(projection[2]);
 
-                        if (count != null) {
-                            mediaFolder.numberOfFiles = count.getCount();
-                            count.close();
-                        }
+            // since sdk 29 we have to manually distinct on bucket id
+            while (cursor.moveToNext()) {
+                aggregation.add(cursor.getString(bucketIdColumn),
+                                cursor.getString(bucketNameColumn),
+                                cursor.getString(filePathColumn));
+            }
+        } finally {
+            cursor.close();
+        }
 
-                        mediaFolders.add(mediaFolder);
-                    }
-                }
+        List<MediaFolder> mediaFolders = aggregation.getMediaFolders(dataPath);
+        synchronized (MediaProvider.class) {
+            if (queryGeneration == generation) {
+                cache.put(key, mediaFolders);
             }
-            cursorFolders.close();
         }
+        return copy(mediaFolders);
+    }
 
-        return mediaFolders;
+    private static synchronized void invalidate() {
+        cache.clear();
+        generation++;
+    }
+
+    private static List<MediaFolder> copy(List<MediaFolder> mediaFolders) {
+        List<MediaFolder> copies = new ArrayList<>(mediaFolders.size());
+        for (MediaFolder mediaFolder : mediaFolders) {
+            MediaFolder copy = new MediaFolder();
+            copy.type = mediaFolder.type;
+            copy.folderName = mediaFolder.folderName;
+            copy.absolutePath = mediaFolder.absolutePath;
+            copy.filePaths = new ArrayList<>(mediaFolder.filePaths);
+            copy.numberOfFiles = mediaFolder.numberOfFiles;
+            copies.add(copy);
+        }
+        return copies;
     }
 }
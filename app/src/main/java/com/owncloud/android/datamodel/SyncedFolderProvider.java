@@ -29,12 +29,15 @@ import android.net.Uri;
 
 import com.nextcloud.client.account.User;
 import com.nextcloud.client.core.Clock;
+import com.nextcloud.client.database.NextcloudDatabase;
 import com.nextcloud.client.preferences.AppPreferences;
 import com.nextcloud.client.preferences.AppPreferencesImpl;
 import com.nextcloud.client.preferences.SubFolderRule;
+import com.owncloud.android.MainApp;
 import com.owncloud.android.db.ProviderMeta;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.resources.files.model.ServerFileInterface;
+import com.owncloud.android.utils.MediaStoreWatermark;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -230,8 +233,7 @@ public class SyncedFolderProvider extends Observable {
      *  @param user whose synced folders should be deleted
      */
     public int deleteSyncFoldersForAccount(User user) {
-        return mContentResolver.delete(
-                ProviderMeta.ProviderTableMeta.CONTENT_URI_SYNCED_FOLDERS,
+        return deleteSyncedFolders(
                 ProviderMeta.ProviderTableMeta.SYNCED_FOLDER_ACCOUNT + " = ?",
                 new String[]{String.valueOf(user.getAccountName())}
         );
@@ -243,8 +245,7 @@ public class SyncedFolderProvider extends Observable {
      * @param id for the synced folder.
      */
     private int deleteSyncFolderWithId(long id) {
-        return mContentResolver.delete(
-                ProviderMeta.ProviderTableMeta.CONTENT_URI_SYNCED_FOLDERS,
+        return deleteSyncedFolders(
                 ProviderMeta.ProviderTableMeta._ID + " = ?",
                 new String[]{String.valueOf(id)}
         );
@@ -288,8 +289,7 @@ public class SyncedFolderProvider extends Observable {
      * @return number of deleted records.
      */
     public int deleteSyncedFoldersNotInList(List<Long> ids) {
-        int result = mContentResolver.delete(
-                ProviderMeta.ProviderTableMeta.CONTENT_URI_SYNCED_FOLDERS,
+        int result = deleteSyncedFolders(
                 ProviderMeta.ProviderTableMeta._ID + " NOT IN (?)",
                 new String[]{String.valueOf(ids)}
         );
@@ -305,13 +305,46 @@ public class SyncedFolderProvider extends Observable {
      * delete record of synchronized folder with the given id.
      */
     public int deleteSyncedFolder(long id) {
-        return mContentResolver.delete(
-                ProviderMeta.ProviderTableMeta.CONTENT_URI_SYNCED_FOLDERS,
+        return deleteSyncedFolders(
                 ProviderMeta.ProviderTableMeta._ID + " = ?",
                 new String[]{String.valueOf(id)}
         );
     }
 
+    /**
+     * Deletes the synced folders matching the selection together with their media store watermarks, so that a synced
+     * folder stored later on does not continue from them.
+     *
+     * @return number of deleted records.
+     */
+    private int deleteSyncedFolders(String where, String[] whereArgs) {
+        Cursor cursor = mContentResolver.query(
+                ProviderMeta.ProviderTableMeta.CONTENT_URI_SYNCED_FOLDERS,
+                null,
+                where,
+                whereArgs,
+                null
+        );
+
+        if (cursor != null) {
+            ArbitraryDataProvider arbitraryDataProvider = new ArbitraryDataProviderImpl(
+                NextcloudDatabase.getInstance(MainApp.getAppContext()).arbitraryDataDao());
+            while (cursor.moveToNext()) {
+                SyncedFolder syncedFolder = createSyncedFolderFromCursor(cursor);
+                if (syncedFolder != null) {
+                    MediaStoreWatermark.delete(arbitraryDataProvider, syncedFolder);
+                }
+            }
+            cursor.close();
+        }
+
+        return mContentResolver.delete(
+                ProviderMeta.ProviderTableMeta.CONTENT_URI_SYNCED_FOLDERS,
+                where,
+                whereArgs
+        );
+    }
+
     public AppPreferences getPreferences() {
         return preferences;
     }
@@ -0,0 +1,162 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.datamodel;
+
+import android.os.Process;
+
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs thumbnail generation on two bounded pools of threads: one for thumbnails fetched from the server and one for
+ * thumbnails read from the disk cache or decoded from local files, so that slow requests do not hold back thumbnails
+ * which are available on the device.
+ *
+ * Work for visible views is taken last in, first out: the most recently bound rows are the ones on screen, while the
+ * work of rows scrolled past is cancelled once their view is reused. Work without a view, e.g. for uploaded files,
+ * runs once no work for views is waiting.
+ *
+ * Thread safe.
+ */
+final class ThumbnailExecutor {
+
+    private static final String TAG = ThumbnailExecutor.class.getSimpleName();
+
+    enum Lane {
+        DECODE,
+        NETWORK
+    }
+
+    private final Pool decodePool;
+    private final Pool networkPool;
+
+    /** generations running right now, by image key */
+    private final ConcurrentMap<String, FutureTask<?>> inFlight = new ConcurrentHashMap<>();
+
+    ThumbnailExecutor(int decodeThreads, int networkThreads) {
+        decodePool = new Pool("ThumbnailDecode", decodeThreads);
+        networkPool = new Pool("ThumbnailNetwork", networkThreads);
+    }
+
+    /**
+     * @param visible true if the result is shown in a view on screen
+     */
+    Executor getExecutor(Lane lane, boolean visible) {
+        Pool pool = lane == Lane.NETWORK ? networkPool : decodePool;
+        return visible ? pool.first : pool.last;
+    }
+
+    /**
+     * Runs the work unless work for the same key is running already, in which case its result is awaited instead.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T runOnce(String key, Callable<T> work) throws Exception {
+        FutureTask<T> task = new FutureTask<>(work);
+        FutureTask<T> running = (FutureTask<T>) inFlight.putIfAbsent(key, task);
+        if (running == null) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+            running = task;
+        }
+
+        try {
+            return running.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Fixed number of threads taking work from both ends of one queue. Threads are started on first use.
+     */
+    private static final class Pool {
+        private final String name;
+        private final int threads;
+        private final BlockingDeque<Runnable> queue = new LinkedBlockingDeque<>();
+        private final AtomicBoolean started = new AtomicBoolean(false);
+
+        private final Executor first = runnable -> execute(runnable, true);
+        private final Executor last = runnable -> execute(runnable, false);
+
+        private Pool(String name, int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("A pool needs at least one thread");
+            }
+            this.name = name;
+            this.threads = threads;
+        }
+
+        private void execute(Runnable runnable, boolean first) {
+            if (first) {
+                queue.addFirst(runnable);
+            } else {
+                queue.addLast(runnable);
+            }
+
+            if (started.compareAndSet(false, true)) {
+                for (int i = 1; i <= threads; i++) {
+                    Thread thread = new Thread(this::work, name + "-" + i);
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }
+        }
+
+        private void work() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            while (true) {
+                Runnable runnable;
+                try {
+                    runnable = queue.takeFirst();
+                } catch (InterruptedException e) {
+                    // only a cancelled generation may have interrupted this thread, keep serving
+                    continue;
+                }
+
+                try {
+                    runnable.run();
+                } catch (RuntimeException e) {
+                    Log_OC.e(TAG, "Thumbnail generation failed", e);
+                }
+                // clear an interrupt of a generation cancelled while running
+                Thread.interrupted();
+            }
+        }
+    }
+}
@@ -38,6 +38,8 @@ import android.media.MediaMetadataRetriever;
 import android.media.ThumbnailUtils;
 import android.net.Uri;
 import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.MediaStore;
 import android.text.TextUtils;
 import android.view.Display;
@@ -106,14 +108,22 @@ public final class ThumbnailsCacheManager {
     private static final String ETAG = "ETag";
 
     private static final Object mThumbnailsDiskCacheLock = new Object();
-    private static DiskLruImageCache mThumbnailCache;
+    private static volatile DiskLruImageCache mThumbnailCache;
     private static boolean mThumbnailCacheStarting = true;
 
     private static final int DISK_CACHE_SIZE = 1024 * 1024 * 200; // 200MB
+    private static final int MEMORY_CACHE_FRACTION = 8; // 1/8 of the max heap
+    private static final ThumbnailsMemoryCache mThumbnailsMemoryCache =
+        new ThumbnailsMemoryCache(Runtime.getRuntime().maxMemory() / MEMORY_CACHE_FRACTION);
     private static final CompressFormat mCompressFormat = CompressFormat.JPEG;
     private static final int mCompressQuality = 70;
     private static OwnCloudClient mClient;
 
+    private static final int DECODE_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int NETWORK_THREADS = 4;
+    private static final ThumbnailExecutor mThumbnailExecutor = new ThumbnailExecutor(DECODE_THREADS,
+                                                                                      NETWORK_THREADS);
+
     public static final Bitmap mDefaultImg = BitmapFactory.decodeResource(MainApp.getAppContext().getResources(),
             R.drawable.file_image);
 
@@ -207,26 +217,21 @@ public final class ThumbnailsCacheManager {
 
         // Add thumbnail to cache
         // do not overwrite any pre-existing image
-        if (!mThumbnailCache.containsKey(imageKey)) {
+        if (!containsBitmap(imageKey)) {
             addBitmapToCache(imageKey, thumbnail);
         }
 
         return thumbnail;
     }
 
-    public static void addBitmapToCache(String key, Bitmap bitmap) {
-        synchronized (mThumbnailsDiskCacheLock) {
-            if (mThumbnailCache != null) {
-                mThumbnailCache.put(key, bitmap);
-            }
-        }
-    }
-
-    public static boolean containsBitmap(String key) {
-        return mThumbnailCache.containsKey(key);
-    }
-
-    public static Bitmap getScaledBitmapFromDiskCache(String key, int width, int height) {
+    /**
+     * Waits until the disk cache has been initialized. Operations on the cache itself do not need to hold
+     * mThumbnailsDiskCacheLock, {@link DiskLruImageCache} serializes them per key.
+     *
+     * @return disk cache or null if it could not be initialized
+     */
+    @Nullable
+    private static DiskLruImageCache getDiskCache() {
         synchronized (mThumbnailsDiskCacheLock) {
             // Wait while disk cache is started from background thread
             while (mThumbnailCacheStarting) {
@@ -236,28 +241,64 @@ public final class ThumbnailsCacheManager {
                     Log_OC.e(TAG, "Wait in mThumbnailsDiskCacheLock was interrupted", e);
                 }
             }
-            if (mThumbnailCache != null) {
-                return mThumbnailCache.getScaledBitmap(key, width, height);
-            }
+            return mThumbnailCache;
+        }
+    }
+
+    public static void addBitmapToCache(String key, Bitmap bitmap) {
+        mThumbnailsMemoryCache.put(key, bitmap);
+
+        DiskLruImageCache diskCache = getDiskCache();
+        if (diskCache != null) {
+            diskCache.put(key, bitmap);
+        }
+    }
+
+    public static boolean containsBitmap(String key) {
+        return mThumbnailsMemoryCache.containsKey(key) || mThumbnailCache.containsKey(key);
+    }
+
+    public static Bitmap getScaledBitmapFromDiskCache(String key, int width, int height) {
+        // only use the memory tier if it holds a bitmap at least as large as requested
+        Bitmap cached = mThumbnailsMemoryCache.get(key);
+        if (cached != null && cached.getWidth() >= width && cached.getHeight() >= height) {
+            return cached;
+        }
+
+        DiskLruImageCache diskCache = getDiskCache();
+        if (diskCache != null) {
+            return diskCache.getScaledBitmap(key, width, height);
         }
         return null;
     }
 
     public static Bitmap getBitmapFromDiskCache(String key) {
-        synchronized (mThumbnailsDiskCacheLock) {
-            // Wait while disk cache is started from background thread
-            while (mThumbnailCacheStarting) {
-                try {
-                    mThumbnailsDiskCacheLock.wait();
-                } catch (InterruptedException e) {
-                    Log_OC.e(TAG, "Wait in mThumbnailsDiskCacheLock was interrupted", e);
-                }
-            }
-            if (mThumbnailCache != null) {
-                return mThumbnailCache.getBitmap(key);
-            }
+        Bitmap bitmap = mThumbnailsMemoryCache.get(key);
+        if (bitmap != null) {
+            return bitmap;
         }
-        return null;
+
+        DiskLruImageCache diskCache = getDiskCache();
+        if (diskCache != null) {
+            bitmap = diskCache.getBitmap(key);
+        }
+
+        mThumbnailsMemoryCache.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Releases decoded thumbnails held in memory, see {@link android.content.ComponentCallbacks2#onTrimMemory(int)}
+     */
+    public static void onTrimMemory(int level) {
+        mThumbnailsMemoryCache.trimMemory(level);
+    }
+
+    /**
+     * @return in-memory thumbnail tier, e.g. to read hit, miss and eviction counters
+     */
+    public static ThumbnailsMemoryCache getMemoryCache() {
+        return mThumbnailsMemoryCache;
     }
 
     public static class GalleryImageGenerationTaskObject {
@@ -530,9 +571,14 @@ public final class ThumbnailsCacheManager {
         private Object mFile;
         private String mImageKey;
         private FileDataStorageManager mStorageManager;
-        private GetMethod getMethod;
+        private OwnCloudClient client;
+        private volatile GetMethod getMethod;
         private Listener mListener;
         private boolean gridViewEnabled = false;
+        private boolean mVisible;
+        private volatile boolean mFetchPending;
+
+        private static final Handler mainHandler = new Handler(Looper.getMainLooper());
 
         public ThumbnailGenerationTask(ImageView imageView, FileDataStorageManager storageManager, User user)
                 throws IllegalArgumentException {
@@ -586,6 +632,15 @@ public final class ThumbnailsCacheManager {
             mImageViewReference = new WeakReference<>(imageView);
         }
 
+        /**
+         * Starts the generation on the decode lane of the thumbnail executor. Thumbnails which have to be fetched
+         * from the server are handed over to the network lane, see {@link ThumbnailExecutor}.
+         */
+        public void executeOnThumbnailExecutor(ThumbnailGenerationTaskObject object) {
+            mVisible = mImageViewReference != null && mImageViewReference.get() != null;
+            executeOnExecutor(mThumbnailExecutor.getExecutor(ThumbnailExecutor.Lane.DECODE, mVisible), object);
+        }
+
         @SuppressFBWarnings("Dm")
         @Override
         protected Bitmap doInBackground(ThumbnailGenerationTaskObject... params) {
@@ -593,7 +648,7 @@ public final class ThumbnailsCacheManager {
             try {
                 if (user != null) {
                     OwnCloudAccount ocAccount = user.toOwnCloudAccount();
-                    mClient = OwnCloudClientManagerFactory.getDefaultSingleton().
+                    client = OwnCloudClientManagerFactory.getDefaultSingleton().
                             getClientFor(ocAccount, MainApp.getAppContext());
                 }
 
@@ -604,6 +659,14 @@ public final class ThumbnailsCacheManager {
                 if (mFile instanceof ServerFileInterface) {
                     thumbnail = doThumbnailFromOCFileInBackground();
 
+                    if (thumbnail == null && client != null && !isCancelled()) {
+                        // result is delivered once fetched, without holding back the decode lane meanwhile
+                        mFetchPending = true;
+                        mThumbnailExecutor.getExecutor(ThumbnailExecutor.Lane.NETWORK, mVisible)
+                            .execute(this::fetchInBackground);
+                        return null;
+                    }
+
                     if (MimeTypeUtil.isVideo((ServerFileInterface) mFile) && thumbnail != null) {
                         thumbnail = addVideoOverlay(thumbnail, MainApp.getAppContext());
                     }
@@ -629,7 +692,45 @@ public final class ThumbnailsCacheManager {
             return thumbnail;
         }
 
+        /**
+         * Runs on the network lane and delivers the result on the main thread. Views which have been reused in the
+         * meantime cancelled the task, so their thumbnails are not requested anymore.
+         */
+        private void fetchInBackground() {
+            Bitmap thumbnail = null;
+            if (!isCancelled()) {
+                ServerFileInterface file = (ServerFileInterface) mFile;
+                try {
+                    // another view, e.g. of an upload, may be waiting for the same thumbnail
+                    thumbnail = mThumbnailExecutor.runOnce(PREFIX_THUMBNAIL + file.getRemoteId(),
+                                                           this::fetchThumbnailFromServer);
+
+                    if (MimeTypeUtil.isVideo(file) && thumbnail != null) {
+                        thumbnail = addVideoOverlay(thumbnail, MainApp.getAppContext());
+                    }
+                } catch (OutOfMemoryError oome) {
+                    Log_OC.e(TAG, "Out of memory");
+                } catch (Throwable t) {
+                    // the app should never break due to a problem with thumbnails
+                    Log_OC.e(TAG, "Generation of thumbnail for " + mFile + " failed", t);
+                }
+            }
+
+            final Bitmap result = thumbnail;
+            mainHandler.post(() -> {
+                if (!isCancelled()) {
+                    deliver(result);
+                }
+            });
+        }
+
         protected void onPostExecute(Bitmap bitmap) {
+            if (!mFetchPending) {
+                deliver(bitmap);
+            }
+        }
+
+        private void deliver(Bitmap bitmap) {
             if (bitmap != null && mImageViewReference != null) {
                 final ImageView imageView = mImageViewReference.get();
                 final ThumbnailGenerationTask bitmapWorkerTask = getBitmapWorkerTask(imageView);
@@ -670,6 +771,11 @@ public final class ThumbnailsCacheManager {
             mListener = listener;
         }
 
+        /**
+         * Looks for the thumbnail in the cache and generates it from a downloaded file or a resized image.
+         *
+         * @return thumbnail, or null if it has to be fetched from the server
+         */
         private Bitmap doThumbnailFromOCFileInBackground() {
             Bitmap thumbnail;
             ServerFileInterface file = (ServerFileInterface) mFile;
@@ -728,54 +834,6 @@ public final class ThumbnailsCacheManager {
 
                     if (resizedImage != null) {
                         thumbnail = ThumbnailUtils.extractThumbnail(resizedImage, pxW, pxH);
-                    } else {
-                        // Download thumbnail from server
-                        if (mClient != null) {
-                            getMethod = null;
-                            try {
-                                // thumbnail
-                                String uri;
-                                if (file instanceof OCFile) {
-                                    uri = mClient.getBaseUri() + "/index.php/apps/files/api/v1/thumbnail/" +
-                                        pxW + "/" + pxH + Uri.encode(file.getRemotePath(), "/");
-                                } else {
-                                    uri = mClient.getBaseUri() + "/index.php/apps/files_trashbin/preview?fileId=" +
-                                        file.getLocalId() + "&x=" + pxW + "&y=" + pxH;
-                                }
-
-                                Log_OC.d(TAG, "generate thumbnail: " + file.getFileName() + " URI: " + uri);
-                                getMethod = new GetMethod(uri);
-                                getMethod.setRequestHeader("Cookie",
-                                                           "nc_sameSiteCookielax=true;nc_sameSiteCookiestrict=true");
-
-                                getMethod.setRequestHeader(RemoteOperation.OCS_API_HEADER,
-                                                           RemoteOperation.OCS_API_HEADER_VALUE);
-
-                                int status = mClient.executeMethod(getMethod, READ_TIMEOUT, CONNECTION_TIMEOUT);
-                                if (status == HttpStatus.SC_OK) {
-                                    InputStream inputStream = getMethod.getResponseBodyAsStream();
-                                    Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-                                    thumbnail = ThumbnailUtils.extractThumbnail(bitmap, pxW, pxH);
-                                } else {
-                                    mClient.exhaustResponse(getMethod.getResponseBodyAsStream());
-                                }
-
-                                // Handle PNG
-                                if (PNG_MIMETYPE.equalsIgnoreCase(file.getMimeType())) {
-                                    thumbnail = handlePNG(thumbnail, pxW, pxH);
-                                }
-                            } catch (Exception e) {
-                                Log_OC.d(TAG, e.getMessage(), e);
-                            } finally {
-                                if (getMethod != null) {
-                                    getMethod.releaseConnection();
-                                }
-                            }
-                        }
-                    }
-
-                    // Add thumbnail to cache
-                    if (thumbnail != null) {
                         Log_OC.d(TAG, "add thumbnail to cache: " + file.getFileName());
                         addBitmapToCache(imageKey, thumbnail);
                     }
@@ -785,6 +843,63 @@ public final class ThumbnailsCacheManager {
             return thumbnail;
         }
 
+        private Bitmap fetchThumbnailFromServer() {
+            Bitmap thumbnail = null;
+            ServerFileInterface file = (ServerFileInterface) mFile;
+            int pxW;
+            int pxH;
+            pxW = pxH = getThumbnailDimension();
+
+            getMethod = null;
+            try {
+                // thumbnail
+                String uri;
+                if (file instanceof OCFile) {
+                    uri = client.getBaseUri() + "/index.php/apps/files/api/v1/thumbnail/" +
+                        pxW + "/" + pxH + Uri.encode(file.getRemotePath(), "/");
+                } else {
+                    uri = client.getBaseUri() + "/index.php/apps/files_trashbin/preview?fileId=" +
+                        file.getLocalId() + "&x=" + pxW + "&y=" + pxH;
+                }
+
+                Log_OC.d(TAG, "generate thumbnail: " + file.getFileName() + " URI: " + uri);
+                getMethod = new GetMethod(uri);
+                getMethod.setRequestHeader("Cookie",
+                                           "nc_sameSiteCookielax=true;nc_sameSiteCookiestrict=true");
+
+                getMethod.setRequestHeader(RemoteOperation.OCS_API_HEADER,
+                                           RemoteOperation.OCS_API_HEADER_VALUE);
+
+                int status = client.executeMethod(getMethod, READ_TIMEOUT, CONNECTION_TIMEOUT);
+                if (status == HttpStatus.SC_OK) {
+                    InputStream inputStream = getMethod.getResponseBodyAsStream();
+                    Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
+                    thumbnail = ThumbnailUtils.extractThumbnail(bitmap, pxW, pxH);
+                } else {
+                    client.exhaustResponse(getMethod.getResponseBodyAsStream());
+                }
+
+                // Handle PNG
+                if (PNG_MIMETYPE.equalsIgnoreCase(file.getMimeType())) {
+                    thumbnail = handlePNG(thumbnail, pxW, pxH);
+                }
+            } catch (Exception e) {
+                Log_OC.d(TAG, e.getMessage(), e);
+            } finally {
+                if (getMethod != null) {
+                    getMethod.releaseConnection();
+                }
+            }
+
+            // Add thumbnail to cache
+            if (thumbnail != null) {
+                Log_OC.d(TAG, "add thumbnail to cache: " + file.getFileName());
+                addBitmapToCache(PREFIX_THUMBNAIL + file.getRemoteId(), thumbnail);
+            }
+
+            return thumbnail;
+        }
+
         /**
          * Converts size of file icon from dp to pixel
          *
@@ -1382,6 +1497,7 @@ public final class ThumbnailsCacheManager {
 
     @VisibleForTesting
     public static void clearCache() {
+        mThumbnailsMemoryCache.evictAll();
         mThumbnailCache.clearCache();
         mThumbnailCache = null;
     }
@@ -0,0 +1,203 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.datamodel;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size bounded, least recently used in-memory tier for decoded thumbnails, sitting in front of the
+ * {@link com.owncloud.android.ui.adapter.DiskLruImageCache}.
+ *
+ * Lookups do not take any lock; only eviction, which happens when a put exceeds the maximum size, is serialized.
+ * Bitmaps handed out by this cache are shared and must not be recycled by callers.
+ */
+public final class ThumbnailsMemoryCache {
+
+    /**
+     * Once full, the cache is trimmed down to this fraction of its maximum size, so that eviction does not run on
+     * every single put.
+     */
+    private static final float TRIM_FACTOR = 0.75f;
+
+    private static final class Entry {
+        private final Bitmap bitmap;
+        private final int size;
+        private volatile long lastAccess;
+
+        private Entry(Bitmap bitmap, int size, long lastAccess) {
+            this.bitmap = bitmap;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+    private final long maxSize;
+
+    private final AtomicLong accessClock = new AtomicLong();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param maxSize maximum size of all cached bitmaps, in bytes
+     */
+    public ThumbnailsMemoryCache(long maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.maxSize = maxSize;
+    }
+
+    public Bitmap get(String key) {
+        Entry entry = entries.get(key);
+
+        if (entry != null && entry.bitmap.isRecycled()) {
+            // someone recycled a shared bitmap, it cannot be drawn anymore
+            removeEntry(key, entry);
+            entry = null;
+        }
+
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        entry.lastAccess = accessClock.incrementAndGet();
+        hitCount.incrementAndGet();
+        return entry.bitmap;
+    }
+
+    public boolean containsKey(String key) {
+        Entry entry = entries.get(key);
+        return entry != null && !entry.bitmap.isRecycled();
+    }
+
+    public void put(String key, Bitmap bitmap) {
+        if (key == null || bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+
+        int bitmapSize = bitmap.getAllocationByteCount();
+        if (bitmapSize > maxSize) {
+            remove(key);
+            return;
+        }
+
+        Entry previous = entries.put(key, new Entry(bitmap, bitmapSize, accessClock.incrementAndGet()));
+        size.addAndGet(previous == null ? bitmapSize : bitmapSize - previous.size);
+
+        if (size.get() > maxSize) {
+            trimToSize((long) (maxSize * TRIM_FACTOR));
+        }
+    }
+
+    public void remove(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            removeEntry(key, entry);
+        }
+    }
+
+    public void evictAll() {
+        trimToSize(0);
+    }
+
+    /**
+     * Releases memory according to the level passed to {@link ComponentCallbacks2#onTrimMemory(int)}.
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimToSize(size.get() / 2);
+        }
+    }
+
+    /**
+     * Evicts least recently used entries until the cache is not larger than the given size.
+     */
+    public void trimToSize(long targetSize) {
+        synchronized (evictionLock) {
+            if (size.get() <= targetSize) {
+                return;
+            }
+
+            List<Map.Entry<String, Entry>> candidates = new ArrayList<>(entries.entrySet());
+            Collections.sort(candidates, (a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess));
+
+            for (Map.Entry<String, Entry> candidate : candidates) {
+                if (size.get() <= targetSize) {
+                    break;
+                }
+                if (removeEntry(candidate.getKey(), candidate.getValue())) {
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private boolean removeEntry(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            size.addAndGet(-entry.size);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return size of all cached bitmaps, in bytes
+     */
+    public long size() {
+        return size.get();
+    }
+
+    public long maxSize() {
+        return maxSize;
+    }
+
+    public long hitCount() {
+        return hitCount.get();
+    }
+
+    public long missCount() {
+        return missCount.get();
+    }
+
+    public long evictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ThumbnailsMemoryCache[size=" + size() + ", maxSize=" + maxSize + ", hits=" + hitCount() +
+            ", misses=" + missCount() + ", evictions=" + evictionCount() + "]";
+    }
+}
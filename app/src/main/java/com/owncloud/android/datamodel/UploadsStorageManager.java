@@ -188,6 +188,48 @@ public class UploadsStorageManager extends Observable {
         return result;
     }
 
+    /**
+     * @return stored chunk manifest of a chunked upload, or null if none was stored
+     */
+    @Nullable
+    public String getChunkManifest(long uploadId) {
+        String manifest = null;
+        Cursor cursor = getDB().query(
+            ProviderTableMeta.CONTENT_URI_UPLOADS,
+            new String[]{ProviderTableMeta.UPLOADS_CHUNK_MANIFEST},
+            ProviderTableMeta._ID + "=?",
+            new String[]{Long.toString(uploadId)},
+            null);
+
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                manifest = cursor.getString(cursor.getColumnIndexOrThrow(ProviderTableMeta.UPLOADS_CHUNK_MANIFEST));
+            }
+            cursor.close();
+        }
+        return manifest;
+    }
+
+    /**
+     * Stores which chunks of a chunked upload were confirmed by the server. Observers are not notified, since the
+     * upload list does not show chunks.
+     *
+     * @param manifest chunk manifest, null to clear it
+     */
+    public void updateChunkManifest(long uploadId, @Nullable String manifest) {
+        ContentValues cv = new ContentValues();
+        cv.put(ProviderTableMeta.UPLOADS_CHUNK_MANIFEST, manifest);
+
+        int result = getDB().update(ProviderTableMeta.CONTENT_URI_UPLOADS,
+                                    cv,
+                                    ProviderTableMeta._ID + "=?",
+                                    new String[]{String.valueOf(uploadId)});
+
+        if (result != SINGLE_RESULT) {
+            Log_OC.w(TAG, "Failed to store chunk manifest of upload " + uploadId);
+        }
+    }
+
     private int updateUploadInternal(Cursor c, UploadStatus status, UploadResult result, String remotePath,
                                      String localPath) {
 
@@ -0,0 +1,235 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.files.services;
+
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Runs downloads concurrently, at most {@link #parallelism} at a time.
+ *
+ * A download is identified by account and remote path; a download which is already queued or running is not added
+ * again. Downloads requested by the user, e.g. of an opened file, start before background downloads of synchronized
+ * folders. Accounts take turns for free slots, so a large synchronization of one account does not hold back the
+ * downloads of another.
+ *
+ * Thread safe.
+ */
+class DownloadScheduler {
+
+    private static final String TAG = DownloadScheduler.class.getSimpleName();
+
+    private final int parallelism;
+    private final Executor executor;
+    @Nullable private final Runnable onIdle;
+
+    /** queued and running downloads, by key */
+    private final Map<String, Download> downloads = new HashMap<>();
+
+    /** queues per account, in the order the accounts take turns */
+    private final LinkedHashMap<String, AccountQueue> queues = new LinkedHashMap<>();
+
+    private int running;
+
+    /**
+     * @param onIdle called after the last queued download finished
+     */
+    DownloadScheduler(int parallelism, Executor executor, @Nullable Runnable onIdle) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.executor = executor;
+        this.onIdle = onIdle;
+    }
+
+    /**
+     * Queues a download.
+     *
+     * @param priority true if the user is waiting for the download
+     * @return false if the download is already queued or running; a requested priority is applied anyway
+     */
+    synchronized boolean submit(String accountName, String remotePath, boolean priority, Runnable task) {
+        String key = buildKey(accountName, remotePath);
+        if (downloads.containsKey(key)) {
+            if (priority) {
+                prioritize(accountName, remotePath);
+            }
+            return false;
+        }
+
+        Download download = new Download(key, accountName, task);
+        downloads.put(key, download);
+        AccountQueue queue = queues.get(accountName);
+        if (queue == null) {
+            queue = new AccountQueue();
+            queues.put(accountName, queue);
+        }
+        (priority ? queue.priority : queue.background).add(download);
+
+        startDownloads();
+        return true;
+    }
+
+    /**
+     * Moves a queued background download in front of all background downloads.
+     */
+    synchronized void prioritize(String accountName, String remotePath) {
+        Download download = downloads.get(buildKey(accountName, remotePath));
+        AccountQueue queue = queues.get(accountName);
+        if (download != null && queue != null && queue.background.remove(download)) {
+            queue.priority.add(download);
+        }
+    }
+
+    /**
+     * Removes a queued download; a running download has to be cancelled through its operation.
+     *
+     * @return true if the download was queued
+     */
+    synchronized boolean cancel(String accountName, String remotePath) {
+        String key = buildKey(accountName, remotePath);
+        Download download = downloads.get(key);
+        AccountQueue queue = queues.get(accountName);
+        if (download == null || queue == null ||
+            !queue.priority.remove(download) && !queue.background.remove(download)) {
+            return false;
+        }
+
+        downloads.remove(key);
+        if (queue.isEmpty()) {
+            queues.remove(accountName);
+        }
+        return true;
+    }
+
+    /**
+     * Removes all queued downloads of an account.
+     */
+    synchronized void cancel(String accountName) {
+        AccountQueue queue = queues.remove(accountName);
+        if (queue != null) {
+            for (Download download : queue.priority) {
+                downloads.remove(download.key);
+            }
+            for (Download download : queue.background) {
+                downloads.remove(download.key);
+            }
+        }
+    }
+
+    synchronized boolean isIdle() {
+        return downloads.isEmpty();
+    }
+
+    /**
+     * Must be called holding the lock.
+     */
+    private void startDownloads() {
+        while (running < parallelism) {
+            Download next = takeNext();
+            if (next == null) {
+                return;
+            }
+            running++;
+            executor.execute(() -> run(next));
+        }
+    }
+
+    /**
+     * Takes a priority download if any account has one, otherwise a background download. The account which provided
+     * it goes to the end of the turn order. Must be called holding the lock.
+     */
+    @Nullable
+    private Download takeNext() {
+        AccountQueue selected = null;
+        for (AccountQueue queue : queues.values()) {
+            if (!queue.priority.isEmpty()) {
+                selected = queue;
+                break;
+            }
+            if (selected == null && !queue.background.isEmpty()) {
+                selected = queue;
+            }
+        }
+        if (selected == null) {
+            return null;
+        }
+
+        Download next = selected.priority.isEmpty() ? selected.background.poll() : selected.priority.poll();
+        queues.remove(next.accountName);
+        if (!selected.isEmpty()) {
+            queues.put(next.accountName, selected);
+        }
+        return next;
+    }
+
+    private void run(Download download) {
+        try {
+            download.task.run();
+        } catch (RuntimeException e) {
+            Log_OC.e(TAG, "Download " + download.key + " failed", e);
+        } finally {
+            boolean idle;
+            synchronized (this) {
+                running--;
+                downloads.remove(download.key);
+                startDownloads();
+                idle = downloads.isEmpty();
+            }
+            if (idle && onIdle != null) {
+                onIdle.run();
+            }
+        }
+    }
+
+    private static String buildKey(String accountName, String remotePath) {
+        return accountName + remotePath;
+    }
+
+    private static final class Download {
+        private final String key;
+        private final String accountName;
+        private final Runnable task;
+
+        private Download(String key, String accountName, Runnable task) {
+            this.key = key;
+            this.accountName = accountName;
+            this.task = task;
+        }
+    }
+
+    private static final class AccountQueue {
+        private final Deque<Download> priority = new ArrayDeque<>();
+        private final Deque<Download> background = new ArrayDeque<>();
+
+        private boolean isEmpty() {
+            return priority.isEmpty() && background.isEmpty();
+        }
+    }
+}
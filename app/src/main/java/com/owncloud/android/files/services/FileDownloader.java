@@ -31,10 +31,8 @@ import android.content.Intent;
 import android.graphics.BitmapFactory;
 import android.os.Binder;
 import android.os.Handler;
-import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.Looper;
-import android.os.Message;
 import android.os.Process;
 import android.util.Pair;
 
@@ -72,11 +70,12 @@ import com.owncloud.android.utils.theme.ViewThemeUtils;
 
 import java.io.File;
 import java.security.SecureRandom;
-import java.util.AbstractList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Vector;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 
@@ -86,7 +85,7 @@ import dagger.android.AndroidInjection;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 public class FileDownloader extends Service
-        implements OnDatatransferProgressListener, OnAccountsUpdateListener {
+        implements OnAccountsUpdateListener {
 
     public static final String EXTRA_USER = "USER";
     public static final String EXTRA_FILE = "FILE";
@@ -98,32 +97,32 @@ public class FileDownloader extends Service
     public static final String EXTRA_LINKED_TO_PATH = "LINKED_TO";
     public static final String ACCOUNT_NAME = "ACCOUNT_NAME";
     public static final String DOWNLOAD_TYPE = "DOWNLOAD_TYPE";
+    public static final String EXTRA_BACKGROUND_DOWNLOAD = "BACKGROUND_DOWNLOAD";
 
     private static final int FOREGROUND_SERVICE_ID = 412;
 
+    private static final long STOP_DELAY = 2000;
+
     private static final String TAG = FileDownloader.class.getSimpleName();
 
-    private Looper mServiceLooper;
-    private ServiceHandler mServiceHandler;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private ExecutorService mDownloadExecutor;
+    private DownloadScheduler mDownloadScheduler;
     private IBinder mBinder;
-    private OwnCloudClient mDownloadClient;
-    private Optional<User> currentUser = Optional.empty();
-    private FileDataStorageManager mStorageManager;
 
     private IndexedForest<DownloadFileOperation> mPendingDownloads = new IndexedForest<>();
 
-    private DownloadFileOperation mCurrentDownload;
+    private final Set<DownloadFileOperation> mCurrentDownloads = ConcurrentHashMap.newKeySet();
+
+    private int mLastStartId;
 
     private NotificationManager mNotificationManager;
     private NotificationCompat.Builder mNotificationBuilder;
-    private int mLastPercent;
 
     private Notification mNotification;
 
     private long conflictUploadId;
 
-    public boolean mStartedDownload = false;
-
     @Inject UserAccountManager accountManager;
     @Inject UploadsStorageManager uploadsStorageManager;
     @Inject LocalBroadcastManager localBroadcastManager;
@@ -146,10 +145,15 @@ public class FileDownloader extends Service
         AndroidInjection.inject(this);
         Log_OC.d(TAG, "Creating service");
         mNotificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
-        HandlerThread thread = new HandlerThread("FileDownloaderThread", Process.THREAD_PRIORITY_BACKGROUND);
-        thread.start();
-        mServiceLooper = thread.getLooper();
-        mServiceHandler = new ServiceHandler(mServiceLooper, this);
+        int maxConcurrentDownloads = Math.max(1, getResources().getInteger(R.integer.max_concurrent_downloads));
+        AtomicInteger threadCount = new AtomicInteger();
+        mDownloadExecutor = Executors.newFixedThreadPool(maxConcurrentDownloads, runnable -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "FileDownloaderThread-" + threadCount.incrementAndGet()));
+        mDownloadScheduler = new DownloadScheduler(maxConcurrentDownloads,
+                                                   mDownloadExecutor,
+                                                   () -> mHandler.post(this::stopIfIdle));
         mBinder = new FileDownloaderBinder();
 
         NotificationCompat.Builder builder = NotificationUtils.newNotificationBuilder(this, viewThemeUtils).setContentTitle(
@@ -178,9 +182,12 @@ public class FileDownloader extends Service
     public void onDestroy() {
         Log_OC.v(TAG, "Destroying service");
         mBinder = null;
-        mServiceHandler = null;
-        mServiceLooper.quit();
-        mServiceLooper = null;
+        mHandler.removeCallbacksAndMessages(null);
+        // interrupting the threads does not stop a running transfer, the operations have to be cancelled
+        for (DownloadFileOperation download : mCurrentDownloads) {
+            download.cancel();
+        }
+        mDownloadExecutor.shutdownNow();
         mNotificationManager = null;
 
         // remove AccountsUpdatedListener
@@ -217,7 +224,8 @@ public class FileDownloader extends Service
             String activityName = intent.getStringExtra(SendShareDialog.ACTIVITY_NAME);
             String packageName = intent.getStringExtra(SendShareDialog.PACKAGE_NAME);
             conflictUploadId = intent.getLongExtra(ConflictsResolveActivity.EXTRA_CONFLICT_UPLOAD_ID, -1);
-            AbstractList<String> requestedDownloads = new Vector<String>();
+            boolean priority = !intent.getBooleanExtra(EXTRA_BACKGROUND_DOWNLOAD, false);
+            mLastStartId = startId;
             try {
                 DownloadFileOperation newDownload = new DownloadFileOperation(user,
                                                                               file,
@@ -226,28 +234,36 @@ public class FileDownloader extends Service
                                                                               packageName,
                                                                               getBaseContext(),
                                                                               downloadType);
-                newDownload.addDatatransferProgressListener(this);
-                newDownload.addDatatransferProgressListener((FileDownloaderBinder) mBinder);
+                newDownload.addDatatransferProgressListener(new DownloadProgressListener());
+                FileDownloaderBinder binder = (FileDownloaderBinder) mBinder;
+                long fileId = file.getFileId();
+                newDownload.addDatatransferProgressListener(
+                    (progressRate, totalTransferredSoFar, totalToTransfer, fileName) ->
+                        binder.onTransferProgress(fileId, progressRate, totalTransferredSoFar, totalToTransfer,
+                                                  fileName));
                 Pair<String, String> putResult = mPendingDownloads.putIfAbsent(user.getAccountName(),
                                                                                file.getRemotePath(),
                                                                                newDownload);
                 if (putResult != null) {
                     String downloadKey = putResult.first;
-                    requestedDownloads.add(downloadKey);
                     sendBroadcastNewDownload(newDownload, putResult.second);
-                }   // else, file already in the queue of downloads; don't repeat the request
+                    mDownloadScheduler.submit(user.getAccountName(),
+                                              file.getRemotePath(),
+                                              priority,
+                                              () -> downloadFile(downloadKey));
+                } else if (priority) {
+                    // file already in the queue of downloads; don't repeat the request, but do not keep the user
+                    // waiting behind a synchronization
+                    mDownloadScheduler.prioritize(user.getAccountName(), file.getRemotePath());
+                }
 
             } catch (IllegalArgumentException e) {
                 Log_OC.e(TAG, "Not enough information provided in intent: " + e.getMessage());
+                stopIfIdle();
                 return START_NOT_STICKY;
             }
 
-            if (requestedDownloads.size() > 0) {
-                Message msg = mServiceHandler.obtainMessage();
-                msg.arg1 = startId;
-                msg.obj = requestedDownloads;
-                mServiceHandler.sendMessage(msg);
-            }
+            stopIfIdle();
         }
 
         return START_NOT_STICKY;
@@ -276,28 +292,47 @@ public class FileDownloader extends Service
 
     @Override
     public void onAccountsUpdated(Account[] accounts) {
-         //review the current download and cancel it if its account doesn't exist
-        if (mCurrentDownload != null && !accountManager.exists(mCurrentDownload.getUser().toPlatformAccount())) {
-            mCurrentDownload.cancel();
+         //review the current downloads and cancel them if their account doesn't exist
+        for (DownloadFileOperation download : mCurrentDownloads) {
+            if (!accountManager.exists(download.getUser().toPlatformAccount())) {
+                download.cancel();
+            }
         }
         // The rest of downloads are cancelled when they try to start
     }
 
+    /**
+     * Stops the service once all downloads are finished, unless new downloads are requested in the meantime.
+     */
+    private void stopIfIdle() {
+        if (mDownloadScheduler == null || !mDownloadScheduler.isIdle()) {
+            return;
+        }
+        mHandler.postDelayed(() -> {
+            if (mDownloadScheduler != null && mDownloadScheduler.isIdle() && mNotificationManager != null) {
+                mNotificationManager.cancel(R.string.downloader_download_in_progress_ticker);
+                Log_OC.d(TAG, "Stopping after command with id " + mLastStartId);
+                mNotificationManager.cancel(FOREGROUND_SERVICE_ID);
+                stopForeground(true);
+                stopSelf(mLastStartId);
+            }
+        }, STOP_DELAY);
+    }
+
 
     /**
      * Binder to let client components to perform operations on the queue of downloads.
      * <p/>
      * It provides by itself the available operations.
      */
-    public class FileDownloaderBinder extends Binder implements OnDatatransferProgressListener {
+    public class FileDownloaderBinder extends Binder {
 
         /**
          * Map of listeners that will be reported about progress of downloads from a
          * {@link FileDownloaderBinder}
          * instance.
          */
-        private Map<Long, OnDatatransferProgressListener> mBoundListeners =
-                new HashMap<Long, OnDatatransferProgressListener>();
+        private Map<Long, OnDatatransferProgressListener> mBoundListeners = new ConcurrentHashMap<>();
 
 
         /**
@@ -312,24 +347,30 @@ public class FileDownloader extends Service
             DownloadFileOperation download = removeResult.first;
             if (download != null) {
                 download.cancel();
+                mDownloadScheduler.cancel(account.name, file.getRemotePath());
             } else {
-                if (mCurrentDownload != null && currentUser.isPresent() &&
-                    mCurrentDownload.getRemotePath().startsWith(file.getRemotePath()) &&
-                        account.name.equals(currentUser.get().getAccountName())) {
-                    mCurrentDownload.cancel();
+                for (DownloadFileOperation currentDownload : mCurrentDownloads) {
+                    if (currentDownload.getRemotePath().startsWith(file.getRemotePath()) &&
+                        currentDownload.getUser().nameEquals(account.name)) {
+                        currentDownload.cancel();
+                    }
                 }
             }
+            stopIfIdle();
         }
 
         /**
          * Cancels all the downloads for an account
          */
         public void cancel(String accountName) {
-            if (mCurrentDownload != null && mCurrentDownload.getUser().nameEquals(accountName)) {
-                mCurrentDownload.cancel();
+            for (DownloadFileOperation currentDownload : mCurrentDownloads) {
+                if (currentDownload.getUser().nameEquals(accountName)) {
+                    currentDownload.cancel();
+                }
             }
             // Cancel pending downloads
             cancelPendingDownloads(accountName);
+            stopIfIdle();
         }
 
         public void clearListeners() {
@@ -382,11 +423,9 @@ public class FileDownloader extends Service
             }
         }
 
-        @Override
-        public void onTransferProgress(long progressRate, long totalTransferredSoFar,
-                                       long totalToTransfer, String fileName) {
-            OnDatatransferProgressListener boundListener =
-                    mBoundListeners.get(mCurrentDownload.getFile().getFileId());
+        private void onTransferProgress(long fileId, long progressRate, long totalTransferredSoFar,
+                                        long totalToTransfer, String fileName) {
+            OnDatatransferProgressListener boundListener = mBoundListeners.get(fileId);
             if (boundListener != null) {
                 boundListener.onTransferProgress(progressRate, totalTransferredSoFar,
                                                  totalToTransfer, fileName);
@@ -396,84 +435,38 @@ public class FileDownloader extends Service
     }
 
     /**
-     * Download worker. Performs the pending downloads in the order they were requested.
-
-     * Created with the Looper of a new thread, started in {@link FileUploader#onCreate()}.
-     */
-    private static class ServiceHandler extends Handler {
-        // don't make it a final class, and don't remove the static ; lint will warn about a
-        // possible memory leak
-        FileDownloader mService;
-
-        public ServiceHandler(Looper looper, FileDownloader service) {
-            super(looper);
-            if (service == null) {
-                throw new IllegalArgumentException("Received invalid NULL in parameter 'service'");
-            }
-            mService = service;
-        }
-
-        @Override
-        public void handleMessage(Message msg) {
-            @SuppressWarnings("unchecked")
-            AbstractList<String> requestedDownloads = (AbstractList<String>) msg.obj;
-            if (msg.obj != null) {
-                Iterator<String> it = requestedDownloads.iterator();
-                while (it.hasNext()) {
-                    String next = it.next();
-                    mService.downloadFile(next);
-                }
-            }
-            mService.mStartedDownload=false;
-
-            (new Handler()).postDelayed(() -> {
-                if(!mService.mStartedDownload){
-                    mService.mNotificationManager.cancel(R.string.downloader_download_in_progress_ticker);
-                }
-                Log_OC.d(TAG, "Stopping after command with id " + msg.arg1);
-                mService.mNotificationManager.cancel(FOREGROUND_SERVICE_ID);
-                mService.stopForeground(true);
-                mService.stopSelf(msg.arg1);
-            }, 2000);
-        }
-    }
-
-
-    /**
-     * Core download method: requests a file to download and stores it.
+     * Core download method: requests a file to download and stores it. Called on the threads of
+     * {@link #mDownloadScheduler}, possibly for several files at the same time.
      *
      * @param downloadKey Key to access the download to perform, contained in mPendingDownloads
      */
     private void downloadFile(String downloadKey) {
+        DownloadFileOperation download = mPendingDownloads.get(downloadKey);
 
-        mStartedDownload = true;
-        mCurrentDownload = mPendingDownloads.get(downloadKey);
-
-        if (mCurrentDownload != null) {
+        if (download != null) {
             // Detect if the account exists
-            if (accountManager.exists(mCurrentDownload.getUser().toPlatformAccount())) {
-                notifyDownloadStart(mCurrentDownload);
+            if (accountManager.exists(download.getUser().toPlatformAccount())) {
+                mCurrentDownloads.add(download);
+                notifyDownloadStart(download);
                 RemoteOperationResult downloadResult = null;
                 try {
                     /// prepare client object to send the request to the ownCloud server
-                    Account currentDownloadAccount = mCurrentDownload.getUser().toPlatformAccount();
+                    Account currentDownloadAccount = download.getUser().toPlatformAccount();
                     Optional<User> currentDownloadUser = accountManager.getUser(currentDownloadAccount.name);
-                    if (!currentUser.equals(currentDownloadUser)) {
-                        currentUser = currentDownloadUser;
-                        mStorageManager = new FileDataStorageManager(currentUser.get(), getContentResolver());
-                    }   // else, reuse storage manager from previous operation
+                    FileDataStorageManager storageManager = new FileDataStorageManager(currentDownloadUser.get(),
+                                                                                       getContentResolver());
 
                     // always get client from client manager, to get fresh credentials in case
                     // of update
                     OwnCloudAccount ocAccount = currentDownloadUser.get().toOwnCloudAccount();
-                    mDownloadClient = OwnCloudClientManagerFactory.getDefaultSingleton().
+                    OwnCloudClient downloadClient = OwnCloudClientManagerFactory.getDefaultSingleton().
                             getClientFor(ocAccount, this);
 
 
                     /// perform the download
-                    downloadResult = mCurrentDownload.execute(mDownloadClient);
-                    if (downloadResult.isSuccess() && mCurrentDownload.getDownloadType() == DownloadType.DOWNLOAD) {
-                        saveDownloadedFile();
+                    downloadResult = download.execute(downloadClient);
+                    if (downloadResult.isSuccess() && download.getDownloadType() == DownloadType.DOWNLOAD) {
+                        saveDownloadedFile(download, storageManager);
                     }
 
                 } catch (Exception e) {
@@ -481,19 +474,20 @@ public class FileDownloader extends Service
                     downloadResult = new RemoteOperationResult(e);
 
                 } finally {
+                    mCurrentDownloads.remove(download);
                     Pair<DownloadFileOperation, String> removeResult = mPendingDownloads.removePayload(
-                        mCurrentDownload.getUser().getAccountName(), mCurrentDownload.getRemotePath());
+                        download.getUser().getAccountName(), download.getRemotePath());
 
                     if (downloadResult == null) {
                         downloadResult = new RemoteOperationResult(new RuntimeException("Error downloading…"));
                     }
 
                     /// notify result
-                    notifyDownloadResult(mCurrentDownload, downloadResult);
-                    sendBroadcastDownloadFinished(mCurrentDownload, downloadResult, removeResult.second);
+                    notifyDownloadResult(download, downloadResult);
+                    sendBroadcastDownloadFinished(download, downloadResult, removeResult.second);
                 }
             } else {
-                cancelPendingDownloads(mCurrentDownload.getUser().getAccountName());
+                cancelPendingDownloads(download.getUser().getAccountName());
             }
         }
     }
@@ -505,16 +499,16 @@ public class FileDownloader extends Service
      * TODO move to DownloadFileOperation
      *  unify with code from {@link DocumentsStorageProvider} and {@link DownloadTask}.
      */
-    private void saveDownloadedFile() {
-        OCFile file = mStorageManager.getFileById(mCurrentDownload.getFile().getFileId());
+    private void saveDownloadedFile(DownloadFileOperation download, FileDataStorageManager storageManager) {
+        OCFile file = storageManager.getFileById(download.getFile().getFileId());
 
         if (file == null) {
             // try to get file via path, needed for overwriting existing files on conflict dialog
-            file = mStorageManager.getFileByDecryptedRemotePath(mCurrentDownload.getFile().getRemotePath());
+            file = storageManager.getFileByDecryptedRemotePath(download.getFile().getRemotePath());
         }
 
         if (file == null) {
-            Log_OC.e(this, "Could not save " + mCurrentDownload.getFile().getRemotePath());
+            Log_OC.e(this, "Could not save " + download.getFile().getRemotePath());
             return;
         }
 
@@ -522,28 +516,28 @@ public class FileDownloader extends Service
         file.setLastSyncDateForProperties(syncDate);
         file.setLastSyncDateForData(syncDate);
         file.setUpdateThumbnailNeeded(true);
-        file.setModificationTimestamp(mCurrentDownload.getModificationTimestamp());
-        file.setModificationTimestampAtLastSyncForData(mCurrentDownload.getModificationTimestamp());
-        file.setEtag(mCurrentDownload.getEtag());
-        file.setMimeType(mCurrentDownload.getMimeType());
-        file.setStoragePath(mCurrentDownload.getSavePath());
-        file.setFileLength(new File(mCurrentDownload.getSavePath()).length());
-        file.setRemoteId(mCurrentDownload.getFile().getRemoteId());
-        mStorageManager.saveFile(file);
-        if (MimeTypeUtil.isMedia(mCurrentDownload.getMimeType())) {
+        file.setModificationTimestamp(download.getModificationTimestamp());
+        file.setModificationTimestampAtLastSyncForData(download.getModificationTimestamp());
+        file.setEtag(download.getEtag());
+        file.setMimeType(download.getMimeType());
+        file.setStoragePath(download.getSavePath());
+        file.setFileLength(new File(download.getSavePath()).length());
+        file.setRemoteId(download.getFile().getRemoteId());
+        storageManager.saveFile(file);
+        if (MimeTypeUtil.isMedia(download.getMimeType())) {
             FileDataStorageManager.triggerMediaScan(file.getStoragePath(), file);
         }
-        mStorageManager.saveConflict(file, null);
+        storageManager.saveConflict(file, null);
     }
 
     /**
-     * Creates a status notification to show the download progress
+     * Creates a status notification to show the download progress. The notification is shared by all running
+     * downloads, hence the methods updating it are synchronized.
      *
      * @param download Download operation starting.
      */
-    private void notifyDownloadStart(DownloadFileOperation download) {
+    private synchronized void notifyDownloadStart(DownloadFileOperation download) {
         /// create status notification with a progress bar
-        mLastPercent = 0;
         mNotificationBuilder = NotificationUtils.newNotificationBuilder(this, viewThemeUtils);
         mNotificationBuilder
             .setSmallIcon(R.drawable.notification_icon)
@@ -585,28 +579,46 @@ public class FileDownloader extends Service
 
 
     /**
-     * Callback method to update the progress bar in the status notification.
+     * Updates the progress bar in the status notification.
      */
-    @Override
-    public void onTransferProgress(long progressRate, long totalTransferredSoFar,
-                                   long totalToTransfer, String filePath) {
-        int percent = (int) (100.0 * ((double) totalTransferredSoFar) / ((double) totalToTransfer));
-        if (percent != mLastPercent) {
-            mNotificationBuilder.setProgress(100, percent, totalToTransfer < 0);
-            String fileName = filePath.substring(filePath.lastIndexOf(FileUtils.PATH_SEPARATOR) + 1);
-            String text = String.format(getString(R.string.downloader_download_in_progress_content), percent, fileName);
-            mNotificationBuilder.setContentText(text);
-
-            if (mNotificationManager == null) {
-                mNotificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
-            }
+    private synchronized void notifyProgress(int percent, long totalToTransfer, String filePath) {
+        if (mNotificationBuilder == null) {
+            return;
+        }
+        mNotificationBuilder.setProgress(100, percent, totalToTransfer < 0);
+        String fileName = filePath.substring(filePath.lastIndexOf(FileUtils.PATH_SEPARATOR) + 1);
+        String text = String.format(getString(R.string.downloader_download_in_progress_content), percent, fileName);
+        mNotificationBuilder.setContentText(text);
 
-            if (mNotificationManager != null) {
-                mNotificationManager.notify(R.string.downloader_download_in_progress_ticker,
-                        mNotificationBuilder.build());
+        if (mNotificationManager == null) {
+            mNotificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        }
+
+        if (mNotificationManager != null) {
+            mNotificationManager.notify(R.string.downloader_download_in_progress_ticker,
+                    mNotificationBuilder.build());
+        }
+    }
+
+    /**
+     * Progress of a single download. Downloads run concurrently and each one needs to remember its own last
+     * percentage.
+     */
+    private class DownloadProgressListener implements OnDatatransferProgressListener {
+        private int mLastPercent;
+
+        /**
+         * Callback method to update the progress bar in the status notification.
+         */
+        @Override
+        public void onTransferProgress(long progressRate, long totalTransferredSoFar,
+                                       long totalToTransfer, String filePath) {
+            int percent = (int) (100.0 * ((double) totalTransferredSoFar) / ((double) totalToTransfer));
+            if (percent != mLastPercent) {
+                notifyProgress(percent, totalToTransfer, filePath);
             }
+            mLastPercent = percent;
         }
-        mLastPercent = percent;
     }
 
 
@@ -638,28 +650,35 @@ public class FileDownloader extends Service
             tickerId = needsToUpdateCredentials ?
                     R.string.downloader_download_failed_credentials_error : tickerId;
 
-            mNotificationBuilder
+            // own builder, the one of the progress notification is still used by other running downloads
+            NotificationCompat.Builder notificationBuilder = NotificationUtils.newNotificationBuilder(this,
+                                                                                                      viewThemeUtils);
+            notificationBuilder
+                    .setSmallIcon(R.drawable.notification_icon)
                     .setTicker(getString(tickerId))
                     .setContentTitle(getString(tickerId))
                     .setAutoCancel(true)
                     .setOngoing(false)
                     .setProgress(0, 0, false);
+            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
+                notificationBuilder.setChannelId(NotificationUtils.NOTIFICATION_CHANNEL_DOWNLOAD);
+            }
 
             if (needsToUpdateCredentials) {
-                configureUpdateCredentialsNotification(download.getUser());
+                configureUpdateCredentialsNotification(download.getUser(), notificationBuilder);
 
             } else {
                 // TODO put something smart in showDetailsIntent
                 Intent showDetailsIntent = new Intent();
-                mNotificationBuilder.setContentIntent(PendingIntent.getActivity(this, (int) System.currentTimeMillis(),
-                                                                                showDetailsIntent, PendingIntent.FLAG_IMMUTABLE));
+                notificationBuilder.setContentIntent(PendingIntent.getActivity(this, (int) System.currentTimeMillis(),
+                                                                               showDetailsIntent, PendingIntent.FLAG_IMMUTABLE));
             }
 
-            mNotificationBuilder.setContentText(ErrorMessageAdapter.getErrorCauseMessage(downloadResult,
+            notificationBuilder.setContentText(ErrorMessageAdapter.getErrorCauseMessage(downloadResult,
                     download, getResources()));
 
             if (mNotificationManager != null) {
-                mNotificationManager.notify((new SecureRandom()).nextInt(), mNotificationBuilder.build());
+                mNotificationManager.notify((new SecureRandom()).nextInt(), notificationBuilder.build());
 
                 // Remove success notification
                 if (downloadResult.isSuccess()) {
@@ -671,7 +690,7 @@ public class FileDownloader extends Service
         }
     }
 
-    private void configureUpdateCredentialsNotification(User user) {
+    private void configureUpdateCredentialsNotification(User user, NotificationCompat.Builder notificationBuilder) {
         // let the user update credentials with one click
         Intent updateAccountCredentials = new Intent(this, AuthenticatorActivity.class);
         updateAccountCredentials.putExtra(AuthenticatorActivity.EXTRA_ACCOUNT, user.toPlatformAccount());
@@ -682,7 +701,7 @@ public class FileDownloader extends Service
         updateAccountCredentials.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
         updateAccountCredentials.addFlags(Intent.FLAG_ACTIVITY_EXCLUDE_FROM_RECENTS);
         updateAccountCredentials.addFlags(Intent.FLAG_FROM_BACKGROUND);
-        mNotificationBuilder.setContentIntent(
+        notificationBuilder.setContentIntent(
             PendingIntent.getActivity(this,
                                       (int) System.currentTimeMillis(),
                                       updateAccountCredentials,
@@ -737,5 +756,6 @@ public class FileDownloader extends Service
 
     private void cancelPendingDownloads(String accountName) {
         mPendingDownloads.remove(accountName);
+        mDownloadScheduler.cancel(accountName);
     }
 }
@@ -676,7 +676,8 @@ public class FileUploader extends Service
                 File file = new File(mCurrentUpload.getOriginalStoragePath());
                 String remoteId = mCurrentUpload.getFile().getRemoteId();
 
-                task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, remoteId));
+                task.executeOnThumbnailExecutor(
+                    new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, remoteId));
             }
         }
     }
@@ -0,0 +1,289 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.operations;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Keeps track of the chunks of a chunked upload, so that an interrupted upload can be resumed.
+ *
+ * Chunks are consecutive byte ranges of the uploaded file, named by their 1-based index as the server expects part
+ * numbers. Their size may change while uploading. Chunks which were started but not confirmed by the server are kept
+ * with their index and boundaries and uploaded again first, overwriting what an earlier attempt left on the server.
+ *
+ * The manifest is only stored after a chunk was confirmed, so up to {@link #MAX_UNSTORED_CHUNKS} chunks may have been
+ * started after it was stored last. A resumed manifest creates those chunks again with the stored chunk size, so they
+ * get the same boundaries and no chunk with an unexpected range is left on the server.
+ *
+ * Thread safe.
+ */
+public final class ChunkManifest {
+
+    /** highest part number accepted by the server, e.g. with S3 as primary storage */
+    @VisibleForTesting
+    static final int MAX_CHUNKS = 10_000;
+
+    /** chunks started at the same time, each of them may not be stored yet */
+    private static final int MAX_UNSTORED_CHUNKS = ParallelChunkedUploadRemoteOperation.PARALLEL_CHUNKS;
+
+    private static final String VERSION = "2";
+    private static final String SEPARATOR = ";";
+    private static final String CHUNK_SEPARATOR = ",";
+    private static final String INDEX_SEPARATOR = ":";
+    private static final String OFFSET_SEPARATOR = "-";
+    private static final int FIELDS = 9;
+
+    private final String transferId;
+    private final String remotePath;
+    private final long fileSize;
+    private final long lastModified;
+
+    /** index -> chunk, for chunks started but not confirmed yet */
+    private final TreeMap<Integer, Chunk> pending = new TreeMap<>();
+
+    /** indices of pending chunks currently uploading */
+    private final Set<Integer> inFlight = new HashSet<>();
+
+    private long chunkSize;
+
+    /** index and start of the next new chunk, everything before is confirmed or pending */
+    private int nextIndex = 1;
+    private long nextStart;
+
+    /** new chunks below this index are created with the stored chunk size, see class comment */
+    private int replayUntil;
+
+    /**
+     * A byte range of the uploaded file.
+     */
+    public static final class Chunk {
+        public final int index;
+        public final long start;
+        public final long end;
+
+        Chunk(int index, long start, long end) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getLength() {
+            return end - start;
+        }
+
+        /**
+         * @return name of the chunk in the upload folder, its part number
+         */
+        public String getName() {
+            return Integer.toString(index);
+        }
+    }
+
+    private ChunkManifest(String transferId, String remotePath, long fileSize, long lastModified, long chunkSize) {
+        this.transferId = transferId;
+        this.remotePath = remotePath;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.chunkSize = chunkSize;
+    }
+
+    public static ChunkManifest create(String remotePath, long fileSize, long lastModified, long chunkSize) {
+        return new ChunkManifest(UUID.randomUUID().toString(), remotePath, fileSize, lastModified, chunkSize);
+    }
+
+    /**
+     * @return manifest stored for the given file, or null if there is none or the file has changed since
+     */
+    @Nullable
+    public static ChunkManifest parse(@Nullable String value, String remotePath, long fileSize, long lastModified) {
+        if (value == null) {
+            return null;
+        }
+
+        // remote path is last, as it may contain the separator
+        String[] fields = value.split(SEPARATOR, FIELDS);
+        if (fields.length != FIELDS || !VERSION.equals(fields[0]) || !remotePath.equals(fields[8])) {
+            return null;
+        }
+
+        try {
+            if (Long.parseLong(fields[2]) != fileSize || Long.parseLong(fields[3]) != lastModified) {
+                return null;
+            }
+
+            ChunkManifest manifest = new ChunkManifest(fields[1],
+                                                       remotePath,
+                                                       fileSize,
+                                                       lastModified,
+                                                       Long.parseLong(fields[4]));
+            manifest.nextIndex = Integer.parseInt(fields[5]);
+            manifest.nextStart = Long.parseLong(fields[6]);
+            manifest.replayUntil = manifest.nextIndex + MAX_UNSTORED_CHUNKS;
+            parseChunks(fields[7], manifest.pending);
+
+            if (manifest.nextIndex < 1 || manifest.nextStart < 0 || manifest.nextStart > fileSize) {
+                return null;
+            }
+            return manifest;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void parseChunks(String value, Map<Integer, Chunk> chunks) {
+        if (value.isEmpty()) {
+            return;
+        }
+
+        for (String chunk : value.split(CHUNK_SEPARATOR)) {
+            String[] indexAndRange = chunk.split(INDEX_SEPARATOR);
+            String[] offsets = indexAndRange.length == 2 ? indexAndRange[1].split(OFFSET_SEPARATOR) : new String[0];
+            if (offsets.length != 2) {
+                throw new NumberFormatException("Invalid chunk " + chunk);
+            }
+            int index = Integer.parseInt(indexAndRange[0]);
+            chunks.put(index, new Chunk(index, Long.parseLong(offsets[0]), Long.parseLong(offsets[1])));
+        }
+    }
+
+    public synchronized String format() {
+        return VERSION + SEPARATOR +
+            transferId + SEPARATOR +
+            fileSize + SEPARATOR +
+            lastModified + SEPARATOR +
+            chunkSize + SEPARATOR +
+            nextIndex + SEPARATOR +
+            nextStart + SEPARATOR +
+            formatChunks(pending) + SEPARATOR +
+            remotePath;
+    }
+
+    private static String formatChunks(Map<Integer, Chunk> chunks) {
+        StringBuilder builder = new StringBuilder();
+        for (Chunk chunk : chunks.values()) {
+            if (builder.length() > 0) {
+                builder.append(CHUNK_SEPARATOR);
+            }
+            builder.append(chunk.index)
+                .append(INDEX_SEPARATOR)
+                .append(chunk.start)
+                .append(OFFSET_SEPARATOR)
+                .append(chunk.end);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return name of the upload folder on the server
+     */
+    public String getTransferId() {
+        return transferId;
+    }
+
+    /**
+     * Returns the next chunk to upload: first a chunk started by an earlier attempt, otherwise a new chunk of the
+     * current chunk size after the last one. Chunks get larger if the file would need more than {@link #MAX_CHUNKS}.
+     *
+     * @return null if every chunk is confirmed or uploading
+     */
+    @Nullable
+    public synchronized Chunk next() {
+        for (Chunk chunk : pending.values()) {
+            if (!inFlight.contains(chunk.index)) {
+                inFlight.add(chunk.index);
+                return chunk;
+            }
+        }
+
+        if (nextStart >= fileSize) {
+            return null;
+        }
+
+        long remaining = fileSize - nextStart;
+        long chunksLeft = MAX_CHUNKS - nextIndex + 1L;
+        long size = Math.max(Math.max(1, chunkSize), (remaining + chunksLeft - 1) / chunksLeft);
+
+        Chunk chunk = new Chunk(nextIndex, nextStart, Math.min(fileSize, nextStart + size));
+        nextIndex++;
+        nextStart = chunk.end;
+        pending.put(chunk.index, chunk);
+        inFlight.add(chunk.index);
+        return chunk;
+    }
+
+    /**
+     * Marks the chunk as stored on the server.
+     *
+     * @param nextChunkSize size of chunks created from now on
+     */
+    public synchronized void confirm(Chunk chunk, long nextChunkSize) {
+        inFlight.remove(chunk.index);
+        pending.remove(chunk.index);
+
+        if (nextIndex >= replayUntil) {
+            chunkSize = nextChunkSize;
+        }
+    }
+
+    /**
+     * Marks the upload of the chunk as failed. It is kept, to be uploaded again with the same boundaries.
+     */
+    public synchronized void release(Chunk chunk) {
+        inFlight.remove(chunk.index);
+    }
+
+    /**
+     * Forgets all chunks, e.g. if the upload folder on the server was cleaned up.
+     */
+    public synchronized void reset() {
+        pending.clear();
+        inFlight.clear();
+        nextIndex = 1;
+        nextStart = 0;
+        replayUntil = 0;
+    }
+
+    public synchronized boolean isComplete() {
+        return nextStart >= fileSize && pending.isEmpty();
+    }
+
+    public synchronized long getConfirmedBytes() {
+        long bytes = nextStart;
+        for (Chunk chunk : pending.values()) {
+            bytes -= chunk.getLength();
+        }
+        return bytes;
+    }
+
+    public synchronized long getChunkSize() {
+        return chunkSize;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+}
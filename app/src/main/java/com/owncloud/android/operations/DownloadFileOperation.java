@@ -41,7 +41,6 @@ import com.owncloud.android.utils.FileExportUtils;
 import com.owncloud.android.utils.FileStorageUtils;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -52,6 +51,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class DownloadFileOperation extends RemoteOperation {
     private static final String TAG = DownloadFileOperation.class.getSimpleName();
+    private static final String DECRYPTED_SUFFIX = ".decrypted";
 
     private User user;
     private OCFile file;
@@ -212,14 +212,21 @@ public class DownloadFileOperation extends RemoteOperation {
                 byte[] authenticationTag = EncryptionUtils.decodeStringToBase64Bytes(metadata.getFiles()
                         .get(file.getEncryptedFileName()).getAuthenticationTag());
 
+                File decryptedFile = new File(tmpFile.getAbsolutePath() + DECRYPTED_SUFFIX);
                 try {
-                    byte[] decryptedBytes = EncryptionUtils.decryptFile(tmpFile, key, iv, authenticationTag);
+                    EncryptionUtils.decryptFile(tmpFile, decryptedFile, key, iv, authenticationTag);
 
-                    try (FileOutputStream fileOutputStream = new FileOutputStream(tmpFile)) {
-                        fileOutputStream.write(decryptedBytes);
+                    // replaces the encrypted file in one step, so it is kept if renaming fails
+                    if (!decryptedFile.renameTo(tmpFile)) {
+                        return new RemoteOperationResult(RemoteOperationResult.ResultCode.LOCAL_STORAGE_NOT_MOVED);
                     }
                 } catch (Exception e) {
                     return new RemoteOperationResult(e);
+                } finally {
+                    // only left on failure, possibly with bytes written before the tag was verified
+                    if (decryptedFile.exists() && !decryptedFile.delete()) {
+                        Log_OC.e(TAG, "Deletion of " + decryptedFile.getAbsolutePath() + " failed!");
+                    }
                 }
             }
 
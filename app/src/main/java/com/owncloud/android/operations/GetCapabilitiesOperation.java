@@ -25,7 +25,6 @@ import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.resources.status.GetCapabilitiesRemoteOperation;
 import com.owncloud.android.lib.resources.status.OCCapability;
 import com.owncloud.android.operations.common.SyncOperation;
-import com.owncloud.android.utils.theme.CapabilityUtils;
 
 /**
  * Get and save capabilities from the server
@@ -52,11 +51,8 @@ public class GetCapabilitiesOperation extends SyncOperation {
             // Read data from the result
             OCCapability capability = (OCCapability) result.getData().get(0);
 
-            // Save the capabilities into database
+            // Save the capabilities into database, which also updates the cached entry
             storageManager.saveCapabilities(capability);
-
-            // update cached entry
-            CapabilityUtils.updateCapability(capability);
         }
 
         return result;
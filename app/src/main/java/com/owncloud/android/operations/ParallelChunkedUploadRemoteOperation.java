@@ -0,0 +1,497 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.operations;
+
+import android.net.Uri;
+import android.text.TextUtils;
+
+import com.owncloud.android.datamodel.UploadsStorageManager;
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.network.OnDatatransferProgressListener;
+import com.owncloud.android.lib.common.operations.OperationCancelledException;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode;
+import com.owncloud.android.lib.common.utils.Log_OC;
+import com.owncloud.android.lib.resources.files.ChunkedFileUploadRemoteOperation;
+
+import org.apache.commons.httpclient.HttpMethodBase;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.PutMethod;
+import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.jackrabbit.webdav.client.methods.MkColMethod;
+import org.apache.jackrabbit.webdav.client.methods.MoveMethod;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * {@link ChunkedFileUploadRemoteOperation} which uploads several chunks at the same time and resumes interrupted
+ * uploads.
+ *
+ * The library operation sends its chunks one after another from within run(), without a hook for the chunk loop, so
+ * run() is replaced, while parameters, progress listeners and cancellation are inherited. Confirmed chunks are stored
+ * in a {@link ChunkManifest} of the upload, so that a retried upload only sends the missing chunks. The chunk size is
+ * adapted to the throughput measured per chunk.
+ */
+public class ParallelChunkedUploadRemoteOperation extends ChunkedFileUploadRemoteOperation {
+
+    private static final String TAG = ParallelChunkedUploadRemoteOperation.class.getSimpleName();
+
+    /**
+     * Upload id for uploads which are not resumed, no chunk manifest is read or stored for them.
+     *
+     * End-to-end encrypted uploads use it: every attempt encrypts the file with a new key and IV under a new encrypted
+     * name, so chunks of an earlier attempt belong to a different ciphertext and cannot be reused.
+     */
+    public static final long NOT_RESUMABLE = 0;
+
+    @VisibleForTesting
+    static final int PARALLEL_CHUNKS = 3;
+
+    @VisibleForTesting
+    static final long MIN_CHUNK_SIZE = CHUNK_SIZE_MOBILE;
+
+    @VisibleForTesting
+    static final long MAX_CHUNK_SIZE = 4 * CHUNK_SIZE_WIFI;
+
+    /** chunk size is adapted so that uploading a chunk takes about this long */
+    @VisibleForTesting
+    static final long TARGET_CHUNK_MILLIS = 10_000;
+
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+    private static final int READ_TIMEOUT = 60_000;
+    private static final int CONNECTION_TIMEOUT = 5_000;
+    private static final int ASSEMBLE_READ_TIMEOUT = 15 * 60_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String ASSEMBLED_FILE = "/.file";
+
+    private final long initialChunkSize;
+    private final UploadsStorageManager uploadsStorageManager;
+    private final long uploadId;
+
+    private final AtomicLong transferred = new AtomicLong();
+    private final Set<HttpMethodBase> runningMethods = new HashSet<>();
+    private ResultCode cancellationReason;
+
+    /**
+     * @param uploadId id of the upload in the uploads table, used to store the chunk manifest, or
+     *                 {@link #NOT_RESUMABLE}
+     */
+    public ParallelChunkedUploadRemoteOperation(String localPath,
+                                                String remotePath,
+                                                String mimeType,
+                                                String requiredEtag,
+                                                long lastModificationTimestamp,
+                                                Long creationTimestamp,
+                                                @Nullable String token,
+                                                boolean onWifiConnection,
+                                                boolean disableRetries,
+                                                UploadsStorageManager uploadsStorageManager,
+                                                long uploadId) {
+        super(localPath,
+              remotePath,
+              mimeType,
+              requiredEtag,
+              lastModificationTimestamp,
+              onWifiConnection,
+              token,
+              creationTimestamp,
+              disableRetries);
+
+        this.initialChunkSize = onWifiConnection ? CHUNK_SIZE_WIFI : CHUNK_SIZE_MOBILE;
+        this.uploadsStorageManager = uploadsStorageManager;
+        this.uploadId = uploadId;
+    }
+
+    @Override
+    protected RemoteOperationResult run(OwnCloudClient client) {
+        File file = new File(localPath);
+        ChunkManifest manifest = loadManifest(file);
+        String uploadFolderUri = client.getUploadUri() + "/" + Uri.encode(client.getUserId()) + "/" +
+            manifest.getTransferId();
+        String destinationUri = client.getFilesDavUri(remotePath);
+
+        try {
+            RemoteOperationResult result = createUploadFolder(client, uploadFolderUri, destinationUri);
+            if (!result.isSuccess()) {
+                return result;
+            }
+            if (result.getHttpCode() == HttpStatus.SC_CREATED && manifest.getConfirmedBytes() > 0) {
+                // chunks of an earlier attempt were cleaned up on the server
+                Log_OC.w(TAG, "Upload folder of " + remotePath + " is gone, uploading all chunks again");
+                manifest.reset();
+                transferred.set(0);
+            }
+
+            result = uploadChunks(client, file, manifest, uploadFolderUri, destinationUri);
+            if (result != null) {
+                return result;
+            }
+            if (!manifest.isComplete()) {
+                return new RemoteOperationResult(ResultCode.UNKNOWN_ERROR);
+            }
+
+            result = assemble(client, manifest, uploadFolderUri, destinationUri);
+            if (result.isSuccess() && uploadId > 0) {
+                uploadsStorageManager.updateChunkManifest(uploadId, null);
+            }
+            return result;
+        } catch (IOException e) {
+            return cancellationRequested.get() ? cancelledResult() : new RemoteOperationResult(e);
+        }
+    }
+
+    @VisibleForTesting
+    ChunkManifest loadManifest(File file) {
+        String stored = uploadId > 0 ? uploadsStorageManager.getChunkManifest(uploadId) : null;
+        ChunkManifest manifest = ChunkManifest.parse(stored, remotePath, file.length(), file.lastModified());
+
+        if (manifest == null) {
+            return ChunkManifest.create(remotePath, file.length(), file.lastModified(), initialChunkSize);
+        }
+
+        Log_OC.d(TAG, "Resuming upload of " + remotePath + ", " + manifest.getConfirmedBytes() + " of " +
+            manifest.getFileSize() + " bytes already uploaded");
+        transferred.set(manifest.getConfirmedBytes());
+        return manifest;
+    }
+
+    /**
+     * Confirms the chunk and stores the manifest, once per chunk.
+     *
+     * Both happen under the lock of the manifest, so that no chunk is started with a chunk size which is not stored
+     * yet, see {@link ChunkManifest}.
+     */
+    private void confirmChunk(ChunkManifest manifest, ChunkManifest.Chunk chunk, long millis) {
+        synchronized (manifest) {
+            manifest.confirm(chunk, nextChunkSize(manifest.getChunkSize(), chunk.getLength(), millis));
+            if (uploadId > 0) {
+                uploadsStorageManager.updateChunkManifest(uploadId, manifest.format());
+            }
+        }
+    }
+
+    /**
+     * Creates the upload folder, which succeeds as well if it exists already.
+     */
+    private RemoteOperationResult createUploadFolder(OwnCloudClient client,
+                                                     String uploadFolderUri,
+                                                     String destinationUri) throws IOException {
+        MkColMethod mkCol = new MkColMethod(uploadFolderUri);
+        mkCol.addRequestHeader(DESTINATION, destinationUri);
+        try {
+            int status = client.executeMethod(mkCol, READ_TIMEOUT, CONNECTION_TIMEOUT);
+            mkCol.getResponseBodyAsString();   // exhaust the response, although not interesting
+
+            boolean success = status == HttpStatus.SC_CREATED || status == HttpStatus.SC_METHOD_NOT_ALLOWED;
+            return new RemoteOperationResult(success, mkCol);
+        } finally {
+            mkCol.releaseConnection();
+        }
+    }
+
+    /**
+     * @return null if all chunks were uploaded, otherwise the failed result
+     */
+    @Nullable
+    private RemoteOperationResult uploadChunks(OwnCloudClient client,
+                                               File file,
+                                               ChunkManifest manifest,
+                                               String uploadFolderUri,
+                                               String destinationUri) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(PARALLEL_CHUNKS);
+        List<Future<RemoteOperationResult>> futures = new ArrayList<>();
+        AtomicBoolean failed = new AtomicBoolean(false);
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+
+            for (int i = 0; i < PARALLEL_CHUNKS; i++) {
+                futures.add(executor.submit(() -> uploadQueuedChunks(client, channel, file, manifest,
+                                                                     uploadFolderUri, destinationUri, failed)));
+            }
+
+            RemoteOperationResult failure = null;
+            for (Future<RemoteOperationResult> future : futures) {
+                RemoteOperationResult result = getResult(future);
+                if (failure == null && result != null) {
+                    failure = result;
+                }
+            }
+
+            if (cancellationRequested.get()) {
+                return cancelledResult();
+            }
+            return failure;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Nullable
+    private RemoteOperationResult getResult(Future<RemoteOperationResult> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return new RemoteOperationResult(new Exception(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new RemoteOperationResult(e);
+        }
+    }
+
+    /**
+     * Uploads chunks until all are uploaded or one failed.
+     *
+     * @return null if no chunk failed, otherwise the failed result
+     */
+    @Nullable
+    private RemoteOperationResult uploadQueuedChunks(OwnCloudClient client,
+                                                     FileChannel channel,
+                                                     File file,
+                                                     ChunkManifest manifest,
+                                                     String uploadFolderUri,
+                                                     String destinationUri,
+                                                     AtomicBoolean failed) {
+        while (!failed.get() && !cancellationRequested.get()) {
+            ChunkManifest.Chunk chunk = manifest.next();
+            if (chunk == null) {
+                return null;
+            }
+
+            long start = System.currentTimeMillis();
+            RemoteOperationResult result = uploadChunk(client, channel, file, chunk, uploadFolderUri, destinationUri);
+            if (result.isSuccess()) {
+                confirmChunk(manifest, chunk, System.currentTimeMillis() - start);
+            } else {
+                manifest.release(chunk);
+                failed.set(true);
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private RemoteOperationResult uploadChunk(OwnCloudClient client,
+                                              FileChannel channel,
+                                              File file,
+                                              ChunkManifest.Chunk chunk,
+                                              String uploadFolderUri,
+                                              String destinationUri) {
+        int attempts = disableRetries ? 1 : MAX_CHUNK_ATTEMPTS;
+        RemoteOperationResult result = null;
+
+        for (int attempt = 0; attempt < attempts && !cancellationRequested.get(); attempt++) {
+            PutMethod put = new PutMethod(uploadFolderUri + "/" + chunk.getName());
+            put.addRequestHeader(DESTINATION, destinationUri);
+            ChunkRequestEntity entity = new ChunkRequestEntity(channel, chunk, file.length(), file.getAbsolutePath());
+            put.setRequestEntity(entity);
+
+            if (!register(put)) {
+                break;
+            }
+
+            boolean success = false;
+            try {
+                int status = client.executeMethod(put, READ_TIMEOUT, CONNECTION_TIMEOUT);
+                put.getResponseBodyAsString();   // exhaust the response, although not interesting
+
+                success = status == HttpStatus.SC_CREATED || status == HttpStatus.SC_NO_CONTENT;
+                result = new RemoteOperationResult(success, put);
+                if (success) {
+                    return result;
+                }
+                Log_OC.w(TAG, "Upload of chunk " + chunk.getName() + " of " + remotePath + " failed: " + status);
+            } catch (IOException e) {
+                result = new RemoteOperationResult(e);
+                Log_OC.w(TAG, "Upload of chunk " + chunk.getName() + " of " + remotePath + " failed", e);
+            } finally {
+                if (!success) {
+                    // progress of this chunk is reported again by the next attempt
+                    transferred.addAndGet(-entity.getWritten());
+                }
+                unregister(put);
+                put.releaseConnection();
+            }
+        }
+
+        if (cancellationRequested.get()) {
+            return cancelledResult();
+        }
+        return result;
+    }
+
+    private RemoteOperationResult assemble(OwnCloudClient client,
+                                           ChunkManifest manifest,
+                                           String uploadFolderUri,
+                                           String destinationUri) throws IOException {
+        MoveMethod move = new MoveMethod(uploadFolderUri + ASSEMBLED_FILE, destinationUri, true);
+        move.addRequestHeader(OC_TOTAL_LENGTH, String.valueOf(manifest.getFileSize()));
+        move.addRequestHeader(OC_X_OC_MTIME_HEADER, String.valueOf(lastModificationTimestamp));
+        if (creationTimestamp != null && creationTimestamp > 0) {
+            move.addRequestHeader(OC_X_OC_CTIME_HEADER, String.valueOf(creationTimestamp));
+        }
+        if (!TextUtils.isEmpty(requiredEtag)) {
+            move.addRequestHeader(IF_MATCH_HEADER, "\"" + requiredEtag + "\"");
+        }
+        if (!TextUtils.isEmpty(token)) {
+            move.addRequestHeader(E2E_TOKEN, token);
+        }
+
+        if (!register(move)) {
+            return cancelledResult();
+        }
+
+        try {
+            int status = client.executeMethod(move, ASSEMBLE_READ_TIMEOUT, CONNECTION_TIMEOUT);
+            move.getResponseBodyAsString();   // exhaust the response, although not interesting
+
+            boolean success = status == HttpStatus.SC_CREATED || status == HttpStatus.SC_NO_CONTENT;
+            return new RemoteOperationResult(success, move);
+        } finally {
+            unregister(move);
+            move.releaseConnection();
+        }
+    }
+
+    /**
+     * Moves the chunk size towards the size which would have taken {@link #TARGET_CHUNK_MILLIS} to upload.
+     */
+    @VisibleForTesting
+    static long nextChunkSize(long current, long bytes, long millis) {
+        long target = bytes * TARGET_CHUNK_MILLIS / Math.max(1, millis);
+        // average with the current size, so that a single slow or fast chunk does not dominate
+        long next = (current + target) / 2;
+        return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, next));
+    }
+
+    private synchronized boolean register(HttpMethodBase method) {
+        if (cancellationRequested.get()) {
+            return false;
+        }
+        runningMethods.add(method);
+        return true;
+    }
+
+    private synchronized void unregister(HttpMethodBase method) {
+        runningMethods.remove(method);
+    }
+
+    @Override
+    public void cancel(ResultCode cancellationReason) {
+        synchronized (this) {
+            this.cancellationReason = cancellationReason;
+            super.cancel(cancellationReason);
+            for (HttpMethodBase method : runningMethods) {
+                method.abort();
+            }
+        }
+    }
+
+    private synchronized RemoteOperationResult cancelledResult() {
+        return cancellationReason != null ? new RemoteOperationResult(cancellationReason) :
+            new RemoteOperationResult(new OperationCancelledException());
+    }
+
+    private void onChunkProgress(long bytes, long totalToTransfer, String fileName) {
+        long total = transferred.addAndGet(bytes);
+        synchronized (dataTransferListeners) {
+            for (OnDatatransferProgressListener listener : dataTransferListeners) {
+                listener.onTransferProgress(bytes, total, totalToTransfer, fileName);
+            }
+        }
+    }
+
+    /**
+     * Request body with one chunk of the file, read with positional reads so that chunks can share the channel.
+     */
+    private final class ChunkRequestEntity implements RequestEntity {
+        private final FileChannel channel;
+        private final ChunkManifest.Chunk chunk;
+        private final long fileSize;
+        private final String fileName;
+        private long written;
+
+        ChunkRequestEntity(FileChannel channel, ChunkManifest.Chunk chunk, long fileSize, String fileName) {
+            this.channel = channel;
+            this.chunk = chunk;
+            this.fileSize = fileSize;
+            this.fileName = fileName;
+        }
+
+        long getWritten() {
+            return written;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public void writeRequest(OutputStream out) throws IOException {
+            // reset, in case the request is sent again
+            transferred.addAndGet(-written);
+            written = 0;
+
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = chunk.start;
+            while (position < chunk.end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(BUFFER_SIZE, chunk.end - position));
+                int count = channel.read(buffer, position);
+                if (count == -1) {
+                    throw new IOException("Unexpected end of " + fileName);
+                }
+                out.write(buffer.array(), 0, count);
+                position += count;
+                written += count;
+                onChunkProgress(count, fileSize, fileName);
+            }
+        }
+
+        @Override
+        public long getContentLength() {
+            return chunk.getLength();
+        }
+
+        @Override
+        public String getContentType() {
+            return mimeType;
+        }
+    }
+}
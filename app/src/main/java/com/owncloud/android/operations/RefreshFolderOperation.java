@@ -53,10 +53,13 @@ import com.owncloud.android.syncadapter.FileSyncAdapter;
 import com.owncloud.android.utils.DataHolderUtil;
 import com.owncloud.android.utils.EncryptionUtils;
 import com.owncloud.android.utils.FileStorageUtils;
+import com.owncloud.android.utils.LocalFolderContent;
 import com.owncloud.android.utils.MimeType;
 import com.owncloud.android.utils.MimeTypeUtil;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -480,27 +483,33 @@ public class RefreshFolderOperation extends RemoteOperation {
         Map<String, OCFile> localFilesMap = prefillLocalFilesMap(metadata,
                                                                  mStorageManager.getFolderContent(mLocalFolder, false));
 
-        // loop to update every child
-        OCFile remoteFile;
-        OCFile localFile;
-        OCFile updatedFile;
-        RemoteFile remote;
-
+        // new OCFile instances with the data from the server, to be merged with the local state
         for (int i = 1; i < folderAndFiles.size(); i++) {
-            /// new OCFile instance with the data from the server
-            remote = (RemoteFile) folderAndFiles.get(i);
-            remoteFile = FileStorageUtils.fillOCFile(remote);
-
-            // new OCFile instance to merge fresh data from server with local state
-            updatedFile = FileStorageUtils.fillOCFile(remote);
+            OCFile updatedFile = FileStorageUtils.fillOCFile((RemoteFile) folderAndFiles.get(i));
             updatedFile.setParentId(mLocalFolder.getFileId());
+            updatedFiles.add(updatedFile);
+        }
 
-            // retrieve local data for the read file
-            localFile = localFilesMap.remove(remoteFile.getRemotePath());
+        // children missing from the folder content may still be stored with the same path, read them at once
+        List<String> unknownPaths = new ArrayList<>();
+        for (OCFile updatedFile : updatedFiles) {
+            if (!localFilesMap.containsKey(updatedFile.getRemotePath())) {
+                unknownPaths.add(updatedFile.getRemotePath());
+            }
+        }
+        Map<String, OCFile> storedFiles = unknownPaths.isEmpty() ?
+            Collections.emptyMap() : mStorageManager.getFilesByEncryptedRemotePaths(unknownPaths);
+
+        // local copies of the children are looked up in a single listing of the folder
+        String localFolderPath = FileStorageUtils.getDefaultSavePathFor(user.getAccountName(), mLocalFolder);
+        LocalFolderContent localFolderContent = new LocalFolderContent(new File(localFolderPath));
 
-            // TODO better implementation is needed
+        // loop to update every child
+        for (OCFile updatedFile : updatedFiles) {
+            // retrieve local data for the read file
+            OCFile localFile = localFilesMap.remove(updatedFile.getRemotePath());
             if (localFile == null) {
-                localFile = mStorageManager.getFileByPath(updatedFile.getRemotePath());
+                localFile = storedFiles.get(updatedFile.getRemotePath());
             }
 
             // add to updatedFile data about LOCAL STATE (not existing in server)
@@ -511,11 +520,11 @@ public class RefreshFolderOperation extends RemoteOperation {
                 updatedFile.setImageDimension(localFile.getImageDimension());
             }
 
-            // add to updatedFile data from local and remote file
-            setLocalFileDataOnUpdatedFile(remoteFile, localFile, updatedFile, mRemoteFolderChanged);
+            // add to updatedFile data from local file
+            setLocalFileDataOnUpdatedFile(localFile, updatedFile, mRemoteFolderChanged);
 
             // check and fix, if needed, local storage path
-            FileStorageUtils.searchForLocalFileInDefaultPath(updatedFile, user.getAccountName());
+            FileStorageUtils.searchForLocalFileInDefaultPath(updatedFile, user.getAccountName(), localFolderContent);
 
             // update file name for encrypted files
             if (metadata != null) {
@@ -525,8 +534,6 @@ public class RefreshFolderOperation extends RemoteOperation {
             // we parse content, so either the folder itself or its direct parent (which we check) must be encrypted
             boolean encrypted = updatedFile.isEncrypted() || mLocalFolder.isEncrypted();
             updatedFile.setEncrypted(encrypted);
-
-            updatedFiles.add(updatedFile);
         }
 
         // save updated contents in local database
@@ -584,7 +591,12 @@ public class RefreshFolderOperation extends RemoteOperation {
         }
     }
 
-    private void setLocalFileDataOnUpdatedFile(OCFile remoteFile, OCFile localFile, OCFile updatedFile, boolean remoteFolderChanged) {
+    /**
+     * @param updatedFile file filled with the data from the server
+     */
+    private void setLocalFileDataOnUpdatedFile(OCFile localFile, OCFile updatedFile, boolean remoteFolderChanged) {
+        String remoteEtag = updatedFile.getEtag();
+
         if (localFile != null) {
             updatedFile.setFileId(localFile.getFileId());
             updatedFile.setLastSyncDateForData(localFile.getLastSyncDateForData());
@@ -606,20 +618,17 @@ public class RefreshFolderOperation extends RemoteOperation {
 
             // eTag will not be updated unless file CONTENTS are synchronized
             if (!updatedFile.isFolder() && localFile.isDown() &&
-                    !updatedFile.getEtag().equals(localFile.getEtag())) {
-                updatedFile.setEtagInConflict(updatedFile.getEtag());
+                    !remoteEtag.equals(localFile.getEtag())) {
+                updatedFile.setEtagInConflict(remoteEtag);
             }
 
             updatedFile.setEtag(localFile.getEtag());
 
-            if (updatedFile.isFolder()) {
-                updatedFile.setFileLength(remoteFile.getFileLength());
-                updatedFile.setMountType(remoteFile.getMountType());
-            } else if (remoteFolderChanged && MimeTypeUtil.isImage(remoteFile) &&
-                    remoteFile.getModificationTimestamp() !=
+            if (!updatedFile.isFolder() && remoteFolderChanged && MimeTypeUtil.isImage(updatedFile) &&
+                    updatedFile.getModificationTimestamp() !=
                             localFile.getModificationTimestamp()) {
                 updatedFile.setUpdateThumbnailNeeded(true);
-                Log_OC.d(TAG, "Image " + remoteFile.getFileName() + " updated on the server");
+                Log_OC.d(TAG, "Image " + updatedFile.getFileName() + " updated on the server");
             }
 
             updatedFile.setSharedViaLink(localFile.isSharedViaLink());
@@ -630,7 +639,7 @@ public class RefreshFolderOperation extends RemoteOperation {
         }
 
         // eTag on Server is used for thumbnail validation
-        updatedFile.setEtagOnServer(remoteFile.getEtag());
+        updatedFile.setEtagOnServer(remoteEtag);
     }
 
     @NonNull
@@ -62,6 +62,12 @@ public class SynchronizeFileOperation extends SyncOperation {
      */
     private boolean mAllowUploads;
 
+    /**
+     * When 'true', downloads are requested as part of a synchronization nobody waits for, so files opened by the
+     * user are downloaded first.
+     */
+    private boolean mBackgroundDownload;
+
 
     /**
      * Constructor for "full synchronization mode".
@@ -319,6 +325,7 @@ public class SynchronizeFileOperation extends SyncOperation {
         Intent i = new Intent(mContext, FileDownloader.class);
         i.putExtra(FileDownloader.EXTRA_USER, mUser);
         i.putExtra(FileDownloader.EXTRA_FILE, file);
+        i.putExtra(FileDownloader.EXTRA_BACKGROUND_DOWNLOAD, mBackgroundDownload);
         if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
             mContext.startForegroundService(i);
         } else {
@@ -334,6 +341,11 @@ public class SynchronizeFileOperation extends SyncOperation {
     }
 
 
+    public void setBackgroundDownload(boolean backgroundDownload) {
+        mBackgroundDownload = backgroundDownload;
+    }
+
+
     public OCFile getLocalFile() {
         return mLocalFile;
     }
@@ -397,6 +397,7 @@ public class SynchronizeFolderOperation extends SyncOperation {
                 mContext,
                 getStorageManager()
             );
+            operation.setBackgroundDownload(true);
             mFilesToSyncContents.add(operation);
         }
     }
@@ -430,6 +431,7 @@ public class SynchronizeFolderOperation extends SyncOperation {
                         mContext,
                         getStorageManager()
                     );
+                    operation.setBackgroundDownload(true);
                     mFilesToSyncContents.add(operation);
 
                 }
@@ -454,6 +456,7 @@ public class SynchronizeFolderOperation extends SyncOperation {
                 Intent i = new Intent(mContext, FileDownloader.class);
                 i.putExtra(FileDownloader.EXTRA_USER, user);
                 i.putExtra(FileDownloader.EXTRA_FILE, file);
+                i.putExtra(FileDownloader.EXTRA_BACKGROUND_DOWNLOAD, true);
                 if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
                     mContext.startForegroundService(i);
                 } else {
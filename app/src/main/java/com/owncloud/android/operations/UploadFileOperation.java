@@ -58,6 +58,7 @@ import com.owncloud.android.lib.resources.files.UploadFileRemoteOperation;
 import com.owncloud.android.lib.resources.files.model.RemoteFile;
 import com.owncloud.android.operations.common.SyncOperation;
 import com.owncloud.android.utils.EncryptionUtils;
+import com.owncloud.android.utils.FileCopier;
 import com.owncloud.android.utils.FileStorageUtils;
 import com.owncloud.android.utils.FileUtil;
 import com.owncloud.android.utils.MimeType;
@@ -74,8 +75,6 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
@@ -83,6 +82,7 @@ import java.nio.channels.OverlappingFileLockException;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import androidx.annotation.CheckResult;
@@ -101,6 +101,22 @@ public class UploadFileOperation extends SyncOperation {
     public static final int CREATED_AS_INSTANT_PICTURE = 1;
     public static final int CREATED_AS_INSTANT_VIDEO = 2;
 
+    /**
+     * Uploads run concurrently, the creation of a remote folder is serialized by one of these locks, so that uploads
+     * into the same new folder create it once.
+     */
+    private static final int FOLDER_LOCK_STRIPES = 32;
+    private static final Object[] FOLDER_LOCKS = new Object[FOLDER_LOCK_STRIPES];
+
+    /** serializes the creation of local folder rows, which may be shared ancestors of several folders */
+    private static final Object LOCAL_FOLDER_LOCK = new Object();
+
+    static {
+        for (int i = 0; i < FOLDER_LOCK_STRIPES; i++) {
+            FOLDER_LOCKS[i] = new Object();
+        }
+    }
+
     /**
      * OCFile which is to be uploaded.
      */
@@ -509,8 +525,6 @@ public class UploadFileOperation extends SyncOperation {
             // IV, always generate new one
             byte[] iv = EncryptionUtils.randomBytes(EncryptionUtils.ivLength);
 
-            EncryptionUtils.EncryptedFile encryptedFile = EncryptionUtils.encryptFile(mFile, key, iv);
-
             // new random file name, check if it exists in metadata
             String encryptedFileName = UUID.randomUUID().toString().replaceAll("-", "");
 
@@ -519,9 +533,10 @@ public class UploadFileOperation extends SyncOperation {
             }
 
             File encryptedTempFile = File.createTempFile("encFile", encryptedFileName);
-            FileOutputStream fileOutputStream = new FileOutputStream(encryptedTempFile);
-            fileOutputStream.write(encryptedFile.encryptedBytes);
-            fileOutputStream.close();
+            String authenticationTag = EncryptionUtils.encryptFile(new File(mFile.getStoragePath()),
+                                                                   encryptedTempFile,
+                                                                   key,
+                                                                   iv);
 
             /***** E2E *****/
 
@@ -563,16 +578,19 @@ public class UploadFileOperation extends SyncOperation {
             if (size > ChunkedFileUploadRemoteOperation.CHUNK_SIZE_MOBILE) {
                 boolean onWifiConnection = connectivityService.getConnectivity().isWifi();
 
-                mUploadOperation = new ChunkedFileUploadRemoteOperation(encryptedTempFile.getAbsolutePath(),
-                                                                        mFile.getParentRemotePath() + encryptedFileName,
-                                                                        mFile.getMimeType(),
-                                                                        mFile.getEtagInConflict(),
-                                                                        lastModifiedTimestamp,
-                                                                        onWifiConnection,
-                                                                        token,
-                                                                        creationTimestamp,
-                                                                        mDisableRetries
-                );
+                mUploadOperation = new ParallelChunkedUploadRemoteOperation(
+                    encryptedTempFile.getAbsolutePath(),
+                    mFile.getParentRemotePath() + encryptedFileName,
+                    mFile.getMimeType(),
+                    mFile.getEtagInConflict(),
+                    lastModifiedTimestamp,
+                    creationTimestamp,
+                    token,
+                    onWifiConnection,
+                    mDisableRetries,
+                    uploadsStorageManager,
+                    // new key, IV and name on every attempt, chunks of an earlier attempt cannot be reused
+                    ParallelChunkedUploadRemoteOperation.NOT_RESUMABLE);
             } else {
                 mUploadOperation = new UploadFileRemoteOperation(encryptedTempFile.getAbsolutePath(),
                                                                  mFile.getParentRemotePath() + encryptedFileName,
@@ -614,7 +632,7 @@ public class UploadFileOperation extends SyncOperation {
 
                 decryptedFile.setEncrypted(data);
                 decryptedFile.setInitializationVector(EncryptionUtils.encodeBytesToBase64String(iv));
-                decryptedFile.setAuthenticationTag(encryptedFile.authenticationTag);
+                decryptedFile.setAuthenticationTag(authenticationTag);
 
                 metadata.getFiles().put(encryptedFileName, decryptedFile);
 
@@ -812,14 +830,17 @@ public class UploadFileOperation extends SyncOperation {
             if (size > ChunkedFileUploadRemoteOperation.CHUNK_SIZE_MOBILE) {
                 boolean onWifiConnection = connectivityService.getConnectivity().isWifi();
 
-                mUploadOperation = new ChunkedFileUploadRemoteOperation(mFile.getStoragePath(),
-                                                                        mFile.getRemotePath(),
-                                                                        mFile.getMimeType(),
-                                                                        mFile.getEtagInConflict(),
-                                                                        lastModifiedTimestamp,
-                                                                        creationTimestamp,
-                                                                        onWifiConnection,
-                                                                        mDisableRetries);
+                mUploadOperation = new ParallelChunkedUploadRemoteOperation(mFile.getStoragePath(),
+                                                                            mFile.getRemotePath(),
+                                                                            mFile.getMimeType(),
+                                                                            mFile.getEtagInConflict(),
+                                                                            lastModifiedTimestamp,
+                                                                            creationTimestamp,
+                                                                            null,
+                                                                            onWifiConnection,
+                                                                            mDisableRetries,
+                                                                            uploadsStorageManager,
+                                                                            getOCUploadId());
             } else {
                 mUploadOperation = new UploadFileRemoteOperation(mFile.getStoragePath(),
                                                                  mFile.getRemotePath(),
@@ -1050,26 +1071,57 @@ public class UploadFileOperation extends SyncOperation {
      * will be uploaded.
      */
     private RemoteOperationResult grantFolderExistence(String pathToGrant, OwnCloudClient client) {
-        RemoteOperation operation = new ExistenceCheckRemoteOperation(pathToGrant, false);
-        RemoteOperationResult result = operation.execute(client);
-        if (!result.isSuccess() && result.getCode() == ResultCode.FILE_NOT_FOUND && mRemoteFolderToBeCreated) {
-            SyncOperation syncOp = new CreateFolderOperation(pathToGrant, user, getContext(), getStorageManager());
-            result = syncOp.execute(client);
+        synchronized (getFolderLock(pathToGrant)) {
+            RemoteOperation operation = new ExistenceCheckRemoteOperation(pathToGrant, false);
+            RemoteOperationResult result = operation.execute(client);
+            if (!result.isSuccess() && result.getCode() == ResultCode.FILE_NOT_FOUND && mRemoteFolderToBeCreated) {
+                result = createRemoteFolder(pathToGrant, client);
+            }
+            if (result.isSuccess()) {
+                OCFile parentDir;
+                synchronized (LOCAL_FOLDER_LOCK) {
+                    parentDir = getStorageManager().getFileByPath(pathToGrant);
+                    if (parentDir == null) {
+                        parentDir = createLocalFolder(pathToGrant);
+                    }
+                }
+                if (parentDir != null) {
+                    result = new RemoteOperationResult(ResultCode.OK);
+                } else {
+                    result = new RemoteOperationResult(ResultCode.CANNOT_CREATE_FILE);
+                }
+            }
+            return result;
         }
-        if (result.isSuccess()) {
-            OCFile parentDir = getStorageManager().getFileByPath(pathToGrant);
-            if (parentDir == null) {
-                parentDir = createLocalFolder(pathToGrant);
+    }
+
+    /**
+     * Creates the remote folder. Other clients or uploads into other folders may create it or one of its parents at
+     * the same time, which makes the creation fail with 405. The creation is therefore accepted if the folder exists
+     * afterwards, and retried once if it does not.
+     */
+    private RemoteOperationResult createRemoteFolder(String path, OwnCloudClient client) {
+        RemoteOperationResult result = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            SyncOperation syncOp = new CreateFolderOperation(path, user, getContext(), getStorageManager());
+            result = syncOp.execute(client);
+            if (result.isSuccess()) {
+                return result;
             }
-            if (parentDir != null) {
-                result = new RemoteOperationResult(ResultCode.OK);
-            } else {
-                result = new RemoteOperationResult(ResultCode.CANNOT_CREATE_FILE);
+
+            RemoteOperationResult existence = new ExistenceCheckRemoteOperation(path, false).execute(client);
+            if (existence.isSuccess()) {
+                return existence;
             }
         }
         return result;
     }
 
+    private Object getFolderLock(String path) {
+        String key = user.getAccountName() + path;
+        return FOLDER_LOCKS[(key.hashCode() & Integer.MAX_VALUE) % FOLDER_LOCK_STRIPES];
+    }
+
     private OCFile createLocalFolder(String remotePath) {
         String parentPath = new File(remotePath).getParent();
         parentPath = parentPath.endsWith(OCFile.PATH_SEPARATOR) ?
@@ -1222,51 +1274,24 @@ public class UploadFileOperation extends SyncOperation {
             }
 
             Log_OC.d(TAG, "Copying file contents");
-            InputStream in = null;
-            OutputStream out = null;
-
-            try {
-                if (!mOriginalStoragePath.equals(targetFile.getAbsolutePath())) {
+            if (!mOriginalStoragePath.equals(targetFile.getAbsolutePath())) {
+                try (FileOutputStream out = new FileOutputStream(targetFile)) {
                     // In case document provider schema as 'content://'
                     if (mOriginalStoragePath.startsWith(UriUtils.URI_CONTENT_SCHEME)) {
                         Uri uri = Uri.parse(mOriginalStoragePath);
-                        in = mContext.getContentResolver().openInputStream(uri);
+                        FileCopier.copy(mContext.getContentResolver(), uri, out, mCancellationRequested, null);
                     } else {
-                        in = new FileInputStream(sourceFile);
-                    }
-                    out = new FileOutputStream(targetFile);
-                    int nRead;
-                    byte[] buf = new byte[4096];
-                    while (!mCancellationRequested.get() &&
-                            (nRead = in.read(buf)) > -1) {
-                        out.write(buf, 0, nRead);
+                        FileCopier.copy(sourceFile, out, mCancellationRequested, null);
                     }
-                    out.flush();
-
-                } // else: weird but possible situation, nothing to copy
-
-                if (mCancellationRequested.get()) {
+                } catch (CancellationException e) {
                     return new RemoteOperationResult(new OperationCancelledException());
-                }
-            } catch (Exception e) {
-                return new RemoteOperationResult(ResultCode.LOCAL_STORAGE_NOT_COPIED);
-            } finally {
-                try {
-                    if (in != null) {
-                        in.close();
-                    }
                 } catch (Exception e) {
-                    Log_OC.d(TAG, "Weird exception while closing input stream for " +
-                            mOriginalStoragePath + " (ignoring)", e);
-                }
-                try {
-                    if (out != null) {
-                        out.close();
-                    }
-                } catch (Exception e) {
-                    Log_OC.d(TAG, "Weird exception while closing output stream for " +
-                            targetFile.getAbsolutePath() + " (ignoring)", e);
+                    return new RemoteOperationResult(ResultCode.LOCAL_STORAGE_NOT_COPIED);
                 }
+            } // else: weird but possible situation, nothing to copy
+
+            if (mCancellationRequested.get()) {
+                return new RemoteOperationResult(new OperationCancelledException());
             }
         }
         return new RemoteOperationResult(ResultCode.OK);
@@ -1378,7 +1403,8 @@ public class UploadFileOperation extends SyncOperation {
         // generate new Thumbnail
         final ThumbnailsCacheManager.ThumbnailGenerationTask task =
                 new ThumbnailsCacheManager.ThumbnailGenerationTask(getStorageManager(), user);
-        task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, file.getRemoteId()));
+        task.executeOnThumbnailExecutor(
+            new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, file.getRemoteId()));
     }
 
     private void updateOCFile(OCFile file, RemoteFile remoteFile) {
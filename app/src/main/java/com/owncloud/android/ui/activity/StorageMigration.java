@@ -35,9 +35,11 @@ import com.owncloud.android.MainApp;
 import com.owncloud.android.R;
 import com.owncloud.android.datamodel.FileDataStorageManager;
 import com.owncloud.android.lib.common.utils.Log_OC;
+import com.owncloud.android.utils.FileCopier;
 import com.owncloud.android.utils.FileStorageUtils;
 
 import java.io.File;
+import java.io.IOException;
 
 import androidx.appcompat.app.AlertDialog;
 import androidx.core.content.res.ResourcesCompat;
@@ -436,14 +438,11 @@ public class StorageMigration {
                 throw new MigrationException(R.string.file_migration_failed_while_coping);
             }
 
-            for (File f : src.listFiles()) {
-                if (f.isDirectory()) {
-                    copyDirs(f, new File(dst, f.getName()));
-                } else if (!FileStorageUtils.copyFile(f, new File(dst, f.getName()))) {
-                    throw new MigrationException(R.string.file_migration_failed_while_coping);
-                }
+            try {
+                FileCopier.copyTree(src, dst, FileCopier.DEFAULT_PARALLELISM, null, null);
+            } catch (IOException e) {
+                throw new MigrationException(R.string.file_migration_failed_while_coping, e);
             }
-
         }
 
         private void updateIndex(Context context) throws MigrationException {
@@ -192,7 +192,8 @@ public class UploadListActivity extends FileActivity {
     }
 
     private void refresh() {
-        backgroundJobManager.startImmediateFilesSyncJob(false, true);
+        // manual refresh re-indexes all media, in case the media store missed changes
+        backgroundJobManager.startImmediateFilesSyncJob(false, true, true);
 
         // retry failed uploads
         new Thread(() -> FileUploader.retryFailedUploads(
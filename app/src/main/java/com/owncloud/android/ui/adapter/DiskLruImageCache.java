@@ -26,6 +26,7 @@ import android.graphics.Bitmap.CompressFormat;
 import android.graphics.BitmapFactory;
 
 import com.jakewharton.disklrucache.DiskLruCache;
+import com.nextcloud.client.utils.HashUtil;
 import com.owncloud.android.BuildConfig;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.utils.BitmapUtils;
@@ -37,15 +38,41 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Disk cache for thumbnails. Operations on different keys run in parallel, operations on the same key are
+ * serialized by one of {@link #LOCK_STRIPES} locks.
+ */
 public class DiskLruImageCache {
 
     private DiskLruCache mDiskCache;
     private CompressFormat mCompressFormat;
     private int mCompressQuality;
-    private static final int CACHE_VERSION = 1;
-    private static final int VALUE_COUNT = 1;
+    /**
+     * Version 1 used the String hash code as file name, so distinct keys could overwrite each other. Opening a
+     * version 1 cache with a newer version makes {@link DiskLruCache} wipe it, as old entries cannot be trusted.
+     * Version 3 added the bitmap dimensions as second value of each entry.
+     */
+    private static final int CACHE_VERSION = 3;
+    private static final int VALUE_COUNT = 2;
+    private static final int INDEX_BITMAP = 0;
+    private static final int INDEX_DIMENSIONS = 1;
+    private static final String DIMENSIONS_SEPARATOR = "x";
     private static final int IO_BUFFER_SIZE = 8 * 1024;
     private static final String CACHE_TEST_DISK = "cache_test_DISK_";
+    /**
+     * 32 hex characters = 128 bit of SHA-256, well within the 120 characters allowed by {@link DiskLruCache}
+     */
+    private static final int KEY_LENGTH = 32;
+    private static final int LOCK_STRIPES = 32;
+    private static final int FLUSH_EVERY_PUTS = 32;
+    private static final long FLUSH_INTERVAL_MS = 10_000;
+
+    private final Object[] mLocks = new Object[LOCK_STRIPES];
+    private final Object mFlushLock = new Object();
+    private int mPutsSinceFlush;
+    private long mLastFlush;
 
     private static final String TAG = DiskLruImageCache.class.getSimpleName();
 
@@ -54,24 +81,60 @@ public class DiskLruImageCache {
         mDiskCache = DiskLruCache.open(diskCacheDir, CACHE_VERSION, VALUE_COUNT, diskCacheSize);
         mCompressFormat = compressFormat;
         mCompressQuality = quality;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            mLocks[i] = new Object();
+        }
+    }
+
+    private Object getLock(String validKey) {
+        return mLocks[(validKey.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
     }
 
     private boolean writeBitmapToFile(Bitmap bitmap, DiskLruCache.Editor editor) throws IOException {
         OutputStream out = null;
         try {
-            out = new BufferedOutputStream(editor.newOutputStream(0), IO_BUFFER_SIZE);
-            return bitmap.compress(mCompressFormat, mCompressQuality, out);
+            out = new BufferedOutputStream(editor.newOutputStream(INDEX_BITMAP), IO_BUFFER_SIZE);
+            if (!bitmap.compress(mCompressFormat, mCompressQuality, out)) {
+                return false;
+            }
         } finally {
             if (out != null) {
                 out.close();
             }
         }
+
+        // stored next to the image, so that a scaled read does not need to decode the bounds first
+        editor.set(INDEX_DIMENSIONS, bitmap.getWidth() + DIMENSIONS_SEPARATOR + bitmap.getHeight());
+        return true;
+    }
+
+    /**
+     * Reads the stored dimensions of an entry into options.outWidth and options.outHeight
+     *
+     * @return false if the dimensions could not be read
+     */
+    private boolean readDimensions(DiskLruCache.Snapshot snapshot, BitmapFactory.Options options) {
+        try {
+            String[] dimensions = snapshot.getString(INDEX_DIMENSIONS).split(DIMENSIONS_SEPARATOR);
+            options.outWidth = Integer.parseInt(dimensions[0]);
+            options.outHeight = Integer.parseInt(dimensions[1]);
+            return options.outWidth > 0 && options.outHeight > 0;
+        } catch (IOException | RuntimeException e) {
+            Log_OC.d(TAG, "Could not read dimensions of cache entry", e);
+            return false;
+        }
     }
 
     public void put(String key, Bitmap data) {
+        String validKey = convertToValidKey(key);
+        synchronized (getLock(validKey)) {
+            putLocked(validKey, data);
+        }
+        flushIfNeeded();
+    }
 
+    private void putLocked(String validKey, Bitmap data) {
         DiskLruCache.Editor editor = null;
-        String validKey = convertToValidKey(key);
         try {
             editor = mDiskCache.edit(validKey);
             if (editor == null) {
@@ -79,7 +142,6 @@ public class DiskLruImageCache {
             }
 
             if (writeBitmapToFile(data, editor)) {
-                mDiskCache.flush();
                 editor.commit();
                 if (BuildConfig.DEBUG) {
                     Log_OC.d(CACHE_TEST_DISK, "image put on disk cache " + validKey);
@@ -104,40 +166,63 @@ public class DiskLruImageCache {
         }
     }
 
+    /**
+     * Writes the journal at most every {@link #FLUSH_EVERY_PUTS} puts or {@link #FLUSH_INTERVAL_MS} instead of
+     * rewriting it for every single entry.
+     */
+    private void flushIfNeeded() {
+        synchronized (mFlushLock) {
+            mPutsSinceFlush++;
+            long now = System.currentTimeMillis();
+            if (mPutsSinceFlush < FLUSH_EVERY_PUTS && now - mLastFlush < FLUSH_INTERVAL_MS) {
+                return;
+            }
+            mPutsSinceFlush = 0;
+            mLastFlush = now;
+        }
+        flush();
+    }
+
+    public void flush() {
+        try {
+            mDiskCache.flush();
+        } catch (IOException | IllegalStateException e) {
+            Log_OC.d(TAG, "Error flushing disk cache", e);
+        }
+    }
+
     public Bitmap getScaledBitmap(String key, int width, int height) {
-        Bitmap bitmap = null;
         String validKey = convertToValidKey(key);
+        synchronized (getLock(validKey)) {
+            return getScaledBitmapLocked(validKey, width, height);
+        }
+    }
+
+    private Bitmap getScaledBitmapLocked(String validKey, int width, int height) {
+        Bitmap bitmap = null;
 
         try (DiskLruCache.Snapshot snapshot = mDiskCache.get(validKey)) {
             if (snapshot == null) {
                 return null;
             }
 
-            InputStream inputStream = snapshot.getInputStream(0);
+            InputStream inputStream = snapshot.getInputStream(INDEX_BITMAP);
             if (inputStream != null) {
-                // First decode with inJustDecodeBounds=true to check dimensions
                 final BitmapFactory.Options options = new BitmapFactory.Options();
-                try (BufferedInputStream buffIn = new BufferedInputStream(inputStream, IO_BUFFER_SIZE)) {
-                    options.inScaled = true;
-                    options.inPurgeable = true;
-                    options.inPreferQualityOverSpeed = false;
-                    options.inMutable = false;
-                    options.inJustDecodeBounds = true;
-
-                    BitmapFactory.decodeStream(buffIn, null, options);
+                options.inScaled = true;
+                options.inPurgeable = true;
+                options.inPreferQualityOverSpeed = false;
+                options.inMutable = false;
+
+                if (readDimensions(snapshot, options)) {
+                    // Calculate inSampleSize from the stored dimensions, no need to decode the bounds first
+                    options.inSampleSize = BitmapUtils.calculateSampleFactor(options, width, height);
                 }
 
-                try (DiskLruCache.Snapshot snapshot2 = mDiskCache.get(validKey)) {
-                    inputStream = snapshot2.getInputStream(0);
-
-                    try (BufferedInputStream buffIn = new BufferedInputStream(inputStream, IO_BUFFER_SIZE)) {
-                        // Calculate inSampleSize
-                        options.inSampleSize = BitmapUtils.calculateSampleFactor(options, width, height);
-
-                        // Decode bitmap with inSampleSize set
-                        options.inJustDecodeBounds = false;
-                        bitmap = BitmapFactory.decodeStream(buffIn, null, options);
-                    }
+                try (BufferedInputStream buffIn = new BufferedInputStream(inputStream, IO_BUFFER_SIZE)) {
+                    // Decode bitmap with inSampleSize set
+                    options.inJustDecodeBounds = false;
+                    bitmap = BitmapFactory.decodeStream(buffIn, null, options);
                 }
             }
         } catch (Exception e) {
@@ -152,18 +237,24 @@ public class DiskLruImageCache {
     }
 
     public Bitmap getBitmap(String key) {
+        String validKey = convertToValidKey(key);
+        synchronized (getLock(validKey)) {
+            return getBitmapLocked(validKey);
+        }
+    }
+
+    private Bitmap getBitmapLocked(String validKey) {
         Bitmap bitmap = null;
         DiskLruCache.Snapshot snapshot = null;
         InputStream in = null;
         BufferedInputStream buffIn = null;
-        String validKey = convertToValidKey(key);
 
         try {
             snapshot = mDiskCache.get(validKey);
             if (snapshot == null) {
                 return null;
             }
-            in = snapshot.getInputStream(0);
+            in = snapshot.getInputStream(INDEX_BITMAP);
             if (in != null) {
                 buffIn = new BufferedInputStream(in, IO_BUFFER_SIZE);
                 bitmap = BitmapFactory.decodeStream(buffIn);
@@ -198,10 +289,15 @@ public class DiskLruImageCache {
     }
 
     public boolean containsKey(String key) {
+        String validKey = convertToValidKey(key);
+        synchronized (getLock(validKey)) {
+            return containsKeyLocked(validKey);
+        }
+    }
 
+    private boolean containsKeyLocked(String validKey) {
         boolean contained = false;
         DiskLruCache.Snapshot snapshot = null;
-        String validKey = convertToValidKey(key);
         try {
             snapshot = mDiskCache.get(validKey);
             contained = snapshot != null;
@@ -214,7 +310,6 @@ public class DiskLruImageCache {
         }
 
         return contained;
-
     }
 
     public void clearCache() {
@@ -232,8 +327,12 @@ public class DiskLruImageCache {
         return mDiskCache.getDirectory();
     }
 
-    private String convertToValidKey(String key) {
-        return Integer.toString(key.hashCode());
+    /**
+     * Content addressed file name for a cache key, see {@link #KEY_LENGTH}
+     */
+    @VisibleForTesting
+    static String convertToValidKey(String key) {
+        return HashUtil.sha256Hash(key).substring(0, KEY_LENGTH);
     }
 
     /**
@@ -243,11 +342,13 @@ public class DiskLruImageCache {
      */
     public void removeKey(String key) {
         String validKey = convertToValidKey(key);
-        try {
-            mDiskCache.remove(validKey);
-            Log_OC.d(TAG, "removeKey from cache: " + validKey);
-        } catch (IOException e) {
-            Log_OC.d(TAG, e.getMessage(), e);
+        synchronized (getLock(validKey)) {
+            try {
+                mDiskCache.remove(validKey);
+                Log_OC.d(TAG, "removeKey from cache: " + validKey);
+            } catch (IOException e) {
+                Log_OC.d(TAG, e.getMessage(), e);
+            }
         }
     }
 }
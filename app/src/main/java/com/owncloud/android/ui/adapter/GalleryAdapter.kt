@@ -39,7 +39,7 @@ import com.owncloud.android.databinding.GalleryHeaderBinding
 import com.owncloud.android.databinding.GalleryRowBinding
 import com.owncloud.android.datamodel.FileDataStorageManager
 import com.owncloud.android.datamodel.GalleryItems
-import com.owncloud.android.datamodel.GalleryRow
+import com.owncloud.android.datamodel.GalleryPages
 import com.owncloud.android.datamodel.OCFile
 import com.owncloud.android.ui.activity.ComponentsGetter
 import com.owncloud.android.ui.fragment.GalleryFragment
@@ -48,11 +48,9 @@ import com.owncloud.android.ui.fragment.SearchType
 import com.owncloud.android.ui.interfaces.OCFileListFragmentInterface
 import com.owncloud.android.utils.DisplayUtils
 import com.owncloud.android.utils.FileSortOrder
-import com.owncloud.android.utils.MimeTypeUtil
 import com.owncloud.android.utils.theme.ViewThemeUtils
 import me.zhanghai.android.fastscroll.PopupTextProvider
-import java.util.Calendar
-import java.util.Date
+import java.util.concurrent.Executors
 
 @Suppress("LongParameterList")
 class GalleryAdapter(
@@ -68,6 +66,14 @@ class GalleryAdapter(
     var files: List<GalleryItems> = mutableListOf()
     private val ocFileListDelegate: OCFileListDelegate
     private var storageManager: FileDataStorageManager
+    private val handler = Handler(Looper.getMainLooper())
+    private var pages: GalleryPages? = null
+    private var monthsRequest = 0
+
+    companion object {
+        // reads one page at a time, in the order the rows were bound
+        private val galleryExecutor = Executors.newSingleThreadExecutor()
+    }
 
     init {
         storageManager = transferServiceGetter.storageManager
@@ -118,6 +124,7 @@ class GalleryAdapter(
         if (holder != null) {
             val rowHolder = holder as GalleryRowHolder
             rowHolder.bind(files[section].rows[relativePosition])
+            pages?.let { loadPage(it, section, relativePosition) }
         }
     }
 
@@ -159,75 +166,73 @@ class GalleryAdapter(
         TODO("Not yet implemented")
     }
 
-    @SuppressLint("NotifyDataSetChanged")
+    /**
+     * Counts the media per month in the database and shows one section per month. Rows are read while they are
+     * bound, see [GalleryPages].
+     */
     fun showAllGalleryItems(
         remotePath: String,
         mediaState: GalleryFragmentBottomSheetDialog.MediaState,
         photoFragment: GalleryFragment
     ) {
-        val items = storageManager.allGalleryItems
-
-        val filteredList = items.filter { it != null && it.remotePath.startsWith(remotePath) }
-
-        setMediaFilter(
-            filteredList,
-            mediaState,
-            photoFragment
+        val filter = GalleryPages.Filter(
+            remotePath,
+            mediaState != GalleryFragmentBottomSheetDialog.MediaState.MEDIA_STATE_VIDEOS_ONLY,
+            mediaState != GalleryFragmentBottomSheetDialog.MediaState.MEDIA_STATE_PHOTOS_ONLY
         )
-    }
-
-    // Set Image/Video List According to Selection of Hide/Show Image/Video
-    @SuppressLint("NotifyDataSetChanged")
-    private fun setMediaFilter(
-        items: List<OCFile>,
-        mediaState: GalleryFragmentBottomSheetDialog.MediaState,
-        photoFragment: GalleryFragment
-    ) {
-        val finalSortedList: List<OCFile> = when (mediaState) {
-            GalleryFragmentBottomSheetDialog.MediaState.MEDIA_STATE_PHOTOS_ONLY -> {
-                items.filter { MimeTypeUtil.isImage(it.mimeType) }.distinct()
+        val request = ++monthsRequest
+        val columnCount = columns
+
+        galleryExecutor.execute {
+            val months = storageManager.getGalleryMonths(filter.remotePath, filter.images, filter.videos)
+            handler.post {
+                if (request == monthsRequest) {
+                    showMonths(GalleryPages(filter, months, columnCount, defaultThumbnailSize, pages), photoFragment)
+                }
             }
-            GalleryFragmentBottomSheetDialog.MediaState.MEDIA_STATE_VIDEOS_ONLY -> {
-                items.filter { MimeTypeUtil.isVideo(it.mimeType) }.distinct()
-            }
-            else -> items
         }
+    }
 
-        if (finalSortedList.isEmpty()) {
+    @SuppressLint("NotifyDataSetChanged")
+    private fun showMonths(newPages: GalleryPages, photoFragment: GalleryFragment) {
+        if (newPages.sections.isEmpty()) {
             photoFragment.setEmptyListMessage(SearchType.GALLERY_SEARCH)
         }
 
-        files = finalSortedList
-            .groupBy { firstOfMonth(it.modificationTimestamp) }
-            .map { GalleryItems(it.key, transformToRows(it.value)) }
-            .sortedBy { it.date }.reversed()
-
-        Handler(Looper.getMainLooper()).post { notifyDataSetChanged() }
+        pages = newPages
+        files = newPages.sections
+        notifyDataSetChanged()
     }
 
-    private fun transformToRows(list: List<OCFile>): List<GalleryRow> {
-        return list
-            .sortedBy { it.modificationTimestamp }
-            .reversed()
-            .chunked(columns)
-            .map { entry -> GalleryRow(entry, defaultThumbnailSize, defaultThumbnailSize) }
+    private fun loadPage(pages: GalleryPages, section: Int, row: Int) {
+        val page = pages.request(section, row) ?: return
+        val filter = pages.filter
+
+        galleryExecutor.execute {
+            val items = storageManager.getGalleryItems(
+                filter.remotePath,
+                filter.images,
+                filter.videos,
+                page.startDate,
+                page.endDate,
+                page.offset,
+                page.limit
+            )
+            handler.post {
+                if (this.pages === pages) {
+                    pages.onLoaded(page, items)
+                    notifyItemRangeChanged(getAbsolutePosition(page.section, page.firstRow), page.rowCount)
+                }
+            }
+        }
     }
 
     @SuppressLint("NotifyDataSetChanged")
     fun clear() {
+        monthsRequest++
+        pages = null
         files = emptyList()
-        Handler(Looper.getMainLooper()).post { notifyDataSetChanged() }
-    }
-
-    private fun firstOfMonth(timestamp: Long): Long {
-        val cal = Calendar.getInstance()
-        cal.time = Date(timestamp)
-        cal.set(Calendar.DAY_OF_MONTH, cal.getActualMinimum(Calendar.DAY_OF_MONTH))
-        cal.set(Calendar.HOUR_OF_DAY, 0)
-        cal.set(Calendar.MINUTE, 0)
-        cal.set(Calendar.SECOND, 0)
-
-        return cal.timeInMillis
+        handler.post { notifyDataSetChanged() }
     }
 
     fun isEmpty(): Boolean {
@@ -320,6 +325,7 @@ class GalleryAdapter(
 
     @VisibleForTesting
     fun addFiles(items: List<GalleryItems>) {
+        pages = null
         files = items
     }
 
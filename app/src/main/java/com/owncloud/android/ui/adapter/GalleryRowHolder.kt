@@ -52,6 +52,14 @@ class GalleryRowHolder(
     fun bind(row: GalleryRow) {
         currentRow = row
 
+        if (row.files.isEmpty()) {
+            // not read from the database yet, keep the space of a row
+            binding.rowLayout.removeAllViews()
+            binding.rowLayout.minimumHeight = defaultThumbnailSize.toInt()
+            return
+        }
+        binding.rowLayout.minimumHeight = 0
+
         // re-use existing ones
         while (binding.rowLayout.childCount < row.files.size) {
             val shimmer = LoaderImageView(context).apply {
@@ -75,6 +75,7 @@ import com.owncloud.android.ui.preview.PreviewTextFragment;
 import com.owncloud.android.utils.DisplayUtils;
 import com.owncloud.android.utils.FileSortOrder;
 import com.owncloud.android.utils.FileStorageUtils;
+import com.owncloud.android.utils.FolderSizeIndex;
 import com.owncloud.android.utils.MimeTypeUtil;
 import com.owncloud.android.utils.theme.CapabilityUtils;
 import com.owncloud.android.utils.theme.ViewThemeUtils;
@@ -452,14 +453,27 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
             File localFile = new File(storagePath);
             long localSize;
             if (localFile.isDirectory()) {
-                localSize = FileStorageUtils.getFolderSize(localFile);
+                localSize = FolderSizeIndex.getInstance().getIndexedSize(localFile);
+                if (localSize < 0) {
+                    // size is shown once the folder has been walked
+                    FolderSizeIndex.getInstance().index(localFile, () -> activity.runOnUiThread(() -> {
+                        if (mFiles.contains(file)) {
+                            notifyItemChanged(file);
+                        }
+                    }));
+                }
             } else {
                 localSize = localFile.length();
             }
 
-            holder.getFileSize().setText(DisplayUtils.bytesToHumanReadable(localSize));
-            holder.getFileSize().setVisibility(View.VISIBLE);
-            holder.getFileSizeSeparator().setVisibility(View.VISIBLE);
+            if (localSize >= 0) {
+                holder.getFileSize().setText(DisplayUtils.bytesToHumanReadable(localSize));
+                holder.getFileSize().setVisibility(View.VISIBLE);
+                holder.getFileSizeSeparator().setVisibility(View.VISIBLE);
+            } else {
+                holder.getFileSize().setVisibility(View.GONE);
+                holder.getFileSizeSeparator().setVisibility(View.GONE);
+            }
         } else {
             final long fileLength = file.getFileLength();
             if (fileLength >= 0) {
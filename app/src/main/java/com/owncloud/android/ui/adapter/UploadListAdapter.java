@@ -434,7 +434,7 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
                                 task
                             );
                     itemViewHolder.binding.thumbnail.setImageDrawable(asyncDrawable);
-                    task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(
+                    task.executeOnThumbnailExecutor(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(
                             fakeFileToCheatThumbnailsCacheManagerInterface, null));
                 }
             }
@@ -469,7 +469,8 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
                                                                           task);
 
                     itemViewHolder.binding.thumbnail.setImageDrawable(asyncDrawable);
-                    task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, null));
+                    task.executeOnThumbnailExecutor(
+                        new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, null));
                     Log_OC.v(TAG, "Executing task to generate a new thumbnail");
                 }
             }
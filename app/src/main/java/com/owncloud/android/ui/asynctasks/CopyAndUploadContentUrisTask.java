@@ -36,12 +36,12 @@ import com.owncloud.android.files.services.NameCollisionPolicy;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.operations.UploadFileOperation;
+import com.owncloud.android.utils.FileCopier;
 import com.owncloud.android.utils.FileStorageUtils;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.InputStream;
 import java.lang.ref.WeakReference;
 
 /**
@@ -127,8 +127,6 @@ public class CopyAndUploadContentUrisTask extends AsyncTask<Object, Void, Result
 
         ResultCode result = ResultCode.UNKNOWN_ERROR;
 
-        InputStream inputStream = null;
-        FileOutputStream outputStream = null;
         String fullTempPath = null;
         Uri currentUri = null;
 
@@ -161,19 +159,14 @@ public class CopyAndUploadContentUrisTask extends AsyncTask<Object, Void, Result
                 }
 
                 fullTempPath = FileStorageUtils.getTemporalPath(user.getAccountName()) + currentRemotePath;
-                inputStream = leakedContentResolver.openInputStream(currentUri);
                 File cacheFile = new File(fullTempPath);
                 File tempDir = cacheFile.getParentFile();
                 if (!tempDir.exists()) {
                     tempDir.mkdirs();
                 }
                 cacheFile.createNewFile();
-                outputStream = new FileOutputStream(fullTempPath);
-                byte[] buffer = new byte[4096];
-
-                int count;
-                while ((count = inputStream.read(buffer)) > 0) {
-                    outputStream.write(buffer, 0, count);
+                try (FileOutputStream outputStream = new FileOutputStream(fullTempPath)) {
+                    FileCopier.copy(leakedContentResolver, currentUri, outputStream, null, null);
                 }
 
                 if (lastModified != 0) {
@@ -226,22 +219,6 @@ public class CopyAndUploadContentUrisTask extends AsyncTask<Object, Void, Result
                 }
             }
 
-        } finally {
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (Exception e) {
-                    Log_OC.w(TAG, "Ignoring exception of inputStream closure");
-                }
-            }
-
-            if (outputStream != null) {
-                try {
-                    outputStream.close();
-                } catch (Exception e) {
-                    Log_OC.w(TAG, "Ignoring exception of outStream closure");
-                }
-            }
         }
 
         return result;
@@ -26,13 +26,13 @@ import android.os.AsyncTask;
 import com.nextcloud.client.account.User;
 import com.owncloud.android.BuildConfig;
 import com.owncloud.android.datamodel.FileDataStorageManager;
+import com.owncloud.android.datamodel.FileSummary;
 import com.owncloud.android.datamodel.OCFile;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.resources.files.SearchRemoteOperation;
 import com.owncloud.android.lib.resources.files.model.RemoteFile;
 import com.owncloud.android.lib.resources.status.OCCapability;
-import com.owncloud.android.operations.RefreshFolderOperation;
 import com.owncloud.android.ui.fragment.GalleryFragment;
 import com.owncloud.android.utils.FileStorageUtils;
 
@@ -40,9 +40,11 @@ import java.lang.ref.WeakReference;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 
 public class GallerySearchTask extends AsyncTask<Void, Void, GallerySearchTask.Result> {
 
@@ -132,7 +134,7 @@ public class GallerySearchTask extends AsyncTask<Void, Void, GallerySearchTask.R
 
     private boolean parseMedia(long startDate, long endDate, List<Object> remoteFiles) {
 
-        List<OCFile> localFiles = storageManager.getGalleryItems(startDate * 1000L, endDate * 1000L);
+        List<FileSummary> localFiles = storageManager.getGallerySummaries(startDate * 1000L, endDate * 1000L);
 
         if (BuildConfig.DEBUG) {
             SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
@@ -142,16 +144,16 @@ public class GallerySearchTask extends AsyncTask<Void, Void, GallerySearchTask.R
                          + " - "
                          + dateFormat.format(new Date(endDate * 1000L)));
 
-            for (OCFile localFile : localFiles) {
-                Log_OC.d(this,
-                         "local file: modified: "
-                             + dateFormat.format(new Date(localFile.getModificationTimestamp()))
-                             + " path: "
-                             + localFile.getRemotePath());
+            for (FileSummary localFile : localFiles) {
+                Log_OC.d(this, "local file: path: " + localFile.getPath());
             }
         }
 
-        Map<String, OCFile> localFilesMap = RefreshFolderOperation.prefillLocalFilesMap(null, localFiles);
+        Map<String, FileSummary> localFilesMap = new HashMap<>(localFiles.size());
+        for (FileSummary localFile : localFiles) {
+            localFilesMap.put(localFile.getPath(), localFile);
+        }
+        List<OCFile> filesToSave = new ArrayList<>();
 
         long filesAdded = 0, filesUpdated = 0, filesDeleted = 0, unchangedFiles = 0;
 
@@ -167,16 +169,16 @@ public class GallerySearchTask extends AsyncTask<Void, Void, GallerySearchTask.R
                              + ocFile.getRemotePath());
             }
 
-            OCFile localFile = localFilesMap.remove(ocFile.getRemotePath());
+            FileSummary localFile = localFilesMap.remove(ocFile.getRemotePath());
 
             if (localFile == null) {
                 // add new file
-                storageManager.saveFile(ocFile);
+                filesToSave.add(ocFile);
                 filesAdded++;
-            } else if (!localFile.getEtag().equals(ocFile.getEtag())) {
+            } else if (!Objects.equals(localFile.getEtag(), ocFile.getEtag())) {
                 // update file
                 ocFile.setLastSyncDateForData(System.currentTimeMillis());
-                storageManager.saveFile(ocFile);
+                filesToSave.add(ocFile);
                 filesUpdated++;
             } else {
                 unchangedFiles++;
@@ -186,14 +188,15 @@ public class GallerySearchTask extends AsyncTask<Void, Void, GallerySearchTask.R
         // existing files to remove
         filesDeleted = localFilesMap.values().size();
 
-        for (OCFile file : localFilesMap.values()) {
-            if (BuildConfig.DEBUG) {
-                Log_OC.d(this, "Gallery Sync: File deleted " + file.getRemotePath());
+        if (BuildConfig.DEBUG) {
+            for (FileSummary file : localFilesMap.values()) {
+                Log_OC.d(this, "Gallery Sync: File deleted " + file.getPath());
             }
-
-            storageManager.removeFile(file, true, true);
         }
 
+        // one transaction for the whole page
+        storageManager.saveFiles(filesToSave, localFilesMap.values());
+
         if (BuildConfig.DEBUG) {
             Log_OC.d(this, "Gallery search result:" +
                 " new: " + filesAdded +
@@ -116,6 +116,7 @@ public class PreviewImageFragment extends FileFragment implements Injectable {
     private Boolean showResizedImage;
 
     private Bitmap bitmap;
+    private boolean isBitmapFromCache; // cached bitmaps are shared and must not be recycled
 
     private static final String TAG = PreviewImageFragment.class.getSimpleName();
 
@@ -251,6 +252,7 @@ public class PreviewImageFragment extends FileFragment implements Injectable {
                 binding.shimmerThumbnail.setImageBitmap(thumbnail);
                 binding.image.setVisibility(View.GONE);
                 bitmap = thumbnail;
+                isBitmapFromCache = true;
             } else {
                 thumbnail = ThumbnailsCacheManager.mDefaultImg;
             }
@@ -266,6 +268,7 @@ public class PreviewImageFragment extends FileFragment implements Injectable {
                     binding.image.setBackgroundColor(getResources().getColor(R.color.background_color_inverse));
 
                     bitmap = resizedImage;
+                    isBitmapFromCache = true;
                 } else {
                     // generate new resized image
                     if (ThumbnailsCacheManager.cancelPotentialThumbnailWork(getFile(), binding.image) &&
@@ -434,7 +437,7 @@ public class PreviewImageFragment extends FileFragment implements Injectable {
     @SuppressFBWarnings("Dm")
     @Override
     public void onDestroy() {
-        if (bitmap != null) {
+        if (bitmap != null && !isBitmapFromCache) {
             bitmap.recycle();
             // putting this in onStop() is just the same; the fragment is always destroyed by
             // {@link FragmentStatePagerAdapter} when the fragment in swiped further than the
@@ -613,6 +616,7 @@ public class PreviewImageFragment extends FileFragment implements Injectable {
                     }
 
                     PreviewImageFragment.this.bitmap = bitmap;  // needs to be kept for recycling when not useful
+                    isBitmapFromCache = false;
                 } else {
                     if (drawable != null
                         && MIME_TYPE_SVG.equalsIgnoreCase(result.ocFile.getMimeType())) {
@@ -54,9 +54,12 @@ import org.apache.commons.httpclient.HttpStatus;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
@@ -86,6 +89,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
@@ -560,6 +564,61 @@ public final class EncryptionUtils {
         return cipher.doFinal(fileBytes);
     }
 
+    /**
+     * Encrypts the file without reading it into memory, so files of any size can be encrypted.
+     *
+     * @param file               file to crypt
+     * @param encryptedFile      target of the encrypted bytes, followed by the authentication tag
+     * @param encryptionKeyBytes key, either from metadata or {@link EncryptionUtils#generateKey()}
+     * @param iv                 initialization vector, either from metadata or
+     *                           {@link EncryptionUtils#randomBytes(int)}
+     * @return authenticationTag
+     */
+    public static String encryptFile(File file, File encryptedFile, byte[] encryptionKeyBytes, byte[] iv)
+        throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, IOException {
+        StreamingGcmCipher cipher = new StreamingGcmCipher(encryptionKeyBytes, iv);
+
+        try (InputStream inputStream = new FileInputStream(file);
+             OutputStream outputStream = new FileOutputStream(encryptedFile)) {
+            return encodeBytesToBase64String(cipher.encrypt(inputStream, outputStream));
+        }
+    }
+
+    /**
+     * Decrypts the file without reading it into memory, so files of any size can be decrypted. Decrypted bytes are
+     * written before the authentication tag is verified, so the decrypted file is deleted if decryption fails for any
+     * reason.
+     *
+     * @param file               encrypted file
+     * @param decryptedFile      target of the decrypted bytes
+     * @param encryptionKeyBytes key from metadata
+     * @param iv                 initialization vector from metadata
+     * @param authenticationTag  authenticationTag from metadata
+     */
+    public static void decryptFile(File file,
+                                   File decryptedFile,
+                                   byte[] encryptionKeyBytes,
+                                   byte[] iv,
+                                   byte[] authenticationTag)
+        throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, IOException {
+        StreamingGcmCipher cipher = new StreamingGcmCipher(encryptionKeyBytes, iv);
+        boolean decrypted = false;
+
+        try {
+            try (InputStream inputStream = new FileInputStream(file);
+                 OutputStream outputStream = new FileOutputStream(decryptedFile)) {
+                cipher.decrypt(inputStream, outputStream, authenticationTag);
+            }
+            decrypted = true;
+        } catch (AEADBadTagException e) {
+            throw new SecurityException("Tag not correct");
+        } finally {
+            if (!decrypted && decryptedFile.exists() && !decryptedFile.delete()) {
+                Log_OC.e(TAG, "Could not delete " + decryptedFile.getAbsolutePath());
+            }
+        }
+    }
+
     public static class EncryptedFile {
         public byte[] encryptedBytes;
         public String authenticationTag;
@@ -0,0 +1,306 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.utils;
+
+import android.content.ContentResolver;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Copies local files.
+ *
+ * Regular files are copied with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+ * which lets the kernel copy the data (sendfile) instead of moving it through Java buffers. Streams, e.g. of content
+ * providers backed by a pipe, are copied through a large buffer.
+ *
+ * All copies can be cancelled through a flag, which makes them throw a {@link CancellationException}.
+ */
+public final class FileCopier {
+
+    @VisibleForTesting
+    static final long TRANSFER_SIZE = 8 * 1024 * 1024;
+
+    @VisibleForTesting
+    static final int BUFFER_SIZE = 256 * 1024;
+
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Receives the progress of a copy. For trees copied in parallel it is called from several threads.
+     */
+    public interface ProgressListener {
+        /**
+         * @param totalBytes total bytes to copy, -1 if unknown
+         */
+        void onCopyProgress(long copiedBytes, long totalBytes);
+    }
+
+    private FileCopier() {
+        // utility class -> private constructor
+    }
+
+    /**
+     * Copies a file, replacing the target.
+     *
+     * @return number of bytes copied
+     */
+    public static long copy(File source,
+                            File target,
+                            @Nullable AtomicBoolean cancelled,
+                            @Nullable ProgressListener listener) throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(target)) {
+            return copy(source, outputStream, cancelled, listener);
+        }
+    }
+
+    /**
+     * Copies a file to the current position of a stream, which is not closed.
+     *
+     * @return number of bytes copied
+     */
+    public static long copy(File source,
+                            FileOutputStream target,
+                            @Nullable AtomicBoolean cancelled,
+                            @Nullable ProgressListener listener) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(source)) {
+            FileChannel channel = inputStream.getChannel();
+            return transfer(channel, 0, channel.size(), target.getChannel(), cancelled, listener, null);
+        }
+    }
+
+    /**
+     * Copies the content of an uri to the current position of a stream, which is not closed. Content backed by a
+     * regular file, or a section of one, is copied by the kernel, other content through a buffer.
+     *
+     * @return number of bytes copied
+     */
+    public static long copy(ContentResolver contentResolver,
+                            Uri source,
+                            FileOutputStream target,
+                            @Nullable AtomicBoolean cancelled,
+                            @Nullable ProgressListener listener) throws IOException {
+        AssetFileDescriptor descriptor = contentResolver.openAssetFileDescriptor(source, "r");
+        if (descriptor == null) {
+            try (InputStream inputStream = contentResolver.openInputStream(source)) {
+                if (inputStream == null) {
+                    throw new FileNotFoundException("No content for " + source);
+                }
+                return copy(inputStream, target, cancelled, listener);
+            }
+        }
+
+        try (FileInputStream inputStream = descriptor.createInputStream()) {
+            // UNKNOWN_LENGTH if the descriptor is not a regular file, e.g. a pipe
+            long size = descriptor.getLength();
+            if (size != AssetFileDescriptor.UNKNOWN_LENGTH) {
+                return transfer(inputStream.getChannel(), descriptor.getStartOffset(), size, target.getChannel(),
+                                cancelled, listener, null);
+            }
+            return copy(inputStream, target, cancelled, listener);
+        }
+    }
+
+    /**
+     * Copies a stream through a buffer. Neither stream is closed.
+     *
+     * @return number of bytes copied
+     */
+    public static long copy(InputStream source,
+                            OutputStream target,
+                            @Nullable AtomicBoolean cancelled,
+                            @Nullable ProgressListener listener) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long copied = 0;
+        int read;
+
+        while ((read = source.read(buffer)) != -1) {
+            checkCancelled(cancelled);
+            target.write(buffer, 0, read);
+            copied += read;
+            if (listener != null) {
+                listener.onCopyProgress(copied, -1);
+            }
+        }
+        target.flush();
+
+        return copied;
+    }
+
+    /**
+     * Copies a folder with all its content into the target folder, which is created if needed. Files are copied
+     * by a pool of threads; if one fails, the remaining copies are cancelled.
+     *
+     * @param parallelism maximum number of files copied at the same time
+     * @return number of bytes copied
+     */
+    public static long copyTree(File source,
+                                File target,
+                                int parallelism,
+                                @Nullable AtomicBoolean cancelled,
+                                @Nullable ProgressListener listener) throws IOException {
+        List<File[]> files = new ArrayList<>();
+        long totalBytes = collect(source, target, files);
+
+        AtomicBoolean stop = new AtomicBoolean(false);
+        AtomicLong copiedBytes = new AtomicLong();
+        ProgressListener treeListener = listener == null ? null :
+            (copied, total) -> listener.onCopyProgress(copiedBytes.get(), totalBytes);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, files.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>(files.size());
+            for (File[] file : files) {
+                futures.add(executor.submit(() -> {
+                    if (stop.get() || cancelled != null && cancelled.get()) {
+                        stop.set(true);
+                        throw new CancellationException();
+                    }
+                    try (FileInputStream inputStream = new FileInputStream(file[0]);
+                         FileOutputStream outputStream = new FileOutputStream(file[1])) {
+                        FileChannel channel = inputStream.getChannel();
+                        transfer(channel, 0, channel.size(), outputStream.getChannel(), cancelled, treeListener,
+                                 copiedBytes);
+                    } catch (IOException | RuntimeException e) {
+                        stop.set(true);
+                        throw e;
+                    }
+                    return null;
+                }));
+            }
+
+            IOException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (failure == null && !(cause instanceof CancellationException)) {
+                        failure = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stop.set(true);
+                    throw new CancellationException();
+                }
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+            if (stop.get()) {
+                throw new CancellationException();
+            }
+            return copiedBytes.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates the folders of the tree and collects pairs of source and target files.
+     *
+     * @return total size of the files
+     */
+    private static long collect(File source, File target, List<File[]> files) throws IOException {
+        File[] children = source.listFiles();
+        if (children == null) {
+            throw new IOException("Cannot list " + source.getAbsolutePath());
+        }
+
+        if (!target.isDirectory() && !target.mkdirs()) {
+            throw new IOException("Cannot create " + target.getAbsolutePath());
+        }
+
+        long size = 0;
+        for (File child : children) {
+            File childTarget = new File(target, child.getName());
+            if (child.isDirectory()) {
+                size += collect(child, childTarget, files);
+            } else {
+                files.add(new File[]{child, childTarget});
+                size += child.length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Transfers in steps, so that cancellation and progress are checked regularly.
+     *
+     * @param start          position of the first byte in the source
+     * @param size           number of bytes to transfer
+     * @param sharedProgress counter shared by several transfers, or null
+     */
+    private static long transfer(FileChannel source,
+                                 long start,
+                                 long size,
+                                 FileChannel target,
+                                 @Nullable AtomicBoolean cancelled,
+                                 @Nullable ProgressListener listener,
+                                 @Nullable AtomicLong sharedProgress) throws IOException {
+        long position = 0;
+
+        while (position < size) {
+            checkCancelled(cancelled);
+            long transferred = source.transferTo(start + position, Math.min(TRANSFER_SIZE, size - position), target);
+            if (transferred <= 0) {
+                // file got shorter while copying
+                break;
+            }
+            position += transferred;
+
+            if (sharedProgress != null) {
+                sharedProgress.addAndGet(transferred);
+            }
+            if (listener != null) {
+                listener.onCopyProgress(position, size);
+            }
+        }
+
+        return position;
+    }
+
+    private static void checkCancelled(@Nullable AtomicBoolean cancelled) {
+        if (cancelled != null && cancelled.get()) {
+            throw new CancellationException();
+        }
+    }
+}
@@ -32,11 +32,9 @@ import androidx.annotation.RequiresApi
 import com.owncloud.android.datamodel.OCFile
 import com.owncloud.android.lib.common.utils.Log_OC
 import java.io.File
-import java.io.FileInputStream
 import java.io.FileNotFoundException
 import java.io.FileOutputStream
 import java.io.IOException
-import java.io.InputStream
 
 class FileExportUtils {
     @Throws(IllegalStateException::class)
@@ -143,14 +141,10 @@ class FileExportUtils {
     private fun copy(ocFile: OCFile?, file: File?, contentResolver: ContentResolver, outputStream: FileOutputStream) {
         outputStream.use { fos ->
             try {
-                val inputStream = when {
-                    ocFile != null -> contentResolver.openInputStream(ocFile.storageUri)
-                    file != null -> FileInputStream(file)
+                when {
+                    ocFile != null -> FileCopier.copy(contentResolver, ocFile.storageUri, fos, null, null)
+                    file != null -> FileCopier.copy(file, fos, null, null)
                     else -> error("ocFile and file both may not be null")
-                }!!
-
-                inputStream.use { fis ->
-                    copyStream(fis, fos)
                 }
             } catch (e: IOException) {
                 Log_OC.e(this, "Cannot write file", e)
@@ -158,14 +152,6 @@ class FileExportUtils {
         }
     }
 
-    private fun copyStream(inputStream: InputStream, outputStream: FileOutputStream) {
-        val buffer = ByteArray(COPY_BUFFER_SIZE)
-        var len: Int
-        while (inputStream.read(buffer).also { len = it } != -1) {
-            outputStream.write(buffer, 0, len)
-        }
-    }
-
     private fun generateNewName(name: String, count: Int): String {
         val extPos = name.lastIndexOf('.')
         val suffix = " ($count)"
@@ -182,6 +168,5 @@ class FileExportUtils {
 
     companion object {
         private const val INITIAL_RENAME_COUNT = 2
-        private const val COPY_BUFFER_SIZE = 1024
     }
 }
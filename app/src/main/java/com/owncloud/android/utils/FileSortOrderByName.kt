@@ -24,8 +24,9 @@ import com.owncloud.android.datamodel.OCFile
 import com.owncloud.android.lib.resources.files.model.ServerFileInterface
 import com.owncloud.android.lib.resources.trashbin.model.TrashbinFile
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings
-import third_parties.daveKoeller.AlphanumComparator
+import third_parties.daveKoeller.AlphanumComparator.SortKey
 import java.io.File
+import java.text.Collator
 import java.util.Locale
 
 /**
@@ -55,14 +56,9 @@ class FileSortOrderByName internal constructor(name: String?, ascending: Boolean
     }
 
     private fun <T : ServerFileInterface> sortServerFiles(files: MutableList<T>): MutableList<T> {
-        files.sortWith { o1: ServerFileInterface, o2: ServerFileInterface ->
-            when {
-                o1.isFolder && o2.isFolder -> sortMultiplier * AlphanumComparator.compare(o1, o2)
-                o1.isFolder -> -1
-                o2.isFolder -> 1
-                else -> sortMultiplier * AlphanumComparator.compare(o1, o2)
-            }
-        }
+        val collator = Collator.getInstance()
+        val entries = files.map { SortEntry(it, it.isFolder, it.fileName, SortKey(it.fileName, collator)) }
+        sortEntries(files, entries) { o1, o2 -> o1.key.compareTo(o2.key) }
         return files
     }
 
@@ -72,18 +68,39 @@ class FileSortOrderByName internal constructor(name: String?, ascending: Boolean
      * @param files files to sort
      */
     override fun sortLocalFiles(files: MutableList<File>): List<File> {
-        files.sortWith { o1: File, o2: File ->
+        val collator = Collator.getInstance()
+        val locale = Locale.getDefault()
+        val entries = files.map {
+            val path = it.path.lowercase(locale)
+            SortEntry(it, it.isDirectory, path, SortKey(path, collator))
+        }
+        sortEntries(files, entries) { o1, o2 -> o1.name.compareTo(o2.name) }
+        return files
+    }
+
+    /**
+     * Sorts folders first, then files, and writes the result back to the list.
+     *
+     * @param compareFolders comparison of two folders, files are compared by their sort keys
+     */
+    private fun <T> sortEntries(
+        files: MutableList<T>,
+        entries: List<SortEntry<T>>,
+        compareFolders: (SortEntry<T>, SortEntry<T>) -> Int
+    ) {
+        val sorted = entries.sortedWith { o1, o2 ->
             when {
-                o1.isDirectory && o2.isDirectory -> sortMultiplier * o1.path.lowercase(Locale.getDefault())
-                    .compareTo(o2.path.lowercase(Locale.getDefault()))
-                o1.isDirectory -> -1
-                o2.isDirectory -> 1
-                else -> sortMultiplier * AlphanumComparator.compare(
-                    o1.path.lowercase(Locale.getDefault()),
-                    o2.path.lowercase(Locale.getDefault())
-                )
+                o1.isFolder && o2.isFolder -> sortMultiplier * compareFolders(o1, o2)
+                o1.isFolder -> -1
+                o2.isFolder -> 1
+                else -> sortMultiplier * o1.key.compareTo(o2.key)
             }
         }
-        return files
+        sorted.forEachIndexed { index, entry -> files[index] = entry.file }
     }
+
+    /**
+     * File with the values it is sorted by, computed once per sort instead of in every comparison.
+     */
+    private class SortEntry<T>(val file: T, val isFolder: Boolean, val name: String, val key: SortKey)
 }
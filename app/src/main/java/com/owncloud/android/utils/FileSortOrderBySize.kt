@@ -53,13 +53,17 @@ class FileSortOrderBySize internal constructor(name: String?, ascending: Boolean
     }
 
     override fun sortLocalFiles(files: MutableList<File>): List<File> {
+        // sizes are read once per file instead of once per comparison
+        val folders = files.filterTo(HashSet()) { it.isDirectory }
+        val sizes = files.associateWith { if (it in folders) FileStorageUtils.getFolderSize(it) else it.length() }
+
         files.sortWith { o1: File, o2: File ->
+            val isFolder1 = o1 in folders
+            val isFolder2 = o2 in folders
             when {
-                o1.isDirectory && o2.isDirectory -> sortMultiplier * FileStorageUtils.getFolderSize(o1)
-                    .compareTo(FileStorageUtils.getFolderSize(o2))
-                o1.isDirectory -> -1
-                o2.isDirectory -> 1
-                else -> sortMultiplier * o1.length().compareTo(o2.length())
+                isFolder1 && !isFolder2 -> -1
+                isFolder2 && !isFolder1 -> 1
+                else -> sortMultiplier * sizes.getValue(o1).compareTo(sizes.getValue(o2))
             }
         }
         return files
@@ -40,11 +40,7 @@ import com.owncloud.android.lib.resources.shares.ShareeUser;
 import com.owncloud.android.ui.helpers.FileOperationsHelper;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -300,28 +296,13 @@ public final class FileStorageUtils {
 
 
     /**
-     * Local Folder size.
+     * Local Folder size, see {@link FolderSizeIndex}.
      *
      * @param dir File
      * @return Size in bytes
      */
     public static long getFolderSize(File dir) {
-        if (dir.exists() && dir.isDirectory()) {
-            File[] files = dir.listFiles();
-
-            if (files != null) {
-                long result = 0;
-                for (File f : files) {
-                    if (f.isDirectory()) {
-                        result += getFolderSize(f);
-                    } else {
-                        result += f.length();
-                    }
-                }
-                return result;
-            }
-        }
-        return 0;
+        return FolderSizeIndex.getInstance().getSize(dir);
     }
 
     /**
@@ -359,51 +340,44 @@ public final class FileStorageUtils {
      * @param accountName  File owner account name.
      */
     public static void searchForLocalFileInDefaultPath(OCFile file, String accountName) {
-        if ((file.getStoragePath() == null || !new File(file.getStoragePath()).exists()) && !file.isFolder()) {
+        searchForLocalFileInDefaultPath(file, accountName, null);
+    }
+
+    /**
+     * Like {@link #searchForLocalFileInDefaultPath(OCFile, String)}, looking up local files in the listed content of
+     * the local copy of the file's parent folder.
+     *
+     * @param localFolderContent listed content of the local copy of the parent folder, null to look up the file system
+     */
+    public static void searchForLocalFileInDefaultPath(OCFile file,
+                                                       String accountName,
+                                                       @Nullable LocalFolderContent localFolderContent) {
+        if (file.isFolder()) {
+            return;
+        }
+
+        String storagePath = file.getStoragePath();
+        if (storagePath == null || !exists(storagePath, localFolderContent)) {
             File f = new File(FileStorageUtils.getDefaultSavePathFor(accountName, file));
-            if (f.exists()) {
+            if (exists(f.getPath(), localFolderContent)) {
                 file.setStoragePath(f.getAbsolutePath());
                 file.setLastSyncDateForData(f.lastModified());
             }
         }
     }
 
-    @SuppressFBWarnings(value="OBL_UNSATISFIED_OBLIGATION_EXCEPTION_EDGE",
-            justification="False-positive on the output stream")
-    public static boolean copyFile(File src, File target) {
-        boolean ret = true;
-
-        InputStream in = null;
-        OutputStream out = null;
+    private static boolean exists(String path, @Nullable LocalFolderContent localFolderContent) {
+        return localFolderContent == null ? new File(path).exists() : localFolderContent.exists(path);
+    }
 
+    public static boolean copyFile(File src, File target) {
         try {
-            in = new FileInputStream(src);
-            out = new FileOutputStream(target);
-            byte[] buf = new byte[1024];
-            int len;
-            while ((len = in.read(buf)) > 0) {
-                out.write(buf, 0, len);
-            }
+            FileCopier.copy(src, target, null, null);
+            return true;
         } catch (IOException ex) {
-            ret = false;
-        } finally {
-            if (in != null) {
-                try {
-                    in.close();
-                } catch (IOException e) {
-                    Log_OC.e(TAG, "Error closing input stream during copy", e);
-                }
-            }
-            if (out != null) {
-                try {
-                    out.close();
-                } catch (IOException e) {
-                    Log_OC.e(TAG, "Error closing output stream during copy", e);
-                }
-            }
+            Log_OC.e(TAG, "Error copying " + src.getAbsolutePath(), ex);
+            return false;
         }
-
-        return ret;
     }
 
     public static boolean moveFile(File sourceFile, File targetFile) {
@@ -419,17 +393,13 @@ public final class FileStorageUtils {
             return false;
         }
 
-        for (File f : sourceFolder.listFiles()) {
-            if (f.isDirectory()) {
-                if (!copyDirs(f, new File(targetFolder, f.getName()))) {
-                    return false;
-                }
-            } else if (!FileStorageUtils.copyFile(f, new File(targetFolder, f.getName()))) {
-                return false;
-            }
+        try {
+            FileCopier.copyTree(sourceFolder, targetFolder, FileCopier.DEFAULT_PARALLELISM, null, null);
+            return true;
+        } catch (IOException e) {
+            Log_OC.e(TAG, "Error copying " + sourceFolder.getAbsolutePath(), e);
+            return false;
         }
-
-        return true;
     }
 
     public static void deleteRecursively(File file, FileDataStorageManager storageManager) {
@@ -479,17 +449,7 @@ public final class FileStorageUtils {
      * @return true if file itself or ancestor is encrypted
      */
     public static boolean checkEncryptionStatus(OCFile file, FileDataStorageManager storageManager) {
-        if (file.isEncrypted()) {
-            return true;
-        }
-
-        while (file != null && !OCFile.ROOT_PATH.equals(file.getDecryptedRemotePath())) {
-            if (file.isEncrypted()) {
-                return true;
-            }
-            file = storageManager.getFileById(file.getParentId());
-        }
-        return false;
+        return file.isEncrypted() || storageManager.hasEncryptedAncestor(file);
     }
 
     /**
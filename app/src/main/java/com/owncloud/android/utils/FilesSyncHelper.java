@@ -28,6 +28,7 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
 import android.provider.MediaStore;
 
 import com.nextcloud.client.account.UserAccountManager;
@@ -36,6 +37,8 @@ import com.nextcloud.client.device.PowerManagementService;
 import com.nextcloud.client.jobs.BackgroundJobManager;
 import com.nextcloud.client.network.ConnectivityService;
 import com.owncloud.android.MainApp;
+import com.owncloud.android.datamodel.ArbitraryDataProvider;
+import com.owncloud.android.datamodel.ArbitraryDataProviderImpl;
 import com.owncloud.android.datamodel.FilesystemDataProvider;
 import com.owncloud.android.datamodel.MediaFolderType;
 import com.owncloud.android.datamodel.SyncedFolder;
@@ -54,6 +57,8 @@ import org.lukhnos.nnio.file.attribute.BasicFileAttributes;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.owncloud.android.datamodel.OCFile.PATH_SEPARATOR;
 
@@ -71,77 +76,128 @@ public final class FilesSyncHelper {
         // utility class -> private constructor
     }
 
-    private static void insertAllDBEntriesForSyncedFolder(SyncedFolder syncedFolder) {
+    private static void insertAllDBEntriesForSyncedFolder(SyncedFolder syncedFolder, boolean fullScan) {
         final Context context = MainApp.getAppContext();
         final ContentResolver contentResolver = context.getContentResolver();
 
         final long enabledTimestampMs = syncedFolder.getEnabledTimestampMs();
 
         if (syncedFolder.isEnabled() && (syncedFolder.isExisting() || enabledTimestampMs >= 0)) {
+            FilesystemDataProvider filesystemDataProvider = new FilesystemDataProvider(contentResolver);
+            ArbitraryDataProvider arbitraryDataProvider = new ArbitraryDataProviderImpl(context);
             MediaFolderType mediaType = syncedFolder.getType();
-            if (mediaType == MediaFolderType.IMAGE) {
-                FilesSyncHelper.insertContentIntoDB(MediaStore.Images.Media.INTERNAL_CONTENT_URI
-                    , syncedFolder);
-                FilesSyncHelper.insertContentIntoDB(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                                                    syncedFolder);
-            } else if (mediaType == MediaFolderType.VIDEO) {
-                FilesSyncHelper.insertContentIntoDB(MediaStore.Video.Media.INTERNAL_CONTENT_URI,
-                                                    syncedFolder);
-                FilesSyncHelper.insertContentIntoDB(MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                                                    syncedFolder);
-            } else {
-                try {
-                    FilesystemDataProvider filesystemDataProvider = new FilesystemDataProvider(contentResolver);
-                    Path path = Paths.get(syncedFolder.getLocalPath());
-
-                    Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-                        @Override
-                        public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
-                            File file = path.toFile();
-                            if (syncedFolder.isExisting() || attrs.lastModifiedTime().toMillis() >= enabledTimestampMs) {
-                                filesystemDataProvider.storeOrUpdateFileValue(path.toAbsolutePath().toString(),
-                                                                              attrs.lastModifiedTime().toMillis(),
-                                                                              file.isDirectory(), syncedFolder);
-                            }
 
-                            return FileVisitResult.CONTINUE;
-                        }
+            try (FilesystemDataProvider.BatchIndexer indexer = filesystemDataProvider.startBatchIndexing(syncedFolder)) {
+                if (mediaType == MediaFolderType.IMAGE) {
+                    FilesSyncHelper.insertContentIntoDB(MediaStore.Images.Media.INTERNAL_CONTENT_URI,
+                                                        syncedFolder,
+                                                        indexer,
+                                                        arbitraryDataProvider,
+                                                        fullScan);
+                    FilesSyncHelper.insertContentIntoDB(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+                                                        syncedFolder,
+                                                        indexer,
+                                                        arbitraryDataProvider,
+                                                        fullScan);
+                } else if (mediaType == MediaFolderType.VIDEO) {
+                    FilesSyncHelper.insertContentIntoDB(MediaStore.Video.Media.INTERNAL_CONTENT_URI,
+                                                        syncedFolder,
+                                                        indexer,
+                                                        arbitraryDataProvider,
+                                                        fullScan);
+                    FilesSyncHelper.insertContentIntoDB(MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
+                                                        syncedFolder,
+                                                        indexer,
+                                                        arbitraryDataProvider,
+                                                        fullScan);
+                } else {
+                    try {
+                        Path path = Paths.get(syncedFolder.getLocalPath());
+
+                        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                            @Override
+                            public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                                File file = path.toFile();
+                                if (syncedFolder.isExisting() ||
+                                    attrs.lastModifiedTime().toMillis() >= enabledTimestampMs) {
+                                    indexer.storeOrUpdateFileValue(path.toAbsolutePath().toString(),
+                                                                   attrs.lastModifiedTime().toMillis(),
+                                                                   file.isDirectory());
+                                }
+
+                                return FileVisitResult.CONTINUE;
+                            }
 
-                        @Override
-                        public FileVisitResult visitFileFailed(Path file, IOException exc) {
-                            return FileVisitResult.CONTINUE;
-                        }
-                    });
-                } catch (IOException e) {
-                    Log_OC.e(TAG, "Something went wrong while indexing files for auto upload", e);
+                            @Override
+                            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                                return FileVisitResult.CONTINUE;
+                            }
+                        });
+                    } catch (IOException e) {
+                        Log_OC.e(TAG, "Something went wrong while indexing files for auto upload", e);
+                    }
                 }
             }
         }
     }
 
+    /**
+     * @param fullScan re-index all media store rows instead of only the ones changed since the last run
+     */
     public static void insertAllDBEntries(boolean skipCustom,
+                                          boolean fullScan,
                                           SyncedFolderProvider syncedFolderProvider) {
         for (SyncedFolder syncedFolder : syncedFolderProvider.getSyncedFolders()) {
             if (syncedFolder.isEnabled() && (!skipCustom || syncedFolder.getType() != MediaFolderType.CUSTOM)) {
-                insertAllDBEntriesForSyncedFolder(syncedFolder);
+                insertAllDBEntriesForSyncedFolder(syncedFolder, fullScan);
             }
         }
     }
 
-    private static void insertContentIntoDB(Uri uri, SyncedFolder syncedFolder) {
+    /**
+     * Indexes the media store rows below the local path of the synced folder. Unless a full scan is requested, only
+     * rows added or modified since the last run are queried, see {@link MediaStoreWatermark}.
+     */
+    private static void insertContentIntoDB(Uri uri,
+                                            SyncedFolder syncedFolder,
+                                            FilesystemDataProvider.BatchIndexer indexer,
+                                            ArbitraryDataProvider arbitraryDataProvider,
+                                            boolean fullScan) {
         final Context context = MainApp.getAppContext();
-        final ContentResolver contentResolver = context.getContentResolver();
 
         Cursor cursor;
         int column_index_data;
         int column_index_date_modified;
-
-        final FilesystemDataProvider filesystemDataProvider = new FilesystemDataProvider(contentResolver);
+        int column_index_id;
+        int column_index_generation = -1;
 
         String contentPath;
         boolean isFolder;
 
-        String[] projection = {MediaStore.MediaColumns.DATA, MediaStore.MediaColumns.DATE_MODIFIED};
+        final boolean useGeneration = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+        final String scope = MediaStoreWatermark.scopeOf(syncedFolder);
+        final String version;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            version = MediaStore.getVersion(context, MediaStore.getVolumeName(uri));
+        } else {
+            version = null;
+        }
+
+        MediaStoreWatermark watermark = fullScan ? null : MediaStoreWatermark.load(arbitraryDataProvider,
+                                                                                   syncedFolder,
+                                                                                   uri);
+        if (watermark != null && !watermark.isValidFor(scope, version)) {
+            Log_OC.d(TAG, "Media store watermark of " + syncedFolder.getLocalPath() + " invalidated");
+            watermark = null;
+        }
+
+        List<String> projection = new ArrayList<>();
+        projection.add(MediaStore.MediaColumns._ID);
+        projection.add(MediaStore.MediaColumns.DATA);
+        projection.add(MediaStore.MediaColumns.DATE_MODIFIED);
+        if (useGeneration) {
+            projection.add(MediaStore.MediaColumns.GENERATION_MODIFIED);
+        }
 
         String path = syncedFolder.getLocalPath();
         if (!path.endsWith(PATH_SEPARATOR)) {
@@ -149,24 +205,59 @@ public final class FilesSyncHelper {
         }
         path = path + "%";
 
+        String selection = MediaStore.MediaColumns.DATA + " LIKE ?";
+        List<String> selectionArgs = new ArrayList<>();
+        selectionArgs.add(path);
+
+        if (watermark != null) {
+            if (useGeneration) {
+                selection += " AND " + MediaStore.MediaColumns.GENERATION_MODIFIED + " > ?";
+                selectionArgs.add(Long.toString(watermark.getGeneration()));
+            } else {
+                // date modified only has a resolution of seconds, so rows of the last second are checked again
+                selection += " AND (" + MediaStore.MediaColumns.DATE_MODIFIED + " >= ? OR " +
+                    MediaStore.MediaColumns._ID + " > ?)";
+                selectionArgs.add(Long.toString(watermark.getDateModified()));
+                selectionArgs.add(Long.toString(watermark.getId()));
+            }
+        } else {
+            watermark = MediaStoreWatermark.initial(scope, version);
+        }
+
         long enabledTimestampMs = syncedFolder.getEnabledTimestampMs();
 
-        cursor = context.getContentResolver().query(uri, projection, MediaStore.MediaColumns.DATA + " LIKE ?",
-                                                    new String[]{path}, null);
+        cursor = context.getContentResolver().query(uri,
+                                                    projection.toArray(new String[0]),
+                                                    selection,
+                                                    selectionArgs.toArray(new String[0]),
+                                                    null);
 
         if (cursor != null) {
+            column_index_id = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns._ID);
             column_index_data = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATA);
             column_index_date_modified = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATE_MODIFIED);
+            if (useGeneration) {
+                column_index_generation = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.GENERATION_MODIFIED);
+            }
             while (cursor.moveToNext()) {
                 contentPath = cursor.getString(column_index_data);
                 isFolder = new File(contentPath).isDirectory();
-                if (syncedFolder.isExisting() || cursor.getLong(column_index_date_modified) >= enabledTimestampMs / 1000.0) {
-                    filesystemDataProvider.storeOrUpdateFileValue(contentPath,
-                                                                  cursor.getLong(column_index_date_modified), isFolder,
-                                                                  syncedFolder);
+                long dateModified = cursor.getLong(column_index_date_modified);
+                if (syncedFolder.isExisting() || dateModified >= enabledTimestampMs / 1000.0) {
+                    indexer.storeOrUpdateFileValue(contentPath, dateModified, isFolder);
                 }
+                watermark = watermark.advance(useGeneration ? cursor.getLong(column_index_generation) : 0,
+                                              dateModified,
+                                              cursor.getLong(column_index_id));
             }
+            Log_OC.d(TAG, "Indexed " + cursor.getCount() + " media store rows of " + uri + " for " +
+                syncedFolder.getLocalPath() + (fullScan ? " (full scan)" : ""));
             cursor.close();
+
+            // only move the watermark once all rows below it are stored, otherwise they would be skipped next time
+            if (indexer.flush()) {
+                watermark.store(arbitraryDataProvider, syncedFolder, uri);
+            }
         }
     }
 
@@ -0,0 +1,167 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.utils;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Sizes of local folders, aggregated bottom-up from the sizes of their subfolders.
+ *
+ * A folder is walked once. Afterwards its size is answered from memory until the folder or anything inside it is
+ * changed through {@link #invalidate(String)}, which also drops the sizes of all its ancestors, or until the
+ * modification date of the folder itself changes, e.g. by files added or removed by another app. Files changed by
+ * other apps deeper in the tree are not noticed.
+ *
+ * Thread safe.
+ */
+public final class FolderSizeIndex {
+
+    private static final FolderSizeIndex INSTANCE = new FolderSizeIndex(Executors.newSingleThreadExecutor());
+
+    /** sizes by absolute path, sorted to find the folders inside a folder */
+    private final NavigableMap<String, Entry> sizes = new TreeMap<>();
+
+    /** folders computed in the background right now */
+    private final Set<String> pending = new HashSet<>();
+
+    private final Executor executor;
+
+    /** incremented by every invalidation, so that sizes computed before it are not stored */
+    private long generation;
+
+    @VisibleForTesting
+    FolderSizeIndex(Executor executor) {
+        this.executor = executor;
+    }
+
+    public static FolderSizeIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Does not walk the folder.
+     *
+     * @return size of the folder in bytes, or -1 if it is not known
+     */
+    public long getIndexedSize(File folder) {
+        Entry entry;
+        synchronized (this) {
+            entry = sizes.get(folder.getAbsolutePath());
+        }
+        return entry != null && entry.lastModified == folder.lastModified() ? entry.size : -1;
+    }
+
+    /**
+     * Walks the parts of the folder whose size is not known. Blocking.
+     *
+     * @return size of the folder in bytes, 0 if it is not a folder
+     */
+    public long getSize(File folder) {
+        long size = getIndexedSize(folder);
+        if (size >= 0) {
+            return size;
+        }
+
+        long startGeneration;
+        synchronized (this) {
+            startGeneration = generation;
+        }
+        // read before listing, so that changes while walking make the stored size outdated
+        long lastModified = folder.lastModified();
+
+        File[] files = folder.isDirectory() ? folder.listFiles() : null;
+        if (files == null) {
+            return 0;
+        }
+
+        size = 0;
+        for (File file : files) {
+            size += file.isDirectory() ? getSize(file) : file.length();
+        }
+
+        synchronized (this) {
+            if (startGeneration == generation) {
+                sizes.put(folder.getAbsolutePath(), new Entry(size, lastModified));
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Computes the size of the folder in the background, unless it is known or being computed already.
+     *
+     * @param onIndexed called on the background thread once the size is known
+     */
+    public void index(File folder, Runnable onIndexed) {
+        String path = folder.getAbsolutePath();
+        synchronized (this) {
+            if (!pending.add(path)) {
+                return;
+            }
+        }
+
+        executor.execute(() -> {
+            try {
+                getSize(folder);
+            } finally {
+                synchronized (this) {
+                    pending.remove(path);
+                }
+            }
+            onIndexed.run();
+        });
+    }
+
+    /**
+     * To be called after a local file or folder has been added, changed, moved or removed.
+     *
+     * @param path absolute path of the file or folder
+     */
+    public synchronized void invalidate(String path) {
+        generation++;
+
+        File file = new File(path);
+        String absolutePath = file.getAbsolutePath();
+        sizes.subMap(absolutePath + File.separator, absolutePath + (char) (File.separatorChar + 1)).clear();
+
+        while (file != null) {
+            sizes.remove(file.getAbsolutePath());
+            file = file.getParentFile();
+        }
+    }
+
+    private static final class Entry {
+        private final long size;
+        private final long lastModified;
+
+        private Entry(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
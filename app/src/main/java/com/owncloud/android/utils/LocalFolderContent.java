@@ -0,0 +1,79 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.utils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Names in a local folder, listed once, so that the local copies of many files in the folder are looked up without
+ * accessing the file system for each of them.
+ *
+ * Paths outside the folder are looked up on the file system. Names are matched exactly. A name which differs from a
+ * listed name only in case is looked up on the file system as well, as it exists on case-insensitive storage like
+ * emulated external storage but not on case-sensitive storage.
+ */
+public final class LocalFolderContent {
+
+    private final String folderPath;
+
+    /** null if the folder does not exist */
+    @Nullable private final Set<String> names;
+
+    /** listed names in lower case, null if the folder does not exist */
+    @Nullable private final Set<String> lowerCaseNames;
+
+    public LocalFolderContent(File folder) {
+        folderPath = folder.getPath();
+        String[] list = folder.list();
+        if (list == null) {
+            names = null;
+            lowerCaseNames = null;
+        } else {
+            names = new HashSet<>(Arrays.asList(list));
+            lowerCaseNames = new HashSet<>(list.length);
+            for (String name : list) {
+                lowerCaseNames.add(name.toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    /**
+     * @return true if a file or folder exists at the given path, as {@link File#exists()} at the time of the listing
+     */
+    public boolean exists(String path) {
+        File file = new File(path);
+        if (folderPath.equals(file.getParent())) {
+            if (names == null || lowerCaseNames == null) {
+                return false;
+            }
+            if (names.contains(file.getName())) {
+                return true;
+            }
+            return lowerCaseNames.contains(file.getName().toLowerCase(Locale.ROOT)) && file.exists();
+        }
+        return file.exists();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.utils
+
+import android.net.Uri
+import com.owncloud.android.datamodel.ArbitraryDataProvider
+import com.owncloud.android.datamodel.SyncedFolder
+
+/**
+ * Position up to which the media store has already been indexed for one synced folder and content uri, so that
+ * auto upload only needs to look at rows added or modified afterwards.
+ *
+ * Where available, the media store generation is used, which is increased on every insert and update. Otherwise
+ * rows with a newer modification date or a higher id than seen before are taken into account.
+ *
+ * A watermark only applies to the [scope] and media store [version] it was created with: changing the settings of a
+ * synced folder or a media store rebuild makes it invalid and leads to a full scan.
+ */
+data class MediaStoreWatermark(
+    val scope: String,
+    val version: String?,
+    val generation: Long,
+    val dateModified: Long,
+    val id: Long
+) {
+
+    fun isValidFor(scope: String, version: String?): Boolean = this.scope == scope && this.version == version
+
+    /**
+     * @return watermark also covering the given row
+     */
+    fun advance(generation: Long, dateModified: Long, id: Long): MediaStoreWatermark = copy(
+        generation = maxOf(this.generation, generation),
+        dateModified = maxOf(this.dateModified, dateModified),
+        id = maxOf(this.id, id)
+    )
+
+    fun format(): String = listOf(version.orEmpty(), generation, dateModified, id, scope).joinToString(SEPARATOR)
+
+    fun store(arbitraryDataProvider: ArbitraryDataProvider, syncedFolder: SyncedFolder, uri: Uri) {
+        arbitraryDataProvider.storeOrUpdateKeyValue(syncedFolder.account, key(syncedFolder, uri), format())
+    }
+
+    companion object {
+        private const val KEY_PREFIX = "media_store_watermark_"
+        private const val SEPARATOR = ";"
+        private const val FIELDS = 5
+
+        @JvmStatic
+        fun initial(scope: String, version: String?) = MediaStoreWatermark(scope, version, 0, 0, 0)
+
+        /**
+         * @return all settings of the synced folder which influence which files are indexed
+         */
+        @JvmStatic
+        fun scopeOf(syncedFolder: SyncedFolder): String =
+            listOf(
+                syncedFolder.type.id,
+                syncedFolder.isExisting,
+                syncedFolder.enabledTimestampMs,
+                syncedFolder.localPath
+            ).joinToString(SEPARATOR)
+
+        @JvmStatic
+        fun load(arbitraryDataProvider: ArbitraryDataProvider, syncedFolder: SyncedFolder, uri: Uri) =
+            parse(arbitraryDataProvider.getValue(syncedFolder.account, key(syncedFolder, uri)))
+
+        /**
+         * Removes the watermarks of all content uris of the synced folder
+         */
+        @JvmStatic
+        fun delete(arbitraryDataProvider: ArbitraryDataProvider, syncedFolder: SyncedFolder) {
+            arbitraryDataProvider.deleteKeysWithPrefixForAccount(syncedFolder.account, keyPrefix(syncedFolder))
+        }
+
+        @JvmStatic
+        fun parse(value: String?): MediaStoreWatermark? {
+            // scope is last, since it contains the local path which may contain the separator
+            val fields = value?.split(SEPARATOR, limit = FIELDS)
+            if (fields == null || fields.size != FIELDS) {
+                return null
+            }
+
+            val generation = fields[1].toLongOrNull()
+            val dateModified = fields[2].toLongOrNull()
+            val id = fields[3].toLongOrNull()
+            if (generation == null || dateModified == null || id == null) {
+                return null
+            }
+
+            return MediaStoreWatermark(fields[4], fields[0].ifEmpty { null }, generation, dateModified, id)
+        }
+
+        private fun keyPrefix(syncedFolder: SyncedFolder) = "$KEY_PREFIX${syncedFolder.id}_"
+
+        private fun key(syncedFolder: SyncedFolder, uri: Uri) = "${keyPrefix(syncedFolder)}$uri"
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.utils;
+
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.io.CipherInputStream;
+import org.bouncycastle.crypto.io.CipherOutputStream;
+import org.bouncycastle.crypto.io.InvalidCipherTextIOException;
+import org.bouncycastle.crypto.modes.AEADBlockCipher;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+import javax.crypto.AEADBadTagException;
+
+import androidx.annotation.Nullable;
+
+/**
+ * AES/GCM/NoPadding with a 128 bit tag for streams of any length, using a fixed amount of memory.
+ *
+ * The AES/GCM ciphers of the platform keep all data until doFinal, so encrypting or decrypting a file needs memory
+ * of its size. This class streams through the GCM implementation of Bouncy Castle instead, which produces output
+ * while reading. The output is identical to AES/GCM/NoPadding without additional authenticated data: ciphertext
+ * followed by the tag.
+ *
+ * When decrypting, plaintext is written before the tag is verified, so the output must only be used if
+ * {@link #decrypt(InputStream, OutputStream, byte[])} returns.
+ */
+public final class StreamingGcmCipher {
+
+    public static final int TAG_LENGTH = 16;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final byte[] key;
+    private final byte[] iv;
+
+    public StreamingGcmCipher(byte[] key, byte[] iv) {
+        this.key = key.clone();
+        this.iv = iv.clone();
+    }
+
+    /**
+     * Writes the ciphertext of the input, followed by the tag, and closes the output.
+     *
+     * @return tag
+     */
+    public byte[] encrypt(InputStream in, OutputStream out) throws IOException {
+        AEADBlockCipher cipher = newCipher(true);
+
+        try (OutputStream cipherOut = new CipherOutputStream(out, cipher)) {
+            copy(in, cipherOut);
+        }
+        return cipher.getMac();
+    }
+
+    /**
+     * Writes the plaintext of the input, which is ciphertext followed by the tag.
+     *
+     * @param expectedTag tag which the input must end with, e.g. from the metadata of the file
+     * @throws AEADBadTagException if the tag does not match
+     */
+    public void decrypt(InputStream in, OutputStream out, @Nullable byte[] expectedTag)
+        throws IOException, AEADBadTagException {
+        AEADBlockCipher cipher = newCipher(false);
+
+        try {
+            // not closed, the caller owns the input stream
+            copy(new CipherInputStream(in, cipher, BUFFER_SIZE), out);
+        } catch (InvalidCipherTextIOException e) {
+            throw new AEADBadTagException("Tag not correct");
+        }
+
+        // the computed tag matched the one at the end of the input
+        if (expectedTag != null && !MessageDigest.isEqual(expectedTag, cipher.getMac())) {
+            throw new AEADBadTagException("Tag not correct");
+        }
+    }
+
+    private AEADBlockCipher newCipher(boolean forEncryption) {
+        AEADBlockCipher cipher = new GCMBlockCipher(new AESEngine());
+        cipher.init(forEncryption, new AEADParameters(new KeyParameter(key), TAG_LENGTH * 8, iv));
+        return cipher;
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
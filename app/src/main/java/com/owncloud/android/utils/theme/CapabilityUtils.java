@@ -35,12 +35,7 @@ import com.owncloud.android.datamodel.FileDataStorageManager;
 import com.owncloud.android.lib.resources.status.OCCapability;
 import com.owncloud.android.lib.resources.status.OwnCloudVersion;
 
-import java.util.HashMap;
-import java.util.Map;
-
 public final class CapabilityUtils {
-    private static final Map<String, OCCapability> cachedCapabilities = new HashMap<>();
-
     public static OCCapability getCapability(Context context) {
         User user = null;
         if (context != null) {
@@ -77,20 +72,18 @@ public final class CapabilityUtils {
     }
 
     public static OCCapability getCapability(User user, Context context) {
-        OCCapability capability = cachedCapabilities.get(user.getAccountName());
+        OCCapability capability = FileDataStorageManager.getCapabilityCache().get(user.getAccountName());
 
         if (capability == null) {
             FileDataStorageManager storageManager = new FileDataStorageManager(user, context.getContentResolver());
             capability = storageManager.getCapability(user.getAccountName());
-
-            cachedCapabilities.put(capability.getAccountName(), capability);
         }
 
         return capability;
     }
 
     public static void updateCapability(OCCapability capability) {
-        cachedCapabilities.put(capability.getAccountName(), capability);
+        FileDataStorageManager.getCapabilityCache().replace(capability.getAccountName(), capability);
     }
 
     public static boolean checkOutdatedWarning(Resources resources,
@@ -28,7 +28,7 @@ import com.owncloud.android.lib.resources.files.model.ServerFileInterface;
 
 import java.io.File;
 import java.io.Serializable;
-import java.math.BigInteger;
+import java.text.CollationKey;
 import java.text.Collator;
 import java.util.Comparator;
 
@@ -49,6 +49,11 @@ import java.util.Comparator;
  * by Tobias Kaminsky
  */
 public class AlphanumComparator<T> implements Comparator<T>, Serializable {
+    /**
+     * Returned by {@link #compareChunks} if the chunks have to be compared by the collator.
+     */
+    private static final int TEXT = Integer.MIN_VALUE;
+
     private static boolean isDigit(char ch) {
         return ch >= 48 && ch <= 57;
     }
@@ -58,20 +63,13 @@ public class AlphanumComparator<T> implements Comparator<T>, Serializable {
     }
 
     /**
-     * Length of string is passed in for improved efficiency (only need to calculate it once)
-     **/
-    private static String getChunk(String string, int stringLength, int marker) {
-        StringBuilder chunk = new StringBuilder();
+     * @return index after the chunk starting at marker
+     */
+    private static int getChunkEnd(String string, int stringLength, int marker) {
         char c = string.charAt(marker);
-        chunk.append(c);
         marker++;
         if (isDigit(c)) {
-            while (marker < stringLength) {
-                c = string.charAt(marker);
-                if (!isDigit(c)) {
-                    break;
-                }
-                chunk.append(c);
+            while (marker < stringLength && isDigit(string.charAt(marker))) {
                 marker++;
             }
         } else if (!isSpecialChar(c)) {
@@ -80,11 +78,10 @@ public class AlphanumComparator<T> implements Comparator<T>, Serializable {
                 if (isDigit(c) || isSpecialChar(c)) {
                     break;
                 }
-                chunk.append(c);
                 marker++;
             }
         }
-        return chunk.toString();
+        return marker;
     }
 
     public static int compare(ServerFileInterface o1, ServerFileInterface o2) {
@@ -110,88 +107,145 @@ public class AlphanumComparator<T> implements Comparator<T>, Serializable {
         int thatMarker = 0;
         int s1Length = s1.length();
         int s2Length = s2.length();
+        Collator collator = null;
 
         while (thisMarker < s1Length && thatMarker < s2Length) {
-            String thisChunk = getChunk(s1, s1Length, thisMarker);
-            thisMarker += thisChunk.length();
-
-            String thatChunk = getChunk(s2, s2Length, thatMarker);
-            thatMarker += thatChunk.length();
-
-            // If both chunks contain numeric characters, sort them numerically
-            int result = 0;
-            if (isDigit(thisChunk.charAt(0)) && isDigit(thatChunk.charAt(0))) {
-                // extract digits
-                int thisChunkZeroCount = 0;
-                boolean zero = true;
-                int countThis = 0;
-                while (countThis < (thisChunk.length()) && isDigit(thisChunk.charAt(countThis))) {
-                    if (zero) {
-                        if (Character.getNumericValue(thisChunk.charAt(countThis)) == 0) {
-                            thisChunkZeroCount++;
-                        } else {
-                            zero = false;
-                        }
-                    }
-                    countThis++;
-                }
-
+            int thisEnd = getChunkEnd(s1, s1Length, thisMarker);
+            int thatEnd = getChunkEnd(s2, s2Length, thatMarker);
 
-                int thatChunkZeroCount = 0;
-                int countThat = 0;
-                zero = true;
-                while (countThat < (thatChunk.length()) && isDigit(thatChunk.charAt(countThat))) {
-                    if (zero) {
-                        if (Character.getNumericValue(thatChunk.charAt(countThat)) == 0) {
-                            thatChunkZeroCount++;
-                        } else {
-                            zero = false;
-                        }
-                    }
-                    countThat++;
+            int result = compareChunks(s1, thisMarker, thisEnd, s2, thatMarker, thatEnd);
+            if (result == TEXT) {
+                if (collator == null) {
+                    collator = Collator.getInstance();
                 }
+                result = collator.compare(s1.substring(thisMarker, thisEnd), s2.substring(thatMarker, thatEnd));
+            }
 
-                BigInteger thisChunkValue = new BigInteger(thisChunk.substring(0, countThis));
-                BigInteger thatChunkValue = new BigInteger(thatChunk.substring(0, countThat));
-
-                result = thisChunkValue.compareTo(thatChunkValue);
+            if (result != 0) {
+                return result;
+            }
+            thisMarker = thisEnd;
+            thatMarker = thatEnd;
+        }
 
-                if (result == 0) {
-                    // value is equal, compare leading zeros
-                    result = Integer.compare(thisChunkZeroCount, thatChunkZeroCount);
+        return s1Length - s2Length;
+    }
 
-                    if (result != 0) {
-                        return result;
-                    }
-                } else {
-                    return result;
-                }
-            } else if (isSpecialChar(thisChunk.charAt(0)) && isSpecialChar(thatChunk.charAt(0))) {
-                for (int i = 0; i < thisChunk.length(); i++) {
-                    if (thisChunk.charAt(i) == '.' && thatChunk.charAt(i) != '.') {
-                        return -1;
-                    } else if (thatChunk.charAt(i) == '.' && thisChunk.charAt(i) != '.') {
-                        return 1;
-                    } else {
-                        result = thisChunk.charAt(i) - thatChunk.charAt(i);
-                        if (result != 0) {
-                            return result;
-                        }
-                    }
-                }
-            } else if (isSpecialChar(thisChunk.charAt(0)) && !isSpecialChar(thatChunk.charAt(0))) {
+    /**
+     * Compares two chunks without allocating.
+     *
+     * @return comparison result, or {@link #TEXT}
+     */
+    private static int compareChunks(String s1, int thisStart, int thisEnd, String s2, int thatStart, int thatEnd) {
+        char thisChar = s1.charAt(thisStart);
+        char thatChar = s2.charAt(thatStart);
+
+        // If both chunks contain numeric characters, sort them numerically
+        if (isDigit(thisChar) && isDigit(thatChar)) {
+            return compareNumbers(s1, thisStart, thisEnd, s2, thatStart, thatEnd);
+        } else if (isSpecialChar(thisChar) && isSpecialChar(thatChar)) {
+            // special chunks are single characters
+            if (thisChar == '.' && thatChar != '.') {
                 return -1;
-            } else if (!isSpecialChar(thisChunk.charAt(0)) && isSpecialChar(thatChunk.charAt(0))) {
+            } else if (thatChar == '.' && thisChar != '.') {
                 return 1;
             } else {
-                result = Collator.getInstance().compare(thisChunk, thatChunk);
+                return thisChar - thatChar;
+            }
+        } else if (isSpecialChar(thisChar)) {
+            return -1;
+        } else if (isSpecialChar(thatChar)) {
+            return 1;
+        } else {
+            return TEXT;
+        }
+    }
+
+    /**
+     * Compares the values of two digit runs without parsing them: after leading zeros, a shorter run is a smaller
+     * number, runs of equal length compare like their characters. Equal values are ordered by their leading zeros.
+     */
+    private static int compareNumbers(String s1, int thisStart, int thisEnd, String s2, int thatStart, int thatEnd) {
+        int thisZeros = countLeadingZeros(s1, thisStart, thisEnd);
+        int thatZeros = countLeadingZeros(s2, thatStart, thatEnd);
+        int thisDigits = thisStart + thisZeros;
+        int thatDigits = thatStart + thatZeros;
+
+        int result = Integer.compare(thisEnd - thisDigits, thatEnd - thatDigits);
+        for (int i = 0; result == 0 && thisDigits + i < thisEnd; i++) {
+            result = Character.compare(s1.charAt(thisDigits + i), s2.charAt(thatDigits + i));
+        }
+
+        if (result == 0) {
+            // value is equal, compare leading zeros
+            result = Integer.compare(thisZeros, thatZeros);
+        }
+        return result;
+    }
+
+    private static int countLeadingZeros(String string, int start, int end) {
+        int zeros = 0;
+        while (start + zeros < end && string.charAt(start + zeros) == '0') {
+            zeros++;
+        }
+        return zeros;
+    }
+
+    /**
+     * Name prepared for sorting: it is split into chunks once and the collation keys of its text chunks are computed
+     * once, so that comparing two keys sorts like {@link AlphanumComparator#compare(String, String)} without
+     * allocating. Meant to be created once per file before sorting a list.
+     */
+    public static final class SortKey implements Comparable<SortKey> {
+        private final String string;
+
+        /** start and end of every chunk */
+        private final int[] bounds;
+
+        /** collation keys of non special chunks, null for special chunks */
+        private final CollationKey[] collationKeys;
+
+        /**
+         * @param collator collator of the sort, see {@link Collator#getInstance()}
+         */
+        public SortKey(String string, Collator collator) {
+            this.string = string;
+
+            int length = string.length();
+            int chunks = 0;
+            for (int marker = 0; marker < length; marker = getChunkEnd(string, length, marker)) {
+                chunks++;
             }
 
-            if (result != 0) {
-                return result;
+            bounds = new int[2 * chunks];
+            collationKeys = new CollationKey[chunks];
+            int marker = 0;
+            for (int i = 0; i < chunks; i++) {
+                int end = getChunkEnd(string, length, marker);
+                bounds[2 * i] = marker;
+                bounds[2 * i + 1] = end;
+                if (!isSpecialChar(string.charAt(marker))) {
+                    collationKeys[i] = collator.getCollationKey(string.substring(marker, end));
+                }
+                marker = end;
             }
         }
 
-        return s1Length - s2Length;
+        @Override
+        public int compareTo(SortKey other) {
+            int chunks = Math.min(collationKeys.length, other.collationKeys.length);
+            for (int i = 0; i < chunks; i++) {
+                int result = compareChunks(string, bounds[2 * i], bounds[2 * i + 1],
+                                           other.string, other.bounds[2 * i], other.bounds[2 * i + 1]);
+                if (result == TEXT) {
+                    result = collationKeys[i].compareTo(other.collationKeys[i]);
+                }
+                if (result != 0) {
+                    return result;
+                }
+            }
+
+            return string.length() - other.string.length();
+        }
     }
 }
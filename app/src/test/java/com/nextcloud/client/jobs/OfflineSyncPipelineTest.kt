@@ -0,0 +1,268 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.client.jobs
+
+import com.nextcloud.client.jobs.OfflineSyncPipeline.EtagCheck
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+class OfflineSyncPipelineTest {
+
+    companion object {
+        private const val PROBE_THREADS = 3
+        private const val SYNC_THREADS = 2
+        private const val FOLDERS = 40
+        private const val FILES_PER_FOLDER = 5
+        private const val TIMEOUT_S = 10L
+    }
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private lateinit var root: File
+
+    /**
+     * Folders with an etag changed on the server, relative to the root, "" for the root itself
+     */
+    private val changed = Collections.synchronizedSet(mutableSetOf("", "changed", "changed/deep"))
+
+    private val checked = Collections.synchronizedList(mutableListOf<String>())
+    private val events = Collections.synchronizedList(mutableListOf<String>())
+
+    private fun File.relativeName() = relativeTo(root).path
+
+    private open inner class FakeCallbacks : OfflineSyncPipeline.Callbacks {
+        override fun checkEtag(folder: File): EtagCheck {
+            checked.add(folder.relativeName())
+            return if (changed.contains(folder.relativeName())) EtagCheck.Changed("etag") else EtagCheck.Unchanged
+        }
+
+        override fun syncFile(file: File) {
+            events.add("sync " + file.relativeName())
+        }
+
+        override fun onFolderSynced(folder: File, etag: String) {
+            events.add("save " + folder.relativeName())
+            changed.remove(folder.relativeName())
+        }
+    }
+
+    private fun file(path: String) = File(root, path).apply {
+        parentFile!!.mkdirs()
+        writeText(path)
+    }
+
+    @Before
+    fun setUp() {
+        root = folder.newFolder("root")
+        file("a.txt")
+        file("changed/1.txt")
+        file("changed/2.txt")
+        file("changed/deep/3.txt")
+        file("unchanged/4.txt")
+        file("unchanged/sub/5.txt")
+    }
+
+    @Test
+    fun unchangedFolders_areSkippedWithTheirContent() {
+        OfflineSyncPipeline(PROBE_THREADS, SYNC_THREADS).run(root, FakeCallbacks())
+
+        assertEquals(setOf("", "changed", "changed/deep", "unchanged"), checked.toSet())
+        assertEquals(
+            setOf("sync a.txt", "sync changed/1.txt", "sync changed/2.txt", "sync changed/deep/3.txt"),
+            events.filter { it.startsWith("sync") }.toSet()
+        )
+        assertTrue(changed.isEmpty())
+    }
+
+    @Test
+    fun etags_areStoredAfterTheContent() {
+        OfflineSyncPipeline(PROBE_THREADS, SYNC_THREADS).run(root, FakeCallbacks())
+
+        fun indexOf(event: String) = events.indexOf(event).also { assertTrue(event, it >= 0) }
+
+        assertTrue(indexOf("sync changed/deep/3.txt") < indexOf("save changed/deep"))
+        assertTrue(indexOf("save changed/deep") < indexOf("save changed"))
+        assertTrue(indexOf("sync changed/1.txt") < indexOf("save changed"))
+        assertTrue(indexOf("sync changed/2.txt") < indexOf("save changed"))
+        assertTrue(indexOf("save changed") < indexOf("save "))
+        assertTrue(indexOf("sync a.txt") < indexOf("save "))
+    }
+
+    @Test
+    fun stoppedPass_isResumed() {
+        val stopped = AtomicBoolean(false)
+        val callbacks = object : FakeCallbacks() {
+            override fun syncFile(file: File) {
+                super.syncFile(file)
+                if (file.relativeName() == "changed/1.txt") {
+                    stopped.set(true)
+                }
+            }
+        }
+
+        OfflineSyncPipeline(1, 1).run(root, callbacks) { stopped.get() }
+
+        assertFalse(events.contains("save "))
+        assertFalse(events.contains("save changed"))
+        assertTrue(changed.contains(""))
+        assertTrue(changed.contains("changed"))
+
+        // folders finished before the stop are skipped by the next pass
+        val resumed = changed.toSet()
+        events.clear()
+        checked.clear()
+        stopped.set(false)
+        OfflineSyncPipeline(1, 1).run(root, callbacks)
+
+        assertTrue(changed.isEmpty())
+        assertTrue(events.contains("save "))
+        assertEquals(resumed.size, events.count { it.startsWith("save") })
+    }
+
+    @Test
+    fun failedCheck_keepsParentEtags() {
+        changed.add("unchanged")
+        val callbacks = object : FakeCallbacks() {
+            override fun checkEtag(folder: File): EtagCheck {
+                if (folder.relativeName() == "unchanged/sub") {
+                    error("failed")
+                }
+                return super.checkEtag(folder)
+            }
+        }
+
+        OfflineSyncPipeline(PROBE_THREADS, SYNC_THREADS).run(root, callbacks)
+
+        assertTrue(events.contains("save changed"))
+        assertTrue(events.contains("sync unchanged/4.txt"))
+        assertFalse(events.contains("save unchanged"))
+        assertFalse(events.contains("save "))
+    }
+
+    @Test
+    fun notCheckedFolder_keepsParentEtags() {
+        changed.add("unchanged")
+        val callbacks = object : FakeCallbacks() {
+            override fun checkEtag(folder: File): EtagCheck {
+                // e.g. no connectivity
+                if (folder.relativeName() == "unchanged/sub") {
+                    return EtagCheck.NotChecked
+                }
+                return super.checkEtag(folder)
+            }
+        }
+
+        OfflineSyncPipeline(PROBE_THREADS, SYNC_THREADS).run(root, callbacks)
+
+        assertTrue(events.contains("save changed"))
+        assertTrue(events.contains("sync unchanged/4.txt"))
+        assertFalse(events.contains("save unchanged"))
+        assertFalse(events.contains("save "))
+        assertTrue(changed.contains("unchanged"))
+        assertTrue(changed.contains(""))
+    }
+
+    @Test
+    fun concurrency_isBounded() {
+        val probes = AtomicInteger()
+        val syncs = AtomicInteger()
+        val maxProbes = AtomicInteger()
+        val maxSyncs = AtomicInteger()
+        val callbacks = object : OfflineSyncPipeline.Callbacks {
+            private fun request(running: AtomicInteger, max: AtomicInteger) {
+                max.accumulateAndGet(running.incrementAndGet(), ::maxOf)
+                Thread.yield()
+                running.decrementAndGet()
+            }
+
+            override fun checkEtag(folder: File): EtagCheck {
+                request(probes, maxProbes)
+                return EtagCheck.Changed("etag")
+            }
+
+            override fun syncFile(file: File) = request(syncs, maxSyncs)
+
+            override fun onFolderSynced(folder: File, etag: String) = Unit
+        }
+
+        OfflineSyncPipeline(PROBE_THREADS, SYNC_THREADS).run(tree(), callbacks)
+
+        assertTrue("max probes ${maxProbes.get()}", maxProbes.get() <= PROBE_THREADS)
+        assertTrue("max syncs ${maxSyncs.get()}", maxSyncs.get() <= SYNC_THREADS)
+    }
+
+    /**
+     * A pass over many changed offline folders of small files is bound by request latency, so folders are checked
+     * and files synchronized at the same time on all threads.
+     */
+    @Test
+    fun allThreadsAreUsed() {
+        val allProbing = CountDownLatch(PROBE_THREADS)
+        val allSyncing = CountDownLatch(SYNC_THREADS)
+        val timedOut = AtomicBoolean()
+        val tree = tree()
+        val callbacks = object : OfflineSyncPipeline.Callbacks {
+            private fun request(all: CountDownLatch) {
+                all.countDown()
+                if (!all.await(TIMEOUT_S, TimeUnit.SECONDS)) {
+                    timedOut.set(true)
+                }
+            }
+
+            override fun checkEtag(folder: File): EtagCheck {
+                // the root is checked alone
+                if (folder != tree) {
+                    request(allProbing)
+                }
+                return EtagCheck.Changed("etag")
+            }
+
+            override fun syncFile(file: File) = request(allSyncing)
+
+            override fun onFolderSynced(folder: File, etag: String) = Unit
+        }
+
+        OfflineSyncPipeline(PROBE_THREADS, SYNC_THREADS).run(tree, callbacks)
+
+        assertFalse("probe or sync threads never ran at the same time", timedOut.get())
+    }
+
+    private fun tree(): File {
+        val tree = folder.newFolder()
+        repeat(FOLDERS) { folderIndex ->
+            repeat(FILES_PER_FOLDER) { fileIndex ->
+                File(tree, "folder$folderIndex").mkdirs()
+                File(tree, "folder$folderIndex/file$fileIndex").writeText("content")
+            }
+        }
+        return tree
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.client.jobs
+
+import com.nextcloud.client.network.WebDavStandIn
+import com.owncloud.android.db.OCUpload
+import com.owncloud.android.operations.UploadFileOperation
+import io.mockk.every
+import io.mockk.mockk
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+class UploadSchedulerTest {
+
+    companion object {
+        private const val MAX_PER_ACCOUNT = 3
+        private const val MAX_GLOBAL = 4
+        private const val LARGE = 100L
+        private const val SMALL = 1L
+        private const val LATENCY_MS = 20L
+        private const val UPLOADS = 60
+        private const val TIMEOUT_SECONDS = 10L
+
+        private const val BENCHMARK_UPLOADS = 500L
+        private const val BENCHMARK_LATENCY_MS = 20L
+        private const val BENCHMARK_FILE_SIZE = 64 * 1024
+    }
+
+    private fun upload(id: Long, size: Long = SMALL, createdBy: Int = UploadFileOperation.CREATED_AS_INSTANT_PICTURE) =
+        mockk<OCUpload> {
+            every { uploadId } returns id
+            every { fileSize } returns size
+            every { this@mockk.createdBy } returns createdBy
+        }
+
+    private fun scheduler(maxPerAccount: Int = MAX_PER_ACCOUNT, global: Semaphore = Semaphore(MAX_GLOBAL)) =
+        UploadScheduler(maxPerAccount, global, LARGE)
+
+    @Test
+    fun allUploadsRunOnce() {
+        val uploads = (1L..UPLOADS).map { upload(it) }
+        val done = Collections.synchronizedList(mutableListOf<Long>())
+
+        scheduler().run(uploads) { done.add(it.uploadId) }
+
+        assertEquals(uploads.map { it.uploadId }.toSet(), done.toSet())
+        assertEquals(UPLOADS, done.size)
+    }
+
+    @Test
+    fun concurrencyIsBoundedPerAccountAndGlobally() {
+        val global = Semaphore(MAX_GLOBAL)
+        val running = AtomicInteger()
+        val maxRunning = AtomicInteger()
+        val task: (OCUpload) -> Unit = {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), ::maxOf)
+            Thread.sleep(LATENCY_MS)
+            running.decrementAndGet()
+        }
+
+        // two accounts sharing the global limit
+        val first = Thread { scheduler(global = global).run((1L..20).map { upload(it) }, task) }
+        val second = Thread { scheduler(global = global).run((21L..40).map { upload(it) }, task) }
+        first.start()
+        second.start()
+        first.join()
+        second.join()
+
+        assertTrue("max running ${maxRunning.get()}", maxRunning.get() <= MAX_GLOBAL)
+
+        maxRunning.set(0)
+        scheduler(global = Semaphore(MAX_GLOBAL)).run((1L..20).map { upload(it) }, task)
+        assertTrue("max running ${maxRunning.get()}", maxRunning.get() <= MAX_PER_ACCOUNT)
+    }
+
+    @Test
+    fun userUploadsRunFirst() {
+        val uploads = (1L..10).map { upload(it) } +
+            (11L..12).map { upload(it, createdBy = UploadFileOperation.CREATED_BY_USER) }
+        val order = mutableListOf<Long>()
+
+        scheduler(maxPerAccount = 1).run(uploads) { order.add(it.uploadId) }
+
+        assertEquals(listOf(11L, 12L), order.take(2))
+        assertEquals((1L..10).toList(), order.drop(2))
+    }
+
+    @Test
+    fun largeUploadsDoNotOccupyAllSlots() {
+        val uploads = (1L..6).map { upload(it, size = LARGE) } + (7L..30).map { upload(it) }
+        val runningLarge = AtomicInteger()
+        val maxRunningLarge = AtomicInteger()
+
+        scheduler().run(uploads) {
+            if (it.fileSize >= LARGE) {
+                maxRunningLarge.accumulateAndGet(runningLarge.incrementAndGet(), ::maxOf)
+                Thread.sleep(LATENCY_MS * 2)
+                runningLarge.decrementAndGet()
+            } else {
+                Thread.sleep(LATENCY_MS / 2)
+            }
+        }
+
+        assertTrue("max running large ${maxRunningLarge.get()}", maxRunningLarge.get() < MAX_PER_ACCOUNT)
+    }
+
+    /**
+     * Uploads bound by request latency, like many small photos, only finish faster if all slots of the account are
+     * used at the same time. Each upload waits until that many uploads are running, which times out otherwise.
+     */
+    @Test
+    fun allSlotsOfAnAccountAreUsed() {
+        val uploads = (1L..UPLOADS).map { upload(it) }
+        val allRunning = CountDownLatch(MAX_PER_ACCOUNT)
+        val timedOut = AtomicBoolean()
+
+        scheduler().run(uploads) {
+            allRunning.countDown()
+            if (!allRunning.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                timedOut.set(true)
+            }
+        }
+
+        assertFalse("$MAX_PER_ACCOUNT uploads never ran at the same time", timedOut.get())
+    }
+
+    /**
+     * Uploads a backlog of small photos to a local WebDAV stand-in, one after the other and with the scheduler.
+     * Only prints the times, as they depend on the machine.
+     */
+    @Ignore("Benchmark, run manually")
+    @Test
+    fun benchmark_webDavStandIn() {
+        WebDavStandIn(BENCHMARK_LATENCY_MS).use { server ->
+            val uploads = (1L..BENCHMARK_UPLOADS).map { upload(it) }
+
+            fun measure(maxPerAccount: Int): Long {
+                val start = System.nanoTime()
+                UploadScheduler(maxPerAccount, Semaphore(maxPerAccount)).run(uploads) {
+                    server.put("/remote.php/dav/files/user/photo${it.uploadId}.jpg", BENCHMARK_FILE_SIZE)
+                }
+                return (System.nanoTime() - start) / 1_000_000
+            }
+
+            val sequentialMs = measure(1)
+            val scheduledMs = measure(UploadScheduler.DEFAULT_MAX_PER_ACCOUNT)
+            println(
+                "$BENCHMARK_UPLOADS uploads with $BENCHMARK_LATENCY_MS ms latency: sequential $sequentialMs ms, " +
+                    "${UploadScheduler.DEFAULT_MAX_PER_ACCOUNT} parallel $scheduledMs ms"
+            )
+        }
+    }
+}
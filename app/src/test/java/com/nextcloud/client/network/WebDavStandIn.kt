@@ -0,0 +1,117 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.client.network
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import java.io.Closeable
+import java.net.HttpURLConnection
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.URL
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Local stand-in for a WebDAV server, for benchmarks of transfers bound by request latency.
+ *
+ * Every request is answered after [latencyMs]. PUT stores the size of the body, GET returns [fileSize] bytes and
+ * MKCOL succeeds. The server handles any number of requests at the same time, like a real server would.
+ */
+class WebDavStandIn(private val latencyMs: Long, private val fileSize: Int = DEFAULT_FILE_SIZE) : Closeable {
+
+    companion object {
+        const val DEFAULT_FILE_SIZE = 16 * 1024
+        private const val BUFFER_SIZE = 8 * 1024
+    }
+
+    private val executor: ExecutorService = Executors.newCachedThreadPool()
+    private val server = HttpServer.create(InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0)
+    private val content = ByteArray(fileSize)
+
+    /** sizes of the uploaded files by path */
+    val uploads: MutableMap<String, Long> = ConcurrentHashMap()
+
+    init {
+        server.executor = executor
+        server.createContext("/") { handle(it) }
+        server.start()
+    }
+
+    fun url(path: String) = URL("http", "127.0.0.1", server.address.port, path)
+
+    /**
+     * Uploads [size] bytes to [path] and returns the response code.
+     */
+    fun put(path: String, size: Int): Int = request(path, "PUT") { connection ->
+        connection.doOutput = true
+        connection.setFixedLengthStreamingMode(size)
+        connection.outputStream.use { it.write(ByteArray(size)) }
+    }
+
+    /**
+     * Downloads [path] and returns the response code.
+     */
+    fun get(path: String): Int = request(path, "GET") { connection ->
+        connection.inputStream.use { input ->
+            val buffer = ByteArray(BUFFER_SIZE)
+            while (input.read(buffer) != -1) {
+                // discard
+            }
+        }
+    }
+
+    private fun request(path: String, method: String, transfer: (HttpURLConnection) -> Unit): Int {
+        val connection = url(path).openConnection() as HttpURLConnection
+        try {
+            connection.requestMethod = method
+            transfer(connection)
+            return connection.responseCode
+        } finally {
+            connection.disconnect()
+        }
+    }
+
+    private fun handle(exchange: HttpExchange) {
+        try {
+            val size = exchange.requestBody.use { it.readBytes().size.toLong() }
+            Thread.sleep(latencyMs)
+            when (exchange.requestMethod) {
+                "PUT" -> {
+                    uploads[exchange.requestURI.path] = size
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_CREATED, -1)
+                }
+                "GET" -> {
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, content.size.toLong())
+                    exchange.responseBody.write(content)
+                }
+                "MKCOL" -> exchange.sendResponseHeaders(HttpURLConnection.HTTP_CREATED, -1)
+                else -> exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1)
+            }
+        } finally {
+            exchange.close()
+        }
+    }
+
+    override fun close() {
+        server.stop(0)
+        executor.shutdownNow()
+    }
+}
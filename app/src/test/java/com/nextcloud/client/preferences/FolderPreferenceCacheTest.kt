@@ -0,0 +1,130 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.client.preferences
+
+import com.owncloud.android.datamodel.OCFile
+import com.owncloud.android.utils.MimeType
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class FolderPreferenceCacheTest {
+
+    companion object {
+        private const val ACCOUNT = "user@nextcloud.localhost"
+        private const val PREFERENCE = "folder_sort_order"
+    }
+
+    /**
+     * Folders and values as stored in the database, counting every read.
+     */
+    private class FakeStorage : FolderPreferenceCache.Storage {
+        val files = mutableMapOf<Long, OCFile>()
+        val values = mutableMapOf<String, String>()
+        var reads = 0
+
+        override fun getValue(accountName: String, key: String): String {
+            reads++
+            return values[key] ?: ""
+        }
+
+        override fun getFileById(id: Long): OCFile? {
+            reads++
+            return files[id]
+        }
+
+        fun folder(id: Long, parentId: Long, path: String) = OCFile(path).apply {
+            fileId = id
+            this.parentId = parentId
+            mimeType = MimeType.DIRECTORY
+            files[id] = this
+        }
+    }
+
+    private val storage = FakeStorage()
+    private val sut = FolderPreferenceCache()
+
+    private fun key(id: Long) = FolderPreferenceCache.getKey(PREFERENCE, id)
+
+    private fun get(folder: OCFile?) = sut.get(ACCOUNT, PREFERENCE, folder, storage)
+
+    /**
+     * Builds /, /1/, /1/2/ up to the given depth and returns the deepest folder.
+     */
+    private fun tree(depth: Int): OCFile {
+        var folder = storage.folder(1, 0, "/")
+        for (id in 2L..depth) {
+            folder = storage.folder(id, folder.fileId, folder.remotePath + id + "/")
+        }
+        return folder
+    }
+
+    @Test
+    fun valueIsInherited_andResolvedFromMemory() {
+        val deepest = tree(12)
+        storage.values[key(3)] = "sort_z_to_a"
+
+        assertEquals("sort_z_to_a", get(deepest))
+        val reads = storage.reads
+
+        assertEquals("sort_z_to_a", get(deepest))
+        assertEquals("sort_z_to_a", get(storage.files[7]))
+        assertEquals(reads, storage.reads)
+
+        // walks past the root folder, reading its parent and the value of the root key once
+        assertEquals("", get(storage.files[2]))
+        assertEquals("", get(storage.files[2]))
+        assertEquals(reads + 2, storage.reads)
+    }
+
+    @Test
+    fun put_isVisibleWithoutReading() {
+        val deepest = tree(5)
+        get(deepest)
+        val reads = storage.reads
+
+        sut.put(ACCOUNT, key(4), "sort_new_to_old")
+
+        assertEquals("sort_new_to_old", get(deepest))
+        assertEquals(reads, storage.reads)
+    }
+
+    @Test
+    fun rootFolder_usesRootKey() {
+        storage.values[key(0)] = "grid"
+        val root = storage.folder(1, 0, "/")
+
+        assertEquals("grid", get(null))
+        assertEquals("grid", get(root))
+    }
+
+    @Test
+    fun movedFolder_isReadAgain() {
+        val deepest = tree(4)
+        storage.values[key(2)] = "sort_a_to_z"
+        storage.values[key(5)] = "sort_big_to_small"
+        assertEquals("sort_a_to_z", get(deepest))
+
+        // /2/3/ is moved into /5/
+        storage.folder(5, 1, "/5/")
+        storage.folder(3, 5, "/5/3/")
+        val moved = storage.folder(4, 3, "/5/3/4/")
+
+        assertEquals("sort_big_to_small", get(moved))
+    }
+}
@@ -33,15 +33,35 @@ import org.junit.runner.RunWith
 import org.junit.runners.Parameterized
 
 @RunWith(Parameterized::class)
-class HashUtilTest(private val input: String, private val expected: String) {
+class HashUtilTest(
+    private val input: String,
+    private val expected: String,
+    private val expectedSha256: String
+) {
     companion object {
         @JvmStatic
         @Parameterized.Parameters(name = "{0}")
         fun params(): List<Array<Any>> = listOf(
-            arrayOf("", "d41d8cd98f00b204e9800998ecf8427e"),
-            arrayOf("test", "098f6bcd4621d373cade4e832627b4f6"),
-            arrayOf("test@nextcloud.localhost", "12aa338095d171f307c3e3f724702ab1"),
-            arrayOf("tost@nextcloud.localhost", "e01e5301f90c123a65e872d68e84c4b2")
+            arrayOf(
+                "",
+                "d41d8cd98f00b204e9800998ecf8427e",
+                "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855"
+            ),
+            arrayOf(
+                "test",
+                "098f6bcd4621d373cade4e832627b4f6",
+                "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08"
+            ),
+            arrayOf(
+                "test@nextcloud.localhost",
+                "12aa338095d171f307c3e3f724702ab1",
+                "4f2928b830eb4288bfea8642574d22a4d0f82a33efa748ce041c8481d2b8fc65"
+            ),
+            arrayOf(
+                "tost@nextcloud.localhost",
+                "e01e5301f90c123a65e872d68e84c4b2",
+                "b12c1916a867c9efe94d0ccafbd6b947bd110c8c33e81b2378fabfebb9fefe49"
+            )
         )
     }
 
@@ -50,4 +70,10 @@ class HashUtilTest(private val input: String, private val expected: String) {
         val hash = HashUtil.md5Hash(input)
         Assert.assertEquals("Wrong hash for input", expected, hash)
     }
+
+    @Test
+    fun testSha256Hash() {
+        val hash = HashUtil.sha256Hash(input)
+        Assert.assertEquals("Wrong hash for input", expectedSha256, hash)
+    }
 }
@@ -32,6 +32,7 @@ import org.junit.Test
 import org.junit.runner.RunWith
 import org.junit.runners.Parameterized
 import third_parties.daveKoeller.AlphanumComparator
+import java.text.Collator
 
 /**
  * Adapted on 2022/02/04 from https://github.com/nextcloud/server/blob/caff1023ea72bb2ea94130e18a2a6e2ccf819e5f/tests/lib/NaturalSortTest.php
@@ -106,4 +107,12 @@ class NaturalSortTest {
         val sorted = shuffled.sortedWith(sut).toTypedArray()
         Assert.assertArrayEquals("Wrong sort", expected, sorted)
     }
+
+    @Test
+    fun sortKey() {
+        val collator = Collator.getInstance()
+        val shuffled = expected.clone().apply { shuffle() }
+        val sorted = shuffled.sortedBy { AlphanumComparator.SortKey(it, collator) }.toTypedArray()
+        Assert.assertArrayEquals("Wrong sort", expected, sorted)
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel
+
+import com.owncloud.android.lib.resources.status.OCCapability
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Test
+
+class CapabilityCacheTest {
+
+    companion object {
+        private const val ACCOUNT = "user@nextcloud.localhost"
+    }
+
+    private val sut = CapabilityCache()
+
+    private fun capability(etag: String) = OCCapability().apply { this.etag = etag }
+
+    private fun cache(capability: OCCapability) = sut.put(ACCOUNT, capability, sut.generation)
+
+    @Test
+    fun getAfterPut_returnsSameCapability() {
+        val capability = capability("1")
+
+        assertNull(sut.get(ACCOUNT))
+        cache(capability)
+
+        assertSame(capability, sut.get(ACCOUNT))
+        assertSame(capability, sut.get(ACCOUNT))
+        assertNull(sut.get("other@nextcloud.localhost"))
+        assertEquals(2, sut.hitCount())
+        assertEquals(2, sut.missCount())
+    }
+
+    @Test
+    fun readStartedBeforeSave_isNotCached() {
+        val generation = sut.generation
+
+        sut.onSaved(ACCOUNT, capability("2"))
+        sut.put(ACCOUNT, capability("1"), generation)
+
+        assertNull(sut.get(ACCOUNT))
+    }
+
+    @Test
+    fun saveWithSameEtag_keepsCachedCapability() {
+        val capability = capability("1")
+        cache(capability)
+
+        sut.onSaved(ACCOUNT, capability("1"))
+
+        assertSame(capability, sut.get(ACCOUNT))
+    }
+
+    @Test
+    fun saveWithOtherEtag_invalidates() {
+        cache(capability("1"))
+
+        sut.onSaved(ACCOUNT, capability("2"))
+
+        assertNull(sut.get(ACCOUNT))
+    }
+
+    @Test
+    fun saveWithoutEtag_invalidates() {
+        cache(capability(""))
+
+        sut.onSaved(ACCOUNT, capability(""))
+
+        assertNull(sut.get(ACCOUNT))
+    }
+
+    @Test
+    fun replace_cachesCapability() {
+        val generation = sut.generation
+        val capability = capability("2")
+
+        sut.replace(ACCOUNT, capability)
+        sut.put(ACCOUNT, capability("1"), generation)
+
+        assertSame(capability, sut.get(ACCOUNT))
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class EncryptedFolderIndexTest {
+
+    companion object {
+        private const val ACCOUNT = "user@server"
+    }
+
+    private class FakeStorage(vararg paths: String) : EncryptedFolderIndex.Storage {
+        val paths = paths.toMutableSet()
+        var reads = 0
+
+        override fun getEncryptedFolderPaths(accountName: String): Collection<String> {
+            reads++
+            return paths.toList()
+        }
+    }
+
+    private val sut = EncryptedFolderIndex()
+
+    @Test
+    fun ancestors_areFoundWithOneRead() {
+        val storage = FakeStorage("/e2e/", "/e2e/sub/")
+
+        assertTrue(sut.hasEncryptedAncestor(ACCOUNT, "/e2e/sub/deep/file.txt", storage))
+        assertTrue(sut.hasEncryptedAncestor(ACCOUNT, "/e2e/sub/", storage))
+        assertFalse(sut.hasEncryptedAncestor(ACCOUNT, "/e2e/", storage))
+        assertFalse(sut.hasEncryptedAncestor(ACCOUNT, "/e2e2/file.txt", storage))
+        assertFalse(sut.hasEncryptedAncestor(ACCOUNT, "/a/b/c/d/e/f/g/h/i/j/", storage))
+        assertFalse(sut.hasEncryptedAncestor(ACCOUNT, "/", storage))
+
+        assertEquals(1, storage.reads)
+    }
+
+    @Test
+    fun accounts_areSeparate() {
+        assertTrue(sut.hasEncryptedAncestor("a", "/e2e/file.txt", FakeStorage("/e2e/")))
+        assertFalse(sut.hasEncryptedAncestor("b", "/e2e/file.txt", FakeStorage()))
+    }
+
+    @Test
+    fun savedFolders_updateTheIndex() {
+        val storage = FakeStorage()
+        assertFalse(sut.hasEncryptedAncestor(ACCOUNT, "/folder/file.txt", storage))
+
+        sut.onFolderSaved(ACCOUNT, "/folder/", true)
+        assertTrue(sut.hasEncryptedAncestor(ACCOUNT, "/folder/file.txt", storage))
+
+        sut.onFolderSaved(ACCOUNT, "/folder/", false)
+        assertFalse(sut.hasEncryptedAncestor(ACCOUNT, "/folder/file.txt", storage))
+
+        assertEquals(1, storage.reads)
+    }
+
+    @Test
+    fun removedFolders_removeTheirContent() {
+        val storage = FakeStorage("/e2e/", "/e2e/sub/", "/e2e2/")
+        assertTrue(sut.hasEncryptedAncestor(ACCOUNT, "/e2e/sub/file.txt", storage))
+
+        sut.onFolderRemoved(ACCOUNT, "/e2e")
+
+        assertFalse(sut.hasEncryptedAncestor(ACCOUNT, "/e2e/sub/file.txt", storage))
+        assertTrue(sut.hasEncryptedAncestor(ACCOUNT, "/e2e2/file.txt", storage))
+        assertEquals(1, storage.reads)
+    }
+
+    @Test
+    fun moves_areReadAgain() {
+        val storage = FakeStorage("/e2e/", "/plain/moved/")
+        assertFalse(sut.hasEncryptedAncestor(ACCOUNT, "/plain/file.txt", storage))
+
+        // a plain folder moved into an encrypted one
+        storage.paths.remove("/plain/moved/")
+        storage.paths.add("/e2e/moved/")
+        sut.invalidate(ACCOUNT)
+
+        assertTrue(sut.hasEncryptedAncestor(ACCOUNT, "/e2e/moved/file.txt", storage))
+        assertFalse(sut.hasEncryptedAncestor(ACCOUNT, "/plain/moved/file.txt", storage))
+        assertEquals(2, storage.reads)
+    }
+
+    @Test
+    fun changesDuringRead_areNotCached() {
+        val storage = object : EncryptedFolderIndex.Storage {
+            var reads = 0
+
+            override fun getEncryptedFolderPaths(accountName: String): Collection<String> {
+                reads++
+                if (reads == 1) {
+                    // saved while the stored paths are read
+                    sut.onFolderSaved(ACCOUNT, "/e2e/", false)
+                    return listOf("/e2e/")
+                }
+                return emptyList()
+            }
+        }
+
+        assertTrue(sut.hasEncryptedAncestor(ACCOUNT, "/e2e/file.txt", storage))
+        assertFalse(sut.hasEncryptedAncestor(ACCOUNT, "/e2e/file.txt", storage))
+        assertEquals(2, storage.reads)
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.util.zip.CRC32
+import kotlin.random.Random
+
+class FileChangeDetectorTest {
+
+    companion object {
+        private const val LARGE_FILE_SIZE = 10 * FileChangeDetector.BLOCK_SIZE
+        private const val MODIFIED_AT = 1_700_000_000_000L
+    }
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val sut = FileChangeDetector()
+
+    private fun file(size: Int, seed: Int = 1): File =
+        folder.newFile().apply { writeBytes(Random(seed).nextBytes(size)) }
+
+    private fun stored(file: File, result: FileChangeDetector.Result, modifiedAt: Long = MODIFIED_AT) =
+        FileSystemDataSet(1, file.absolutePath, modifiedAt, false, true, 0, 1, result.crc32).apply {
+            fileSize = result.size
+            inode = result.inode
+            fingerprint = result.fingerprint
+        }
+
+    @Test
+    fun newFile_onlySamplesLargeFiles() {
+        val file = file(LARGE_FILE_SIZE)
+
+        val result = sut.detect(file.absolutePath, MODIFIED_AT, null)
+
+        assertTrue(result.changed)
+        assertNotNull(result.fingerprint)
+        assertEquals(3L * FileChangeDetector.BLOCK_SIZE, sut.bytesRead)
+        assertEquals(7L * FileChangeDetector.BLOCK_SIZE, sut.bytesAvoided)
+    }
+
+    @Test
+    fun sameModificationTime_doesNotReadFile() {
+        val file = file(LARGE_FILE_SIZE)
+        val stored = stored(file, sut.detect(file.absolutePath, MODIFIED_AT, null))
+        val bytesRead = sut.bytesRead
+
+        val result = sut.detect(file.absolutePath, MODIFIED_AT, stored)
+
+        assertFalse(result.changed)
+        assertEquals(bytesRead, sut.bytesRead)
+    }
+
+    @Test
+    fun touchedFile_isNotChanged() {
+        val file = file(LARGE_FILE_SIZE)
+        val stored = stored(file, sut.detect(file.absolutePath, MODIFIED_AT, null))
+
+        assertFalse(sut.detect(file.absolutePath, MODIFIED_AT + 1000, stored).changed)
+    }
+
+    @Test
+    fun changedHead_isChanged() {
+        val file = file(LARGE_FILE_SIZE)
+        val stored = stored(file, sut.detect(file.absolutePath, MODIFIED_AT, null))
+
+        val bytes = file.readBytes()
+        bytes[0] = (bytes[0] + 1).toByte()
+        file.writeBytes(bytes)
+
+        assertTrue(sut.detect(file.absolutePath, MODIFIED_AT + 1000, stored).changed)
+    }
+
+    @Test
+    fun changedSize_isChanged() {
+        val file = file(LARGE_FILE_SIZE)
+        val stored = stored(file, sut.detect(file.absolutePath, MODIFIED_AT, null))
+
+        file.appendBytes(byteArrayOf(1))
+
+        assertTrue(sut.detect(file.absolutePath, MODIFIED_AT + 1000, stored).changed)
+    }
+
+    @Test
+    fun smallFile_isFingerprintedCompletely() {
+        val file = file(2 * FileChangeDetector.BLOCK_SIZE)
+        val stored = stored(file, sut.detect(file.absolutePath, MODIFIED_AT, null))
+
+        // same size, changed somewhere between the blocks sampled for large files
+        val bytes = file.readBytes()
+        bytes[FileChangeDetector.BLOCK_SIZE + 1] = (bytes[FileChangeDetector.BLOCK_SIZE + 1] + 1).toByte()
+        file.writeBytes(bytes)
+
+        assertTrue(sut.detect(file.absolutePath, MODIFIED_AT + 1000, stored).changed)
+        assertEquals(0, sut.bytesAvoided)
+    }
+
+    @Test
+    fun legacyRow_comparesFullChecksum() {
+        val file = file(LARGE_FILE_SIZE)
+        val crc = CRC32().apply { update(file.readBytes()) }.value
+        val stored = FileSystemDataSet(1, file.absolutePath, MODIFIED_AT, false, true, 0, 1, crc.toString())
+
+        val unchanged = sut.detect(file.absolutePath, MODIFIED_AT + 1000, stored)
+        assertFalse(unchanged.changed)
+        assertEquals(crc.toString(), unchanged.crc32)
+        assertNotNull(unchanged.fingerprint)
+
+        file.writeBytes(Random(2).nextBytes(LARGE_FILE_SIZE))
+        assertTrue(sut.detect(file.absolutePath, MODIFIED_AT + 1000, stored).changed)
+    }
+
+    @Test
+    fun legacyRow_isFingerprintedForTheNextRun() {
+        val file = file(LARGE_FILE_SIZE)
+        val crc = CRC32().apply { update(file.readBytes()) }.value
+        val legacy = FileSystemDataSet(1, file.absolutePath, MODIFIED_AT, false, true, 0, 1, crc.toString())
+        val stored = stored(file, sut.detect(file.absolutePath, MODIFIED_AT + 1000, legacy), MODIFIED_AT + 1000)
+        val bytesRead = sut.bytesRead
+
+        val bytes = file.readBytes()
+        bytes[0] = (bytes[0] + 1).toByte()
+        file.writeBytes(bytes)
+
+        assertTrue(sut.detect(file.absolutePath, MODIFIED_AT + 2000, stored).changed)
+        assertEquals(3L * FileChangeDetector.BLOCK_SIZE, sut.bytesRead - bytesRead)
+    }
+
+    @Test
+    fun changedFingerprint_dropsStoredChecksum() {
+        val file = file(LARGE_FILE_SIZE)
+        val stored = stored(file, sut.detect(file.absolutePath, MODIFIED_AT, null)).apply { crc32 = "42" }
+
+        val unchanged = sut.detect(file.absolutePath, MODIFIED_AT + 1000, stored)
+        assertFalse(unchanged.changed)
+        assertEquals("42", unchanged.crc32)
+
+        val bytes = file.readBytes()
+        bytes[0] = (bytes[0] + 1).toByte()
+        file.writeBytes(bytes)
+
+        val changed = sut.detect(file.absolutePath, MODIFIED_AT + 1000, stored)
+        assertTrue(changed.changed)
+        assertNull(changed.crc32)
+    }
+}
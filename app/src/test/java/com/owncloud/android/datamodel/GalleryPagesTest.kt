@@ -0,0 +1,122 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Calendar
+
+class GalleryPagesTest {
+
+    companion object {
+        private const val COLUMNS = 5
+        private const val THUMBNAIL_SIZE = 50
+    }
+
+    private val filter = GalleryPages.Filter("/", true, true)
+
+    private fun date(month: Int): Long = Calendar.getInstance().run {
+        clear()
+        set(2023, month, 1)
+        timeInMillis
+    }
+
+    private val april = GalleryMonth(date(Calendar.APRIL), GalleryPages.PAGE_ROWS * COLUMNS + 3)
+    private val march = GalleryMonth(date(Calendar.MARCH), 7)
+
+    private fun files(count: Int) = List(count) { OCFile("/$it.jpg") }
+
+    @Test
+    fun sections_haveAllRows_beforeLoading() {
+        val sut = GalleryPages(filter, listOf(april, march), COLUMNS, THUMBNAIL_SIZE, null)
+
+        assertEquals(listOf(april.date, march.date), sut.sections.map { it.date })
+        assertEquals(listOf(GalleryPages.PAGE_ROWS + 1, 2), sut.sections.map { it.rows.size })
+        assertTrue(sut.sections.all { section -> section.rows.all { it.files.isEmpty() } })
+    }
+
+    @Test
+    fun request_returnsEachPageOnce() {
+        val sut = GalleryPages(filter, listOf(april, march), COLUMNS, THUMBNAIL_SIZE, null)
+
+        val first = sut.request(0, 3)!!
+        assertEquals(0, first.firstRow)
+        assertEquals(GalleryPages.PAGE_ROWS, first.rowCount)
+        assertEquals(0, first.offset)
+        assertEquals(GalleryPages.PAGE_ROWS * COLUMNS, first.limit)
+        assertEquals(april.date, first.startDate)
+        assertEquals(date(Calendar.MAY), first.endDate)
+        assertNull(sut.request(0, GalleryPages.PAGE_ROWS - 1))
+
+        val last = sut.request(0, GalleryPages.PAGE_ROWS)!!
+        assertEquals(GalleryPages.PAGE_ROWS, last.firstRow)
+        assertEquals(1, last.rowCount)
+        assertEquals(GalleryPages.PAGE_ROWS * COLUMNS, last.offset)
+
+        assertEquals(march.date, sut.request(1, 0)!!.startDate)
+        assertNull(sut.request(2, 0))
+    }
+
+    @Test
+    fun onLoaded_replacesRowsOfPage() {
+        val sut = GalleryPages(filter, listOf(april, march), COLUMNS, THUMBNAIL_SIZE, null)
+        val page = sut.request(0, GalleryPages.PAGE_ROWS)!!
+
+        sut.onLoaded(page, files(3))
+
+        val rows = sut.sections[0].rows
+        assertEquals(GalleryPages.PAGE_ROWS + 1, rows.size)
+        assertEquals(3, rows.last().files.size)
+        assertTrue(rows.first().files.isEmpty())
+    }
+
+    @Test
+    fun onLoaded_fewerFiles_leavesRowsEmpty() {
+        val sut = GalleryPages(filter, listOf(march), COLUMNS, THUMBNAIL_SIZE, null)
+
+        // a file got deleted since counting
+        sut.onLoaded(sut.request(0, 0)!!, files(4))
+
+        assertEquals(listOf(4, 0), sut.sections[0].rows.map { it.files.size })
+    }
+
+    @Test
+    fun unchangedMonths_keepRows_untilReadAgain() {
+        val previous = GalleryPages(filter, listOf(april, march), COLUMNS, THUMBNAIL_SIZE, null)
+        previous.onLoaded(previous.request(1, 0)!!, files(7))
+        previous.onLoaded(previous.request(0, 0)!!, files(GalleryPages.PAGE_ROWS * COLUMNS))
+
+        val newApril = april.copy(count = april.count + 1)
+        val sut = GalleryPages(filter, listOf(newApril, march), COLUMNS, THUMBNAIL_SIZE, previous)
+
+        assertSame(previous.sections[1], sut.sections[1])
+        assertTrue(sut.sections[0].rows.all { it.files.isEmpty() })
+        assertEquals(0, sut.request(1, 0)!!.offset)
+
+        val otherFilter = GalleryPages(filter.copy(videos = false), listOf(march), COLUMNS, THUMBNAIL_SIZE, previous)
+        assertTrue(otherFilter.sections[0].rows.all { it.files.isEmpty() })
+
+        val otherColumns = GalleryPages(filter, listOf(march), 2, THUMBNAIL_SIZE, previous)
+        assertEquals(4, otherColumns.sections[0].rows.size)
+        assertTrue(otherColumns.sections[0].rows.all { it.files.isEmpty() })
+    }
+}
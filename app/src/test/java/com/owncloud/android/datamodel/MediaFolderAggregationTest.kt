@@ -0,0 +1,110 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class MediaFolderAggregationTest {
+
+    companion object {
+        private const val DATA_PATH = "/storage/emulated/0/Android/media/com.nextcloud.client/nextcloud"
+        private const val ITEM_LIMIT = 2
+    }
+
+    private val checkedPaths = mutableListOf<String>()
+    private val missingPaths = mutableSetOf<String>()
+
+    private fun aggregation(limit: Int = ITEM_LIMIT) = MediaFolderAggregation(MediaFolderType.IMAGE, limit) {
+        checkedPaths.add(it)
+        !missingPaths.contains(it)
+    }
+
+    @Test
+    fun buckets_areCountedInOneWalk() {
+        val sut = aggregation()
+
+        // newest first, buckets interleaved as in the media store
+        sut.add("1", "Camera", "/sdcard/DCIM/Camera/c3.jpg")
+        sut.add("2", "Screenshots", "/sdcard/Pictures/Screenshots/s2.png")
+        sut.add("1", "Camera", "/sdcard/DCIM/Camera/c2.jpg")
+        sut.add("1", "Camera", "/sdcard/DCIM/Camera/c1.jpg")
+        sut.add("2", "Screenshots", "/sdcard/Pictures/Screenshots/s1.png")
+        sut.add("1", "Camera", "/sdcard/DCIM/Camera/c0.jpg")
+
+        val folders = sut.getMediaFolders(DATA_PATH)
+
+        assertEquals(listOf("Camera", "Screenshots"), folders.map { it.folderName })
+        val camera = folders[0]
+        assertEquals(MediaFolderType.IMAGE, camera.type)
+        assertEquals("/sdcard/DCIM/Camera", camera.absolutePath)
+        assertEquals(4, camera.numberOfFiles)
+        assertEquals(listOf("/sdcard/DCIM/Camera/c3.jpg", "/sdcard/DCIM/Camera/c2.jpg"), camera.filePaths)
+        assertEquals(2, folders[1].numberOfFiles)
+
+        // only previews are looked up on the disk
+        assertEquals(2 * ITEM_LIMIT, checkedPaths.size)
+    }
+
+    @Test
+    fun invalidPreviews_takeTheirPlace() {
+        val sut = aggregation()
+        missingPaths.add("/sdcard/DCIM/Camera/c3.jpg")
+
+        sut.add("1", "Camera", "/sdcard/DCIM/Camera/c3.jpg")
+        sut.add("1", "Camera", null)
+        sut.add("1", "Camera", "/sdcard/DCIM/Camera/c1.jpg")
+        sut.add("1", "Camera", "/sdcard/DCIM/Camera/c0.jpg")
+
+        val folders = sut.getMediaFolders(DATA_PATH)
+
+        assertTrue(folders.isEmpty())
+        assertEquals(listOf("/sdcard/DCIM/Camera/c3.jpg"), checkedPaths)
+    }
+
+    @Test
+    fun validPreviews_afterInvalidOnes_areShown() {
+        val sut = aggregation(3)
+        missingPaths.add("/sdcard/DCIM/Camera/c3.jpg")
+
+        sut.add("1", "Camera", "/sdcard/DCIM/Camera/c3.jpg")
+        sut.add("1", "Camera", null)
+        sut.add("1", "Camera", "/sdcard/DCIM/Camera/c1.jpg")
+        sut.add("1", "Camera", "/sdcard/DCIM/Camera/c0.jpg")
+
+        val folders = sut.getMediaFolders(DATA_PATH)
+
+        assertEquals(listOf("/sdcard/DCIM/Camera/c1.jpg"), folders[0].filePaths)
+        assertEquals("/sdcard/DCIM/Camera", folders[0].absolutePath)
+        assertEquals(4, folders[0].numberOfFiles)
+    }
+
+    @Test
+    fun foldersWithoutPreview_orWithinApp_areLeftOut() {
+        val sut = aggregation(1)
+        missingPaths.add("/sdcard/Deleted/d1.jpg")
+
+        sut.add("1", "Deleted", "/sdcard/Deleted/d1.jpg")
+        sut.add("2", "nextcloud", "$DATA_PATH/user@server/p1.jpg")
+        sut.add("3", "Camera", "/sdcard/DCIM/Camera/c1.jpg")
+
+        assertEquals(listOf("Camera"), sut.getMediaFolders(DATA_PATH).map { it.folderName })
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel
+
+import com.owncloud.android.datamodel.ThumbnailExecutor.Lane
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.FutureTask
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+
+class ThumbnailExecutorTest {
+
+    companion object {
+        private const val TIMEOUT_S = 10L
+
+        private const val BACKGROUND_THUMBNAILS = 10
+        private const val SCREEN_ROWS = 12
+        private const val FETCHES = SCREEN_ROWS / 2
+    }
+
+    private val order = Collections.synchronizedList(mutableListOf<String>())
+
+    /**
+     * Occupies the only thread of a lane until the returned latch is released.
+     */
+    private fun ThumbnailExecutor.block(lane: Lane): CountDownLatch {
+        val started = CountDownLatch(1)
+        val gate = CountDownLatch(1)
+        getExecutor(lane, true).execute {
+            started.countDown()
+            gate.await()
+        }
+        assertTrue(started.await(TIMEOUT_S, TimeUnit.SECONDS))
+        return gate
+    }
+
+    private fun ThumbnailExecutor.submit(name: String, visible: Boolean, done: CountDownLatch) =
+        getExecutor(Lane.DECODE, visible).execute {
+            order.add(name)
+            done.countDown()
+        }
+
+    @Test
+    fun visibleWork_runsLastInFirstOut_beforeBackgroundWork() {
+        val sut = ThumbnailExecutor(1, 1)
+        val gate = sut.block(Lane.DECODE)
+        val done = CountDownLatch(5)
+
+        sut.submit("upload1", false, done)
+        sut.submit("row1", true, done)
+        sut.submit("row2", true, done)
+        sut.submit("upload2", false, done)
+        sut.submit("row3", true, done)
+        gate.countDown()
+
+        assertTrue(done.await(TIMEOUT_S, TimeUnit.SECONDS))
+        assertEquals(listOf("row3", "row2", "row1", "upload1", "upload2"), order)
+    }
+
+    @Test
+    fun slowFetches_doNotHoldBackDecoding() {
+        val sut = ThumbnailExecutor(1, 1)
+        val gate = sut.block(Lane.NETWORK)
+        val done = CountDownLatch(1)
+
+        sut.submit("row", true, done)
+
+        assertTrue(done.await(TIMEOUT_S, TimeUnit.SECONDS))
+        gate.countDown()
+    }
+
+    @Test
+    fun cancelledWork_isSkipped() {
+        val sut = ThumbnailExecutor(1, 1)
+        val gate = sut.block(Lane.DECODE)
+        val done = CountDownLatch(1)
+
+        // a row scrolled past, whose view got reused
+        val recycled = FutureTask { order.add("recycled") }
+        sut.getExecutor(Lane.DECODE, true).execute(recycled)
+        sut.getExecutor(Lane.DECODE, true).execute { error("failed") }
+        sut.submit("row", true, done)
+        recycled.cancel(true)
+        gate.countDown()
+
+        assertTrue(done.await(TIMEOUT_S, TimeUnit.SECONDS))
+        assertEquals(listOf("row"), order)
+    }
+
+    @Test
+    fun runOnce_sameKey_sharesResult() {
+        val sut = ThumbnailExecutor(1, 1)
+        val runs = AtomicInteger()
+        val started = CountDownLatch(1)
+        val gate = CountDownLatch(1)
+
+        var first: String? = null
+        val leader = thread {
+            first = sut.runOnce("t1") {
+                started.countDown()
+                gate.await()
+                "thumbnail" + runs.incrementAndGet()
+            }
+        }
+        assertTrue(started.await(TIMEOUT_S, TimeUnit.SECONDS))
+
+        var second: String? = null
+        val follower = thread {
+            second = sut.runOnce("t1") { "thumbnail" + runs.incrementAndGet() }
+        }
+        while (follower.state != Thread.State.WAITING) {
+            Thread.sleep(1)
+        }
+        gate.countDown()
+        leader.join()
+        follower.join()
+
+        assertEquals(1, runs.get())
+        assertEquals("thumbnail1", first)
+        assertEquals("thumbnail1", second)
+
+        // finished work is not remembered
+        assertEquals("thumbnail2", sut.runOnce("t1") { "thumbnail" + runs.incrementAndGet() })
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun runOnce_rethrowsFailure() {
+        ThumbnailExecutor(1, 1).runOnce<String>("t1") { error("failed") }
+    }
+
+    /**
+     * Opens a folder while thumbnails of uploaded files are generated: half of the rows on screen have a cached
+     * thumbnail, the others need a request to the server. Every row on screen is handled before the background
+     * work, and the requests to the server run at the same time instead of one after another.
+     */
+    @Test
+    fun firstScreen_isNotHeldBackByBackgroundWorkOrFetches() {
+        val sut = ThumbnailExecutor(1, FETCHES)
+        val gate = sut.block(Lane.DECODE)
+        val done = CountDownLatch(BACKGROUND_THUMBNAILS + SCREEN_ROWS)
+        val allFetching = CountDownLatch(FETCHES)
+        val timedOut = AtomicBoolean()
+
+        repeat(BACKGROUND_THUMBNAILS) {
+            sut.submit("background", false, done)
+        }
+        repeat(SCREEN_ROWS) { row ->
+            if (row % 2 == 0) {
+                sut.submit("cached", true, done)
+            } else {
+                sut.getExecutor(Lane.DECODE, true).execute {
+                    order.add("fetched")
+                    sut.getExecutor(Lane.NETWORK, true).execute {
+                        allFetching.countDown()
+                        if (!allFetching.await(TIMEOUT_S, TimeUnit.SECONDS)) {
+                            timedOut.set(true)
+                        }
+                        done.countDown()
+                    }
+                }
+            }
+        }
+        gate.countDown()
+
+        assertTrue(done.await(TIMEOUT_S, TimeUnit.SECONDS))
+        assertEquals(List(BACKGROUND_THUMBNAILS) { "background" }, order.subList(SCREEN_ROWS, order.size))
+        assertFalse("$FETCHES fetches never ran at the same time", timedOut.get())
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel
+
+import android.content.ComponentCallbacks2
+import android.graphics.Bitmap
+import io.mockk.every
+import io.mockk.mockk
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Test
+
+class ThumbnailsMemoryCacheTest {
+
+    companion object {
+        private const val BITMAP_SIZE = 100
+        private const val MAX_SIZE = 4L * BITMAP_SIZE
+    }
+
+    private fun bitmap(size: Int = BITMAP_SIZE, recycled: Boolean = false): Bitmap = mockk {
+        every { allocationByteCount } returns size
+        every { isRecycled } returns recycled
+    }
+
+    @Test
+    fun getAfterPut_returnsSameBitmap() {
+        val sut = ThumbnailsMemoryCache(MAX_SIZE)
+        val bitmap = bitmap()
+
+        sut.put("a", bitmap)
+
+        assertSame(bitmap, sut.get("a"))
+        assertNull(sut.get("b"))
+        assertEquals(1, sut.hitCount())
+        assertEquals(1, sut.missCount())
+        assertEquals(BITMAP_SIZE.toLong(), sut.size())
+    }
+
+    @Test
+    fun replacingKey_doesNotCountTwice() {
+        val sut = ThumbnailsMemoryCache(MAX_SIZE)
+
+        sut.put("a", bitmap())
+        sut.put("a", bitmap(size = 2 * BITMAP_SIZE))
+
+        assertEquals(2L * BITMAP_SIZE, sut.size())
+    }
+
+    @Test
+    fun exceedingMaxSize_evictsLeastRecentlyUsed() {
+        val sut = ThumbnailsMemoryCache(MAX_SIZE)
+        sut.put("a", bitmap())
+        sut.put("b", bitmap())
+        sut.put("c", bitmap())
+        sut.put("d", bitmap())
+
+        // touch "a", so "b" is the least recently used entry
+        sut.get("a")
+        sut.put("e", bitmap())
+
+        assertNull(sut.get("b"))
+        assertEquals(true, sut.containsKey("a"))
+        assertEquals(true, sut.containsKey("e"))
+        assertEquals(true, sut.size() <= MAX_SIZE)
+        assertEquals(true, sut.evictionCount() > 0)
+    }
+
+    @Test
+    fun bitmapLargerThanCache_isNotCached() {
+        val sut = ThumbnailsMemoryCache(MAX_SIZE)
+
+        sut.put("a", bitmap(size = MAX_SIZE.toInt() + 1))
+
+        assertNull(sut.get("a"))
+        assertEquals(0, sut.size())
+    }
+
+    @Test
+    fun recycledBitmap_isTreatedAsMiss() {
+        val sut = ThumbnailsMemoryCache(MAX_SIZE)
+        val bitmap = bitmap()
+        sut.put("a", bitmap)
+
+        every { bitmap.isRecycled } returns true
+
+        assertNull(sut.get("a"))
+        assertEquals(0, sut.size())
+    }
+
+    @Test
+    fun trimMemory_releasesMemory() {
+        val sut = ThumbnailsMemoryCache(MAX_SIZE)
+        repeat(4) { sut.put("key$it", bitmap()) }
+
+        sut.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+        assertEquals(2L * BITMAP_SIZE, sut.size())
+
+        sut.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND)
+        assertEquals(0, sut.size())
+    }
+}
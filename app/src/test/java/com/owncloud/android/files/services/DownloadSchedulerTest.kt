@@ -0,0 +1,220 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.files.services
+
+import com.nextcloud.client.network.WebDavStandIn
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+class DownloadSchedulerTest {
+
+    companion object {
+        private const val PARALLELISM = 3
+        private const val DOWNLOADS = 200
+        private const val TIMEOUT_S = 10L
+        private const val BENCHMARK_DOWNLOADS = 1000
+        private const val BENCHMARK_LATENCY_MS = 20L
+        private const val BENCHMARK_TIMEOUT_S = 600L
+    }
+
+    private val executor = Executors.newCachedThreadPool()
+    private val order = Collections.synchronizedList(mutableListOf<String>())
+    private val idle = CountDownLatch(1)
+
+    @After
+    fun tearDown() {
+        executor.shutdownNow()
+    }
+
+    private fun scheduler(parallelism: Int = PARALLELISM) = DownloadScheduler(parallelism, executor) { idle.countDown() }
+
+    private fun awaitIdle() = assertTrue(idle.await(TIMEOUT_S, TimeUnit.SECONDS))
+
+    /**
+     * Submits a download which keeps the only slot busy until the returned latch is released.
+     */
+    private fun DownloadScheduler.block(): CountDownLatch {
+        val gate = CountDownLatch(1)
+        submit("blocking", "/block", true) { gate.await() }
+        return gate
+    }
+
+    private fun DownloadScheduler.submit(account: String, name: String, priority: Boolean = false) =
+        submit(account, "/$name", priority) { order.add(name) }
+
+    @Test
+    fun sameFile_isDownloadedOnce() {
+        val sut = scheduler(1)
+        val gate = sut.block()
+
+        assertTrue(sut.submit("a", "file"))
+        assertFalse(sut.submit("a", "file"))
+        assertTrue(sut.submit("b", "file"))
+        gate.countDown()
+        awaitIdle()
+
+        assertEquals(listOf("file", "file"), order)
+        assertTrue(sut.isIdle)
+    }
+
+    @Test
+    fun priorityDownloads_runFirst() {
+        val sut = scheduler(1)
+        val gate = sut.block()
+
+        sut.submit("a", "sync1")
+        sut.submit("a", "sync2")
+        sut.submit("a", "opened", priority = true)
+        // requested again by the user while waiting for the synchronization
+        sut.submit("a", "sync2", priority = true)
+        gate.countDown()
+        awaitIdle()
+
+        assertEquals(listOf("opened", "sync2", "sync1"), order)
+    }
+
+    @Test
+    fun accountsTakeTurns() {
+        val sut = scheduler(1)
+        val gate = sut.block()
+
+        (1..4).forEach { sut.submit("a", "a$it") }
+        (1..2).forEach { sut.submit("b", "b$it") }
+        gate.countDown()
+        awaitIdle()
+
+        assertEquals(listOf("a1", "b1", "a2", "b2", "a3", "a4"), order)
+    }
+
+    @Test
+    fun cancel_removesQueuedDownloads() {
+        val sut = scheduler(1)
+        val gate = sut.block()
+
+        sut.submit("a", "a1")
+        sut.submit("a", "a2")
+        sut.submit("b", "b1")
+        sut.submit("b", "b2")
+
+        assertTrue(sut.cancel("a", "/a2"))
+        assertFalse(sut.cancel("a", "/a2"))
+        sut.cancel("b")
+        gate.countDown()
+        awaitIdle()
+
+        assertEquals(listOf("a1"), order)
+    }
+
+    @Test
+    fun failingDownload_doesNotStopOthers() {
+        val sut = scheduler(1)
+        val gate = sut.block()
+
+        sut.submit("a", "/fail", false) { error("failed") }
+        sut.submit("a", "a1")
+        gate.countDown()
+        awaitIdle()
+
+        assertEquals(listOf("a1"), order)
+    }
+
+    @Test
+    fun parallelism_isBounded() {
+        val done = CountDownLatch(DOWNLOADS)
+        val running = AtomicInteger()
+        val maxRunning = AtomicInteger()
+        val sut = DownloadScheduler(PARALLELISM, executor, null)
+
+        repeat(DOWNLOADS) {
+            sut.submit("account", "/file$it", false) {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), ::maxOf)
+                Thread.yield()
+                running.decrementAndGet()
+                done.countDown()
+            }
+        }
+        assertTrue(done.await(TIMEOUT_S, TimeUnit.SECONDS))
+
+        assertTrue("max running ${maxRunning.get()}", maxRunning.get() <= PARALLELISM)
+    }
+
+    /**
+     * Downloads bound by request latency, like an offline folder of many small files, must not wait for each other.
+     */
+    @Test
+    fun allSlotsAreUsed() {
+        val allRunning = CountDownLatch(PARALLELISM)
+        val timedOut = AtomicBoolean()
+        val sut = scheduler()
+
+        repeat(PARALLELISM) {
+            sut.submit("account", "/file$it", false) {
+                allRunning.countDown()
+                if (!allRunning.await(TIMEOUT_S, TimeUnit.SECONDS)) {
+                    timedOut.set(true)
+                }
+            }
+        }
+        awaitIdle()
+
+        assertFalse("$PARALLELISM downloads never ran at the same time", timedOut.get())
+    }
+
+    /**
+     * Downloads an offline folder of small files from a local WebDAV stand-in, one after the other and with the
+     * default parallelism of R.integer.max_concurrent_downloads. Only prints the times, as they depend on the machine.
+     */
+    @Ignore("Benchmark, run manually")
+    @Test
+    fun benchmark_webDavStandIn() {
+        WebDavStandIn(BENCHMARK_LATENCY_MS).use { server ->
+            fun measure(parallelism: Int): Long {
+                val done = CountDownLatch(BENCHMARK_DOWNLOADS)
+                val sut = DownloadScheduler(parallelism, executor, null)
+                val start = System.nanoTime()
+                repeat(BENCHMARK_DOWNLOADS) {
+                    val path = "/remote.php/dav/files/user/Offline/file$it.txt"
+                    sut.submit("account", path, false) {
+                        server.get(path)
+                        done.countDown()
+                    }
+                }
+                assertTrue(done.await(BENCHMARK_TIMEOUT_S, TimeUnit.SECONDS))
+                return (System.nanoTime() - start) / 1_000_000
+            }
+
+            val sequentialMs = measure(1)
+            val parallelMs = measure(PARALLELISM)
+            println(
+                "$BENCHMARK_DOWNLOADS downloads with $BENCHMARK_LATENCY_MS ms latency: sequential $sequentialMs ms, " +
+                    "$PARALLELISM parallel $parallelMs ms"
+            )
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.operations
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class ChunkManifestTest {
+
+    companion object {
+        private const val REMOTE_PATH = "/Videos/a;b.mp4"
+        private const val FILE_SIZE = 100L
+        private const val LAST_MODIFIED = 1_700_000_000_000L
+    }
+
+    private fun manifest(chunkSize: Long = 30) = ChunkManifest.create(REMOTE_PATH, FILE_SIZE, LAST_MODIFIED, chunkSize)
+
+    private fun ChunkManifest.Chunk.range() = start to end
+
+    private fun ChunkManifest.reload() = ChunkManifest.parse(format(), REMOTE_PATH, FILE_SIZE, LAST_MODIFIED)!!
+
+    @Test
+    fun chunksCoverFileOnce() {
+        val sut = manifest()
+
+        assertEquals(0L to 30L, sut.next()!!.range())
+        assertEquals(30L to 60L, sut.next()!!.range())
+        assertEquals(60L to 90L, sut.next()!!.range())
+        assertEquals(90L to 100L, sut.next()!!.range())
+        assertNull(sut.next())
+    }
+
+    @Test
+    fun chunksAreNamedByPartNumber() {
+        val sut = manifest(chunkSize = 7)
+        val names = generateSequence { sut.next() }.map { it.name }.toList()
+
+        assertEquals((1..15).map { it.toString() }, names)
+    }
+
+    @Test
+    fun chunksGrow_toStayWithinMaxChunks() {
+        val fileSize = ChunkManifest.MAX_CHUNKS * 10L + 1
+        val sut = ChunkManifest.create(REMOTE_PATH, fileSize, LAST_MODIFIED, 1)
+        val chunks = generateSequence { sut.next() }.toList()
+
+        assertTrue(chunks.size <= ChunkManifest.MAX_CHUNKS)
+        assertEquals(fileSize, chunks.last().end)
+    }
+
+    @Test
+    fun chunkSize_changesForNewChunks() {
+        val sut = manifest()
+        val first = sut.next()!!
+
+        sut.confirm(first, 50)
+
+        assertEquals(30L to 80L, sut.next()!!.range())
+        assertEquals(80L to 100L, sut.next()!!.range())
+    }
+
+    @Test
+    fun complete_whenAllChunksConfirmed() {
+        val sut = manifest()
+        val chunks = generateSequence { sut.next() }.toList()
+
+        chunks.reversed().forEach {
+            assertFalse(sut.isComplete)
+            sut.confirm(it, 30)
+        }
+
+        assertTrue(sut.isComplete)
+        assertEquals(FILE_SIZE, sut.confirmedBytes)
+    }
+
+    @Test
+    fun resume_sendsOnlyMissingChunks() {
+        val sut = manifest()
+        val first = sut.next()!!
+        val second = sut.next()!!
+        sut.confirm(first, 30)
+        sut.release(second)
+
+        val resumed = sut.reload()
+
+        assertEquals(sut.transferId, resumed.transferId)
+        assertEquals(30L, resumed.confirmedBytes)
+        val chunks = generateSequence { resumed.next() }.map { it.name to it.range() }.toList()
+        assertEquals(listOf("2" to (30L to 60L), "3" to (60L to 90L), "4" to (90L to 100L)), chunks)
+    }
+
+    @Test
+    fun resume_recreatesChunksStartedAfterLastStore() {
+        val sut = manifest(chunkSize = 10)
+        val first = sut.next()!!
+        sut.next()
+        sut.confirm(first, 10)
+        val stored = sut.format()
+
+        // started before the upload was interrupted, but not stored anymore
+        val started = (1..ParallelChunkedUploadRemoteOperation.PARALLEL_CHUNKS).map { sut.next()!!.range() }
+
+        val resumed = ChunkManifest.parse(stored, REMOTE_PATH, FILE_SIZE, LAST_MODIFIED)!!
+        val pending = resumed.next()!!
+        // even if chunks get larger, the ones which may be on the server already keep their boundaries
+        resumed.confirm(pending, 40)
+        val recreated = (1..ParallelChunkedUploadRemoteOperation.PARALLEL_CHUNKS).map { resumed.next()!!.range() }
+
+        assertEquals(started, recreated)
+    }
+
+    @Test
+    fun reset_forgetsChunks() {
+        val sut = manifest(chunkSize = 50)
+        sut.confirm(sut.next()!!, 50)
+
+        sut.reset()
+
+        assertEquals(0L, sut.confirmedBytes)
+        val first = sut.next()!!
+        assertEquals("1", first.name)
+        assertEquals(0L to 50L, first.range())
+    }
+
+    @Test
+    fun parse_changedFile() {
+        val stored = manifest().format()
+
+        assertNotNull(ChunkManifest.parse(stored, REMOTE_PATH, FILE_SIZE, LAST_MODIFIED))
+        assertNull(ChunkManifest.parse(stored, REMOTE_PATH, FILE_SIZE + 1, LAST_MODIFIED))
+        assertNull(ChunkManifest.parse(stored, REMOTE_PATH, FILE_SIZE, LAST_MODIFIED + 1))
+        assertNull(ChunkManifest.parse(stored, "/Videos/other.mp4", FILE_SIZE, LAST_MODIFIED))
+    }
+
+    @Test
+    fun parse_invalid() {
+        assertNull(ChunkManifest.parse(null, REMOTE_PATH, FILE_SIZE, LAST_MODIFIED))
+        assertNull(ChunkManifest.parse("", REMOTE_PATH, FILE_SIZE, LAST_MODIFIED))
+        // manifests of the offset named chunks are not resumed
+        assertNull(ChunkManifest.parse("1;id;100;1;0-30;;$REMOTE_PATH", REMOTE_PATH, FILE_SIZE, 1))
+        assertNull(ChunkManifest.parse("2;id;100;1;30;2;30;0-a;$REMOTE_PATH", REMOTE_PATH, FILE_SIZE, 1))
+        assertNull(ChunkManifest.parse("2;id;100;1;30;0;0;;$REMOTE_PATH", REMOTE_PATH, FILE_SIZE, 1))
+    }
+
+    @Test
+    fun nextChunkSize_followsThroughput() {
+        val size = ParallelChunkedUploadRemoteOperation.MIN_CHUNK_SIZE * 4
+        val target = ParallelChunkedUploadRemoteOperation.TARGET_CHUNK_MILLIS
+
+        // uploaded in half the target time, grows
+        assertTrue(ParallelChunkedUploadRemoteOperation.nextChunkSize(size, size, target / 2) > size)
+        // uploaded in twice the target time, shrinks
+        assertTrue(ParallelChunkedUploadRemoteOperation.nextChunkSize(size, size, target * 2) < size)
+        // bounded
+        assertEquals(
+            ParallelChunkedUploadRemoteOperation.MAX_CHUNK_SIZE,
+            ParallelChunkedUploadRemoteOperation.nextChunkSize(size, size, 1)
+        )
+        assertEquals(
+            ParallelChunkedUploadRemoteOperation.MIN_CHUNK_SIZE,
+            ParallelChunkedUploadRemoteOperation.nextChunkSize(
+                ParallelChunkedUploadRemoteOperation.MIN_CHUNK_SIZE,
+                1,
+                target
+            )
+        )
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.operations
+
+import com.owncloud.android.datamodel.UploadsStorageManager
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+class ParallelChunkedUploadRemoteOperationTest {
+
+    companion object {
+        private const val REMOTE_PATH = "/Videos/video.mp4"
+        private const val UPLOAD_ID = 42L
+        private const val FILE_SIZE = 100
+    }
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val uploadsStorageManager = mockk<UploadsStorageManager>(relaxed = true)
+
+    private fun file(): File = folder.newFile().apply { writeBytes(ByteArray(FILE_SIZE)) }
+
+    private fun operation(file: File, uploadId: Long) = ParallelChunkedUploadRemoteOperation(
+        file.absolutePath,
+        REMOTE_PATH,
+        "video/mp4",
+        null,
+        file.lastModified() / 1000,
+        file.lastModified() / 1000,
+        null,
+        true,
+        false,
+        uploadsStorageManager,
+        uploadId
+    )
+
+    private fun storedManifest(file: File): String {
+        val manifest = ChunkManifest.create(REMOTE_PATH, file.length(), file.lastModified(), 30)
+        manifest.confirm(manifest.next()!!, 30)
+        return manifest.format()
+    }
+
+    @Test
+    fun loadManifest_resumesStoredManifest() {
+        val file = file()
+        every { uploadsStorageManager.getChunkManifest(UPLOAD_ID) } returns storedManifest(file)
+
+        val manifest = operation(file, UPLOAD_ID).loadManifest(file)
+
+        assertEquals(30L, manifest.confirmedBytes)
+    }
+
+    @Test
+    fun loadManifest_notResumable_ignoresStoredManifest() {
+        val file = file()
+        every { uploadsStorageManager.getChunkManifest(any()) } returns storedManifest(file)
+
+        val manifest = operation(file, ParallelChunkedUploadRemoteOperation.NOT_RESUMABLE).loadManifest(file)
+
+        assertEquals(0L, manifest.confirmedBytes)
+        verify(exactly = 0) { uploadsStorageManager.getChunkManifest(any()) }
+    }
+}
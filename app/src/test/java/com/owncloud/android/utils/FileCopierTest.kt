@@ -0,0 +1,133 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.utils
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.CancellationException
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.random.Random
+
+class FileCopierTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val random = Random(1)
+
+    private fun newFile(parent: File, name: String, size: Int): File =
+        File(parent, name).also {
+            it.parentFile!!.mkdirs()
+            it.writeBytes(random.nextBytes(size))
+        }
+
+    @Test
+    fun copy_file() {
+        val source = newFile(folder.root, "source", (FileCopier.TRANSFER_SIZE * 2 + 1).toInt())
+        val target = File(folder.root, "target")
+        var progress = 0L
+
+        val copied = FileCopier.copy(source, target, null) { copiedBytes, totalBytes ->
+            assertTrue(copiedBytes > progress)
+            assertEquals(source.length(), totalBytes)
+            progress = copiedBytes
+        }
+
+        assertEquals(source.length(), copied)
+        assertEquals(source.length(), progress)
+        assertArrayEquals(source.readBytes(), target.readBytes())
+    }
+
+    @Test
+    fun copy_replacesTarget() {
+        val source = newFile(folder.root, "source", 10)
+        val target = newFile(folder.root, "target", 100)
+
+        FileCopier.copy(source, target, null, null)
+
+        assertArrayEquals(source.readBytes(), target.readBytes())
+    }
+
+    @Test(expected = CancellationException::class)
+    fun copy_cancelled() {
+        val source = newFile(folder.root, "source", 100)
+
+        FileCopier.copy(source, File(folder.root, "target"), AtomicBoolean(true), null)
+    }
+
+    @Test
+    fun copy_stream() {
+        val data = random.nextBytes(FileCopier.BUFFER_SIZE * 3 + 1)
+        val target = ByteArrayOutputStream()
+
+        val copied = FileCopier.copy(ByteArrayInputStream(data), target, null, null)
+
+        assertEquals(data.size.toLong(), copied)
+        assertArrayEquals(data, target.toByteArray())
+    }
+
+    @Test
+    fun copyTree() {
+        val source = folder.newFolder("source")
+        val files = listOf("a", "b/c", "b/d/e", "f/g").map { newFile(source, it, random.nextInt(1, 1000)) }
+        File(source, "empty").mkdirs()
+        val target = File(folder.root, "target")
+        val progress = AtomicLong()
+
+        val copied = FileCopier.copyTree(source, target, 2, null) { copiedBytes, totalBytes ->
+            assertEquals(files.sumOf { it.length() }, totalBytes)
+            progress.accumulateAndGet(copiedBytes) { a, b -> maxOf(a, b) }
+        }
+
+        assertEquals(files.sumOf { it.length() }, copied)
+        assertEquals(copied, progress.get())
+        assertTrue(File(target, "empty").isDirectory)
+        files.forEach {
+            assertArrayEquals(it.readBytes(), File(target, it.relativeTo(source).path).readBytes())
+        }
+    }
+
+    @Test
+    fun copyTree_cancelled() {
+        val source = folder.newFolder("source")
+        newFile(source, "a", 10)
+
+        try {
+            FileCopier.copyTree(source, File(folder.root, "target"), 2, AtomicBoolean(true), null)
+            error("not cancelled")
+        } catch (e: CancellationException) {
+            assertFalse(File(folder.root, "target/a").exists())
+        }
+    }
+
+    @Test(expected = IOException::class)
+    fun copyTree_missingSource() {
+        FileCopier.copyTree(File(folder.root, "missing"), File(folder.root, "target"), 2, null, null)
+    }
+}
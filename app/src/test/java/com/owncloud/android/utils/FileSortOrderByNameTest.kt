@@ -0,0 +1,113 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.utils
+
+import com.owncloud.android.datamodel.OCFile
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import third_parties.daveKoeller.AlphanumComparator
+import kotlin.random.Random
+
+class FileSortOrderByNameTest {
+
+    companion object {
+        private const val FOLDER_SIZE = 20_000
+        private const val NAME_LOOKUPS_PER_FILE = 2
+    }
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private fun file(name: String, isFolder: Boolean = false) = OCFile("/$name").apply {
+        mimeType = if (isFolder) MimeType.DIRECTORY else "image/jpeg"
+    }
+
+    @Test
+    fun sortCloudFiles_foldersFirst_naturalOrder() {
+        val files = mutableListOf(
+            file("img10.jpg"),
+            file("Photos", true),
+            file("img2.jpg"),
+            file("Documents 10", true),
+            file("Documents 9", true),
+            file("img02.jpg")
+        )
+
+        val ascending = FileSortOrder.sort_a_to_z.sortCloudFiles(files.toMutableList()).map { it.fileName }
+        val descending = FileSortOrder.sort_z_to_a.sortCloudFiles(files.toMutableList()).map { it.fileName }
+
+        assertEquals(listOf("Documents 9", "Documents 10", "Photos", "img2.jpg", "img02.jpg", "img10.jpg"), ascending)
+        assertEquals(listOf("Photos", "Documents 10", "Documents 9", "img10.jpg", "img02.jpg", "img2.jpg"), descending)
+    }
+
+    @Test
+    fun sortLocalFiles_foldersFirst_naturalOrder() {
+        val files = mutableListOf(
+            folder.newFile("File10.txt"),
+            folder.newFolder("b"),
+            folder.newFile("file9.txt"),
+            folder.newFolder("A")
+        )
+
+        val sorted = FileSortOrder.sort_a_to_z.sortLocalFiles(files).map { it.name }
+
+        assertEquals(listOf("A", "b", "file9.txt", "File10.txt"), sorted)
+    }
+
+    /**
+     * Sorts a large folder by name, in the same order as calling the comparator on the names in every comparison,
+     * but reading each name only a fixed number of times instead of in every comparison.
+     */
+    @Test
+    fun sortLargeFolder() {
+        val random = Random(1)
+        var nameLookups = 0
+        val files = List(FOLDER_SIZE) {
+            val name = if (random.nextBoolean()) "IMG_" else "Document "
+            val path = "/" + name + random.nextInt(100_000) + " (" + random.nextInt(10) + ").jpg"
+            val isFolder = random.nextInt(10) == 0
+            object : OCFile(path) {
+                override fun getFileName(): String {
+                    nameLookups++
+                    return super.getFileName()
+                }
+            }.apply {
+                mimeType = if (isFolder) MimeType.DIRECTORY else "image/jpeg"
+            }
+        }
+
+        val expected = files.sortedWith { o1, o2 ->
+            when {
+                o1.isFolder && o2.isFolder -> AlphanumComparator.compare(o1, o2)
+                o1.isFolder -> -1
+                o2.isFolder -> 1
+                else -> AlphanumComparator.compare(o1, o2)
+            }
+        }
+        nameLookups = 0
+        val sorted = FileSortOrder.sort_a_to_z.sortCloudFiles(files.toMutableList())
+        val sortLookups = nameLookups
+
+        assertEquals(expected.map { it.fileName }, sorted.map { it.fileName })
+        assertTrue("$sortLookups name lookups", sortLookups <= NAME_LOOKUPS_PER_FILE * FOLDER_SIZE)
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.utils
+
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.util.concurrent.Executor
+
+class FolderSizeIndexTest {
+
+    companion object {
+        private const val FOLDERS = 300
+        private const val FILES_PER_FOLDER = 30
+    }
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val sut = FolderSizeIndex { it.run() }
+
+    private fun File.write(size: Int) = apply {
+        parentFile?.mkdirs()
+        writeBytes(ByteArray(size))
+    }
+
+    @Test
+    fun getSize_sumsAllFiles() {
+        val root = folder.newFolder("root")
+        File(root, "a.txt").write(10)
+        File(root, "sub/b.txt").write(20)
+        File(root, "sub/subsub/c.txt").write(30)
+
+        assertEquals(-1, sut.getIndexedSize(root))
+        assertEquals(60, sut.getSize(root))
+        assertEquals(60, sut.getIndexedSize(root))
+        assertEquals(50, sut.getIndexedSize(File(root, "sub")))
+        assertEquals(0, sut.getSize(File(root, "a.txt")))
+        assertEquals(0, sut.getSize(File(root, "missing")))
+    }
+
+    @Test
+    fun invalidate_updatesAncestors() {
+        val root = folder.newFolder("root")
+        File(root, "a.txt").write(10)
+        val deep = File(root, "sub/subsub/c.txt").write(30)
+        assertEquals(40, sut.getSize(root))
+
+        // not noticed until invalidated, as the folders themselves did not change
+        deep.write(100)
+        assertEquals(40, sut.getIndexedSize(root))
+
+        sut.invalidate(deep.absolutePath)
+        assertEquals(-1, sut.getIndexedSize(root))
+        assertEquals(110, sut.getSize(root))
+    }
+
+    @Test
+    fun invalidate_folder_dropsFoldersInside() {
+        val root = folder.newFolder("root")
+        val sub = File(root, "sub/subsub/c.txt").write(30).parentFile!!.parentFile!!
+        val sibling = File(root, "sub2/d.txt").write(5).parentFile!!
+        sut.getSize(root)
+
+        sut.invalidate(sub.absolutePath)
+
+        assertEquals(-1, sut.getIndexedSize(sub))
+        assertEquals(-1, sut.getIndexedSize(File(sub, "subsub")))
+        assertEquals(5, sut.getIndexedSize(sibling))
+    }
+
+    @Test
+    fun changedFolder_isWalkedAgain() {
+        val root = folder.newFolder("root")
+        File(root, "a.txt").write(10)
+        root.setLastModified(1_000_000)
+        assertEquals(10, sut.getSize(root))
+
+        File(root, "b.txt").write(5)
+        root.setLastModified(2_000_000)
+
+        assertEquals(-1, sut.getIndexedSize(root))
+        assertEquals(15, sut.getSize(root))
+    }
+
+    @Test
+    fun index_runsOncePerFolder() {
+        val queued = mutableListOf<Runnable>()
+        val sut = FolderSizeIndex(Executor { queued.add(it) })
+        val root = folder.newFolder("root")
+        File(root, "a.txt").write(10)
+        var indexed = 0
+
+        sut.index(root) { indexed++ }
+        sut.index(root) { indexed++ }
+        assertEquals(1, queued.size)
+
+        queued.removeAt(0).run()
+        assertEquals(1, indexed)
+        assertEquals(10, sut.getIndexedSize(root))
+    }
+
+    /**
+     * Sorts local folders by size, walking each folder once instead of in every comparison.
+     */
+    @Test
+    fun sortLocalFiles_bySize() {
+        val root = folder.newFolder("root")
+        var listings = 0
+        val folders = (0 until FOLDERS).map { i ->
+            val path = File(root, "folder$i").path
+            object : File(path) {
+                override fun listFiles(): Array<File>? {
+                    listings++
+                    return super.listFiles()
+                }
+            }.apply {
+                repeat(FILES_PER_FOLDER) { j -> File(this, "file$j").write((i * 7919 + j) % 100) }
+            }
+        }
+
+        fun walk(dir: File): Long = dir.listFiles()!!.sumOf { if (it.isDirectory) walk(it) else it.length() }
+
+        val expected = folders.toMutableList().apply { sortWith { o1, o2 -> walk(o1).compareTo(walk(o2)) } }
+        listings = 0
+        val sorted = FileSortOrder.sort_small_to_big.sortLocalFiles(folders.toMutableList())
+        val sortListings = listings
+
+        assertEquals(expected.map { walk(it) }, sorted.map { walk(it) })
+        assertEquals(FOLDERS, sortListings)
+    }
+}
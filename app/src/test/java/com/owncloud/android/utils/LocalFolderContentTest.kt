@@ -0,0 +1,151 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.utils
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+class LocalFolderContentTest {
+
+    companion object {
+        private const val CHILDREN = 10_000
+        private val BENCHMARK_SIZES = listOf(1_000, 10_000, 50_000)
+        private const val BENCHMARK_RUNS = 3
+
+        /** share of the children of a folder with a local copy */
+        private const val DOWNLOADED_EVERY = 10
+    }
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    @Test
+    fun exists_matchesFileSystem() {
+        val root = folder.newFolder("root")
+        File(root, "file.txt").writeText("content")
+        File(root, "sub").mkdir()
+        val outside = folder.newFile("outside.txt")
+
+        val sut = LocalFolderContent(root)
+
+        assertTrue(sut.exists(File(root, "file.txt").path))
+        assertTrue(sut.exists(root.path + "/sub/"))
+        assertFalse(sut.exists(File(root, "missing.txt").path))
+        assertTrue(sut.exists(outside.path))
+        assertFalse(sut.exists(File(root, "sub/missing.txt").path))
+    }
+
+    @Test
+    fun missingFolder_containsNothing() {
+        val missing = File(folder.root, "missing")
+        val sut = LocalFolderContent(missing)
+
+        assertFalse(sut.exists(File(missing, "file.txt").path))
+    }
+
+    /**
+     * Names differing only in case exist on case-insensitive storage only, as with [File.exists].
+     */
+    @Test
+    fun differentCase_matchesFileSystem() {
+        val root = folder.newFolder("root")
+        File(root, "Photo.JPG").writeText("content")
+        val differentCase = File(root, "photo.jpg").path
+
+        val sut = LocalFolderContent(root)
+
+        assertEquals(File(differentCase).exists(), sut.exists(differentCase))
+        assertFalse(sut.exists(File(root, "photo.png").path))
+    }
+
+    @Test
+    fun listing_isASnapshot() {
+        val root = folder.newFolder("root")
+        val sut = LocalFolderContent(root)
+        File(root, "file.txt").writeText("content")
+
+        assertFalse(sut.exists(File(root, "file.txt").path))
+    }
+
+    /**
+     * Looks up the local copies of all children of a refreshed folder with a single listing of the folder instead of
+     * one file system access per child.
+     */
+    @Test
+    fun refreshLookup_listsFolderOnce() {
+        val root = folder.newFolder("root")
+        for (i in 0 until CHILDREN step DOWNLOADED_EVERY) {
+            File(root, "file$i").createNewFile()
+        }
+        val paths = (0 until CHILDREN).map { root.path + "/file" + it }
+        var listings = 0
+        val counting = object : File(root.path) {
+            override fun list(): Array<String>? {
+                listings++
+                return super.list()
+            }
+        }
+
+        val sut = LocalFolderContent(counting)
+        val expected = paths.filter { File(it).exists() }
+        // answered without the file system, so removed files are still found
+        root.listFiles()!!.forEach { it.delete() }
+
+        assertEquals(CHILDREN / DOWNLOADED_EVERY, expected.size)
+        assertEquals(expected, paths.filter { sut.exists(it) })
+        assertEquals(1, listings)
+    }
+
+    /**
+     * Looks up the local copies of all children of refreshed folders of different sizes, with one file system access
+     * per child compared to a single listing of the folder. Only prints the times, as they depend on the machine.
+     */
+    @Ignore("Benchmark, run manually")
+    @Test
+    fun benchmark_refreshLookup() {
+        for (size in BENCHMARK_SIZES) {
+            val root = folder.newFolder("folder$size")
+            for (i in 0 until size step DOWNLOADED_EVERY) {
+                File(root, "file$i").createNewFile()
+            }
+            val paths = (0 until size).map { root.path + "/file" + it }
+
+            var statMs = Long.MAX_VALUE
+            var listingMs = Long.MAX_VALUE
+            repeat(BENCHMARK_RUNS) {
+                var start = System.nanoTime()
+                paths.count { File(it).exists() }
+                statMs = minOf(statMs, (System.nanoTime() - start) / 1_000_000)
+
+                start = System.nanoTime()
+                val content = LocalFolderContent(root)
+                paths.count { content.exists(it) }
+                listingMs = minOf(listingMs, (System.nanoTime() - start) / 1_000_000)
+            }
+
+            println("$size children: file system $statMs ms, listing $listingMs ms")
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.utils
+
+import com.owncloud.android.datamodel.ArbitraryDataProvider
+import com.owncloud.android.datamodel.SyncedFolder
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class MediaStoreWatermarkTest {
+
+    companion object {
+        private const val SCOPE = "1;true;-1;/storage/emulated/0/DCIM;Camera"
+        private const val VERSION = "1.0"
+    }
+
+    @Test
+    fun formatAndParse() {
+        val watermark = MediaStoreWatermark(SCOPE, VERSION, 42, 1_700_000_000, 815)
+
+        assertEquals(watermark, MediaStoreWatermark.parse(watermark.format()))
+    }
+
+    @Test
+    fun formatAndParseWithoutVersion() {
+        val watermark = MediaStoreWatermark(SCOPE, null, 0, 1_700_000_000, 815)
+
+        assertEquals(watermark, MediaStoreWatermark.parse(watermark.format()))
+    }
+
+    @Test
+    fun parseInvalid() {
+        assertNull(MediaStoreWatermark.parse(null))
+        assertNull(MediaStoreWatermark.parse(""))
+        assertNull(MediaStoreWatermark.parse("1.0;1;2"))
+        assertNull(MediaStoreWatermark.parse("1.0;a;2;3;$SCOPE"))
+    }
+
+    @Test
+    fun advance() {
+        val watermark = MediaStoreWatermark.initial(SCOPE, VERSION)
+            .advance(10, 1000, 5)
+            .advance(7, 2000, 3)
+
+        assertEquals(MediaStoreWatermark(SCOPE, VERSION, 10, 2000, 5), watermark)
+    }
+
+    @Test
+    fun isValidFor() {
+        val watermark = MediaStoreWatermark.initial(SCOPE, VERSION)
+
+        assertTrue(watermark.isValidFor(SCOPE, VERSION))
+        assertFalse(watermark.isValidFor(SCOPE, "2.0"))
+        assertFalse(watermark.isValidFor("1;false;-1;/storage/emulated/0/DCIM", VERSION))
+    }
+
+    @Test
+    fun delete_removesWatermarksOfAllUris() {
+        val arbitraryDataProvider = mockk<ArbitraryDataProvider>(relaxed = true)
+        val syncedFolder = mockk<SyncedFolder>()
+        every { syncedFolder.account } returns "user@nextcloud.example.com"
+        every { syncedFolder.id } returns 12L
+
+        MediaStoreWatermark.delete(arbitraryDataProvider, syncedFolder)
+
+        // trailing separator, so that the watermarks of synced folder 123 are kept
+        verify {
+            arbitraryDataProvider.deleteKeysWithPrefixForAccount(
+                "user@nextcloud.example.com",
+                "media_store_watermark_12_"
+            )
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2026 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.utils
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.FileInputStream
+import java.io.OutputStream
+import java.io.PipedInputStream
+import java.io.PipedOutputStream
+import java.io.RandomAccessFile
+import javax.crypto.AEADBadTagException
+import javax.crypto.Cipher
+import javax.crypto.spec.GCMParameterSpec
+import javax.crypto.spec.SecretKeySpec
+import kotlin.concurrent.thread
+import kotlin.random.Random
+
+class StreamingGcmCipherTest {
+
+    companion object {
+        private const val KEY_LENGTH = 16
+        private const val BUFFER_SIZE = 64 * 1024
+        private val SIZES = listOf(0, 1, 15, 16, 17, BUFFER_SIZE - 1, BUFFER_SIZE, BUFFER_SIZE + 1, 3 * BUFFER_SIZE + 5)
+
+        // larger than any array, so the file cannot be held in memory
+        private const val LARGE_FILE_SIZE = 3L * 1024 * 1024 * 1024
+    }
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val random = Random(1)
+
+    private fun platformEncrypt(key: ByteArray, iv: ByteArray, data: ByteArray): ByteArray {
+        val cipher = Cipher.getInstance("AES/GCM/NoPadding")
+        cipher.init(Cipher.ENCRYPT_MODE, SecretKeySpec(key, "AES"), GCMParameterSpec(128, iv))
+        return cipher.doFinal(data)
+    }
+
+    private fun encrypt(key: ByteArray, iv: ByteArray, data: ByteArray): ByteArray =
+        ByteArrayOutputStream().also { StreamingGcmCipher(key, iv).encrypt(ByteArrayInputStream(data), it) }
+            .toByteArray()
+
+    private fun decrypt(key: ByteArray, iv: ByteArray, data: ByteArray, tag: ByteArray? = null): ByteArray =
+        ByteArrayOutputStream().also { StreamingGcmCipher(key, iv).decrypt(ByteArrayInputStream(data), it, tag) }
+            .toByteArray()
+
+    @Test
+    fun sameOutputAsPlatformCipher() {
+        for (ivLength in listOf(12, EncryptionUtils.ivLength)) {
+            for (size in SIZES) {
+                val key = random.nextBytes(KEY_LENGTH)
+                val iv = random.nextBytes(ivLength)
+                val data = random.nextBytes(size)
+
+                val encrypted = platformEncrypt(key, iv, data)
+
+                assertArrayEquals("iv $ivLength, size $size", encrypted, encrypt(key, iv, data))
+                assertArrayEquals("iv $ivLength, size $size", data, decrypt(key, iv, encrypted))
+            }
+        }
+    }
+
+    @Test
+    fun returnsTag() {
+        val key = random.nextBytes(KEY_LENGTH)
+        val iv = random.nextBytes(EncryptionUtils.ivLength)
+        val encrypted = ByteArrayOutputStream()
+
+        val tag = StreamingGcmCipher(key, iv).encrypt(ByteArrayInputStream(random.nextBytes(100)), encrypted)
+
+        assertArrayEquals(encrypted.toByteArray().copyOfRange(100, 100 + StreamingGcmCipher.TAG_LENGTH), tag)
+    }
+
+    @Test(expected = AEADBadTagException::class)
+    fun modifiedCiphertext_fails() {
+        val key = random.nextBytes(KEY_LENGTH)
+        val iv = random.nextBytes(EncryptionUtils.ivLength)
+        val encrypted = encrypt(key, iv, random.nextBytes(BUFFER_SIZE + 1))
+        encrypted[BUFFER_SIZE] = (encrypted[BUFFER_SIZE] + 1).toByte()
+
+        decrypt(key, iv, encrypted)
+    }
+
+    @Test(expected = AEADBadTagException::class)
+    fun otherExpectedTag_fails() {
+        val key = random.nextBytes(KEY_LENGTH)
+        val iv = random.nextBytes(EncryptionUtils.ivLength)
+        val encrypted = encrypt(key, iv, random.nextBytes(100))
+
+        decrypt(key, iv, encrypted, ByteArray(StreamingGcmCipher.TAG_LENGTH))
+    }
+
+    @Test(expected = AEADBadTagException::class)
+    fun truncatedInput_fails() {
+        val key = random.nextBytes(KEY_LENGTH)
+        val iv = random.nextBytes(EncryptionUtils.ivLength)
+
+        decrypt(key, iv, ByteArray(StreamingGcmCipher.TAG_LENGTH - 1))
+    }
+
+    /**
+     * Encrypts a sparse file larger than 2 GiB and decrypts the ciphertext while it is produced.
+     */
+    @Test
+    fun largeFile() {
+        val file = folder.newFile()
+        RandomAccessFile(file, "rw").use { it.setLength(LARGE_FILE_SIZE) }
+        val key = random.nextBytes(KEY_LENGTH)
+        val iv = random.nextBytes(EncryptionUtils.ivLength)
+
+        val ciphertext = PipedInputStream(BUFFER_SIZE)
+        val ciphertextOut = PipedOutputStream(ciphertext)
+        var tag: ByteArray? = null
+        val encryption = thread {
+            ciphertextOut.use { out ->
+                FileInputStream(file).use { tag = StreamingGcmCipher(key, iv).encrypt(it, out) }
+            }
+        }
+
+        val plaintext = ZeroCheckingOutputStream()
+        StreamingGcmCipher(key, iv).decrypt(ciphertext, plaintext, null)
+        encryption.join()
+
+        assertEquals(LARGE_FILE_SIZE, plaintext.count)
+        assertEquals(0L, plaintext.nonZero)
+        assertEquals(StreamingGcmCipher.TAG_LENGTH, tag!!.size)
+    }
+
+    private class ZeroCheckingOutputStream : OutputStream() {
+        var count = 0L
+        var nonZero = 0L
+
+        override fun write(b: Int) {
+            write(byteArrayOf(b.toByte()), 0, 1)
+        }
+
+        override fun write(b: ByteArray, off: Int, len: Int) {
+            for (i in off until off + len) {
+                if (b[i].toInt() != 0) {
+                    nonZero++
+                }
+            }
+            count += len
+        }
+    }
+}